@@ -1,266 +1,326 @@
 package com.example.myapplication;
 
-import android.bluetooth.BluetoothAdapter;
-import android.bluetooth.BluetoothDevice;
-import android.bluetooth.BluetoothGatt;
-import android.bluetooth.BluetoothGattCallback;
-import android.bluetooth.BluetoothGattCharacteristic;
-import android.bluetooth.BluetoothGattDescriptor;   // 新增这行！
-import android.bluetooth.BluetoothGattService;
-import android.bluetooth.BluetoothProfile;
 import android.content.Context;
 import android.os.Handler;
 import android.os.Looper;
+import android.os.SystemClock;
 import android.util.Log;
-import androidx.core.app.ActivityCompat;
-import com.example.myapplication.model.OximeterData;
-import com.example.myapplication.utils.HexUtils;
-import com.example.myapplication.utils.BluetoothUtils;
-import java.util.UUID;
-
+import android.view.Choreographer;
+import com.example.myapplication.ble.GattTransport;
+import com.example.myapplication.ble.NotificationProcessor;
+import com.example.myapplication.ble.OximeterSession;
+import com.example.myapplication.ble.OximeterTransport;
+import com.example.myapplication.model.VitalsSnapshot;
+import com.example.myapplication.utils.TimeUtils;
+import com.example.myapplication.utils.TraceRecorder;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.function.Supplier;
+
+/**
+ * 多血氧仪会话管理：每台设备一个 OximeterSession（各自的 GATT 连接、解析、样本、握手和统计），
+ * 所有设备共用一个通知处理线程和一个定时器
+ */
 public class BluetoothService {
     private static final String TAG = "BluetoothService";
+    // Android 同时保持的 GATT 连接数有限，超过后新连接会失败
+    public static final int MAX_DEVICES = 6;
+    // 跟踪缓冲区大小：单台设备约可保留最近几分钟的原始通知和全部连接事件
+    private static final int TRACE_CAPACITY = 512 * 1024;
 
-    // 血氧仪协议UUID
-    private static final UUID OXIMETER_SERVICE_UUID =
-            UUID.fromString("0000FFB0-0000-1000-8000-00805f9b34fb");
-    private static final UUID OXIMETER_CHARACTERISTIC_UUID =
-            UUID.fromString("0000FFB2-0000-1000-8000-00805f9b34fb");
-    private static final UUID CLIENT_CONFIG_DESCRIPTOR_UUID =
-            UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
-
-    // 协议命令（全部加了强制转换，彻底解决 byte 报错）
-    private static final byte[] DEVICE_READY_CMD = {
-            (byte) 0xFF, (byte) 0xFE, 0x04, (byte) 0x87, 0x22, 0x61
-    };
-    private static final byte[] START_MEASURE_CMD = {
-            (byte) 0xFF, (byte) 0xFE, 0x04, (byte) 0xB5, 0x01, (byte) 0xB0
-    };
-
-    private final Context mContext;
     private final BluetoothListener mListener;
-    private final BluetoothAdapter mBluetoothAdapter;
-    private BluetoothGatt mBluetoothGatt;
-    private BluetoothGattCharacteristic mCharacteristic;
-    private final OximeterData mOximeterData;
+    private final Supplier<OximeterTransport> mTransportFactory;
     private final Handler mMainHandler = new Handler(Looper.getMainLooper());
-    private boolean isReceivingData = false;
-    private boolean isConnected = false;
+    private final Choreographer mChoreographer;
+    // GATT 操作超时、握手响应超时的定时器
+    private final ScheduledExecutorService mTimer = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "BluetoothServiceTimer");
+        t.setDaemon(true);
+        return t;
+    });
+    // 蓝牙回调线程只拷贝通知，解析在处理线程上按批进行
+    private final NotificationProcessor mProcessor;
+    // 地址 -> 会话；增删只在主线程，回调线程只读
+    private final Map<String, OximeterSession> mSessions = new ConcurrentHashMap<>();
+    // 地址 -> 实时数据发布器（每台设备每帧最多显示一次）
+    private final Map<String, VitalsPublisher> mPublishers = new ConcurrentHashMap<>();
+    // 原始通知与连接事件的二进制跟踪，出错时或按需导出
+    private final TraceRecorder mTrace = new TraceRecorder(TRACE_CAPACITY);
+    private volatile File mTraceDir;
+    private int mNextTraceSource = 0;
+    // 握手时是否开启波形上传（START_WAVEFORM 命令码待固件确认，默认关闭）
+    private volatile boolean mWaveformEnabled = false;
 
     public interface BluetoothListener {
         void onBluetoothConnected(String deviceName, String deviceAddress);
-        void onBluetoothConnectFailed(String errorMsg);
-        void onBluetoothDisconnected();
-        void onDataReceived(String hexData);
-        void onDataStartReceiving();
+        /** deviceAddress 为 null 表示不针对某台设备的错误 */
+        void onBluetoothConnectFailed(String deviceAddress, String errorMsg);
+        /** 意外断链后等待第 attempt 次自动重连 */
+        void onBluetoothReconnecting(String deviceAddress, int attempt, long delayMs);
+        /** 重连后恢复推送，数据继续记在同一次检测里；rewoken 为 false 表示设备仍醒着，未重新唤醒 */
+        void onBluetoothDataResumed(String deviceAddress, long gapMs, boolean rewoken);
+        /** 断开且不再自动重连 */
+        void onBluetoothDisconnected(String deviceAddress);
+        /** 实时生命体征，主线程上每台设备每个显示帧最多回调一次 */
+        void onVitalsUpdated(String deviceAddress, VitalsSnapshot snapshot);
+        void onDataStartReceiving(String deviceAddress);
     }
 
     public BluetoothService(Context context, BluetoothListener listener) {
-        this.mContext = context;
+        this(() -> new GattTransport(context), listener);
+        setTraceDir(new File(context.getExternalFilesDir(null), "BleTraces"));
+    }
+
+    /**
+     * 需在主线程创建（实时数据按主线程的 Choreographer 节奏投递）
+     *
+     * @param transportFactory 每台设备新建一个链路，真机为 GattTransport，压测时可返回 SimulatedOximeterTransport
+     */
+    public BluetoothService(Supplier<OximeterTransport> transportFactory, BluetoothListener listener) {
         this.mListener = listener;
-        this.mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
-        this.mOximeterData = new OximeterData();
+        this.mTransportFactory = transportFactory;
+        this.mChoreographer = Choreographer.getInstance();
+        this.mProcessor = new NotificationProcessor(SystemClock::elapsedRealtimeNanos);
+        this.mProcessor.start();
     }
 
+    /** 连接一台设备；已有该设备的会话时重新连接 */
     public void connectToDevice(String deviceAddress) {
-        if (mBluetoothAdapter == null || !mBluetoothAdapter.isEnabled()) {
-            mListener.onBluetoothConnectFailed("蓝牙未开启，请先开启蓝牙");
-            return;
+        OximeterSession session = mSessions.get(deviceAddress);
+        if (session == null) {
+            if (mSessions.size() >= MAX_DEVICES) {
+                mListener.onBluetoothConnectFailed(deviceAddress, "最多同时连接 " + MAX_DEVICES + " 台设备");
+                return;
+            }
+            session = new OximeterSession(deviceAddress, mTransportFactory.get(), mProcessor, mTimer,
+                    SystemClock::elapsedRealtimeNanos, mSessionListener);
+            session.getData().setTrace(mTrace, mNextTraceSource++ & 0xFF);
+            session.getHandshake().setWaveformEnabled(mWaveformEnabled);
+            mSessions.put(deviceAddress, session);
+            mPublishers.put(deviceAddress, new VitalsPublisher(mChoreographer,
+                    snapshot -> mListener.onVitalsUpdated(deviceAddress, snapshot)));
+        } else {
+            session.disconnect();
         }
+        session.connect();
+    }
 
-        if (!BluetoothUtils.isBluetoothAddressValid(deviceAddress)) {
-            mListener.onBluetoothConnectFailed("蓝牙地址不合法");
-            return;
+    /**
+     * 握手时是否发送 START_WAVEFORM 开启脉搏波形（默认关闭，命令码确认后再开启），对已有设备同样生效
+     */
+    public void setWaveformEnabled(boolean enable) {
+        mWaveformEnabled = enable;
+        for (OximeterSession session : mSessions.values()) {
+            session.getHandshake().setWaveformEnabled(enable);
         }
+    }
 
-        BluetoothDevice device = mBluetoothAdapter.getRemoteDevice(deviceAddress);
-        if (device == null) {
-            mListener.onBluetoothConnectFailed("无法获取蓝牙设备");
-            return;
+    /** 同时连接多台设备 */
+    public void connectToDevices(List<String> deviceAddresses) {
+        for (String address : deviceAddresses) {
+            connectToDevice(address);
         }
+    }
 
-        mMainHandler.post(() -> {
-            if (ActivityCompat.checkSelfPermission(mContext, android.Manifest.permission.BLUETOOTH_CONNECT)
-                    != android.content.pm.PackageManager.PERMISSION_GRANTED) {
-                mListener.onBluetoothConnectFailed("缺少蓝牙连接权限");
-                return;
+    /** 所有已连接的设备一起开始唤醒握手 */
+    public void startReceivingData() {
+        boolean any = false;
+        for (OximeterSession session : mSessions.values()) {
+            if (session.isConnected()) {
+                session.startHandshake();
+                any = true;
             }
-            mBluetoothGatt = device.connectGatt(mContext, false, mGattCallback);
-        });
+        }
+        if (!any) {
+            mListener.onBluetoothConnectFailed(null, "蓝牙未连接，无法开始接收数据");
+        }
     }
 
-    public void startReceivingData() {
-        if (!isConnected || mCharacteristic == null) {
-            mListener.onBluetoothConnectFailed("蓝牙未连接，无法开始接收数据");
-            return;
+    /** 检测结束：各设备恢复均衡连接优先级，连接保持 */
+    public void endMeasurement() {
+        for (OximeterSession session : mSessions.values()) {
+            if (session.isConnected()) session.endMeasurement();
         }
+    }
 
-        new Thread(() -> {
-            try {
-                // 发送100个0x00唤醒设备
-                for (int i = 0; i < 100; i++) {
-                    sendData(new byte[]{0x00});
-                    Thread.sleep(300);
-                }
+    /** 断开并移除所有设备 */
+    public void disconnect() {
+        for (String address : new ArrayList<>(mSessions.keySet())) {
+            disconnect(address);
+        }
+    }
 
-                sendData(DEVICE_READY_CMD);
-                Thread.sleep(500);
+    /** 断开并移除一台设备 */
+    public void disconnect(String deviceAddress) {
+        OximeterSession session = mSessions.remove(deviceAddress);
+        if (session != null) session.release();
+        VitalsPublisher publisher = mPublishers.remove(deviceAddress);
+        if (publisher != null) publisher.reset();
+    }
 
-                sendData(START_MEASURE_CMD);
-                Thread.sleep(500);
+    /** 断开所有连接并停止处理线程，之后不能再使用 */
+    public void release() {
+        disconnect();
+        mProcessor.stop();
+        mTimer.shutdownNow();
+    }
 
-                isReceivingData = true;
-                mMainHandler.post(() -> mListener.onDataStartReceiving());
+    /** 当前所有会话（含未连接上的） */
+    public List<OximeterSession> getSessions() {
+        return new ArrayList<>(mSessions.values());
+    }
 
-            } catch (InterruptedException e) {
-                Log.e(TAG, "发送命令线程中断: " + e.getMessage());
-                mMainHandler.post(() -> mListener.onBluetoothConnectFailed("发送测量命令失败"));
-            }
-        }).start();
+    public OximeterSession getSession(String deviceAddress) {
+        return mSessions.get(deviceAddress);
     }
 
-    private void sendData(byte[] data) {
-        if (mBluetoothGatt == null || mCharacteristic == null) {
-            Log.e(TAG, "发送数据失败：GATT或特征值为空");
-            return;
+    /** 任一设备已连接 */
+    public boolean isConnected() {
+        for (OximeterSession session : mSessions.values()) {
+            if (session.isConnected()) return true;
         }
+        return false;
+    }
 
-        if (ActivityCompat.checkSelfPermission(mContext, android.Manifest.permission.BLUETOOTH_CONNECT)
-                != android.content.pm.PackageManager.PERMISSION_GRANTED) {
-            return;
-        }
+    /** 共用的通知处理线程（排队延迟、批大小、丢弃数等指标） */
+    public NotificationProcessor getProcessor() {
+        return mProcessor;
+    }
 
-        mCharacteristic.setValue(data);
-        mBluetoothGatt.writeCharacteristic(mCharacteristic);
+    /** 原始通知与连接事件的跟踪记录器（可调级别，例如 setLevel(TraceRecorder.INFO) 只记事件） */
+    public TraceRecorder getTrace() {
+        return mTrace;
     }
 
-    public void disconnect() {
-        if (mBluetoothGatt != null) {
-            if (ActivityCompat.checkSelfPermission(mContext, android.Manifest.permission.BLUETOOTH_CONNECT)
-                    != android.content.pm.PackageManager.PERMISSION_GRANTED) {
-                return;
+    /** 出错时自动导出跟踪文件的目录，null 表示不自动导出 */
+    public void setTraceDir(File dir) {
+        mTraceDir = dir;
+    }
+
+    /**
+     * 把当前跟踪缓冲区导出为二进制文件（TraceRecorder.decode() 可转成文本）
+     *
+     * @param reason 写进文件名，例如 manual、handshake_failed
+     */
+    public File dumpTrace(String reason) throws IOException {
+        File dir = mTraceDir;
+        if (dir == null) throw new IOException("未设置跟踪文件目录");
+        File file = new File(dir, "trace_" + TimeUtils.getFileNameTimeStamp() + "_" + reason + ".bin");
+        long bytes = mTrace.dump(file, System.currentTimeMillis(), SystemClock.elapsedRealtimeNanos());
+        Log.i(TAG, "跟踪已导出 " + bytes + " 字节: " + file.getAbsolutePath());
+        return file;
+    }
+
+    // 出错时在定时器线程上导出，不阻塞回调线程
+    private void dumpTraceOnError(String reason) {
+        if (mTraceDir == null) return;
+        mTimer.execute(() -> {
+            try {
+                dumpTrace(reason);
+            } catch (IOException e) {
+                Log.e(TAG, "导出跟踪失败", e);
             }
-            mBluetoothGatt.disconnect();
-            mBluetoothGatt.close();
-            mBluetoothGatt = null;
-        }
-        isConnected = false;
-        isReceivingData = false;
-        mCharacteristic = null;
+        });
     }
 
-    public OximeterData getCollectedData() {
-        return mOximeterData;
+    private void traceEvent(OximeterSession session, int level, int code, long a, long b) {
+        mTrace.event(session.getData().getTraceSource(), level, code, a, b, SystemClock.elapsedRealtimeNanos());
     }
 
-    public boolean isConnected() {
-        return isConnected;
+    /** 某台设备的实时数据发布（发布数 / 实际显示数） */
+    public VitalsPublisher getVitalsPublisher(String deviceAddress) {
+        return mPublishers.get(deviceAddress);
     }
 
-    private final BluetoothGattCallback mGattCallback = new BluetoothGattCallback() {
+    // 会话回调可能在 binder 线程、处理线程或定时器线程上，界面回调统一切回主线程
+    private final OximeterSession.Listener mSessionListener = new OximeterSession.Listener() {
         @Override
-        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
-            super.onConnectionStateChange(gatt, status, newState);
-
-            if (newState == BluetoothProfile.STATE_CONNECTED) {
-                if (ActivityCompat.checkSelfPermission(mContext, android.Manifest.permission.BLUETOOTH_CONNECT)
-                        != android.content.pm.PackageManager.PERMISSION_GRANTED) {
-                    return;
-                }
-                gatt.discoverServices();
-
-            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
-                isConnected = false;
-                mMainHandler.post(mListener::onBluetoothDisconnected);
-                gatt.close();
-                mBluetoothGatt = null;
+        public void onConnected(OximeterSession session, boolean notificationsEnabled) {
+            traceEvent(session, TraceRecorder.INFO, TraceRecorder.EV_CONNECTED,
+                    session.getLinkParameters().mtu, notificationsEnabled ? 1 : 0);
+            if (!notificationsEnabled) {
+                Log.e(TAG, session.getAddress() + " 开启通知失败");
+                traceEvent(session, TraceRecorder.ERROR, TraceRecorder.EV_NOTIFY_FAILED, 0, 0);
             }
+            Log.i(TAG, session.getAddress() + " 链路参数: " + session.getLinkParameters());
+            String name = session.getDeviceName();
+            mMainHandler.post(() -> mListener.onBluetoothConnected(name, session.getAddress()));
         }
 
         @Override
-        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
-            super.onServicesDiscovered(gatt, status);
-
-            if (status != BluetoothGatt.GATT_SUCCESS) {
-                mMainHandler.post(() -> mListener.onBluetoothConnectFailed("服务发现失败，错误码：" + status));
-                return;
-            }
-
-            BluetoothGattService service = gatt.getService(OXIMETER_SERVICE_UUID);
-            if (service == null) {
-                mMainHandler.post(() -> mListener.onBluetoothConnectFailed("未找到血氧仪服务"));
-                return;
-            }
-
-            mCharacteristic = service.getCharacteristic(OXIMETER_CHARACTERISTIC_UUID);
-            if (mCharacteristic == null) {
-                mMainHandler.post(() -> mListener.onBluetoothConnectFailed("未找到血氧仪特征值"));
-                return;
-            }
-
-            setCharacteristicNotification(true);
-            isConnected = true;
-
-            String deviceName = gatt.getDevice().getName();
-            String deviceAddress = gatt.getDevice().getAddress();
-            String displayName = (deviceName == null || deviceName.isEmpty())
-                    ? "未知血氧仪设备" : deviceName;
+        public void onConnectFailed(OximeterSession session, String errorMsg) {
+            traceEvent(session, TraceRecorder.ERROR, TraceRecorder.EV_CONNECT_FAILED, 0, 0);
+            dumpTraceOnError("connect_failed");
+            mMainHandler.post(() -> mListener.onBluetoothConnectFailed(session.getAddress(), errorMsg));
+        }
 
-            mMainHandler.post(() -> mListener.onBluetoothConnected(displayName, deviceAddress));
+        @Override
+        public void onLinkLost(OximeterSession session, int attempt, long delayMs) {
+            traceEvent(session, TraceRecorder.WARN, TraceRecorder.EV_LINK_LOST, attempt, delayMs);
+            Log.w(TAG, session.getAddress() + " 断链，" + delayMs + " ms 后第 " + attempt + " 次重连");
+            VitalsPublisher publisher = mPublishers.get(session.getAddress());
+            if (publisher != null) publisher.reset();
+            mMainHandler.post(() -> mListener.onBluetoothReconnecting(session.getAddress(), attempt, delayMs));
         }
 
         @Override
-        public void onCharacteristicChanged(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic) {
-            super.onCharacteristicChanged(gatt, characteristic);
-
-            byte[] data = characteristic.getValue();
-            if (data != null && data.length > 0) {
-                String hexData = HexUtils.bytesToHex(data);
-
-                // 强制打印！打开 Logcat 搜索 BLE_RAW 就能看到
-                Log.e("BLE_RAW", "收到血氧原始数据: " + hexData);
-
-                // 重点：打印长度！
-                if (hexData.contains("23 95")) {
-                    Log.e("OXIMETER_95", "收到95包，长度=" + data.length + " 内容=" + hexData);
-                }
-                // 强制保存到 OximeterData（不管有没有开始接收）
-                mOximeterData.addData(hexData);
-
-                // 只有在正式开始检测后才显示到界面
-                if (isReceivingData) {
-                    mMainHandler.post(() -> mListener.onDataReceived(hexData));
-                }
-            }
+        public void onReconnected(OximeterSession session, boolean notificationsEnabled) {
+            traceEvent(session, TraceRecorder.INFO, TraceRecorder.EV_RECONNECTED,
+                    session.getReconnectCount(), notificationsEnabled ? 1 : 0);
+            if (!notificationsEnabled) Log.e(TAG, session.getAddress() + " 重连后开启通知失败");
+            Log.i(TAG, session.getAddress() + " 已重连，链路参数: " + session.getLinkParameters());
         }
 
         @Override
-        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
-            if (status != BluetoothGatt.GATT_SUCCESS) {
-                Log.e(TAG, "特征值写入失败，错误码：" + status);
-            }
+        public void onResumed(OximeterSession session, long gapNanos, int wakeBytesSent) {
+            traceEvent(session, TraceRecorder.INFO, TraceRecorder.EV_RESUMED, gapNanos, wakeBytesSent);
+            Log.i(TAG, session.getAddress() + " 恢复推送，中断 " + gapNanos / 1_000_000 + " ms，唤醒字节 "
+                    + wakeBytesSent);
+            mMainHandler.post(() -> mListener.onBluetoothDataResumed(session.getAddress(),
+                    gapNanos / 1_000_000, wakeBytesSent > 0));
         }
-    };
 
-    // 关键修复：使用 BluetoothGattDescriptor 完整类名 + 去掉 var
-    private void setCharacteristicNotification(boolean enable) {
-        if (mBluetoothGatt == null || mCharacteristic == null) {
-            return;
+        @Override
+        public void onDisconnected(OximeterSession session) {
+            traceEvent(session, TraceRecorder.ERROR, TraceRecorder.EV_DISCONNECTED, session.getReconnectCount(), 0);
+            dumpTraceOnError("disconnected");
+            VitalsPublisher publisher = mPublishers.get(session.getAddress());
+            if (publisher != null) publisher.reset();
+            mMainHandler.post(() -> mListener.onBluetoothDisconnected(session.getAddress()));
         }
 
-        if (ActivityCompat.checkSelfPermission(mContext, android.Manifest.permission.BLUETOOTH_CONNECT)
-                != android.content.pm.PackageManager.PERMISSION_GRANTED) {
-            return;
+        @Override
+        public void onAwake(OximeterSession session, long elapsedNanos, int wakeBytesSent) {
+            traceEvent(session, TraceRecorder.INFO, TraceRecorder.EV_AWAKE, elapsedNanos, wakeBytesSent);
+            Log.i(TAG, session.getAddress() + " 已响应，用时 " + elapsedNanos / 1_000_000 + " ms，唤醒字节 "
+                    + wakeBytesSent + "，GATT 操作平均延迟 "
+                    + session.getQueue().getMeanLatencyNanos() / 1_000_000 + " ms");
+            mMainHandler.post(() -> mListener.onDataStartReceiving(session.getAddress()));
         }
 
-        mBluetoothGatt.setCharacteristicNotification(mCharacteristic, enable);
+        @Override
+        public void onHandshakeFailed(OximeterSession session, String reason) {
+            traceEvent(session, TraceRecorder.ERROR, TraceRecorder.EV_HANDSHAKE_FAILED, 0, 0);
+            dumpTraceOnError("handshake_failed");
+            Log.e(TAG, session.getAddress() + " 唤醒握手失败: " + reason);
+            mMainHandler.post(() -> mListener.onBluetoothConnectFailed(session.getAddress(), reason));
+        }
 
-        BluetoothGattDescriptor descriptor = mCharacteristic.getDescriptor(CLIENT_CONFIG_DESCRIPTOR_UUID);
-        if (descriptor != null) {
-            descriptor.setValue(enable
-                    ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE
-                    : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE);
-            mBluetoothGatt.writeDescriptor(descriptor);
+        @Override
+        public void onBatchProcessed(OximeterSession session, int notifications, long newFrames) {
+            // 只有在正式开始检测后才显示到界面；多批之间的快照由发布器合并，每帧最多显示一次
+            if (!session.isReceiving()) return;
+            VitalsPublisher publisher = mPublishers.get(session.getAddress());
+            if (publisher != null) {
+                publisher.publish(session.getData(), session.getChannel().getProcessedCount(),
+                        SystemClock.elapsedRealtimeNanos());
+            }
         }
-    }
-}
\ No newline at end of file
+    };
+}
@@ -4,11 +4,19 @@ import android.content.Context;
 import android.os.AsyncTask;
 import com.example.myapplication.model.DetectionTimeStamp;
 import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.utils.DataSaver;
+import com.example.myapplication.utils.FrameTimestampLog;
+import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 /**
@@ -47,8 +55,21 @@ public class DataUploadService {
      */
     public void uploadAllData(OximeterData oximeterData, String videoPath,
                               DetectionTimeStamp timeStamp, UploadListener listener) {
+        uploadAllData(Collections.singletonMap(null, oximeterData), videoPath, timeStamp, listener);
+    }
+
+    /**
+     * 多台设备同一次检测：视频只上传一次；第一台设备沿用 oximeter_data / oximeter_samples，
+     * 其余依次为 oximeter_data_2 / oximeter_samples_2 …，JSON 中带 oximeter_address 区分
+     * 没有收到数据的设备（未连上、重连失败）跳过，不参与编号；所有设备都没有数据才失败
+     *
+     * @param devices 设备地址 -> 数据（按迭代顺序编号）
+     */
+    public void uploadAllData(Map<String, OximeterData> devices, String videoPath,
+                              DetectionTimeStamp timeStamp, UploadListener listener) {
         // 检查数据完整性
-        if (!oximeterData.hasData()) {
+        Map<String, OximeterData> recorded = DataSaver.withData(devices);
+        if (recorded.isEmpty()) {
             listener.onUploadFailed("蓝牙数据为空，无法上传");
             return;
         }
@@ -64,22 +85,22 @@ public class DataUploadService {
         }
 
         // 异步上传（避免阻塞主线程）
-        new UploadTask(oximeterData, videoPath, timeStamp, listener).execute();
+        new UploadTask(recorded, videoPath, timeStamp, listener).execute();
     }
 
     /**
      * 异步上传任务（AsyncTask）
      */
     private class UploadTask extends AsyncTask<Void, Integer, String> {
-        private final OximeterData mOximeterData;
+        private final Map<String, OximeterData> mDevices;
         private final String mVideoPath;
         private final DetectionTimeStamp mTimeStamp;
         private final UploadListener mListener;
 
         // 构造方法
-        public UploadTask(OximeterData oximeterData, String videoPath,
+        public UploadTask(Map<String, OximeterData> devices, String videoPath,
                           DetectionTimeStamp timeStamp, UploadListener listener) {
-            this.mOximeterData = oximeterData;
+            this.mDevices = devices;
             this.mVideoPath = videoPath;
             this.mTimeStamp = timeStamp;
             this.mListener = listener;
@@ -89,6 +110,20 @@ public class DataUploadService {
         @Override
         protected String doInBackground(Void... voids) {
             try {
+                // 处理线程仍可能在写入：逐台持锁生成要上传的数据
+                List<byte[]> oximeterJsons = new ArrayList<>();
+                List<byte[]> samplesCsvs = new ArrayList<>();
+                List<byte[]> alignedCsvs = new ArrayList<>();
+                for (Map.Entry<String, OximeterData> e : mDevices.entrySet()) {
+                    OximeterData data = e.getValue();
+                    synchronized (data) {
+                        oximeterJsons.add(createOximeterDataJson(data, e.getKey()).getBytes("UTF-8"));
+                        samplesCsvs.add(DataSaver.generateSamplesCsv(data.getSamples()).getBytes("UTF-8"));
+                        alignedCsvs.add(data.getAligner().getAlignedCount() > 0
+                                ? DataSaver.generateAlignedCsv(data.getAligner()).getBytes("UTF-8") : null);
+                    }
+                }
+
                 // 创建URL连接
                 URL url = new URL(UPLOAD_API_URL);
                 HttpURLConnection connection = (HttpURLConnection) url.openConnection();
@@ -105,12 +140,30 @@ public class DataUploadService {
                 // 获取输出流（写入请求体）
                 DataOutputStream outputStream = new DataOutputStream(connection.getOutputStream());
 
-                // 1. 写入蓝牙数据（JSON格式）
-                writeDataPart(outputStream, "oximeter_data", createOximeterDataJson().getBytes("UTF-8"));
+                for (int i = 0; i < oximeterJsons.size(); i++) {
+                    String suffix = i == 0 ? "" : "_" + (i + 1);
+                    // 1. 写入蓝牙数据（JSON格式）
+                    writeDataPart(outputStream, "oximeter_data" + suffix, oximeterJsons.get(i));
+
+                    // 1.1 写入逐条样本（CSV格式）
+                    writeDataPart(outputStream, "oximeter_samples" + suffix, samplesCsvs.get(i), "text/csv");
+
+                    // 1.2 写入逐视频帧的真值（CSV格式）
+                    if (alignedCsvs.get(i) != null) {
+                        writeDataPart(outputStream, "oximeter_aligned" + suffix, alignedCsvs.get(i), "text/csv");
+                    }
+                }
 
                 // 2. 写入时间戳数据（JSON格式）
                 writeDataPart(outputStream, "time_stamp", createTimeStampJson().getBytes("UTF-8"));
 
+                // 2.1 写入视频逐帧时间戳（二进制，格式见 FrameTimestampLog）
+                File frames = FrameTimestampLog.sidecarFor(mVideoPath);
+                if (frames.exists()) {
+                    writeDataPart(outputStream, "video_frames", Files.readAllBytes(frames.toPath()),
+                            "application/octet-stream");
+                }
+
                 // 3. 写入视频文件（带进度）
                 writeFilePart(outputStream, "video_file", new File(mVideoPath));
 
@@ -162,35 +215,53 @@ public class DataUploadService {
             }
         }
 
-        /**
-         * 创建血氧数据JSON字符串
-         */
         /**
          * 创建血氧数据JSON字符串（已适配你最新的 OximeterData.java）
+         *
+         * @param deviceAddress 血氧仪地址，null 时不输出该字段
          */
-        private String createOximeterDataJson() throws JSONException {
+        private String createOximeterDataJson(OximeterData oximeterData, String deviceAddress)
+                throws JSONException {
             JSONObject json = new JSONObject();
+            if (deviceAddress != null) json.put("oximeter_address", deviceAddress);
 
             // 实时值（最新一包数据）
-            json.put("spo2", mOximeterData.getSpo2());           // 实时血氧
-            json.put("pulse_rate", mOximeterData.getPr());        // 实时心率
-            json.put("temperature", mOximeterData.getTemperature());
-            json.put("pi", mOximeterData.getPi());
-            json.put("respiration_rate", mOximeterData.getRespirationRate());
-            json.put("probe_status", mOximeterData.getProbeStatus());
-            json.put("battery_level", mOximeterData.getBatteryLevel());
+            json.put("spo2", oximeterData.getSpo2());           // 实时血氧
+            json.put("pulse_rate", oximeterData.getPr());        // 实时心率
+            json.put("temperature", oximeterData.getTemperature());
+            json.put("pi", oximeterData.getPi());
+            json.put("respiration_rate", oximeterData.getRespirationRate());
+            json.put("probe_status", oximeterData.getProbeStatus());
+            json.put("battery_level", oximeterData.getBatteryLevel());
 
             // 统计值（全程平均、最低、最高）
-            json.put("avg_spo2", mOximeterData.getAvgSpo2());
-            json.put("min_spo2", mOximeterData.getMinSpo2());
-            json.put("max_spo2", mOximeterData.getMaxSpo2());
-            json.put("avg_pr", mOximeterData.getAvgPr());
-            json.put("min_pr", mOximeterData.getMinPr());
-            json.put("max_pr", mOximeterData.getMaxPr());
+            json.put("avg_spo2", oximeterData.getAvgSpo2());
+            json.put("min_spo2", oximeterData.getMinSpo2());
+            json.put("max_spo2", oximeterData.getMaxSpo2());
+            json.put("avg_pr", oximeterData.getAvgPr());
+            json.put("min_pr", oximeterData.getMinPr());
+            json.put("max_pr", oximeterData.getMaxPr());
+            json.put("avg_pi", oximeterData.getAvgPi());
+            // 5 秒 / 30 秒 / 整个会话窗口的完整统计
+            json.put("statistics", new JSONObject(DataSaver.statisticsJson(oximeterData.getStatistics())));
+            // P5 / 中位数 / P95 及可合并的草图
+            json.put("spo2_quantiles", new JSONObject(DataSaver.quantilesJson(oximeterData.getSpo2Sketch())));
+            json.put("pr_quantiles", new JSONObject(DataSaver.quantilesJson(oximeterData.getPrSketch())));
+            // 链路参数与通知到达间隔
+            json.put("link", new JSONObject(DataSaver.linkJson(oximeterData.getLinkParameters())));
+            json.put("notification_interval_ms",
+                    new JSONObject(DataSaver.interArrivalJson(oximeterData.getInterArrival())));
+            json.put("gaps", new JSONArray(DataSaver.gapsJson(oximeterData.getSamples())));
+            json.put("video_alignment", new JSONObject(DataSaver.alignmentJson(oximeterData.getAligner())));
+            json.put("waveform_clock", new JSONObject(DataSaver.clockJson(oximeterData.getWaveformClock())));
 
             // 原始数据（可选：如果后端要原始波形）
-            json.put("raw_data_count", mOximeterData.getCount());
-            json.put("start_time", mOximeterData.getStartTime());
+            json.put("raw_data_count", oximeterData.getCount());
+            json.put("sample_count", oximeterData.getSampleCount());
+            json.put("start_time", oximeterData.getStartTime());
+            if (oximeterData.getFirstPacketNanos() >= 0) {
+                json.put("first_packet_ns", oximeterData.getFirstPacketNanos());
+            }
 
             return json.toString();
         }
@@ -203,6 +274,8 @@ public class DataUploadService {
             json.put("bluetooth_connect_time", mTimeStamp.getBluetoothConnectTime());
             json.put("video_start_time", mTimeStamp.getVideoStartTime());
             json.put("data_start_time", mTimeStamp.getBluetoothDataStartTime());
+            // 单调时钟纳秒，与样本 CSV 的时间戳同一时钟，用于和视频对齐
+            json.put("timeline", new JSONObject(DataSaver.timelineJson(mTimeStamp)));
             json.put("upload_time", com.example.myapplication.utils.TimeUtils.getPreciseTimeStamp());
             return json.toString();
         }
@@ -211,9 +284,14 @@ public class DataUploadService {
          * 写入普通数据部分（非文件）
          */
         private void writeDataPart(DataOutputStream outputStream, String key, byte[] data) throws IOException {
+            writeDataPart(outputStream, key, data, "application/json");
+        }
+
+        private void writeDataPart(DataOutputStream outputStream, String key, byte[] data,
+                                   String mimeType) throws IOException {
             outputStream.writeBytes("--" + BOUNDARY + LINE_END);
             outputStream.writeBytes("Content-Disposition: form-data; name=\"" + key + "\"" + LINE_END);
-            outputStream.writeBytes("Content-Type: application/json; charset=UTF-8" + LINE_END);
+            outputStream.writeBytes("Content-Type: " + mimeType + "; charset=UTF-8" + LINE_END);
             outputStream.writeBytes(LINE_END);
             outputStream.write(data);
             outputStream.writeBytes(LINE_END);
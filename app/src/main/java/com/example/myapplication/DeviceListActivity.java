@@ -12,6 +12,8 @@ import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
+import android.util.SparseBooleanArray;
 import android.view.View;
 import android.widget.ArrayAdapter;
 import android.widget.Button;
@@ -22,14 +24,21 @@ import android.widget.Toast;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
 
+import com.example.myapplication.ble.DiscoveredDevices;
 import com.example.myapplication.utils.BluetoothUtils;
+import com.example.myapplication.utils.KnownDevices;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 /**
  * 蓝牙设备选择界面：扫描并显示血氧仪设备
+ * 扫描结果按地址索引，列表每隔一小段时间按信号强度整体刷新一次；
+ * 上次使用的设备出现时自动勾选，一段时间没有新设备即提前结束扫描
  */
 public class DeviceListActivity extends AppCompatActivity {
     // 日志标签
@@ -39,8 +48,14 @@ public class DeviceListActivity extends AppCompatActivity {
     private static final UUID OXIMETER_SERVICE_UUID =
             UUID.fromString("0000FFB0-0000-1000-8000-00805f9b34fb");
 
-    // 扫描时长（10秒自动停止）
+    // 扫描时长（最长10秒自动停止）
     private static final long SCAN_DURATION = 10000;
+    // 已找到设备后，这么久没有新设备就提前停止扫描
+    private static final long SCAN_QUIET_DURATION = 3000;
+    // 列表刷新间隔：期间的扫描结果合并成一次刷新
+    private static final long LIST_REFRESH_INTERVAL = 300;
+    // 超过这么久没再收到广播的设备排到列表末尾
+    private static final long DEVICE_STALE_DURATION = 5000;
 
     // 权限请求码
     private static final int REQUEST_BLUETOOTH_PERMISSIONS = 100;
@@ -49,22 +64,34 @@ public class DeviceListActivity extends AppCompatActivity {
     private TextView tvScanStatus;   // 扫描状态
     private ListView lvDevices;      // 设备列表
     private Button btnRescan;        // 重新扫描按钮
+    private Button btnConnectSelected; // 连接所选设备按钮
 
     // 蓝牙相关
     private BluetoothAdapter mBluetoothAdapter;
     private BluetoothLeScanner mBluetoothLeScanner;
     private Handler mHandler = new Handler();
 
-    // 设备列表（存储蓝牙设备对象，避免重复添加）
-    private List<BluetoothDevice> mDeviceList = new ArrayList<>();
-    // 设备列表适配器（显示设备名称和地址，供用户选择）
+    // 扫描到的设备（按地址索引，记录信号强度和最后出现时间）
+    private final DiscoveredDevices mDevices = new DiscoveredDevices(DEVICE_STALE_DURATION);
+    // 当前列表显示的设备（与适配器位置一一对应）
+    private List<DiscoveredDevices.Device> mDeviceList = Collections.emptyList();
+    // 设备列表适配器（显示设备名称、地址和信号强度，供用户选择）
     private ArrayAdapter<String> mDeviceAdapter;
+    // 连接过的设备
+    private KnownDevices mKnownDevices;
+    // 用户手动改过勾选后不再自动勾选上次使用的设备
+    private boolean mSelectionTouched = false;
+    private boolean mRefreshPending = false;
+    private boolean mScanning = false;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_device_list);
 
+        mKnownDevices = new KnownDevices(this);
+        mDevices.setKnownAddresses(mKnownDevices.getKnownAddresses());
+
         // 初始化UI控件
         initView();
 
@@ -85,6 +112,8 @@ public class DeviceListActivity extends AppCompatActivity {
         tvScanStatus = findViewById(R.id.tv_scan_status);
         lvDevices = findViewById(R.id.lv_devices);
         btnRescan = findViewById(R.id.btn_rescan);
+        btnConnectSelected = findViewById(R.id.btn_connect_selected);
+        updateConnectButton();
     }
 
     /**
@@ -126,28 +155,68 @@ public class DeviceListActivity extends AppCompatActivity {
     }
 
     /**
-     * 初始化设备列表适配器：将设备信息（名称+地址）显示在ListView中
+     * 初始化设备列表适配器：将设备信息（名称+地址）显示在ListView中，可多选
      */
     private void initDeviceAdapter() {
-        // 适配器布局：使用系统默认的简单列表项（一行文本）
+        // 适配器布局：系统自带的多选列表项（文本+勾选框）
         mDeviceAdapter = new ArrayAdapter<>(this,
-                android.R.layout.simple_list_item_1, new ArrayList<>());
+                android.R.layout.simple_list_item_multiple_choice, new ArrayList<>());
         lvDevices.setAdapter(mDeviceAdapter);
+        lvDevices.setChoiceMode(ListView.CHOICE_MODE_MULTIPLE);
 
-        // 设备列表点击事件：用户选择设备后，返回设备地址给主界面
+        // 点击切换勾选，超过同时连接上限时取消本次勾选
         lvDevices.setOnItemClickListener((parent, view, position, id) -> {
-            // 防止数组越界（position需在设备列表范围内）
-            if (position < mDeviceList.size()) {
-                BluetoothDevice selectedDevice = mDeviceList.get(position);
-                // 携带设备地址返回主界面（主界面通过onActivityResult接收）
-                Intent resultIntent = new Intent();
-                resultIntent.putExtra("DEVICE_ADDRESS", selectedDevice.getAddress());
-                setResult(RESULT_OK, resultIntent);
-                finish(); // 关闭当前界面，返回主界面
+            mSelectionTouched = true;
+            if (lvDevices.getCheckedItemCount() > BluetoothService.MAX_DEVICES) {
+                lvDevices.setItemChecked(position, false);
+                Toast.makeText(this, "最多同时连接 " + BluetoothService.MAX_DEVICES + " 台设备",
+                        Toast.LENGTH_SHORT).show();
             }
+            updateConnectButton();
         });
     }
 
+    /**
+     * 连接按钮显示已选数量，未选时禁用
+     */
+    private void updateConnectButton() {
+        int checked = lvDevices.getCheckedItemCount();
+        btnConnectSelected.setText("连接所选设备（" + checked + "）");
+        btnConnectSelected.setEnabled(checked > 0);
+        btnConnectSelected.setAlpha(checked > 0 ? 1.0f : 0.5f);
+    }
+
+    /**
+     * 返回所选设备地址给主界面（主界面通过onActivityResult接收）
+     */
+    private void returnSelectedDevices() {
+        ArrayList<String> addresses = getCheckedAddresses();
+        if (addresses.isEmpty()) return;
+
+        Intent resultIntent = new Intent();
+        resultIntent.putStringArrayListExtra("DEVICE_ADDRESSES", addresses);
+        // 兼容只取单个地址的调用方
+        resultIntent.putExtra("DEVICE_ADDRESS", addresses.get(0));
+        setResult(RESULT_OK, resultIntent);
+        finish(); // 关闭当前界面，返回主界面
+    }
+
+    /**
+     * 当前勾选的设备地址（按列表顺序）
+     */
+    private ArrayList<String> getCheckedAddresses() {
+        ArrayList<String> addresses = new ArrayList<>();
+        SparseBooleanArray checked = lvDevices.getCheckedItemPositions();
+        for (int i = 0; i < checked.size(); i++) {
+            int position = checked.keyAt(i);
+            // 防止数组越界（position需在设备列表范围内）
+            if (checked.valueAt(i) && position < mDeviceList.size()) {
+                addresses.add(mDeviceList.get(position).getAddress());
+            }
+        }
+        return addresses;
+    }
+
     /**
      * 绑定按钮事件：重新扫描按钮的点击逻辑
      */
@@ -157,6 +226,10 @@ public class DeviceListActivity extends AppCompatActivity {
             clearDeviceList(); // 清空之前的设备列表
             startScan(); // 开始新的扫描
         });
+        btnConnectSelected.setOnClickListener(v -> {
+            stopScan();
+            returnSelectedDevices();
+        });
     }
 
     /**
@@ -192,7 +265,7 @@ public class DeviceListActivity extends AppCompatActivity {
         }
 
         // 2. 更新扫描状态提示
-        tvScanStatus.setText("正在扫描血氧仪设备...（10秒后自动停止）");
+        tvScanStatus.setText("正在扫描血氧仪设备...（最长10秒）");
 
         // 3. 设置扫描过滤：只扫描包含血氧仪服务UUID的设备（减少无关设备干扰）
         List<ScanFilter> scanFilters = new ArrayList<>();
@@ -209,30 +282,43 @@ public class DeviceListActivity extends AppCompatActivity {
 
         // 5. 开始扫描（传入过滤规则、参数、回调）
         mBluetoothLeScanner.startScan(scanFilters, scanSettings, mScanCallback);
+        mScanning = true;
 
-        // 6. 设置扫描超时：10秒后自动停止扫描（避免耗电）
-        mHandler.postDelayed(() -> {
-            stopScan();
-            // 更新扫描完成后的状态（无设备/有设备）
-            if (mDeviceList.isEmpty()) {
-                tvScanStatus.setText("扫描完成，未找到血氧仪设备（请确认设备已开机）");
-            } else {
-                tvScanStatus.setText(String.format("扫描完成，找到%d个血氧仪设备", mDeviceList.size()));
-            }
-        }, SCAN_DURATION);
+        // 6. 设置扫描超时：最长10秒自动停止扫描（避免耗电）
+        mHandler.removeCallbacks(mScanTimeout);
+        mHandler.removeCallbacks(mScanQuiet);
+        mHandler.postDelayed(mScanTimeout, SCAN_DURATION);
+    }
+
+    // 扫描超时或一段时间没有新设备：停止扫描并显示结果
+    private final Runnable mScanTimeout = this::finishScan;
+    private final Runnable mScanQuiet = this::finishScan;
+
+    private void finishScan() {
+        stopScan();
+        refreshDeviceList();
+        // 更新扫描完成后的状态（无设备/有设备）
+        if (mDevices.size() == 0) {
+            tvScanStatus.setText("扫描完成，未找到血氧仪设备（请确认设备已开机）");
+        } else {
+            tvScanStatus.setText(String.format("扫描完成，找到%d个血氧仪设备（按信号强度排序）", mDevices.size()));
+        }
     }
 
     /**
      * 停止扫描蓝牙设备：释放扫描资源，避免后台耗电
      */
     private void stopScan() {
-        if (mBluetoothLeScanner != null) {
+        mHandler.removeCallbacks(mScanTimeout);
+        mHandler.removeCallbacks(mScanQuiet);
+        if (mBluetoothLeScanner != null && mScanning) {
             // 检查权限（防止用户中途撤销权限导致崩溃）
             if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_SCAN)
                     != PackageManager.PERMISSION_GRANTED) {
                 return;
             }
             mBluetoothLeScanner.stopScan(mScanCallback); // 停止扫描并解绑回调
+            mScanning = false;
         }
     }
 
@@ -240,9 +326,15 @@ public class DeviceListActivity extends AppCompatActivity {
      * 清空设备列表：重新扫描前调用，避免显示旧设备
      */
     private void clearDeviceList() {
-        mDeviceList.clear(); // 清空设备对象列表
+        mHandler.removeCallbacks(mRefreshList);
+        mRefreshPending = false;
+        mDevices.clear(); // 清空设备表
+        mDeviceList = Collections.emptyList();
         mDeviceAdapter.clear(); // 清空适配器数据（ListView会同步更新）
-        tvScanStatus.setText("正在扫描血氧仪设备...（10秒后自动停止）");
+        lvDevices.clearChoices(); // 清空勾选
+        mSelectionTouched = false;
+        updateConnectButton();
+        tvScanStatus.setText("正在扫描血氧仪设备...（最长10秒）");
     }
 
     /**
@@ -253,10 +345,7 @@ public class DeviceListActivity extends AppCompatActivity {
         @Override
         public void onScanResult(int callbackType, ScanResult result) {
             super.onScanResult(callbackType, result);
-            BluetoothDevice device = result.getDevice(); // 获取扫描到的蓝牙设备
-            if (device != null) {
-                addDeviceToList(device); // 将设备添加到列表（避免重复）
-            }
+            onDeviceSeen(result); // 记入设备表，稍后统一刷新列表
         }
 
         // 2. 批量扫描结果回调（部分设备会批量返回结果，需处理）
@@ -264,10 +353,7 @@ public class DeviceListActivity extends AppCompatActivity {
         public void onBatchScanResults(List<ScanResult> results) {
             super.onBatchScanResults(results);
             for (ScanResult result : results) {
-                BluetoothDevice device = result.getDevice();
-                if (device != null) {
-                    addDeviceToList(device);
-                }
+                onDeviceSeen(result);
             }
         }
 
@@ -299,27 +385,75 @@ public class DeviceListActivity extends AppCompatActivity {
     };
 
     /**
-     * 将设备添加到列表：避免重复添加同一设备（通过设备地址判断）
+     * 记一次扫描结果：按地址更新设备表（O(1)），列表刷新合并到下一个刷新周期
      */
-    private void addDeviceToList(BluetoothDevice device) {
-        // 1. 检查设备是否已在列表中（通过设备唯一地址判断，避免重复）
-        boolean isDeviceExists = false;
-        for (BluetoothDevice existingDevice : mDeviceList) {
-            if (existingDevice.getAddress().equals(device.getAddress())) {
-                isDeviceExists = true;
-                break;
-            }
+    private void onDeviceSeen(ScanResult result) {
+        BluetoothDevice device = result.getDevice();
+        if (device == null) return;
+        String name = null;
+        if (ActivityCompat.checkSelfPermission(this, Manifest.permission.BLUETOOTH_CONNECT)
+                == PackageManager.PERMISSION_GRANTED) {
+            name = device.getName();
+        }
+        boolean added = mDevices.update(device.getAddress(), name, result.getRssi(),
+                SystemClock.elapsedRealtimeNanos());
+        if (added) {
+            // 有新设备就重新计时，安静一段时间后提前结束扫描
+            mHandler.removeCallbacks(mScanQuiet);
+            mHandler.postDelayed(mScanQuiet, SCAN_QUIET_DURATION);
         }
+        if (!mRefreshPending) {
+            mRefreshPending = true;
+            mHandler.postDelayed(mRefreshList, LIST_REFRESH_INTERVAL);
+        }
+    }
 
-        // 2. 若设备不在列表中，添加到列表并更新适配器
-        if (!isDeviceExists) {
-            mDeviceList.add(device); // 添加设备对象到列表
-            // 构建显示文本：设备名称（无名称则显示"未知设备"）+ 设备地址
-            String deviceInfo = (device.getName() != null && !device.getName().isEmpty())
-                    ? device.getName() + "（" + device.getAddress() + "）"
-                    : "未知设备（" + device.getAddress() + "）";
-            mDeviceAdapter.add(deviceInfo); // 添加显示文本到适配器（ListView自动刷新）
+    private final Runnable mRefreshList = () -> {
+        mRefreshPending = false;
+        refreshDeviceList();
+    };
+
+    /**
+     * 按信号强度重建列表，保留已勾选的设备；上次使用的设备在用户未改动勾选前自动勾选
+     */
+    private void refreshDeviceList() {
+        if (!mDevices.isDirty()) return;
+        Set<String> checked = new HashSet<>(getCheckedAddresses());
+        mDeviceList = mDevices.snapshot(SystemClock.elapsedRealtimeNanos());
+
+        mDeviceAdapter.setNotifyOnChange(false);
+        mDeviceAdapter.clear();
+        for (DiscoveredDevices.Device d : mDeviceList) {
+            mDeviceAdapter.add(describeDevice(d));
+        }
+        mDeviceAdapter.notifyDataSetChanged();
+
+        lvDevices.clearChoices();
+        int count = 0;
+        for (int i = 0; i < mDeviceList.size(); i++) {
+            String address = mDeviceList.get(i).getAddress();
+            boolean check = checked.contains(address)
+                    || (!mSelectionTouched && mKnownDevices.isLastUsed(address));
+            if (check && count < BluetoothService.MAX_DEVICES) {
+                lvDevices.setItemChecked(i, true);
+                count++;
+            }
         }
+        updateConnectButton();
+        if (mScanning) {
+            tvScanStatus.setText(String.format("正在扫描血氧仪设备...已找到%d个", mDevices.size()));
+        }
+    }
+
+    /**
+     * 显示文本：设备名称（无名称时用上次连接记下的名称或"未知设备"）+ 地址 + 信号强度
+     */
+    private String describeDevice(DiscoveredDevices.Device d) {
+        String name = d.getName();
+        if (name == null || name.isEmpty()) name = mKnownDevices.getName(d.getAddress());
+        if (name == null || name.isEmpty()) name = "未知设备";
+        return name + "（" + d.getAddress() + "）  " + d.getRssi() + " dBm"
+                + (d.isKnown() ? "  · 连接过" : "");
     }
 
     /**
@@ -367,7 +501,7 @@ public class DeviceListActivity extends AppCompatActivity {
         super.onDestroy();
         stopScan(); // 停止扫描
         mHandler.removeCallbacksAndMessages(null); // 移除所有延迟任务
-        mDeviceList.clear(); // 清空设备列表
+        mDevices.clear(); // 清空设备表
         mDeviceAdapter.clear(); // 清空适配器
     }
 }
\ No newline at end of file
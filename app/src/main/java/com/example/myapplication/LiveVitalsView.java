@@ -0,0 +1,136 @@
+package com.example.myapplication;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Color;
+import android.graphics.Paint;
+import android.util.AttributeSet;
+import android.util.TypedValue;
+import android.view.View;
+import androidx.annotation.Nullable;
+import com.example.myapplication.model.VitalsSnapshot;
+
+/**
+ * 实时生命体征面板：SpO₂ / PR / PI / 探头状态 / 包速率，可带一行设备标题
+ * 只由 VitalsPublisher 每帧最多更新一次；显示内容不变时不重绘，不触发重新布局
+ */
+public class LiveVitalsView extends View {
+
+    private static final String[] LABELS = {"SpO₂ %", "PR bpm", "PI %", "探头", "包/秒"};
+    private static final String INVALID = "--";
+
+    private final Paint mValuePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mLabelPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mSubPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private final Paint mTitlePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+    private String mTitle;
+
+    private final String[] mValues = {INVALID, INVALID, INVALID, INVALID, INVALID};
+    // SpO₂、PR 下方的 5 秒均值，其余格为空
+    private final String[] mSubs = {"", "", "", "", ""};
+
+    public LiveVitalsView(Context context) {
+        this(context, null);
+    }
+
+    public LiveVitalsView(Context context, @Nullable AttributeSet attrs) {
+        super(context, attrs);
+        mValuePaint.setTextSize(sp(28));
+        mValuePaint.setColor(Color.BLACK);
+        mValuePaint.setTextAlign(Paint.Align.CENTER);
+        mValuePaint.setFakeBoldText(true);
+        mLabelPaint.setTextSize(sp(12));
+        mLabelPaint.setColor(Color.DKGRAY);
+        mLabelPaint.setTextAlign(Paint.Align.CENTER);
+        mSubPaint.setTextSize(sp(11));
+        mSubPaint.setColor(Color.GRAY);
+        mSubPaint.setTextAlign(Paint.Align.CENTER);
+        mTitlePaint.setTextSize(sp(13));
+        mTitlePaint.setColor(Color.DKGRAY);
+    }
+
+    /** 面板标题（多台设备时显示设备名称/地址），null 不显示 */
+    public void setTitle(String title) {
+        boolean relayout = (mTitle == null) != (title == null);
+        mTitle = title;
+        if (relayout) requestLayout();
+        invalidate();
+    }
+
+    /** 主线程调用 */
+    public void setSnapshot(VitalsSnapshot s) {
+        boolean changed = update(0, s.spo2 >= 0 ? Integer.toString(s.spo2) : INVALID);
+        changed |= update(1, s.pr >= 0 ? Integer.toString(s.pr) : INVALID);
+        changed |= update(2, s.pi >= 0 ? formatOneDecimal(s.pi) : INVALID);
+        changed |= update(3, s.probeStatus);
+        changed |= update(4, s.packetsPerSecond >= 0 ? formatOneDecimal(s.packetsPerSecond) : INVALID);
+        changed |= updateSub(0, s.spo2Mean5s >= 0 ? "5秒均值 " + formatOneDecimal(s.spo2Mean5s) : "");
+        changed |= updateSub(1, s.prMean5s >= 0 ? "5秒均值 " + Math.round(s.prMean5s) : "");
+        if (changed) invalidate();
+    }
+
+    /** 恢复为“--” */
+    public void clear() {
+        for (int i = 0; i < mValues.length; i++) {
+            mValues[i] = INVALID;
+            mSubs[i] = "";
+        }
+        invalidate();
+    }
+
+    @Override
+    protected void onMeasure(int widthMeasureSpec, int heightMeasureSpec) {
+        int desired = (int) (titleHeight() + mLabelPaint.getTextSize() + mValuePaint.getTextSize()
+                + mSubPaint.getTextSize() + dp(16)) + getPaddingTop() + getPaddingBottom();
+        setMeasuredDimension(getDefaultSize(getSuggestedMinimumWidth(), widthMeasureSpec),
+                resolveSize(desired, heightMeasureSpec));
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        int left = getPaddingLeft();
+        float cellWidth = (getWidth() - left - getPaddingRight()) / (float) LABELS.length;
+        if (mTitle != null) {
+            canvas.drawText(mTitle, left, getPaddingTop() + mTitlePaint.getTextSize(), mTitlePaint);
+        }
+        float labelY = getPaddingTop() + titleHeight() + mLabelPaint.getTextSize();
+        float valueY = labelY + dp(4) + mValuePaint.getTextSize();
+        float subY = valueY + dp(4) + mSubPaint.getTextSize();
+        for (int i = 0; i < LABELS.length; i++) {
+            float x = left + cellWidth * (i + 0.5f);
+            canvas.drawText(LABELS[i], x, labelY, mLabelPaint);
+            canvas.drawText(mValues[i], x, valueY, mValuePaint);
+            if (!mSubs[i].isEmpty()) canvas.drawText(mSubs[i], x, subY, mSubPaint);
+        }
+    }
+
+    private float titleHeight() {
+        return mTitle != null ? mTitlePaint.getTextSize() + dp(4) : 0;
+    }
+
+    private boolean update(int i, String value) {
+        if (value.equals(mValues[i])) return false;
+        mValues[i] = value;
+        return true;
+    }
+
+    private boolean updateSub(int i, String value) {
+        if (value.equals(mSubs[i])) return false;
+        mSubs[i] = value;
+        return true;
+    }
+
+    // 一位小数，避免每帧走 String.format
+    private static String formatOneDecimal(double v) {
+        long tenths = Math.round(v * 10);
+        return (tenths / 10) + "." + (tenths % 10);
+    }
+
+    private float sp(float v) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_SP, v, getResources().getDisplayMetrics());
+    }
+
+    private float dp(float v) {
+        return TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, v, getResources().getDisplayMetrics());
+    }
+}
@@ -4,18 +4,30 @@ import android.Manifest;
 import android.content.Intent;
 import android.content.pm.PackageManager;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.view.View;
 import android.widget.Button;
+import android.widget.LinearLayout;
 import android.widget.TextView;
 import android.widget.Toast;
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.core.app.ActivityCompat;
+import com.example.myapplication.ble.OximeterSession;
 import com.example.myapplication.model.DetectionTimeStamp;
 import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.model.SampleAligner;
+import com.example.myapplication.model.VitalsSnapshot;
 import androidx.camera.view.PreviewView;
 import com.example.myapplication.utils.DataSaver;
+import com.example.myapplication.utils.FrameTimestampLog;
+import com.example.myapplication.utils.KnownDevices;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 
 
 
@@ -37,16 +49,27 @@ public class MainActivity extends AppCompatActivity implements
     private Button btnBluetoothDetect;   // 蓝牙检测按钮
     private Button btnStartDetection;    // 开始检测按钮
     private TextView tvStatus;           // 状态显示
+    private LinearLayout liveVitalsContainer; // 实时生命体征（每台设备一个面板）
+    private final Map<String, LiveVitalsView> liveVitalsViews = new LinkedHashMap<>();
     private PreviewView previewView;    // 视频预览
     // 核心服务
     private BluetoothService bluetoothService;  // 蓝牙服务
     private VideoRecorder videoRecorder;        // 视频录制服务
     private DataUploadService uploadService;    // 数据上传服务
+    private KnownDevices knownDevices;          // 上次使用的设备（启动时直接连接）
 
     // 时间戳模型（记录所有关键时间）
     private DetectionTimeStamp detectionTimeStamp;
     // 视频路径
     private String videoFilePath;
+    // 本次检测是否已有设备开始推送数据
+    private boolean dataStarted = false;
+    // 本次检测各设备的帧对齐器（相机回调线程逐帧加入帧时间），未在录制时为 null
+    private volatile SampleAligner[] frameAligners;
+
+    // 血氧数据相对视频帧的延迟补偿（毫秒），需按设备型号标定，默认不补偿
+    private static final long PARAMETER_LATENCY_MS = 0;
+    private static final long WAVEFORM_LATENCY_MS = 0;
 
     // 所需权限列表（Android 15适配）
     private final String[] REQUIRED_PERMISSIONS = {
@@ -74,6 +97,9 @@ public class MainActivity extends AppCompatActivity implements
 
         // 绑定按钮点击事件
         bindButtonEvents();
+
+        // 权限和蓝牙都就绪时，不扫描直接连接上次使用的设备
+        connectLastDevices();
     }
 
     /**
@@ -83,6 +109,7 @@ public class MainActivity extends AppCompatActivity implements
         btnBluetoothDetect = findViewById(R.id.btn_bluetooth_detect);
         btnStartDetection = findViewById(R.id.btn_start_detection);
         tvStatus = findViewById(R.id.tv_status);
+        liveVitalsContainer = findViewById(R.id.live_vitals_container);
         previewView = findViewById(R.id.preview_view);   // 正确
         // 设置状态文本初始值
         tvStatus.setText("请点击「蓝牙检测」按钮选择设备\n" +
@@ -99,8 +126,27 @@ public class MainActivity extends AppCompatActivity implements
         videoRecorder = new VideoRecorder(this, this, previewView);
         // 数据上传服务
         uploadService = new DataUploadService(this);
-        // 初始化时间戳模型
+        knownDevices = new KnownDevices(this);
+        // 初始化时间戳模型（墙上时间锚点只取这一次，其余时间点都用单调时钟）
         detectionTimeStamp = new DetectionTimeStamp();
+        detectionTimeStamp.setAnchor(System.currentTimeMillis(), SystemClock.elapsedRealtimeNanos());
+    }
+
+    /**
+     * 直接连接上次使用的设备（按地址连接，无需扫描）；连不上时提示用户重新扫描
+     */
+    private void connectLastDevices() {
+        List<String> lastAddresses = knownDevices.getLastAddresses();
+        if (lastAddresses.isEmpty() || bluetoothService.isConnected()) return;
+        if (!isAllPermissionsGranted()
+                || !com.example.myapplication.utils.BluetoothUtils.isBluetoothEnabled()) {
+            return;
+        }
+
+        tvStatus.setText("正在连接上次使用的设备...\n" +
+                "设备地址：" + String.join("、", lastAddresses) + "\n" +
+                "如需更换设备请点击「蓝牙检测」按钮");
+        bluetoothService.connectToDevices(lastAddresses);
     }
 
     /**
@@ -169,6 +215,9 @@ public class MainActivity extends AppCompatActivity implements
 
             previewView.setVisibility(View.VISIBLE);
 
+            dataStarted = false;
+            detectionTimeStamp.resetMeasurement();
+
             // 更新状态
             tvStatus.setText("准备开始检测...\n" +
                     "蓝牙连接时间：" + detectionTimeStamp.getBluetoothConnectTime());
@@ -176,6 +225,21 @@ public class MainActivity extends AppCompatActivity implements
             // 开始录制视频（90秒）
             videoRecorder.startRecording(90000);
         });
+
+        // 3. 长按状态栏：导出蓝牙跟踪文件（原始通知和连接事件），用于排查现场问题
+        tvStatus.setOnLongClickListener(v -> {
+            new Thread(() -> {
+                String msg;
+                try {
+                    msg = "跟踪已导出：" + bluetoothService.dumpTrace("manual").getAbsolutePath();
+                } catch (IOException e) {
+                    msg = "导出跟踪失败：" + e.getMessage();
+                }
+                String text = msg;
+                runOnUiThread(() -> Toast.makeText(this, text, Toast.LENGTH_LONG).show());
+            }, "TraceDump").start();
+            return true;
+        });
     }
 
     /**
@@ -200,15 +264,26 @@ public class MainActivity extends AppCompatActivity implements
         // 处理设备选择结果
         if (requestCode == REQUEST_SELECT_DEVICE && resultCode == RESULT_OK) {
             if (data != null) {
-                // 获取选择的设备地址
-                String deviceAddress = data.getStringExtra("DEVICE_ADDRESS");
-                if (deviceAddress != null && !deviceAddress.isEmpty()) {
+                // 获取选择的设备地址（可多台）
+                ArrayList<String> deviceAddresses = data.getStringArrayListExtra("DEVICE_ADDRESSES");
+                if (deviceAddresses == null) {
+                    deviceAddresses = new ArrayList<>();
+                    String deviceAddress = data.getStringExtra("DEVICE_ADDRESS");
+                    if (deviceAddress != null && !deviceAddress.isEmpty()) deviceAddresses.add(deviceAddress);
+                }
+                if (!deviceAddresses.isEmpty()) {
                     // 更新状态：正在连接
-                    tvStatus.setText("正在连接设备...\n" +
-                            "设备地址：" + deviceAddress);
+                    tvStatus.setText("正在连接 " + deviceAddresses.size() + " 台设备...\n" +
+                            "设备地址：" + String.join("、", deviceAddresses));
 
-                    // 连接蓝牙设备
-                    bluetoothService.connectToDevice(deviceAddress);
+                    // 重新选择设备：先断开之前的设备
+                    bluetoothService.disconnect();
+                    removeAllVitalsViews();
+                    // 记住本次选择，下次启动直接连接
+                    knownDevices.setLastAddresses(deviceAddresses);
+
+                    // 同时连接所选设备
+                    bluetoothService.connectToDevices(deviceAddresses);
                 }
             }
         }
@@ -232,6 +307,7 @@ public class MainActivity extends AppCompatActivity implements
             if (allGranted) {
                 tvStatus.setText("所有权限已授予\n" +
                         "请点击「蓝牙检测」按钮选择设备");
+                connectLastDevices();
             } else {
                 tvStatus.setText("部分权限未授予\n" +
                         "功能可能无法正常使用，请在设置中授予权限");
@@ -246,15 +322,24 @@ public class MainActivity extends AppCompatActivity implements
      */
     @Override
     public void onBluetoothConnected(String deviceName, String deviceAddress) {
-        // 记录蓝牙连接时间戳
-        String connectTime = com.example.myapplication.utils.TimeUtils.getPreciseTimeStamp();
-        detectionTimeStamp.setBluetoothConnectTime(connectTime);
+        // 记录蓝牙连接时间戳（链路回调时的单调时钟，以第一台连上的设备为准）
+        OximeterSession session = bluetoothService.getSession(deviceAddress);
+        long connectNanos = session != null && session.getConnectedNanos() >= 0
+                ? session.getConnectedNanos() : SystemClock.elapsedRealtimeNanos();
+        if (detectionTimeStamp.getBluetoothConnectNanos() < 0) {
+            detectionTimeStamp.setBluetoothConnectNanos(connectNanos);
+        }
+        String connectTime = detectionTimeStamp.format(connectNanos);
+        knownDevices.onConnected(deviceAddress, deviceName);
 
-        // 更新状态（绿色提示连接成功）
+        // 每台设备一个实时面板
+        LiveVitalsView view = getOrCreateVitalsView(deviceAddress);
+        view.setTitle(deviceName + "（" + deviceAddress + "）");
+
+        // 更新状态（绿色提示连接成功，列出所有已连接设备）
         tvStatus.setTextColor(getResources().getColor(R.color.success_green));
         tvStatus.setText("✅ 蓝牙连接成功\n" +
-                "设备名称：" + deviceName + "\n" +
-                "设备地址：" + deviceAddress + "\n" +
+                describeConnectedDevices() +
                 "连接时间：" + connectTime + "\n" +
                 "可点击「开始检测」按钮开始录制");
 
@@ -267,25 +352,68 @@ public class MainActivity extends AppCompatActivity implements
      * 蓝牙连接失败
      */
     @Override
-    public void onBluetoothConnectFailed(String errorMsg) {
+    public void onBluetoothConnectFailed(String deviceAddress, String errorMsg) {
         // 更新状态（红色提示失败）
         tvStatus.setTextColor(getResources().getColor(android.R.color.holo_red_light));
         tvStatus.setText("❌ 蓝牙连接失败\n" +
+                (deviceAddress != null ? "设备地址：" + deviceAddress + "\n" : "") +
                 "原因：" + errorMsg + "\n" +
                 "请重新点击「蓝牙检测」按钮");
 
-        // 禁用开始检测按钮
-        btnStartDetection.setEnabled(false);
-        btnStartDetection.setAlpha(0.5f);
+        // 没有可用设备时禁用开始检测按钮
+        if (!bluetoothService.isConnected()) {
+            btnStartDetection.setEnabled(false);
+            btnStartDetection.setAlpha(0.5f);
+        }
+    }
+
+    /**
+     * 意外断链，正在自动重连（面板保留，数值恢复为“--”）
+     */
+    @Override
+    public void onBluetoothReconnecting(String deviceAddress, int attempt, long delayMs) {
+        LiveVitalsView view = liveVitalsViews.get(deviceAddress);
+        if (view != null) view.clear();
+
+        tvStatus.setTextColor(getResources().getColor(android.R.color.holo_orange_dark));
+        tvStatus.setText("⚠️ 设备信号中断：" + deviceAddress + "\n" +
+                "正在第 " + attempt + " 次重连，本次检测数据会继续保存");
     }
 
     /**
-     * 蓝牙连接断开
+     * 重连后恢复推送（数据接着记在本次检测里，中断区间单独标记）
      */
     @Override
-    public void onBluetoothDisconnected() {
+    public void onBluetoothDataResumed(String deviceAddress, long gapMs, boolean rewoken) {
+        if (!dataStarted) {
+            // 握手还没完成就断了，恢复即视为开始接收
+            onDataStartReceiving(deviceAddress);
+            return;
+        }
+        tvStatus.setTextColor(getResources().getColor(R.color.success_green));
+        tvStatus.setText("✅ 设备已恢复：" + deviceAddress + "\n" +
+                "中断 " + gapMs + " ms" + (rewoken ? "（已重新唤醒）" : "") + "\n" +
+                describeConnectedDevices());
+        LiveVitalsView view = getOrCreateVitalsView(deviceAddress);
+        view.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * 蓝牙连接断开（自动重连也失败）
+     */
+    @Override
+    public void onBluetoothDisconnected(String deviceAddress) {
+        LiveVitalsView view = liveVitalsViews.get(deviceAddress);
+        if (view != null) view.setVisibility(View.GONE);
+
         // 更新状态（红色提示断开）
         tvStatus.setTextColor(getResources().getColor(android.R.color.holo_red_light));
+        if (bluetoothService.isConnected()) {
+            // 其他设备仍在连接中，继续检测
+            tvStatus.setText("❌ 设备已断开：" + deviceAddress + "\n" +
+                    describeConnectedDevices());
+            return;
+        }
         tvStatus.setText("❌ 蓝牙连接已断开\n" +
                 "请重新点击「蓝牙检测」按钮连接");
 
@@ -298,35 +426,109 @@ public class MainActivity extends AppCompatActivity implements
     }
 
     /**
-     * 蓝牙数据接收（实时显示）
+     * 实时生命体征（每台设备每个显示帧最多一次，只更新面板，不改状态文本）
      */
     @Override
-    public void onDataReceived(String hexData) {
-        // 实时更新数据（只显示最后一条，避免刷屏）
-        String currentStatus = tvStatus.getText().toString();
-        if (currentStatus.contains("实时数据：")) {
-            // 替换最后一行的实时数据
-            int lastIndex = currentStatus.lastIndexOf("\n");
-            if (lastIndex != -1) {
-                currentStatus = currentStatus.substring(0, lastIndex);
-            }
-        }
-        tvStatus.setText(currentStatus + "\n实时数据：" + hexData);
+    public void onVitalsUpdated(String deviceAddress, VitalsSnapshot snapshot) {
+        LiveVitalsView view = liveVitalsViews.get(deviceAddress);
+        if (view != null) view.setSnapshot(snapshot);
     }
 
     /**
-     * 蓝牙数据开始接收（记录时间戳）
+     * 蓝牙数据开始接收（记录时间戳，以第一台开始推送的设备为准）
      */
     @Override
-    public void onDataStartReceiving() {
-        // 记录数据开始时间戳
-        String dataStartTime = com.example.myapplication.utils.TimeUtils.getPreciseTimeStamp();
-        detectionTimeStamp.setBluetoothDataStartTime(dataStartTime);
+    public void onDataStartReceiving(String deviceAddress) {
+        // 第一个通知在链路回调时的到达时间
+        long dataStartNanos = -1;
+        OximeterSession session = bluetoothService.getSession(deviceAddress);
+        if (session != null) {
+            synchronized (session.getData()) {
+                dataStartNanos = session.getData().getFirstPacketNanos();
+            }
+        }
+        if (dataStartNanos < 0) dataStartNanos = SystemClock.elapsedRealtimeNanos();
+        String dataStartTime = detectionTimeStamp.format(dataStartNanos);
+        if (!dataStarted) {
+            dataStarted = true;
+            // 记录数据开始时间戳
+            detectionTimeStamp.setBluetoothDataStartNanos(dataStartNanos);
+        }
 
         // 更新状态
         tvStatus.setText(tvStatus.getText().toString() + "\n" +
-                "✅ 数据开始接收\n" +
+                "✅ 数据开始接收：" + deviceAddress + "\n" +
                 "数据开始时间：" + dataStartTime);
+        LiveVitalsView view = getOrCreateVitalsView(deviceAddress);
+        view.clear();
+        view.setVisibility(View.VISIBLE);
+    }
+
+    /**
+     * 某台设备的实时面板，没有则新建并加入容器
+     */
+    private LiveVitalsView getOrCreateVitalsView(String deviceAddress) {
+        LiveVitalsView view = liveVitalsViews.get(deviceAddress);
+        if (view == null) {
+            view = new LiveVitalsView(this);
+            view.setTitle(deviceAddress);
+            view.setVisibility(View.GONE);
+            liveVitalsContainer.addView(view);
+            liveVitalsViews.put(deviceAddress, view);
+        }
+        return view;
+    }
+
+    private void removeAllVitalsViews() {
+        liveVitalsContainer.removeAllViews();
+        liveVitalsViews.clear();
+    }
+
+    /**
+     * 已连接设备列表（状态文本用）
+     */
+    private String describeConnectedDevices() {
+        StringBuilder sb = new StringBuilder();
+        for (OximeterSession session : bluetoothService.getSessions()) {
+            if (!session.isConnected()) continue;
+            sb.append("设备：").append(session.getDeviceName())
+                    .append("（").append(session.getAddress()).append("）\n");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 录制开始：清空各设备上次的帧对齐结果，之后录制中的每个视频帧都交给对齐器
+     */
+    private void startFrameAlignment() {
+        List<SampleAligner> aligners = new ArrayList<>();
+        for (OximeterSession session : bluetoothService.getSessions()) {
+            OximeterData data = session.getData();
+            synchronized (data) {
+                SampleAligner aligner = data.getAligner();
+                aligner.clear();
+                aligner.setLatencyMs(PARAMETER_LATENCY_MS, WAVEFORM_LATENCY_MS);
+                aligners.add(aligner);
+            }
+        }
+        frameAligners = aligners.toArray(new SampleAligner[0]);
+    }
+
+    /**
+     * 录制结束：数据不再增加，删去视频最后一帧之后的帧，对齐剩余的帧
+     *
+     * @param endNanos 视频最后一帧的时间（开始时间加实际录制时长）
+     */
+    private void finishFrameAlignment(long endNanos) {
+        frameAligners = null;
+        for (OximeterSession session : bluetoothService.getSessions()) {
+            OximeterData data = session.getData();
+            synchronized (data) {
+                SampleAligner aligner = data.getAligner();
+                aligner.truncateAfter(endNanos);
+                aligner.finish(data.getSamples(), data.getWaveform());
+            }
+        }
     }
 
     // ==================== VideoRecorder.VideoListener 回调 ====================
@@ -334,10 +536,12 @@ public class MainActivity extends AppCompatActivity implements
      * 视频录制开始
      */
     @Override
-    public void onVideoStarted(String videoPath, String startTime) {
+    public void onVideoStarted(String videoPath, long startNanos) {
         // 记录视频路径和开始时间戳
         this.videoFilePath = videoPath;
-        detectionTimeStamp.setVideoStartTime(startTime);
+        detectionTimeStamp.setVideoStartNanos(startNanos);
+        // 录制器在这之后才开始转发视频帧（只转发录制窗口内的帧）
+        startFrameAlignment();
 
         // 更新状态
         tvStatus.setText("✅ 视频录制已开始\n" +
@@ -352,22 +556,54 @@ public class MainActivity extends AppCompatActivity implements
         bluetoothService.startReceivingData();
     }
 
+    /**
+     * 视频帧（相机回调线程）：记下帧时间，样本到齐后由数据线程对齐
+     */
+    @Override
+    public void onVideoFrame(long frameNanos) {
+        SampleAligner[] aligners = frameAligners;
+        if (aligners == null) return;
+        for (SampleAligner aligner : aligners) aligner.addFrame(frameNanos);
+    }
+
     /**
      * 视频录制完成
      */
     @Override
-    public void onVideoFinished(String videoPath) {
+    public void onVideoFinished(String videoPath, long endNanos) {
+        detectionTimeStamp.setVideoEndNanos(endNanos);
+        FrameTimestampLog frames = videoRecorder.getFrameLog();
+        if (frames != null) {
+            detectionTimeStamp.setVideoFrames(frames.getFirstFrameNanos(), frames.getLastFrameNanos(),
+                    frames.getFrameCount(), frames.getDroppedFrames());
+        }
         // 更新状态
         tvStatus.setText("✅ 视频录制完成\n" +
                 "视频路径：" + videoPath + "\n" +
                 "正在上传数据到后端...");
 
-        // 获取蓝牙收集的数据
-        OximeterData oximeterData = bluetoothService.getCollectedData();
+        // 录制结束，各设备恢复均衡连接优先级
+        bluetoothService.endMeasurement();
+        finishFrameAlignment(endNanos);
+
+        // 获取每台设备收集的数据（地址 -> 数据），未连上或重连失败、没有数据的设备跳过并提示
+        Map<String, OximeterData> devices = new LinkedHashMap<>();
+        StringBuilder skipped = new StringBuilder();
+        for (OximeterSession session : bluetoothService.getSessions()) {
+            if (session.getData().hasData()) {
+                devices.put(session.getAddress(), session.getData());
+            } else {
+                skipped.append(skipped.length() > 0 ? "、" : "").append(session.getAddress());
+            }
+        }
+        if (skipped.length() > 0) {
+            tvStatus.setText(tvStatus.getText().toString() + "\n" +
+                    "⚠️ 以下设备没有数据，已跳过：" + skipped);
+        }
 
 // 先保存到本地（类似于上传逻辑）
         try {
-            DataSaver.saveAllData(this, videoPath, oximeterData, detectionTimeStamp);
+            DataSaver.saveAllData(this, videoPath, devices, detectionTimeStamp);
             tvStatus.setText(tvStatus.getText().toString() + "\n" +
                     "✅ 本地数据保存成功");
             Toast.makeText(this, "数据已保存到本地", Toast.LENGTH_SHORT).show();
@@ -380,7 +616,7 @@ public class MainActivity extends AppCompatActivity implements
         // 再上传数据（保持原逻辑）
         tvStatus.setText(tvStatus.getText().toString() + "\n" +
                 "正在上传数据到后端...");
-        uploadService.uploadAllData(oximeterData, videoPath, detectionTimeStamp, this);
+        uploadService.uploadAllData(devices, videoPath, detectionTimeStamp, this);
     }
 
     /**
@@ -388,6 +624,7 @@ public class MainActivity extends AppCompatActivity implements
      */
     @Override
     public void onVideoError(String errorMsg) {
+        frameAligners = null;
         // 更新状态（红色提示错误）
         tvStatus.setTextColor(getResources().getColor(android.R.color.holo_red_light));
         tvStatus.setText("❌ 视频录制错误\n" +
@@ -470,9 +707,9 @@ public class MainActivity extends AppCompatActivity implements
     @Override
     protected void onDestroy() {
         super.onDestroy();
-        // 断开蓝牙连接
+        // 断开蓝牙连接并停止数据处理线程
         if (bluetoothService != null) {
-            bluetoothService.disconnect();
+            bluetoothService.release();
         }
         // 释放视频录制资源
         if (videoRecorder != null) {
@@ -1,7 +1,20 @@
 package com.example.myapplication;
 import android.widget.Toast;
 import android.content.Context;
+import android.hardware.camera2.CameraCaptureSession;
+import android.hardware.camera2.CameraCharacteristics;
+import android.hardware.camera2.CaptureFailure;
+import android.hardware.camera2.CaptureRequest;
+import android.hardware.camera2.CaptureResult;
+import android.hardware.camera2.TotalCaptureResult;
+import android.os.SystemClock;
 import android.util.Log;
+import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
+import androidx.camera.camera2.interop.Camera2CameraInfo;
+import androidx.camera.camera2.interop.Camera2Interop;
+import androidx.camera.camera2.interop.ExperimentalCamera2Interop;
+import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
 import androidx.camera.core.Preview;
 import androidx.camera.lifecycle.ProcessCameraProvider;
@@ -18,6 +31,7 @@ import androidx.lifecycle.LifecycleOwner;
 import com.example.myapplication.model.DetectionTimeStamp;
 import com.example.myapplication.model.OximeterData;
 import com.example.myapplication.utils.DataSaver;
+import com.example.myapplication.utils.FrameTimestampLog;
 import com.example.myapplication.utils.TimeUtils;
 import com.google.common.util.concurrent.ListenableFuture;
 import java.io.File;
@@ -30,6 +44,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Files;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class VideoRecorder {
 
@@ -39,13 +55,29 @@ public class VideoRecorder {
 
     private VideoCapture<Recorder> videoCapture;
     private Recording currentRecording;
+    private long startNanos = -1;
+
+    private static final String TAG = "VideoRecorder";
+    // 逐帧时间戳旁路文件（与视频同名，扩展名 .frames），相机回调线程写入
+    private volatile FrameTimestampLog frameLog;
+    private FrameTimestampLog lastFrameLog;
+    private int timestampSource = FrameTimestampLog.SOURCE_UNKNOWN;
+    private final ExecutorService frameIo = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "VideoFrameLog");
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
 
 
 
     public interface VideoListener {
-        void onVideoStarted(String videoPath, String startTime);
-        void onVideoFinished(String videoPath);
+        /** startNanos：录制开始事件回调时的单调时钟（SystemClock.elapsedRealtimeNanos()） */
+        void onVideoStarted(String videoPath, long startNanos);
+        /** endNanos：开始时间加上实际录制时长（单调时钟） */
+        void onVideoFinished(String videoPath, long endNanos);
         void onVideoError(String errorMsg);
+        /** 录制中每帧的曝光开始时间（已换算到单调时钟），只含开始事件到 stopRecording() 之间的帧，在相机回调线程调用 */
+        default void onVideoFrame(long frameNanos) {}
     }
 
     public VideoRecorder(Context context, VideoListener listener, PreviewView previewView) {
@@ -55,13 +87,17 @@ public class VideoRecorder {
     }
 
 
+    @OptIn(markerClass = ExperimentalCamera2Interop.class)
     public void startRecording(long durationMillis) {
         ListenableFuture<ProcessCameraProvider> future = ProcessCameraProvider.getInstance(context);
         future.addListener(() -> {
             try {
                 ProcessCameraProvider cameraProvider = future.get();
 
-                Preview preview = new Preview.Builder().build();
+                // 相机会话的重复请求同时输出到预览和编码器，逐帧回调即为视频的每一帧
+                Preview.Builder previewBuilder = new Preview.Builder();
+                new Camera2Interop.Extender<>(previewBuilder).setSessionCaptureCallback(mCaptureCallback);
+                Preview preview = previewBuilder.build();
                 preview.setSurfaceProvider(previewView.getSurfaceProvider());
 
                 Recorder recorder = new Recorder.Builder()
@@ -70,12 +106,16 @@ public class VideoRecorder {
                 videoCapture = VideoCapture.withOutput(recorder);
 
                 cameraProvider.unbindAll();
-                cameraProvider.bindToLifecycle(
+                Camera camera = cameraProvider.bindToLifecycle(
                         (LifecycleOwner) context,
                         CameraSelector.DEFAULT_FRONT_CAMERA,
                         preview,
                         videoCapture
                 );
+                Integer source = Camera2CameraInfo.from(camera.getCameraInfo())
+                        .getCameraCharacteristic(CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE);
+                timestampSource = source != null && source == CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME
+                        ? FrameTimestampLog.SOURCE_REALTIME : FrameTimestampLog.SOURCE_UNKNOWN;
 
                 File dir = new File(context.getExternalFilesDir("Movies"), "OximeterVideos");
                 if (!dir.exists()) dir.mkdirs();
@@ -87,17 +127,24 @@ public class VideoRecorder {
                         .prepareRecording(context, options)
                         .start(ContextCompat.getMainExecutor(context), recordEvent -> {
                             if (recordEvent instanceof VideoRecordEvent.Start) {
-                                listener.onVideoStarted(videoFile.getAbsolutePath(), TimeUtils.getPreciseTimeStamp());
+                                startNanos = SystemClock.elapsedRealtimeNanos();
+                                listener.onVideoStarted(videoFile.getAbsolutePath(), startNanos);
+                                openFrameLog(videoFile, startNanos);
                                 new android.os.Handler(android.os.Looper.getMainLooper())
                                         .postDelayed(this::stopRecording, durationMillis);
 
                             } else if (recordEvent instanceof VideoRecordEvent.Finalize) {
                                 VideoRecordEvent.Finalize finalizeEvent = (VideoRecordEvent.Finalize) recordEvent;
+                                // 结束事件要等封装完成才回调，用录制时长推算最后一帧的时间
+                                long endNanos = startNanos
+                                        + finalizeEvent.getRecordingStats().getRecordedDurationNanos();
+                                FrameTimestampLog log = frameLog;
+                                if (log != null && !finalizeEvent.hasError()) log.setRecordingEnd(endNanos);
+                                closeFrameLog();
                                 if (finalizeEvent.hasError()) {
                                     listener.onVideoError("录制失败：" + finalizeEvent.getError());
                                 } else {
-                                    String path = videoFile.getAbsolutePath();
-                                    listener.onVideoFinished(path);
+                                    listener.onVideoFinished(videoFile.getAbsolutePath(), endNanos);
                                 }
                                 currentRecording = null;
                             }
@@ -105,6 +152,7 @@ public class VideoRecorder {
 
             } catch (Exception e) {
                 e.printStackTrace();
+                closeFrameLog();
                 listener.onVideoError("启动失败：" + e.getMessage());
             }
         }, ContextCompat.getMainExecutor(context));
@@ -112,6 +160,9 @@ public class VideoRecorder {
 
     public void stopRecording() {
         if (currentRecording != null) {
+            // 停止后预览仍在出帧，不再记录；封装完成时再按实际录制时长收窄
+            FrameTimestampLog log = frameLog;
+            if (log != null) log.setRecordingEnd(SystemClock.elapsedRealtimeNanos());
             currentRecording.stop();
             currentRecording = null;
         }
@@ -123,7 +174,73 @@ public class VideoRecorder {
 
     public void releaseResources() {
         stopRecording();
+        closeFrameLog();
+        frameIo.shutdown();
+    }
+
+    /**
+     * 最近一次录制的逐帧时间戳（录制结束后可读取帧数、丢帧、实测帧率），没有录制过为 null
+     */
+    public FrameTimestampLog getFrameLog() {
+        return lastFrameLog;
+    }
+
+    // 从录制开始事件起记录每帧的传感器时间戳，早于 startNanos 曝光的预览帧不记录；打不开文件时只记日志，不影响录像
+    private void openFrameLog(File videoFile, long startNanos) {
+        closeFrameLog();
+        File file = FrameTimestampLog.sidecarFor(videoFile.getAbsolutePath());
+        long wall = System.currentTimeMillis();
+        long elapsed = SystemClock.elapsedRealtimeNanos();
+        // 非 REALTIME 时基的传感器时间戳与 System.nanoTime() 同为 CLOCK_MONOTONIC
+        long sensorClock = timestampSource == FrameTimestampLog.SOURCE_REALTIME ? elapsed : System.nanoTime();
+        try {
+            lastFrameLog = FrameTimestampLog.create(file, frameIo, timestampSource, wall, elapsed, sensorClock);
+            lastFrameLog.setRecordingStart(startNanos);
+            frameLog = lastFrameLog;
+        } catch (IOException e) {
+            Log.w(TAG, "无法创建帧时间戳文件: " + file, e);
+            lastFrameLog = null;
+        }
+    }
+
+    private void closeFrameLog() {
+        FrameTimestampLog log = frameLog;
+        frameLog = null;
+        if (log == null) return;
+        try {
+            log.close();
+            Log.i(TAG, "视频帧 " + log.getFrameCount() + "，丢帧 " + log.getDroppedFrames()
+                    + "，采集失败 " + log.getFailedFrames() + "，实测帧率 "
+                    + String.format(java.util.Locale.US, "%.2f", log.getFps()));
+        } catch (IOException e) {
+            Log.w(TAG, "帧时间戳写入失败", e);
+        }
     }
 
+    private final CameraCaptureSession.CaptureCallback mCaptureCallback = new CameraCaptureSession.CaptureCallback() {
+        @Override
+        public void onCaptureCompleted(@NonNull CameraCaptureSession session, @NonNull CaptureRequest request,
+                                       @NonNull TotalCaptureResult result) {
+            FrameTimestampLog log = frameLog;
+            if (log == null) return;
+            Long timestamp = result.get(CaptureResult.SENSOR_TIMESTAMP);
+            if (timestamp == null) return;
+            Long frameDuration = result.get(CaptureResult.SENSOR_FRAME_DURATION);
+            Long exposure = result.get(CaptureResult.SENSOR_EXPOSURE_TIME);
+            // 只转发录制窗口内的帧，与视频中的帧一一对应
+            if (log.onFrame(result.getFrameNumber(), timestamp,
+                    frameDuration != null ? frameDuration : 0, exposure != null ? exposure : 0)) {
+                listener.onVideoFrame(log.toElapsedNanos(timestamp));
+            }
+        }
+
+        @Override
+        public void onCaptureFailed(@NonNull CameraCaptureSession session, @NonNull CaptureRequest request,
+                                    @NonNull CaptureFailure failure) {
+            FrameTimestampLog log = frameLog;
+            if (log != null) log.onFrameFailed(failure.getFrameNumber());
+        }
+    };
+
 
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.example.myapplication;
+
+import android.view.Choreographer;
+import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.model.VitalsSnapshot;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 实时数据合并发布：处理线程每批都可以 publish，主线程每个显示帧（Choreographer）最多收到一份最新快照
+ * 中间的快照直接被覆盖，界面刷新频率不再跟着蓝牙包速率走
+ */
+public class VitalsPublisher {
+
+    public interface Sink {
+        /** 主线程、帧回调内调用 */
+        void onVitals(VitalsSnapshot snapshot);
+    }
+
+    private static final long RATE_WINDOW_NANOS = 1_000_000_000L;
+
+    private final Choreographer mChoreographer;
+    private final Sink mSink;
+    private final AtomicReference<VitalsSnapshot> mPending = new AtomicReference<>();
+    private final AtomicBoolean mFrameRequested = new AtomicBoolean(false);
+    private final Choreographer.FrameCallback mFrameCallback = this::doFrame;
+
+    // 包速率（只在发布线程上读写）
+    private long mRateStartNanos = -1;
+    private long mRateStartCount;
+    private double mPacketsPerSecond = -1;
+
+    private volatile long mPublished = 0;
+    private volatile long mDelivered = 0;
+
+    /**
+     * @param choreographer 主线程的 Choreographer（在主线程上 Choreographer.getInstance()）
+     */
+    public VitalsPublisher(Choreographer choreographer, Sink sink) {
+        this.mChoreographer = choreographer;
+        this.mSink = sink;
+    }
+
+    /**
+     * 处理线程调用（单一发布者）：取一份快照并请求下一帧显示
+     *
+     * @param packetCount 已处理的通知总数，用于计算包速率
+     * @param nowNanos    当前单调时钟
+     */
+    public void publish(OximeterData data, long packetCount, long nowNanos) {
+        if (mRateStartNanos < 0) {
+            mRateStartNanos = nowNanos;
+            mRateStartCount = packetCount;
+        } else if (nowNanos - mRateStartNanos >= RATE_WINDOW_NANOS) {
+            mPacketsPerSecond = (packetCount - mRateStartCount) * 1e9 / (nowNanos - mRateStartNanos);
+            mRateStartNanos = nowNanos;
+            mRateStartCount = packetCount;
+        }
+
+        VitalsSnapshot snapshot;
+        synchronized (data) {
+            snapshot = VitalsSnapshot.capture(data, packetCount, mPacketsPerSecond);
+        }
+        mPending.set(snapshot);
+        mPublished++;
+        // 已有未执行的帧回调时不再重复请求，帧回调里取到的总是最新的一份
+        if (mFrameRequested.compareAndSet(false, true)) {
+            mChoreographer.postFrameCallback(mFrameCallback);
+        }
+    }
+
+    /** 丢弃未显示的快照并取消帧回调（断开或停止检测时调用） */
+    public void reset() {
+        mChoreographer.removeFrameCallback(mFrameCallback);
+        mFrameRequested.set(false);
+        mPending.set(null);
+    }
+
+    private void doFrame(long frameTimeNanos) {
+        // 先清标志再取快照：之后的 publish 会再请求一帧，不会漏掉
+        mFrameRequested.set(false);
+        VitalsSnapshot snapshot = mPending.getAndSet(null);
+        if (snapshot != null) {
+            mDelivered++;
+            mSink.onVitals(snapshot);
+        }
+    }
+
+    /** 发布的快照数 */
+    public long getPublishedCount() { return mPublished; }
+
+    /** 实际显示的快照数，与发布数之差即被合并掉的数量 */
+    public long getDeliveredCount() { return mDelivered; }
+}
@@ -0,0 +1,143 @@
+package com.example.myapplication.ble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 扫描到的设备表：按地址哈希索引，记录信号强度与最后出现时间
+ * 扫描回调只更新表并置脏标记，界面按固定间隔取一次按信号强度排序的快照
+ *
+ * 非线程安全，只在主线程（扫描回调所在线程）使用
+ */
+public class DiscoveredDevices {
+
+    /** 信号强度平滑系数：新读数占的比重，避免列表随每次读数抖动换位 */
+    private static final double RSSI_SMOOTHING = 0.3;
+
+    public static final class Device {
+        private final String address;
+        private final long firstSeenNanos;
+        private final int order;
+        private String name;
+        private int rssi;
+        private double smoothedRssi;
+        private long lastSeenNanos;
+        private int seenCount;
+        private boolean known;
+
+        private Device(String address, long nowNanos, int order) {
+            this.address = address;
+            this.firstSeenNanos = nowNanos;
+            this.order = order;
+        }
+
+        public String getAddress() { return address; }
+
+        /** 广播中没有名称时为 null */
+        public String getName() { return name; }
+
+        /** 最近一次读数（dBm） */
+        public int getRssi() { return rssi; }
+
+        /** 平滑后的信号强度，用于排序 */
+        public double getSmoothedRssi() { return smoothedRssi; }
+
+        public long getFirstSeenNanos() { return firstSeenNanos; }
+
+        public long getLastSeenNanos() { return lastSeenNanos; }
+
+        public int getSeenCount() { return seenCount; }
+
+        /** 是否为之前连接过的设备 */
+        public boolean isKnown() { return known; }
+    }
+
+    private final Map<String, Device> devices = new HashMap<>();
+    private final long staleNanos;
+    private Set<String> knownAddresses = Collections.emptySet();
+    private long lastNewDeviceNanos = -1;
+    private boolean dirty = false;
+
+    /**
+     * @param staleMs 超过这么久没出现的设备排到列表末尾
+     */
+    public DiscoveredDevices(long staleMs) {
+        this.staleNanos = staleMs * 1_000_000L;
+    }
+
+    /** 之前连接过的设备地址，显示时标记 */
+    public void setKnownAddresses(Set<String> addresses) {
+        this.knownAddresses = addresses;
+        for (Device d : devices.values()) d.known = addresses.contains(d.address);
+        dirty = true;
+    }
+
+    /**
+     * 记一次扫描结果
+     *
+     * @return 是否为新设备
+     */
+    public boolean update(String address, String name, int rssi, long nowNanos) {
+        Device d = devices.get(address);
+        boolean added = d == null;
+        if (added) {
+            d = new Device(address, nowNanos, devices.size());
+            d.smoothedRssi = rssi;
+            d.known = knownAddresses.contains(address);
+            devices.put(address, d);
+            lastNewDeviceNanos = nowNanos;
+        } else {
+            d.smoothedRssi += RSSI_SMOOTHING * (rssi - d.smoothedRssi);
+        }
+        if (name != null && !name.isEmpty()) d.name = name;
+        d.rssi = rssi;
+        d.lastSeenNanos = nowNanos;
+        d.seenCount++;
+        dirty = true;
+        return added;
+    }
+
+    public Device get(String address) {
+        return devices.get(address);
+    }
+
+    public int size() {
+        return devices.size();
+    }
+
+    /** 最近一次发现新设备的时间，没有为 -1 */
+    public long getLastNewDeviceNanos() {
+        return lastNewDeviceNanos;
+    }
+
+    /** 上次取快照之后是否有更新 */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * 按信号强度从强到弱排序的快照（近期未出现的排在后面，强度相同按发现顺序），并清除脏标记
+     */
+    public List<Device> snapshot(long nowNanos) {
+        List<Device> list = new ArrayList<>(devices.values());
+        list.sort((a, b) -> {
+            boolean staleA = nowNanos - a.lastSeenNanos > staleNanos;
+            boolean staleB = nowNanos - b.lastSeenNanos > staleNanos;
+            if (staleA != staleB) return staleA ? 1 : -1;
+            int c = Long.compare(Math.round(b.smoothedRssi), Math.round(a.smoothedRssi));
+            return c != 0 ? c : Integer.compare(a.order, b.order);
+        });
+        dirty = false;
+        return list;
+    }
+
+    public void clear() {
+        devices.clear();
+        lastNewDeviceNanos = -1;
+        dirty = true;
+    }
+}
@@ -0,0 +1,347 @@
+package com.example.myapplication.ble;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * GATT 操作串行队列：Android 同一时刻只允许一个未完成的 GATT 操作，
+ * 所有写特征值/写描述符都经由这里排队，由链路的完成回调驱动下一个操作
+ *
+ * - 每个操作有超时，超时按失败处理并继续后面的操作
+ * - 相邻的无响应写（例如唤醒字节）合并成一次写入，长度不超过单次写入上限（ATT MTU - 3）
+ * - 记录队列深度、成功/失败/超时/拒绝/取消的操作数和延迟（提交 -> 成功完成）
+ *
+ * 链路调用和完成回调都不在队列锁内进行，回调里可以继续提交操作
+ */
+public class GattOperationQueue {
+
+    public interface Completion {
+        void onComplete(boolean success);
+    }
+
+    private static final int OP_WRITE = 0;
+    private static final int OP_WRITE_NO_RESPONSE = 1;
+    private static final int OP_ENABLE_NOTIFICATIONS = 2;
+
+    // 操作的结局，每个操作只计入其中一项
+    private static final int DONE_OK = 0;
+    private static final int DONE_FAILED = 1;
+    private static final int DONE_TIMEOUT = 2;
+    private static final int DONE_REJECTED = 3;
+    private static final int DONE_CANCELLED = 4;
+
+    /** ATT 默认 MTU 23 时单次写入的最大长度 */
+    public static final int DEFAULT_MAX_WRITE_LENGTH = 20;
+
+    private static final class Op {
+        final int type;
+        final byte[] data;
+        final boolean enable;
+        final Completion completion;
+        final long submitNanos;
+        boolean success;
+
+        Op(int type, byte[] data, boolean enable, Completion completion, long submitNanos) {
+            this.type = type;
+            this.data = data;
+            this.enable = enable;
+            this.completion = completion;
+            this.submitNanos = submitNanos;
+        }
+    }
+
+    // 已在锁内成为当前操作、待在锁外发给链路的一次写入
+    private static final class Launch {
+        final int seq;
+        final int type;
+        final byte[] data;
+        final boolean enable;
+
+        Launch(int seq, int type, byte[] data, boolean enable) {
+            this.seq = seq;
+            this.type = type;
+            this.data = data;
+            this.enable = enable;
+        }
+    }
+
+    private final OximeterTransport transport;
+    private final ScheduledExecutorService timer;
+    private final LongSupplier clock;
+
+    private long opTimeoutMs = 1000;
+    private int maxWriteLength = DEFAULT_MAX_WRITE_LENGTH;
+
+    private final ArrayDeque<Op> pending = new ArrayDeque<>();
+    // 正在执行的操作（合并写时为多个）
+    private final List<Op> current = new ArrayList<>();
+    private int currentType = -1;
+    // 每次发起和结束当前操作都递增，用于丢弃过期的超时和锁外的发起结果
+    private int opSeq = 0;
+    private ScheduledFuture<?> timeoutFuture;
+
+    // ====================== 指标 ======================
+    private int maxDepth = 0;
+    private long completedOps = 0;
+    private long failedOps = 0;
+    private long timeoutOps = 0;
+    private long rejectedOps = 0;
+    private long cancelledOps = 0;
+    private long linkWrites = 0;
+    private long mergedWrites = 0;
+    private long latencyTotalNanos = 0;
+    private long latencyMaxNanos = 0;
+
+    public GattOperationQueue(OximeterTransport transport, ScheduledExecutorService timer, LongSupplier clock) {
+        this.transport = transport;
+        this.timer = timer;
+        this.clock = clock;
+    }
+
+    public GattOperationQueue setOpTimeoutMs(long ms) { this.opTimeoutMs = ms; return this; }
+
+    /** 单次写入的最大字节数，MTU 协商后更新为 MTU - 3 */
+    public synchronized void setMaxWriteLength(int n) { this.maxWriteLength = Math.max(1, n); }
+
+    public synchronized int getMaxWriteLength() { return maxWriteLength; }
+
+    // ====================== 提交 ======================
+
+    /** 带响应的写（设备确认后才完成） */
+    public void write(byte[] data, Completion completion) {
+        submit(new Op(OP_WRITE, data.clone(), false, completion, clock.getAsLong()));
+    }
+
+    /** 无响应写，相邻的会合并发送 */
+    public void writeNoResponse(byte[] data, Completion completion) {
+        submit(new Op(OP_WRITE_NO_RESPONSE, data.clone(), false, completion, clock.getAsLong()));
+    }
+
+    /**
+     * 连续 count 个相同的无响应写：一次入队，保证按单次写入上限合并发送；
+     * 每个写完成时各回调一次
+     */
+    public void writeNoResponse(byte[] data, int count, Completion completion) {
+        byte[] copy = data.clone();
+        long now = clock.getAsLong();
+        Op[] ops = new Op[count];
+        for (int i = 0; i < count; i++) ops[i] = new Op(OP_WRITE_NO_RESPONSE, copy, false, completion, now);
+        submit(ops);
+    }
+
+    public void enableNotifications(boolean enable, Completion completion) {
+        submit(new Op(OP_ENABLE_NOTIFICATIONS, null, enable, completion, clock.getAsLong()));
+    }
+
+    private void submit(Op... ops) {
+        Launch launch;
+        synchronized (this) {
+            for (Op op : ops) pending.add(op);
+            maxDepth = Math.max(maxDepth, depth());
+            launch = startNext();
+        }
+        proceed(null, launch);
+    }
+
+    // ====================== 链路回调 ======================
+
+    public void onWriteComplete(boolean success) {
+        complete(OP_WRITE, success);
+    }
+
+    public void onDescriptorWriteComplete(boolean success) {
+        complete(OP_ENABLE_NOTIFICATIONS, success);
+    }
+
+    private void complete(int type, boolean success) {
+        List<Op> done;
+        Launch launch;
+        synchronized (this) {
+            // 无响应写在链路上同样以写完成回调结束
+            int expected = currentType == OP_WRITE_NO_RESPONSE ? OP_WRITE : currentType;
+            if (current.isEmpty() || expected != type) return;
+            done = finishCurrent(success ? DONE_OK : DONE_FAILED);
+            launch = startNext();
+        }
+        proceed(done, launch);
+    }
+
+    private void onTimeout(int seq) {
+        List<Op> done;
+        Launch launch;
+        synchronized (this) {
+            if (seq != opSeq || current.isEmpty()) return;
+            done = finishCurrent(DONE_TIMEOUT);
+            launch = startNext();
+        }
+        proceed(done, launch);
+    }
+
+    /**
+     * 断开时调用：未完成和排队中的操作全部按失败回调（计为取消）
+     */
+    public void clear() {
+        List<Op> done;
+        synchronized (this) {
+            done = current.isEmpty() ? new ArrayList<>() : finishCurrent(DONE_CANCELLED);
+            while (!pending.isEmpty()) {
+                Op op = pending.poll();
+                op.success = false;
+                cancelledOps++;
+                done.add(op);
+            }
+        }
+        dispatch(done);
+    }
+
+    // ====================== 锁外 ======================
+
+    // 把已选好的操作发给链路；链路拒绝时按失败结束并发起下一个，最后回调所有已结束的操作
+    private void proceed(List<Op> done, Launch launch) {
+        while (launch != null) {
+            boolean started;
+            if (launch.type == OP_ENABLE_NOTIFICATIONS) {
+                started = transport.enableNotifications(launch.enable);
+            } else {
+                started = transport.write(launch.data, launch.type == OP_WRITE);
+            }
+            synchronized (this) {
+                // 发起期间已被 clear() 或完成回调结束
+                if (launch.seq != opSeq) break;
+                if (started) {
+                    int seq = launch.seq;
+                    timeoutFuture = timer.schedule(() -> onTimeout(seq), opTimeoutMs, TimeUnit.MILLISECONDS);
+                    break;
+                }
+                List<Op> rejected = finishCurrent(DONE_REJECTED);
+                if (done == null) {
+                    done = rejected;
+                } else {
+                    done.addAll(rejected);
+                }
+                launch = startNext();
+            }
+        }
+        dispatch(done);
+    }
+
+    // ====================== 内部（持锁） ======================
+
+    // 空闲时取出下一个操作（相邻无响应写合并）作为当前操作，返回待发起的写入；忙或没有操作时为 null
+    private Launch startNext() {
+        if (!current.isEmpty() || pending.isEmpty()) return null;
+        Op head = pending.poll();
+        current.add(head);
+        currentType = head.type;
+        byte[] data = head.type == OP_WRITE_NO_RESPONSE ? mergeNoResponse(head) : head.data;
+        linkWrites++;
+        return new Launch(++opSeq, head.type, data, head.enable);
+    }
+
+    private byte[] mergeNoResponse(Op head) {
+        int len = head.data.length;
+        while (!pending.isEmpty()) {
+            Op next = pending.peek();
+            if (next.type != OP_WRITE_NO_RESPONSE || len + next.data.length > maxWriteLength) break;
+            current.add(pending.poll());
+            len += next.data.length;
+        }
+        if (current.size() == 1) return head.data;
+        mergedWrites += current.size() - 1;
+        byte[] merged = new byte[len];
+        int off = 0;
+        for (Op op : current) {
+            System.arraycopy(op.data, 0, merged, off, op.data.length);
+            off += op.data.length;
+        }
+        return merged;
+    }
+
+    private List<Op> finishCurrent(int outcome) {
+        if (timeoutFuture != null) {
+            timeoutFuture.cancel(false);
+            timeoutFuture = null;
+        }
+        opSeq++;
+        long now = clock.getAsLong();
+        List<Op> done = new ArrayList<>(current);
+        for (Op op : done) {
+            op.success = outcome == DONE_OK;
+            switch (outcome) {
+                case DONE_OK:
+                    long latency = now - op.submitNanos;
+                    latencyTotalNanos += latency;
+                    latencyMaxNanos = Math.max(latencyMaxNanos, latency);
+                    completedOps++;
+                    break;
+                case DONE_FAILED:
+                    failedOps++;
+                    break;
+                case DONE_TIMEOUT:
+                    timeoutOps++;
+                    break;
+                case DONE_REJECTED:
+                    rejectedOps++;
+                    break;
+                default:
+                    cancelledOps++;
+                    break;
+            }
+        }
+        current.clear();
+        currentType = -1;
+        return done;
+    }
+
+    private int depth() {
+        return pending.size() + current.size();
+    }
+
+    private static void dispatch(List<Op> done) {
+        if (done == null) return;
+        for (Op op : done) {
+            if (op.completion != null) op.completion.onComplete(op.success);
+        }
+    }
+
+    // ====================== 指标 ======================
+
+    /** 排队中 + 执行中的操作数 */
+    public synchronized int getDepth() { return depth(); }
+
+    public synchronized int getMaxDepth() { return maxDepth; }
+
+    // 以下五项互斥：每个操作结束时只计入一项
+
+    /** 成功完成的操作数 */
+    public synchronized long getCompletedOps() { return completedOps; }
+
+    /** 链路回报失败的操作数 */
+    public synchronized long getFailedOps() { return failedOps; }
+
+    public synchronized long getTimeoutOps() { return timeoutOps; }
+
+    /** 发起时即被链路拒绝的操作数 */
+    public synchronized long getRejectedOps() { return rejectedOps; }
+
+    /** 因 clear() 未完成的操作数 */
+    public synchronized long getCancelledOps() { return cancelledOps; }
+
+    /** 实际发给链路的写/描述符操作次数（合并后） */
+    public synchronized long getLinkOps() { return linkWrites; }
+
+    /** 被合并进前一次写入的无响应写个数 */
+    public synchronized long getMergedWrites() { return mergedWrites; }
+
+    /** 提交到成功完成的平均延迟，没有成功的操作时为 -1 */
+    public synchronized long getMeanLatencyNanos() {
+        return completedOps > 0 ? latencyTotalNanos / completedOps : -1;
+    }
+
+    public synchronized long getMaxLatencyNanos() { return latencyMaxNanos; }
+}
@@ -0,0 +1,318 @@
+package com.example.myapplication.ble;
+
+import android.bluetooth.BluetoothAdapter;
+import android.bluetooth.BluetoothDevice;
+import android.bluetooth.BluetoothGatt;
+import android.bluetooth.BluetoothGattCallback;
+import android.bluetooth.BluetoothGattCharacteristic;
+import android.bluetooth.BluetoothGattDescriptor;
+import android.bluetooth.BluetoothGattService;
+import android.bluetooth.BluetoothProfile;
+import android.bluetooth.BluetoothStatusCodes;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.core.app.ActivityCompat;
+
+import com.example.myapplication.model.LinkParameters;
+import com.example.myapplication.utils.BluetoothUtils;
+
+import java.util.UUID;
+
+/**
+ * 基于 Android BluetoothGatt 的真机链路
+ *
+ * 连接后先协商链路再发现服务：高连接优先级 -> 请求大 MTU -> 手机支持时请求 2M PHY -> discoverServices
+ * 每一步失败、不支持或超时未回调都保留默认值继续下一步，结果见 getLinkParameters()
+ */
+public class GattTransport implements OximeterTransport {
+    private static final String TAG = "GattTransport";
+
+    // 血氧仪协议UUID
+    private static final UUID OXIMETER_SERVICE_UUID =
+            UUID.fromString("0000FFB0-0000-1000-8000-00805f9b34fb");
+    private static final UUID OXIMETER_CHARACTERISTIC_UUID =
+            UUID.fromString("0000FFB2-0000-1000-8000-00805f9b34fb");
+    private static final UUID CLIENT_CONFIG_DESCRIPTOR_UUID =
+            UUID.fromString("00002902-0000-1000-8000-00805f9b34fb");
+
+    // 请求的 ATT MTU（247 正好放进一个 251 字节的 LL 数据包）
+    private static final int REQUESTED_MTU = 247;
+    // 协商步骤没有回调时的等待上限
+    private static final long NEGOTIATION_STEP_TIMEOUT_MS = 1000;
+    private static final int STEP_IDLE = 0;
+    private static final int STEP_MTU = 1;
+    private static final int STEP_PHY = 2;
+    private static final int STEP_DISCOVER = 3;
+
+    private final Context mContext;
+    private final BluetoothAdapter mBluetoothAdapter;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private BluetoothGatt mBluetoothGatt;
+    private BluetoothGattCharacteristic mCharacteristic;
+    private Callback mCallback;
+    // 协商步骤，每次连接从 STEP_MTU 开始；过期的回调和超时按步骤丢弃
+    private int mStep = STEP_IDLE;
+    private volatile LinkParameters mLinkParameters = LinkParameters.DEFAULT;
+
+    public GattTransport(Context context) {
+        this.mContext = context;
+        this.mBluetoothAdapter = BluetoothAdapter.getDefaultAdapter();
+    }
+
+    @Override
+    public void connect(String deviceAddress, Callback callback) {
+        mCallback = callback;
+        if (mBluetoothAdapter == null || !mBluetoothAdapter.isEnabled()) {
+            callback.onConnectFailed("蓝牙未开启，请先开启蓝牙");
+            return;
+        }
+
+        if (!BluetoothUtils.isBluetoothAddressValid(deviceAddress)) {
+            callback.onConnectFailed("蓝牙地址不合法");
+            return;
+        }
+
+        BluetoothDevice device = mBluetoothAdapter.getRemoteDevice(deviceAddress);
+        if (device == null) {
+            callback.onConnectFailed("无法获取蓝牙设备");
+            return;
+        }
+
+        mMainHandler.post(() -> {
+            if (!hasConnectPermission()) {
+                callback.onConnectFailed("缺少蓝牙连接权限");
+                return;
+            }
+            mLinkParameters = LinkParameters.DEFAULT;
+            mBluetoothGatt = device.connectGatt(mContext, false, mGattCallback,
+                    BluetoothDevice.TRANSPORT_LE);
+        });
+    }
+
+    @Override
+    public boolean enableNotifications(boolean enable) {
+        if (mBluetoothGatt == null || mCharacteristic == null || !hasConnectPermission()) {
+            return false;
+        }
+
+        mBluetoothGatt.setCharacteristicNotification(mCharacteristic, enable);
+
+        BluetoothGattDescriptor descriptor = mCharacteristic.getDescriptor(CLIENT_CONFIG_DESCRIPTOR_UUID);
+        if (descriptor == null) {
+            return false;
+        }
+        byte[] value = enable
+                ? BluetoothGattDescriptor.ENABLE_NOTIFICATION_VALUE
+                : BluetoothGattDescriptor.DISABLE_NOTIFICATION_VALUE;
+        return mBluetoothGatt.writeDescriptor(descriptor, value) == BluetoothStatusCodes.SUCCESS;
+    }
+
+    @Override
+    public boolean write(byte[] data, boolean withResponse) {
+        if (mBluetoothGatt == null || mCharacteristic == null) {
+            Log.e(TAG, "发送数据失败：GATT或特征值为空");
+            return false;
+        }
+        if (!hasConnectPermission()) {
+            return false;
+        }
+        int status = mBluetoothGatt.writeCharacteristic(mCharacteristic, data, withResponse
+                ? BluetoothGattCharacteristic.WRITE_TYPE_DEFAULT
+                : BluetoothGattCharacteristic.WRITE_TYPE_NO_RESPONSE);
+        return status == BluetoothStatusCodes.SUCCESS;
+    }
+
+    @Override
+    public boolean requestConnectionPriority(boolean high) {
+        BluetoothGatt gatt = mBluetoothGatt;
+        if (gatt == null || !hasConnectPermission()) {
+            return false;
+        }
+        boolean ok = gatt.requestConnectionPriority(high
+                ? BluetoothGatt.CONNECTION_PRIORITY_HIGH
+                : BluetoothGatt.CONNECTION_PRIORITY_BALANCED);
+        if (ok) {
+            mLinkParameters = mLinkParameters.withPriority(high
+                    ? LinkParameters.PRIORITY_HIGH : LinkParameters.PRIORITY_BALANCED);
+        }
+        return ok;
+    }
+
+    @Override
+    public LinkParameters getLinkParameters() {
+        return mLinkParameters;
+    }
+
+    @Override
+    public void disconnect() {
+        if (mBluetoothGatt != null) {
+            if (!hasConnectPermission()) {
+                return;
+            }
+            mBluetoothGatt.disconnect();
+            mBluetoothGatt.close();
+            mBluetoothGatt = null;
+        }
+        mCharacteristic = null;
+    }
+
+    /**
+     * 从 fromStep 进入下一个协商步骤；fromStep 已过期（回调与超时先后到达）时忽略
+     */
+    private synchronized void advance(BluetoothGatt gatt, int fromStep) {
+        if (mStep != fromStep || gatt != mBluetoothGatt || !hasConnectPermission()) {
+            return;
+        }
+        mStep = fromStep + 1;
+        switch (mStep) {
+            case STEP_MTU:
+                // 高优先级（短连接间隔）加快后续协商和服务发现，检测结束后由上层恢复均衡
+                requestConnectionPriority(true);
+                if (!gatt.requestMtu(REQUESTED_MTU)) {
+                    Log.w(TAG, "请求 MTU 失败，使用默认 MTU");
+                    advance(gatt, STEP_MTU);
+                    return;
+                }
+                break;
+            case STEP_PHY:
+                if (!mBluetoothAdapter.isLe2MPhySupported()) {
+                    Log.i(TAG, "手机不支持 2M PHY");
+                    advance(gatt, STEP_PHY);
+                    return;
+                }
+                mLinkParameters = mLinkParameters.withPhy(true, mLinkParameters.txPhy, mLinkParameters.rxPhy);
+                gatt.setPreferredPhy(BluetoothDevice.PHY_LE_2M_MASK, BluetoothDevice.PHY_LE_2M_MASK,
+                        BluetoothDevice.PHY_OPTION_NO_PREFERRED);
+                break;
+            case STEP_DISCOVER:
+                Log.i(TAG, "链路协商完成：" + mLinkParameters);
+                gatt.discoverServices();
+                return;
+            default:
+                return;
+        }
+        int step = mStep;
+        mMainHandler.postDelayed(() -> {
+            if (mStep == step) Log.w(TAG, "协商步骤 " + step + " 超时，使用当前参数继续");
+            advance(gatt, step);
+        }, NEGOTIATION_STEP_TIMEOUT_MS);
+    }
+
+    private static int toLinkPhy(int phy) {
+        switch (phy) {
+            case BluetoothDevice.PHY_LE_1M: return LinkParameters.PHY_1M;
+            case BluetoothDevice.PHY_LE_2M: return LinkParameters.PHY_2M;
+            case BluetoothDevice.PHY_LE_CODED: return LinkParameters.PHY_CODED;
+            default: return LinkParameters.PHY_UNKNOWN;
+        }
+    }
+
+    private boolean hasConnectPermission() {
+        return ActivityCompat.checkSelfPermission(mContext, android.Manifest.permission.BLUETOOTH_CONNECT)
+                == android.content.pm.PackageManager.PERMISSION_GRANTED;
+    }
+
+    private final BluetoothGattCallback mGattCallback = new BluetoothGattCallback() {
+        @Override
+        public void onConnectionStateChange(BluetoothGatt gatt, int status, int newState) {
+            super.onConnectionStateChange(gatt, status, newState);
+
+            if (newState == BluetoothProfile.STATE_CONNECTED) {
+                synchronized (GattTransport.this) {
+                    mStep = STEP_IDLE;
+                }
+                advance(gatt, STEP_IDLE);
+
+            } else if (newState == BluetoothProfile.STATE_DISCONNECTED) {
+                gatt.close();
+                synchronized (GattTransport.this) {
+                    mStep = STEP_IDLE;
+                }
+                mBluetoothGatt = null;
+                mCharacteristic = null;
+                mCallback.onDisconnected();
+            }
+        }
+
+        @Override
+        public void onMtuChanged(BluetoothGatt gatt, int mtu, int status) {
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                mLinkParameters = mLinkParameters.withMtu(REQUESTED_MTU, mtu);
+            } else {
+                Log.w(TAG, "MTU 协商失败，错误码：" + status);
+                mLinkParameters = mLinkParameters.withMtu(REQUESTED_MTU, LinkParameters.DEFAULT_MTU);
+            }
+            advance(gatt, STEP_MTU);
+        }
+
+        @Override
+        public void onPhyUpdate(BluetoothGatt gatt, int txPhy, int rxPhy, int status) {
+            // 对端也可能主动更新 PHY，任何时候都记录
+            if (status == BluetoothGatt.GATT_SUCCESS) {
+                mLinkParameters = mLinkParameters.withPhy(mLinkParameters.requested2mPhy,
+                        toLinkPhy(txPhy), toLinkPhy(rxPhy));
+            } else {
+                Log.w(TAG, "PHY 更新失败，错误码：" + status);
+            }
+            advance(gatt, STEP_PHY);
+        }
+
+        @Override
+        public void onServicesDiscovered(BluetoothGatt gatt, int status) {
+            super.onServicesDiscovered(gatt, status);
+
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                mCallback.onConnectFailed("服务发现失败，错误码：" + status);
+                return;
+            }
+
+            BluetoothGattService service = gatt.getService(OXIMETER_SERVICE_UUID);
+            if (service == null) {
+                mCallback.onConnectFailed("未找到血氧仪服务");
+                return;
+            }
+
+            mCharacteristic = service.getCharacteristic(OXIMETER_CHARACTERISTIC_UUID);
+            if (mCharacteristic == null) {
+                mCallback.onConnectFailed("未找到血氧仪特征值");
+                return;
+            }
+
+            String deviceName = gatt.getDevice().getName();
+            String displayName = (deviceName == null || deviceName.isEmpty())
+                    ? "未知血氧仪设备" : deviceName;
+            mCallback.onConnected(displayName, gatt.getDevice().getAddress());
+        }
+
+        @Override
+        public void onCharacteristicChanged(@NonNull BluetoothGatt gatt,
+                                            @NonNull BluetoothGattCharacteristic characteristic,
+                                            @NonNull byte[] value) {
+            long timestampNanos = SystemClock.elapsedRealtimeNanos();
+            if (value.length > 0) {
+                mCallback.onNotification(value, 0, value.length, timestampNanos);
+            }
+        }
+
+        @Override
+        public void onCharacteristicWrite(BluetoothGatt gatt, BluetoothGattCharacteristic characteristic, int status) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.e(TAG, "特征值写入失败，错误码：" + status);
+            }
+            mCallback.onWriteComplete(status == BluetoothGatt.GATT_SUCCESS);
+        }
+
+        @Override
+        public void onDescriptorWrite(BluetoothGatt gatt, BluetoothGattDescriptor descriptor, int status) {
+            if (status != BluetoothGatt.GATT_SUCCESS) {
+                Log.e(TAG, "通知描述符写入失败，错误码：" + status);
+            }
+            mCallback.onDescriptorWriteComplete(status == BluetoothGatt.GATT_SUCCESS);
+        }
+    };
+}
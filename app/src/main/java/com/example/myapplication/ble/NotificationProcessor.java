@@ -0,0 +1,239 @@
+package com.example.myapplication.ble;
+
+import com.example.myapplication.model.OximeterData;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 通知处理线程：蓝牙回调只把通知拷进各自通道的 NotificationRingBuffer，
+ * 本线程轮流按批取出、解析进对应的 OximeterData（每批持一次该 OximeterData 的锁），再按批发布结果
+ *
+ * 每台设备一个通道（各自的环形缓冲区保证单生产者），多台设备共用一个处理线程
+ * 同时统计排队延迟（到达 -> 开始解析）与批大小
+ * 读取 OximeterData 的其他线程（保存、上传、界面）需要 synchronized (data)
+ */
+public class NotificationProcessor {
+
+    public interface Listener {
+        /** 一批处理完成后调用（锁外）；原始通知由 OximeterData 写入跟踪缓冲区，不再逐包回调 */
+        void onBatchProcessed(int notifications, long newFrames);
+    }
+
+    /** 一台设备的输入通道 */
+    public final class Channel {
+        private final OximeterData data;
+        private final NotificationRingBuffer ring;
+        private final Listener listener;
+        private final NotificationRingBuffer.Consumer parser = this::process;
+        private volatile long processed = 0;
+        // 非生产者线程请求的断链，由处理线程在缓冲区取空后处理
+        private volatile boolean linkDownRequested = false;
+
+        private Channel(OximeterData data, NotificationRingBuffer ring, Listener listener) {
+            this.data = data;
+            this.ring = ring;
+            this.listener = listener;
+        }
+
+        /**
+         * 生产者（该设备的蓝牙回调线程）调用：拷贝进缓冲区并在需要时唤醒处理线程
+         *
+         * @return 缓冲区满被丢弃时为 false
+         */
+        public boolean onNotification(byte[] buf, int off, int len, long timestampNanos) {
+            boolean accepted = ring.offer(buf, off, len, timestampNanos);
+            wake();
+            return accepted;
+        }
+
+        /**
+         * 生产者调用：链路中断。在通知流中插入一个空记录，处理到它时才通知 OximeterData，
+         * 保证断链前已到达的通知先处理完
+         */
+        public void onLinkDown(long timestampNanos) {
+            onNotification(EMPTY, 0, 0, timestampNanos);
+        }
+
+        /**
+         * 非生产者线程（如主线程主动断开）调用：不写环形缓冲区，只置标记，
+         * 处理线程把缓冲区中已有的通知处理完后再通知 OximeterData
+         */
+        public void requestLinkDown() {
+            linkDownRequested = true;
+            wake();
+        }
+
+        private int processBatch() {
+            int n;
+            long newFrames;
+            synchronized (data) {
+                long before = data.getFrameCount();
+                n = ring.drain(parser, maxBatch);
+                newFrames = data.getFrameCount() - before;
+                if (linkDownRequested && ring.isEmpty()) {
+                    linkDownRequested = false;
+                    data.onLinkDown();
+                }
+            }
+            if (n > 0) {
+                batches++;
+                if (n > maxBatchSeen) maxBatchSeen = n;
+                listener.onBatchProcessed(n, newFrames);
+            }
+            return n;
+        }
+
+        private void process(byte[] buf, int off, int len, long timestampNanos) {
+            if (len == 0) {
+                data.onLinkDown();
+                return;
+            }
+            long delay = clock.getAsLong() - timestampNanos;
+            delayTotalNanos += delay;
+            if (delay > delayMaxNanos) delayMaxNanos = delay;
+            processed++;
+            totalProcessed++;
+            data.addNotification(buf, off, len, timestampNanos);
+        }
+
+        public OximeterData getData() { return data; }
+
+        public NotificationRingBuffer getRing() { return ring; }
+
+        public long getProcessedCount() { return processed; }
+
+        public long getDroppedCount() { return ring.getDroppedCount(); }
+    }
+
+    public static final int DEFAULT_MAX_BATCH = 64;
+    private static final byte[] EMPTY = new byte[0];
+    // 兜底的最长休眠，正常情况下由生产者唤醒
+    private static final long IDLE_PARK_NANOS = 100_000_000L;
+
+    private final LongSupplier clock;
+    private final int maxBatch;
+    private final List<Channel> channels = new CopyOnWriteArrayList<>();
+
+    private volatile Thread thread;
+    private volatile boolean running = false;
+    private volatile boolean sleeping = false;
+
+    // ====================== 指标（处理线程写，其他线程读） ======================
+    private volatile long totalProcessed = 0;
+    private volatile long batches = 0;
+    private volatile long delayTotalNanos = 0;
+    private volatile long delayMaxNanos = 0;
+    private volatile long maxBatchSeen = 0;
+
+    public NotificationProcessor(LongSupplier clock) {
+        this(clock, DEFAULT_MAX_BATCH);
+    }
+
+    /**
+     * @param maxBatch 每个通道每轮最多处理的通知数，避免一台设备占住处理线程
+     */
+    public NotificationProcessor(LongSupplier clock, int maxBatch) {
+        this.clock = clock;
+        this.maxBatch = maxBatch;
+    }
+
+    /** 增加一台设备的通道，可在处理线程运行时调用 */
+    public Channel addChannel(OximeterData data, NotificationRingBuffer ring, Listener listener) {
+        Channel c = new Channel(data, ring, listener);
+        channels.add(c);
+        return c;
+    }
+
+    /** 移除通道，缓冲区里未处理的通知被丢弃 */
+    public void removeChannel(Channel channel) {
+        channels.remove(channel);
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        thread = new Thread(this::runLoop, "NotificationProcessor");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /** 停止处理线程；缓冲区里剩下的通知会先处理完 */
+    public void stop() {
+        Thread t;
+        synchronized (this) {
+            running = false;
+            t = thread;
+            thread = null;
+        }
+        if (t != null && t != Thread.currentThread()) {
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void wake() {
+        if (sleeping) {
+            Thread t = thread;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    private void runLoop() {
+        while (running) {
+            if (processRound() == 0) {
+                sleeping = true;
+                if (allEmpty() && running) LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                sleeping = false;
+            }
+        }
+        while (processRound() > 0) {
+            // 退出前处理完剩余通知
+        }
+    }
+
+    // 每个通道各取一批，轮转处理
+    private int processRound() {
+        int total = 0;
+        for (Channel c : channels) {
+            total += c.processBatch();
+        }
+        return total;
+    }
+
+    private boolean allEmpty() {
+        for (Channel c : channels) {
+            if (!c.ring.isEmpty() || c.linkDownRequested) return false;
+        }
+        return true;
+    }
+
+    // ====================== 指标 ======================
+    public long getProcessedCount() { return totalProcessed; }
+
+    public long getBatchCount() { return batches; }
+
+    public double getMeanBatchSize() { return batches > 0 ? (double) totalProcessed / batches : 0; }
+
+    public long getMaxBatchSize() { return maxBatchSeen; }
+
+    /** 到达到开始解析的平均排队延迟，没有通知时为 -1 */
+    public long getMeanQueueDelayNanos() { return totalProcessed > 0 ? delayTotalNanos / totalProcessed : -1; }
+
+    public long getMaxQueueDelayNanos() { return delayMaxNanos; }
+
+    /** 所有通道因缓冲区满被丢弃的通知数 */
+    public long getDroppedCount() {
+        long n = 0;
+        for (Channel c : channels) n += c.getDroppedCount();
+        return n;
+    }
+
+    public int getChannelCount() { return channels.size(); }
+}
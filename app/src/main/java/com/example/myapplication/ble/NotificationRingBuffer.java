@@ -0,0 +1,162 @@
+package com.example.myapplication.ble;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 单生产者 / 单消费者的无锁通知环形缓冲区
+ * 生产者（蓝牙回调线程）只做一次内存拷贝，消费者（处理线程）按批取出
+ *
+ * 记录格式：[长度 4 字节][到达时间 8 字节][数据]，记录在缓冲区内连续存放；
+ * 末尾放不下时写一个填充标记并从头开始，因此消费者拿到的数据总是连续的
+ * 预分配全部空间，运行期间不分配对象
+ */
+public final class NotificationRingBuffer {
+
+    public interface Consumer {
+        /** buf 只在回调期间有效 */
+        void onNotification(byte[] buf, int off, int len, long timestampNanos);
+    }
+
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+    private static final int HEADER = 12;
+    private static final int PAD = -1;
+
+    private final byte[] data;
+    private final int mask;
+
+    // 字节位置，单调递增不回绕；tail 由生产者发布，head 由消费者发布
+    private final AtomicLong head = new AtomicLong();
+    private final AtomicLong tail = new AtomicLong();
+    // 生产者缓存的 head，只有看起来满了才重新读取
+    private long cachedHead = 0;
+
+    private volatile long dropped = 0;
+    private volatile long highWaterBytes = 0;
+
+    public NotificationRingBuffer() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity 字节容量，必须是 2 的幂
+     */
+    public NotificationRingBuffer(int capacity) {
+        if (Integer.bitCount(capacity) != 1 || capacity < 64) {
+            throw new IllegalArgumentException("容量必须是不小于 64 的 2 的幂");
+        }
+        data = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    /**
+     * 生产者：写入一个通知，缓冲区满或通知过大时丢弃并计数
+     *
+     * @return 是否写入
+     */
+    public boolean offer(byte[] buf, int off, int len, long timestampNanos) {
+        int recLen = HEADER + len;
+        if (recLen > data.length / 2) {
+            dropped++;
+            return false;
+        }
+        long t = tail.get();
+        int pos = (int) (t & mask);
+        int toEnd = data.length - pos;
+        long need = toEnd < recLen ? toEnd + recLen : recLen;
+        if (t + need - cachedHead > data.length) {
+            cachedHead = head.get();
+            if (t + need - cachedHead > data.length) {
+                dropped++;
+                return false;
+            }
+        }
+
+        if (toEnd < recLen) {
+            // 末尾剩余不足一个头时消费者自行跳过，否则写填充标记
+            if (toEnd >= HEADER) putInt(pos, PAD);
+            t += toEnd;
+            pos = 0;
+        }
+        putInt(pos, len);
+        putLong(pos + 4, timestampNanos);
+        System.arraycopy(buf, off, data, pos + HEADER, len);
+        t += recLen;
+        // volatile 写：与消费者休眠前的检查配对，保证不会错过唤醒
+        tail.set(t);
+        return true;
+    }
+
+    /**
+     * 消费者：按顺序取出至多 max 个通知
+     *
+     * @return 取出的通知数
+     */
+    public int drain(Consumer consumer, int max) {
+        long h = head.get();
+        long t = tail.get();
+        if (t - h > highWaterBytes) highWaterBytes = t - h;
+        int count = 0;
+        while (h < t && count < max) {
+            int pos = (int) (h & mask);
+            int toEnd = data.length - pos;
+            if (toEnd < HEADER) {
+                h += toEnd;
+                continue;
+            }
+            int len = getInt(pos);
+            if (len == PAD) {
+                h += toEnd;
+                continue;
+            }
+            consumer.onNotification(data, pos + HEADER, len, getLong(pos + 4));
+            h += HEADER + len;
+            count++;
+        }
+        head.lazySet(h);
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return head.get() == tail.get();
+    }
+
+    /** 当前占用的字节数 */
+    public int usedBytes() {
+        return (int) (tail.get() - head.get());
+    }
+
+    public int capacity() {
+        return data.length;
+    }
+
+    /** 因缓冲区满或通知过大被丢弃的通知数 */
+    public long getDroppedCount() {
+        return dropped;
+    }
+
+    /** 消费者取数时看到的最大积压字节数 */
+    public long getHighWaterBytes() {
+        return highWaterBytes;
+    }
+
+    private void putInt(int pos, int v) {
+        data[pos] = (byte) (v >>> 24);
+        data[pos + 1] = (byte) (v >>> 16);
+        data[pos + 2] = (byte) (v >>> 8);
+        data[pos + 3] = (byte) v;
+    }
+
+    private void putLong(int pos, long v) {
+        putInt(pos, (int) (v >>> 32));
+        putInt(pos + 4, (int) v);
+    }
+
+    private int getInt(int pos) {
+        return (data[pos] & 0xFF) << 24 | (data[pos + 1] & 0xFF) << 16
+                | (data[pos + 2] & 0xFF) << 8 | (data[pos + 3] & 0xFF);
+    }
+
+    private long getLong(int pos) {
+        return (long) getInt(pos) << 32 | (getInt(pos + 4) & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.myapplication.ble;
+
+import java.util.Arrays;
+
+/**
+ * 写给血氧仪的协议命令（FFB2 特征值），真机链路与模拟器共用；
+ * 以及设备上行帧 FF FE | LL | CS | 0x23 | CMD | DATA 的编码，供模拟器、测试和基准测试构造数据
+ */
+public final class OximeterCommands {
+
+    /** 唤醒字节：设备休眠时需要连续收到若干个才会响应后续命令 */
+    public static final byte WAKE_BYTE = 0x00;
+
+    /** 上行帧中的设备标识 */
+    public static final int DEVICE_ID = 0x23;
+    /** 上行帧头长度（同步字、LL、CS、设备标识、命令），数据从这里开始 */
+    public static final int FRAME_HEADER_LEN = 6;
+
+    static final byte[] DEVICE_READY = {
+            (byte) 0xFF, (byte) 0xFE, 0x04, (byte) 0x87, 0x22, 0x61
+    };
+    static final byte[] START_MEASURE = {
+            (byte) 0xFF, (byte) 0xFE, 0x04, (byte) 0xB5, 0x01, (byte) 0xB0
+    };
+    // 开启脉搏波形上传（设备随后以 0x96 包连续发送波形样本）
+    static final byte[] START_WAVEFORM = {
+            (byte) 0xFF, (byte) 0xFE, 0x04, (byte) 0xB6, 0x01, (byte) 0xB1
+    };
+
+    private OximeterCommands() {}
+
+    // 每次返回副本，避免调用方改写共享数组
+    public static byte[] deviceReady() { return DEVICE_READY.clone(); }
+
+    public static byte[] startMeasure() { return START_MEASURE.clone(); }
+
+    public static byte[] startWaveform() { return START_WAVEFORM.clone(); }
+
+    public static boolean isWake(byte[] data) {
+        if (data.length == 0) return false;
+        for (byte b : data) {
+            if (b != WAKE_BYTE) return false;
+        }
+        return true;
+    }
+
+    /**
+     * 构造一个上行帧（带正确的 LL 和校验和）
+     *
+     * @param data 数据字节，取低 8 位
+     */
+    public static byte[] frame(int cmd, int... data) {
+        byte[] f = new byte[FRAME_HEADER_LEN + data.length];
+        for (int i = 0; i < data.length; i++) f[FRAME_HEADER_LEN + i] = (byte) data[i];
+        encodeFrame(f, cmd, data.length);
+        return f;
+    }
+
+    /**
+     * 原地补全帧头：数据已写在 dst[6..6+dataLen)，填入同步字、LL、校验和、设备标识与命令
+     *
+     * @return 整帧长度
+     */
+    public static int encodeFrame(byte[] dst, int cmd, int dataLen) {
+        int ll = FRAME_HEADER_LEN - 2 + dataLen;
+        int cs = ll + DEVICE_ID + cmd;
+        for (int i = 0; i < dataLen; i++) cs += dst[FRAME_HEADER_LEN + i] & 0xFF;
+        dst[0] = (byte) 0xFF;
+        dst[1] = (byte) 0xFE;
+        dst[2] = (byte) ll;
+        dst[3] = (byte) cs;
+        dst[4] = (byte) DEVICE_ID;
+        dst[5] = (byte) cmd;
+        return ll + 2;
+    }
+
+    static boolean matches(byte[] data, byte[] cmd) {
+        return Arrays.equals(data, cmd);
+    }
+}
@@ -0,0 +1,360 @@
+package com.example.myapplication.ble;
+
+import com.example.myapplication.model.LinkParameters;
+import com.example.myapplication.model.OximeterData;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 一台血氧仪的会话：自己的链路、GATT 操作队列、唤醒握手、处理通道和 OximeterData
+ * 多台设备各建一个会话，共用 NotificationProcessor 的处理线程和定时器
+ *
+ * 连接成功后自动开启通知；握手由上层在需要时 startHandshake()
+ * 意外断链后按指数退避自动重连（间隔有上限、次数有限），数据继续写入同一个 OximeterData；
+ * 已开始检测时重连后自动恢复推送，设备仍醒着就不再发唤醒序列，中断区间记为数据缺口
+ * 监听器回调所在线程与底层一致（链路回调线程、处理线程或定时器线程）
+ */
+public class OximeterSession {
+
+    public interface Listener {
+        /** 已连接且通知已开启（开启失败时 notificationsEnabled 为 false） */
+        void onConnected(OximeterSession session, boolean notificationsEnabled);
+
+        void onConnectFailed(OximeterSession session, String errorMsg);
+
+        /** 意外断链，将在 delayMs 后进行第 attempt 次重连 */
+        void onLinkLost(OximeterSession session, int attempt, long delayMs);
+
+        /** 重连成功且通知已重新开启；之前已开始检测时随后自动恢复，完成时回调 onResumed */
+        void onReconnected(OximeterSession session, boolean notificationsEnabled);
+
+        /**
+         * 重连后设备恢复推送
+         *
+         * @param gapNanos      从断链到恢复推送的时长
+         * @param wakeBytesSent 0 表示设备仍醒着，没有重新唤醒
+         */
+        void onResumed(OximeterSession session, long gapNanos, int wakeBytesSent);
+
+        /** 断开且不再重连（未开启自动重连或重连次数用完） */
+        void onDisconnected(OximeterSession session);
+
+        void onAwake(OximeterSession session, long elapsedNanos, int wakeBytesSent);
+
+        void onHandshakeFailed(OximeterSession session, String reason);
+
+        /** 处理线程上、一批处理完成后调用（锁外） */
+        void onBatchProcessed(OximeterSession session, int notifications, long newFrames);
+    }
+
+    private final String address;
+    private final OximeterTransport transport;
+    private final ScheduledExecutorService timer;
+    private final LongSupplier clock;
+    private final NotificationProcessor processor;
+    private final Listener listener;
+    private final OximeterData data = new OximeterData();
+    private final GattOperationQueue queue;
+    private final WakeHandshake handshake;
+    private final NotificationProcessor.Channel channel;
+
+    private boolean autoReconnect = true;
+    private long reconnectInitialDelayMs = 250;
+    private long reconnectMaxDelayMs = 4000;
+    private int maxReconnectAttempts = 8;
+    private long resumeProbeMs = 500;
+
+    private volatile String deviceName;
+    private volatile boolean connected = false;
+    private volatile boolean receiving = false;
+    private volatile long connectedNanos = -1;
+
+    // 以下重连状态由 this 保护
+    private boolean wanted = false;          // connect() 之后、disconnect() 之前
+    private boolean linkEstablished = false; // 本次 connect() 后连上过，之后断链才自动重连
+    private boolean measuring = false;       // 已 startHandshake()，重连后需要恢复推送
+    private boolean reconnecting = false;
+    private boolean resuming = false;
+    private int reconnectAttempt = 0;
+    private long linkLostNanos = -1;
+    private ScheduledFuture<?> reconnectTimer;
+    private volatile int reconnectCount = 0;
+
+    public OximeterSession(String address, OximeterTransport transport, NotificationProcessor processor,
+                           ScheduledExecutorService timer, LongSupplier clock, Listener listener) {
+        this.address = address;
+        this.transport = transport;
+        this.timer = timer;
+        this.clock = clock;
+        this.processor = processor;
+        this.listener = listener;
+        this.queue = new GattOperationQueue(transport, timer, clock);
+        this.handshake = new WakeHandshake(queue, timer, mHandshakeListener, clock);
+        this.channel = processor.addChannel(data, new NotificationRingBuffer(), mProcessorListener);
+    }
+
+    /** 意外断链后是否自动重连（默认开启） */
+    public OximeterSession setAutoReconnect(boolean enable) { this.autoReconnect = enable; return this; }
+
+    /** 重连退避：第 n 次等待 initial * 2^(n-1)，不超过 max */
+    public OximeterSession setReconnectDelayMs(long initialMs, long maxMs) {
+        this.reconnectInitialDelayMs = initialMs;
+        this.reconnectMaxDelayMs = maxMs;
+        return this;
+    }
+
+    /** 连续重连失败多少次后放弃 */
+    public OximeterSession setMaxReconnectAttempts(int n) { this.maxReconnectAttempts = n; return this; }
+
+    /** 重连后等待设备自行推送的时间，超时才重新唤醒 */
+    public OximeterSession setResumeProbeMs(long ms) { this.resumeProbeMs = ms; return this; }
+
+    public void connect() {
+        synchronized (this) {
+            cancelReconnect();
+            wanted = true;
+            connectedNanos = -1;
+            linkEstablished = false;
+            measuring = false;
+            linkLostNanos = -1;
+        }
+        transport.connect(address, mTransportCallback);
+    }
+
+    /** 开始唤醒握手，设备推送数据后回调 onAwake；检测期间使用高连接优先级 */
+    public void startHandshake() {
+        synchronized (this) {
+            measuring = true;
+            resuming = false;
+        }
+        transport.requestConnectionPriority(true);
+        handshake.start();
+    }
+
+    /** 检测结束：恢复均衡的连接优先级，连接保持 */
+    public void endMeasurement() {
+        transport.requestConnectionPriority(false);
+    }
+
+    /** 当前链路参数（连接成功前为默认值） */
+    public LinkParameters getLinkParameters() {
+        return transport.getLinkParameters();
+    }
+
+    /** 断开连接（包括正在等待的重连），之后不再回调链路事件；可再次 connect() */
+    public void disconnect() {
+        synchronized (this) {
+            cancelReconnect();
+            wanted = false;
+            measuring = false;
+        }
+        handshake.cancel();
+        queue.clear();
+        transport.disconnect();
+        // 调用线程不是环形缓冲区的生产者（晚到的蓝牙回调仍可能写入），只置断链标记由处理线程处理
+        channel.requestLinkDown();
+        connected = false;
+        receiving = false;
+    }
+
+    /** 断开并从处理线程移除，之后不能再使用 */
+    public void release() {
+        disconnect();
+        processor.removeChannel(channel);
+    }
+
+    public String getAddress() { return address; }
+
+    /** 连接成功前为 null */
+    public String getDeviceName() { return deviceName; }
+
+    /** 采集到的数据；处理线程会持续写入，读取时需 synchronized (data) */
+    public OximeterData getData() { return data; }
+
+    public GattOperationQueue getQueue() { return queue; }
+
+    public WakeHandshake getHandshake() { return handshake; }
+
+    public NotificationProcessor.Channel getChannel() { return channel; }
+
+    public boolean isConnected() { return connected; }
+
+    /** 本次 connect() 后首次连上的时间（链路回调时的单调时钟），未连上为 -1；自动重连不更新 */
+    public long getConnectedNanos() { return connectedNanos; }
+
+    /** 握手已完成、设备正在推送数据 */
+    public boolean isReceiving() { return receiving; }
+
+    /** 断链后正在等待或进行重连 */
+    public synchronized boolean isReconnecting() { return reconnecting; }
+
+    /** 成功重连的次数 */
+    public int getReconnectCount() { return reconnectCount; }
+
+    // 持锁调用；返回等待时长，次数用完返回 -1
+    private long scheduleReconnect() {
+        if (reconnectAttempt >= maxReconnectAttempts) {
+            reconnecting = false;
+            return -1;
+        }
+        int attempt = ++reconnectAttempt;
+        long delay = Math.min(reconnectMaxDelayMs, reconnectInitialDelayMs << Math.min(attempt - 1, 20));
+        reconnecting = true;
+        reconnectTimer = timer.schedule(this::reconnect, delay, TimeUnit.MILLISECONDS);
+        return delay;
+    }
+
+    private void reconnect() {
+        synchronized (this) {
+            if (!wanted || !reconnecting) return;
+            reconnectTimer = null;
+        }
+        transport.connect(address, mTransportCallback);
+    }
+
+    private void cancelReconnect() {
+        if (reconnectTimer != null) reconnectTimer.cancel(false);
+        reconnectTimer = null;
+        reconnecting = false;
+        resuming = false;
+        reconnectAttempt = 0;
+    }
+
+    // 链路断开或重连失败：连上过就按退避排下一次重连，否则（或次数用完）通知上层
+    private void onLinkFailed(String errorMsg) {
+        long delay = -1;
+        int attempt = 0;
+        boolean hadLink;
+        synchronized (this) {
+            if (!wanted) return;
+            hadLink = linkEstablished;
+            if (hadLink && autoReconnect) {
+                if (linkLostNanos < 0) linkLostNanos = clock.getAsLong();
+                delay = scheduleReconnect();
+                attempt = reconnectAttempt;
+            }
+            if (delay < 0) {
+                wanted = false;
+                reconnecting = resuming = false;
+            }
+        }
+        if (delay >= 0) {
+            listener.onLinkLost(this, attempt, delay);
+        } else if (!hadLink) {
+            // 按地址直连时设备不在范围内，链路层会直接回报断开
+            listener.onConnectFailed(this, errorMsg != null ? errorMsg : "连接失败，请确认设备已开机并在附近");
+        } else {
+            listener.onDisconnected(this);
+        }
+    }
+
+    private final OximeterTransport.Callback mTransportCallback = new OximeterTransport.Callback() {
+        @Override
+        public void onConnected(String name, String deviceAddress) {
+            if (connectedNanos < 0) connectedNanos = clock.getAsLong();
+            deviceName = name;
+            connected = true;
+            // 按协商后的 MTU 合并无响应写，并把链路参数记入本次数据
+            LinkParameters link = transport.getLinkParameters();
+            queue.setMaxWriteLength(link.getMaxPayload());
+            synchronized (data) {
+                data.setLinkParameters(link);
+            }
+            queue.enableNotifications(true, this::onNotificationsEnabled);
+        }
+
+        private void onNotificationsEnabled(boolean ok) {
+            boolean reconnected;
+            boolean resume;
+            synchronized (OximeterSession.this) {
+                reconnected = reconnecting;
+                resume = reconnected && measuring && ok;
+                linkEstablished = true;
+                reconnecting = false;
+                reconnectAttempt = 0;
+                resuming = resume;
+                if (!resume) linkLostNanos = -1;
+            }
+            if (!reconnected) {
+                listener.onConnected(OximeterSession.this, ok);
+                return;
+            }
+            reconnectCount++;
+            listener.onReconnected(OximeterSession.this, ok);
+            if (resume) {
+                transport.requestConnectionPriority(true);
+                handshake.resume(resumeProbeMs);
+            }
+        }
+
+        @Override
+        public void onConnectFailed(String errorMsg) {
+            onLinkFailed(errorMsg);
+        }
+
+        @Override
+        public void onDisconnected() {
+            channel.onLinkDown(clock.getAsLong());
+            handshake.cancel();
+            queue.clear();
+            connected = false;
+            receiving = false;
+            onLinkFailed(null);
+        }
+
+        @Override
+        public void onNotification(byte[] buf, int off, int len, long timestampNanos) {
+            // 不管有没有开始接收都保存：这里只拷贝进本设备的环形缓冲区，由处理线程解析
+            channel.onNotification(buf, off, len, timestampNanos);
+        }
+
+        @Override
+        public void onWriteComplete(boolean success) {
+            queue.onWriteComplete(success);
+        }
+
+        @Override
+        public void onDescriptorWriteComplete(boolean success) {
+            queue.onDescriptorWriteComplete(success);
+        }
+    };
+
+    private final NotificationProcessor.Listener mProcessorListener = new NotificationProcessor.Listener() {
+        @Override
+        public void onBatchProcessed(int notifications, long newFrames) {
+            if (newFrames > 0) handshake.onFrameReceived();
+            listener.onBatchProcessed(OximeterSession.this, notifications, newFrames);
+        }
+    };
+
+    private final WakeHandshake.Listener mHandshakeListener = new WakeHandshake.Listener() {
+        @Override
+        public void onAwake(long elapsedNanos, int wakeBytesSent) {
+            boolean resumed;
+            long gapNanos = 0;
+            synchronized (OximeterSession.this) {
+                resumed = resuming;
+                resuming = false;
+                if (resumed) gapNanos = clock.getAsLong() - linkLostNanos;
+                linkLostNanos = -1;
+            }
+            receiving = true;
+            if (resumed) {
+                listener.onResumed(OximeterSession.this, gapNanos, wakeBytesSent);
+            } else {
+                listener.onAwake(OximeterSession.this, elapsedNanos, wakeBytesSent);
+            }
+        }
+
+        @Override
+        public void onFailed(String reason) {
+            synchronized (OximeterSession.this) {
+                resuming = false;
+            }
+            listener.onHandshakeFailed(OximeterSession.this, reason);
+        }
+    };
+}
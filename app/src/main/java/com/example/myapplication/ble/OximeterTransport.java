@@ -0,0 +1,67 @@
+package com.example.myapplication.ble;
+
+import com.example.myapplication.model.LinkParameters;
+
+/**
+ * 血氧仪链路抽象：BluetoothService 只通过它收发数据
+ * 真机实现为 {@link GattTransport}，JVM 压测使用 {@link SimulatedOximeterTransport}
+ *
+ * 所有回调都可能在非主线程（蓝牙 binder 线程或模拟器线程）上触发，
+ * 且不会在 write / enableNotifications 调用内部同步触发
+ * 同一时刻只能有一个未完成的写操作，上层通过 {@link GattOperationQueue} 串行提交
+ */
+public interface OximeterTransport {
+
+    interface Callback {
+        /** 已连接、链路参数协商完毕且找到 FFB0/FFB2 服务特征值，可以开始写命令 */
+        void onConnected(String deviceName, String deviceAddress);
+
+        void onConnectFailed(String errorMsg);
+
+        void onDisconnected();
+
+        /**
+         * 收到一个通知；data 只在回调期间有效，需要保留时必须拷贝
+         *
+         * @param timestampNanos 收到通知时的单调时钟
+         */
+        void onNotification(byte[] data, int off, int len, long timestampNanos);
+
+        /** 上一次 write 完成（有响应写为设备已确认，无响应写为协议栈已接收） */
+        void onWriteComplete(boolean success);
+
+        /** 上一次 enableNotifications 的描述符写入完成 */
+        void onDescriptorWriteComplete(boolean success);
+    }
+
+    void connect(String deviceAddress, Callback callback);
+
+    /**
+     * 开启/关闭特征值通知（写 CCCD 描述符），完成后回调 onDescriptorWriteComplete
+     *
+     * @return 是否成功发起
+     */
+    boolean enableNotifications(boolean enable);
+
+    /**
+     * 写特征值，完成后回调 onWriteComplete
+     *
+     * @param withResponse true 为有响应写（WRITE_TYPE_DEFAULT），false 为无响应写
+     * @return 是否成功发起
+     */
+    boolean write(byte[] data, boolean withResponse);
+
+    /**
+     * 请求连接优先级：高优先级为更短的连接间隔（延迟低、耗电高），否则恢复均衡
+     * 没有完成回调
+     *
+     * @return 是否成功发起
+     */
+    boolean requestConnectionPriority(boolean high);
+
+    /** 当前链路参数（MTU、PHY、连接优先级），onConnected 之后有效 */
+    LinkParameters getLinkParameters();
+
+    /** 断开并释放连接，之后不再回调 */
+    void disconnect();
+}
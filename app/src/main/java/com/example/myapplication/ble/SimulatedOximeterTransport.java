@@ -0,0 +1,417 @@
+package com.example.myapplication.ble;
+
+import com.example.myapplication.model.LinkParameters;
+
+import java.util.ArrayDeque;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 本地模拟的指夹血氧仪，按 FFB0/FFB2 协议应答：
+ * 收到足够的唤醒字节 -> DEVICE_READY -> START_MEASURE 后开始推送 0x95 参数包和 0x99 电量包，
+ * START_WAVEFORM 后再推送 0x96 波形包
+ *
+ * 速率、到达抖动、误码率、多帧合并/按 MTU 拆分、周期性断链均可配置，
+ * 用于在没有真机的 Linux 机器上以 10~100 倍真实速率压测解析、保存和界面刷新
+ *
+ * 所有回调都在模拟器自己的线程上触发；配置需在 connect 之前完成
+ */
+public class SimulatedOximeterTransport implements OximeterTransport {
+
+    public static final String DEVICE_NAME = "模拟血氧仪";
+    public static final String DEVICE_ADDRESS = "00:11:22:33:44:55";
+
+    private static final int CMD_PARAMS = 0x95;
+    private static final int CMD_BATTERY = 0x99;
+    private static final int CMD_WAVEFORM = 0x96;
+    private static final int MAX_FRAME_LEN = 6 + 255;
+    private static final long IDLE_PARK_NANOS = 1_000_000L;
+
+    // ====================== 配置 ======================
+    private double paramRateHz = 10;
+    private long batteryIntervalNanos = 5_000_000_000L;
+    private int waveformRateHz = 125;
+    private int waveformBatch = 5;
+    private double speed = 1;
+    private long jitterNanos = 0;
+    private double corruptionRate = 0;
+    private int framesPerNotification = 1;
+    private int maxNotificationSize = 20;
+    private long linkDropIntervalNanos = 0;
+    private boolean sleepOnDisconnect = true;
+    private int wakeBytesRequired = 10;
+    private long connectDelayNanos = 50_000_000L;
+    private long writeLatencyNanos = 7_500_000L;
+    private long seed = 1;
+    private LongSupplier clock = System::nanoTime;
+
+    // ====================== 设备状态（只在模拟器线程上修改） ======================
+    private int wakeBytes = 0;
+    private boolean ready = false;
+    private boolean measuring = false;
+    private boolean waveformOn = false;
+    private boolean notifying = false;
+    private int battery = 4;
+    private int spo2 = 97;
+    private int pr = 72;
+    private int pi100 = 250;
+    private double pulsePhase = 0;
+
+    // ====================== 链路 ======================
+    private final ConcurrentLinkedQueue<Runnable> requests = new ConcurrentLinkedQueue<>();
+    private final ArrayDeque<Runnable> delayed = new ArrayDeque<>();
+    private final ArrayDeque<Long> delayedDue = new ArrayDeque<>();
+    private volatile boolean running = false;
+    private volatile boolean linkUp = false;
+    private volatile Thread thread;
+    private volatile boolean highPriority = false;
+    private Callback callback;
+    private Random random;
+
+    private long streamStart;
+    private long paramSeq, batterySeq, waveSeq;
+    private long nextParamDue, nextBatteryDue, nextWaveDue;
+    private long linkUpAt;
+
+    // 复用的帧/通知缓冲区，推送过程中不分配
+    private final byte[] frame = new byte[MAX_FRAME_LEN];
+    private byte[] pending = new byte[MAX_FRAME_LEN * 4];
+    private int pendingLen = 0;
+    private int pendingFrames = 0;
+
+    // ====================== 计数（模拟器线程写，其他线程读） ======================
+    private volatile long sentFrames = 0;
+    private volatile long corruptedFrames = 0;
+    private volatile long notifications = 0;
+    private volatile long linkDrops = 0;
+
+    // ====================== 配置接口 ======================
+
+    /** 0x95 参数包的真实速率（默认 10 包/秒） */
+    public SimulatedOximeterTransport setParamRateHz(double hz) { this.paramRateHz = hz; return this; }
+
+    public SimulatedOximeterTransport setBatteryIntervalMs(long ms) { this.batteryIntervalNanos = ms * 1_000_000L; return this; }
+
+    /** 波形采样率与每个 0x96 包的样本数；rate 为 0 时不推送波形 */
+    public SimulatedOximeterTransport setWaveform(int rateHz, int samplesPerFrame) {
+        this.waveformRateHz = rateHz;
+        this.waveformBatch = Math.max(1, Math.min(samplesPerFrame, 255 - 4));
+        return this;
+    }
+
+    /** 所有推送速率的倍数，例如 100 表示 100 倍真实速率 */
+    public SimulatedOximeterTransport setSpeed(double speed) { this.speed = speed; return this; }
+
+    /** 每个包在标称时刻之后随机延迟 0~jitter 毫秒 */
+    public SimulatedOximeterTransport setJitterMs(double ms) { this.jitterNanos = (long) (ms * 1_000_000L); return this; }
+
+    /** 每帧被改写一个字节（校验失败）的概率 */
+    public SimulatedOximeterTransport setCorruptionRate(double rate) { this.corruptionRate = rate; return this; }
+
+    /** 多少帧合并成一次通知发送（真机偶尔会把相邻帧拼在一起） */
+    public SimulatedOximeterTransport setFramesPerNotification(int n) { this.framesPerNotification = Math.max(1, n); return this; }
+
+    /** 单个通知的最大字节数（ATT MTU - 3），超过时拆成多个通知；0 表示不拆分 */
+    public SimulatedOximeterTransport setMaxNotificationSize(int n) { this.maxNotificationSize = n; return this; }
+
+    /** 连接保持多少毫秒后模拟一次断链；0 表示不断链 */
+    public SimulatedOximeterTransport setLinkDropIntervalMs(long ms) { this.linkDropIntervalNanos = ms * 1_000_000L; return this; }
+
+    /** 断链后设备是否回到休眠（需要重新唤醒）；false 时重连后开启通知即继续推送 */
+    public SimulatedOximeterTransport setSleepOnDisconnect(boolean sleep) { this.sleepOnDisconnect = sleep; return this; }
+
+    public SimulatedOximeterTransport setWakeBytesRequired(int n) { this.wakeBytesRequired = n; return this; }
+
+    public SimulatedOximeterTransport setConnectDelayMs(long ms) { this.connectDelayNanos = ms * 1_000_000L; return this; }
+
+    /** 有响应写到回调 onWriteComplete 的延迟（约一个连接间隔），无响应写为其 1/4 */
+    public SimulatedOximeterTransport setWriteLatencyMs(double ms) { this.writeLatencyNanos = (long) (ms * 1_000_000L); return this; }
+
+    public SimulatedOximeterTransport setSeed(long seed) { this.seed = seed; return this; }
+
+    /** 回调时间戳使用的单调时钟（Android 上传 SystemClock::elapsedRealtimeNanos） */
+    public SimulatedOximeterTransport setClock(LongSupplier clock) { this.clock = clock; return this; }
+
+    // ====================== OximeterTransport ======================
+
+    @Override
+    public void connect(String deviceAddress, Callback callback) {
+        // 等上一次连接的线程退出，保证设备状态只被一个线程访问（不持锁等待，避免与回调里的重连互锁）
+        Thread old = thread;
+        if (old != null && old != Thread.currentThread()) {
+            try {
+                old.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        startLink(deviceAddress, callback);
+    }
+
+    // 连接成功时原样回报传入的地址，多台模拟设备可用不同地址区分
+    private synchronized void startLink(String deviceAddress, Callback callback) {
+        if (running) {
+            callback.onConnectFailed("模拟设备已连接");
+            return;
+        }
+        this.callback = callback;
+        if (random == null) random = new Random(seed);
+        requests.clear();
+        delayed.clear();
+        delayedDue.clear();
+        pendingLen = pendingFrames = 0;
+        // 每次连接 CCCD 都会复位；设备是否还醒着取决于 sleepOnDisconnect
+        notifying = false;
+        if (sleepOnDisconnect) {
+            wakeBytes = 0;
+            ready = measuring = waveformOn = false;
+        }
+        running = true;
+        long due = clock.getAsLong() + connectDelayNanos;
+        requests.add(() -> schedule(due, () -> {
+            linkUp = true;
+            linkUpAt = clock.getAsLong();
+            callback.onConnected(DEVICE_NAME, deviceAddress);
+        }));
+        thread = new Thread(this::runLoop, "SimulatedOximeter");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public boolean enableNotifications(boolean enable) {
+        if (!linkUp) return false;
+        long due = clock.getAsLong() + writeLatencyNanos;
+        post(() -> schedule(due, () -> {
+            // 重连后设备仍在测量时，从开启通知的时刻重新计时，不补发断链期间的包
+            if (enable && !notifying && measuring) restartStream();
+            notifying = enable;
+            callback.onDescriptorWriteComplete(true);
+        }));
+        return true;
+    }
+
+    @Override
+    public boolean write(byte[] data, boolean withResponse) {
+        if (!linkUp) return false;
+        byte[] copy = data.clone();
+        // 无响应写不等设备确认，只有协议栈排队的时间
+        long due = clock.getAsLong() + (withResponse ? writeLatencyNanos : writeLatencyNanos / 4);
+        post(() -> schedule(due, () -> {
+            handleCommand(copy);
+            callback.onWriteComplete(true);
+        }));
+        return true;
+    }
+
+    @Override
+    public boolean requestConnectionPriority(boolean high) {
+        if (!linkUp) return false;
+        highPriority = high;
+        return true;
+    }
+
+    /** 模拟链路：MTU 由单个通知的最大字节数决定，PHY 视为 2M */
+    @Override
+    public LinkParameters getLinkParameters() {
+        int mtu = maxNotificationSize > 0 ? maxNotificationSize + 3 : LinkParameters.DEFAULT_MTU;
+        return new LinkParameters(mtu, -1, LinkParameters.PHY_2M, LinkParameters.PHY_2M, true,
+                highPriority ? LinkParameters.PRIORITY_HIGH : LinkParameters.PRIORITY_BALANCED);
+    }
+
+    @Override
+    public void disconnect() {
+        running = false;
+        linkUp = false;
+        Thread t = thread;
+        if (t != null && t != Thread.currentThread()) {
+            // 等模拟器线程退出，保证返回后不再有回调
+            LockSupport.unpark(t);
+            try {
+                t.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    // ====================== 计数 ======================
+    public long getSentFrames() { return sentFrames; }
+
+    public long getCorruptedFrames() { return corruptedFrames; }
+
+    public long getNotificationCount() { return notifications; }
+
+    public long getLinkDropCount() { return linkDrops; }
+
+    // ====================== 模拟器线程 ======================
+
+    private void post(Runnable r) {
+        requests.add(r);
+        Thread t = thread;
+        if (t != null) LockSupport.unpark(t);
+    }
+
+    // 固定延迟，先到先出即按到期时间有序
+    private void schedule(long due, Runnable r) {
+        delayed.add(r);
+        delayedDue.add(due);
+    }
+
+    private void runLoop() {
+        while (running && thread == Thread.currentThread()) {
+            Runnable r;
+            while ((r = requests.poll()) != null) r.run();
+
+            long now = clock.getAsLong();
+            long wake = now + IDLE_PARK_NANOS;
+            while (!delayed.isEmpty() && delayedDue.peekFirst() <= now && running) {
+                delayedDue.pollFirst();
+                delayed.pollFirst().run();
+            }
+            if (!delayed.isEmpty()) wake = Math.min(wake, delayedDue.peekFirst());
+
+            if (linkUp && linkDropIntervalNanos > 0 && now - linkUpAt >= linkDropIntervalNanos) {
+                dropLink();
+                break;
+            }
+
+            if (linkUp && notifying && measuring) {
+                if (now >= nextParamDue) {
+                    emitParams();
+                    nextParamDue = dueTime(++paramSeq, 1e9 / (paramRateHz * speed));
+                }
+                if (batteryIntervalNanos > 0 && now >= nextBatteryDue) {
+                    emitBattery();
+                    nextBatteryDue = dueTime(++batterySeq, batteryIntervalNanos / speed);
+                }
+                if (waveformOn && waveformRateHz > 0 && now >= nextWaveDue) {
+                    emitWaveform();
+                    nextWaveDue = dueTime(++waveSeq, 1e9 * waveformBatch / (waveformRateHz * speed));
+                }
+                wake = Math.min(wake, nextParamDue);
+                if (batteryIntervalNanos > 0) wake = Math.min(wake, nextBatteryDue);
+                if (waveformOn && waveformRateHz > 0) wake = Math.min(wake, nextWaveDue);
+            }
+
+            long wait = wake - clock.getAsLong();
+            if (wait > 0) LockSupport.parkNanos(this, wait);
+        }
+    }
+
+    // 标称时刻不累积抖动：第 seq 个包在 start + seq*period 之后 0~jitter 内到达
+    private long dueTime(long seq, double periodNanos) {
+        long due = streamStart + (long) (seq * periodNanos);
+        if (jitterNanos > 0) due += (long) (random.nextDouble() * jitterNanos);
+        return due;
+    }
+
+    private void dropLink() {
+        linkUp = false;
+        running = false;
+        notifying = false;
+        linkDrops++;
+        delayed.clear();
+        delayedDue.clear();
+        requests.clear();
+        pendingLen = pendingFrames = 0;
+        callback.onDisconnected();
+    }
+
+    private void restartStream() {
+        streamStart = clock.getAsLong();
+        paramSeq = batterySeq = waveSeq = 0;
+        nextParamDue = nextBatteryDue = nextWaveDue = streamStart;
+    }
+
+    private void handleCommand(byte[] data) {
+        if (OximeterCommands.isWake(data)) {
+            wakeBytes += data.length;
+        } else if (wakeBytes < wakeBytesRequired) {
+            // 未唤醒：忽略所有命令（写入在链路层仍会被确认）
+        } else if (OximeterCommands.matches(data, OximeterCommands.DEVICE_READY)) {
+            ready = true;
+        } else if (ready && OximeterCommands.matches(data, OximeterCommands.START_MEASURE)) {
+            if (!measuring) {
+                measuring = true;
+                restartStream();
+            }
+        } else if (ready && OximeterCommands.matches(data, OximeterCommands.START_WAVEFORM)) {
+            waveformOn = true;
+        }
+    }
+
+    // ====================== 帧构造 ======================
+
+    private void emitParams() {
+        // 缓慢随机游走，保持在生理范围内
+        spo2 = clamp(spo2 + random.nextInt(3) - 1, 90, 100);
+        pr = clamp(pr + random.nextInt(5) - 2, 50, 130);
+        pi100 = clamp(pi100 + random.nextInt(21) - 10, 50, 1500);
+
+        int n = 0;
+        frame[6 + n++] = 0x00;                                   // 探头正常
+        frame[6 + n++] = (byte) pr;
+        frame[6 + n++] = (byte) (spo2 | ((pr >> 8) & 1) << 7);
+        frame[6 + n++] = 36;                                     // 体温 36.5
+        frame[6 + n++] = 5;
+        frame[6 + n++] = (byte) (pi100 / 100);
+        frame[6 + n++] = (byte) (pi100 % 100);
+        sendFrame(CMD_PARAMS, n);
+    }
+
+    private void emitBattery() {
+        frame[6] = (byte) battery;
+        sendFrame(CMD_BATTERY, 1);
+    }
+
+    private void emitWaveform() {
+        double step = pr / 60.0 / waveformRateHz;
+        for (int i = 0; i < waveformBatch; i++) {
+            pulsePhase += step;
+            boolean beat = pulsePhase >= 1;
+            if (beat) pulsePhase -= 1;
+            int amp = (int) (64 + 50 * Math.sin(2 * Math.PI * pulsePhase));
+            frame[6 + i] = (byte) ((beat ? 0x80 : 0) | (amp & 0x7F));
+        }
+        sendFrame(CMD_WAVEFORM, waveformBatch);
+    }
+
+    private void sendFrame(int cmd, int dataLen) {
+        int len = OximeterCommands.encodeFrame(frame, cmd, dataLen);
+
+        if (corruptionRate > 0 && random.nextDouble() < corruptionRate) {
+            // 改写同步头之后的一个字节，接收端应当校验失败并重新同步
+            int pos = 3 + random.nextInt(len - 3);
+            frame[pos] ^= (byte) (1 + random.nextInt(255));
+            corruptedFrames++;
+        }
+        sentFrames++;
+
+        if (pendingLen + len > pending.length) {
+            pending = java.util.Arrays.copyOf(pending, (pendingLen + len) * 2);
+        }
+        System.arraycopy(frame, 0, pending, pendingLen, len);
+        pendingLen += len;
+        if (++pendingFrames >= framesPerNotification) {
+            flush();
+        }
+    }
+
+    private void flush() {
+        long ts = clock.getAsLong();
+        int chunk = maxNotificationSize > 0 ? maxNotificationSize : pendingLen;
+        for (int off = 0; off < pendingLen; off += chunk) {
+            callback.onNotification(pending, off, Math.min(chunk, pendingLen - off), ts);
+            notifications++;
+        }
+        pendingLen = 0;
+        pendingFrames = 0;
+    }
+
+    private static int clamp(int v, int lo, int hi) {
+        return Math.max(lo, Math.min(hi, v));
+    }
+}
@@ -0,0 +1,282 @@
+package com.example.myapplication.ble;
+
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * 设备唤醒握手状态机：
+ * 唤醒字节 -> DEVICE_READY -> START_MEASURE -> 等第一个有效帧 -> [START_WAVEFORM] -> 完成
+ *
+ * - 命令经 GattOperationQueue 串行发送，每条都等链路确认，不再固定 sleep
+ * - 唤醒字节按轮次发送（每轮 1、4、16、64…，单轮不超过 maxWakeBytes），轮内逐个间隔 wakeIntervalMs 发出，
+ *   与原先每 300ms 一个、共 100 个的唤醒信号一致；每轮发完 READY/START 后等待设备响应，超时才进入下一轮，
+ *   已唤醒的设备第一轮即可响应，轮内收到数据帧时不再发剩余的唤醒字节
+ * - 握手只受总时长限制：设备不响应就一直按轮次唤醒，直到 totalTimeoutMs 才失败
+ * - 某轮有命令写入失败/超时（由队列判定）时重发该轮，超过重试次数则失败
+ * - START_WAVEFORM 的命令码尚未经固件确认，默认不发送（setWaveformEnabled 开启），
+ *   避免不认识该命令的设备把正常的连接判为握手失败
+ * - 断链重连后用 resume()：先静候一小段时间，设备仍醒着并在推送就直接完成，不发任何命令
+ *
+ * 所有方法线程安全，可从蓝牙回调线程和定时器线程调用
+ */
+public class WakeHandshake {
+
+    public interface Listener {
+        /** 设备已开始推送数据 */
+        void onAwake(long elapsedNanos, int wakeBytesSent);
+
+        void onFailed(String reason);
+    }
+
+    private enum Step { IDLE, PROBING, SENDING, AWAIT_RESPONSE, WAVEFORM, DONE, FAILED }
+
+    private static final int INITIAL_WAKE_BURST = 1;
+    private static final int WAKE_BURST_GROWTH = 4;
+    private static final byte[] WAKE = {OximeterCommands.WAKE_BYTE};
+
+    private final GattOperationQueue queue;
+    private final ScheduledExecutorService timer;
+    private final Listener listener;
+    private final LongSupplier clock;
+
+    private int maxRetries = 3;
+    private long responseTimeoutMs = 1500;
+    private int maxWakeBytes = 100;   // 单轮上限，与原先固定发送的 100 个唤醒字节一致
+    private long wakeIntervalMs = 300;
+    private long totalTimeoutMs = 35_000;
+    private boolean waveformEnabled = false;
+
+    private Step step = Step.IDLE;
+    private int round = 0;            // 每次发送递增，用于丢弃过期的完成回调和超时
+    private boolean roundFailed;
+    private int retries;
+    private int burstSize;
+    private int wakeBytesLeft;        // 本轮还要发送的唤醒字节
+    private int wakeBytesSent;
+    private boolean responded;
+    private long startNanos;
+    private ScheduledFuture<?> responseTimer;
+    private ScheduledFuture<?> wakeTimer;
+    private ScheduledFuture<?> totalTimer;
+
+    public WakeHandshake(GattOperationQueue queue, ScheduledExecutorService timer, Listener listener,
+                         LongSupplier clock) {
+        this.queue = queue;
+        this.timer = timer;
+        this.listener = listener;
+        this.clock = clock;
+    }
+
+    public WakeHandshake setMaxRetries(int n) { this.maxRetries = n; return this; }
+
+    /** 发完 START_MEASURE 后等待第一个有效帧的时间，超时进入下一轮唤醒 */
+    public WakeHandshake setResponseTimeoutMs(long ms) { this.responseTimeoutMs = ms; return this; }
+
+    public long getResponseTimeoutMs() { return responseTimeoutMs; }
+
+    /** 单轮最多发送的唤醒字节数 */
+    public WakeHandshake setMaxWakeBytes(int n) { this.maxWakeBytes = n; return this; }
+
+    /** 同一轮内相邻两个唤醒字节的间隔 */
+    public WakeHandshake setWakeIntervalMs(long ms) { this.wakeIntervalMs = ms; return this; }
+
+    public long getWakeIntervalMs() { return wakeIntervalMs; }
+
+    /** 从开始唤醒起的总时长，超过仍未响应则握手失败 */
+    public WakeHandshake setTotalTimeoutMs(long ms) { this.totalTimeoutMs = ms; return this; }
+
+    public long getTotalTimeoutMs() { return totalTimeoutMs; }
+
+    /** 设备响应后是否发送 START_WAVEFORM 开启波形上传（默认关闭，命令码待固件确认） */
+    public synchronized WakeHandshake setWaveformEnabled(boolean enable) { this.waveformEnabled = enable; return this; }
+
+    public synchronized void start() {
+        reset();
+        startWake();
+    }
+
+    /**
+     * 重连后恢复推送：probeMs 内收到有效帧说明设备仍醒着，直接完成（唤醒字节数为 0）；
+     * 否则按 start() 走完整握手，耗时从调用 resume() 起算
+     */
+    public synchronized void resume(long probeMs) {
+        reset();
+        int r = ++round;
+        step = Step.PROBING;
+        responseTimer = timer.schedule(() -> onProbeTimeout(r), probeMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void reset() {
+        cancelTimers();
+        startNanos = clock.getAsLong();
+        responded = false;
+        wakeBytesSent = 0;
+        retries = 0;
+    }
+
+    private void startWake() {
+        burstSize = Math.max(1, Math.min(INITIAL_WAKE_BURST, maxWakeBytes));
+        totalTimer = timer.schedule(() -> timeout("唤醒设备超时"), totalTimeoutMs, TimeUnit.MILLISECONDS);
+        sendRound();
+    }
+
+    private synchronized void onProbeTimeout(int r) {
+        if (r != round || step != Step.PROBING) return;
+        startWake();
+    }
+
+    /** 停止握手（断开连接时调用），之后不再回调 */
+    public synchronized void cancel() {
+        cancelTimers();
+        round++;
+        step = Step.IDLE;
+    }
+
+    public synchronized boolean isRunning() {
+        return step == Step.PROBING || step == Step.SENDING || step == Step.AWAIT_RESPONSE
+                || step == Step.WAVEFORM;
+    }
+
+    public synchronized boolean isDone() {
+        return step == Step.DONE;
+    }
+
+    /** 收到一个校验通过的本设备数据帧：说明设备已醒并在推送 */
+    public synchronized void onFrameReceived() {
+        if (!isRunning() || responded) return;
+        responded = true;
+        cancel(responseTimer);
+        // 重连后设备仍在推送（波形状态也还在），无需再发命令
+        if (step == Step.PROBING) {
+            finish();
+            return;
+        }
+        if (step == Step.SENDING && wakeBytesLeft > 0) {
+            // 设备已在推送，本轮剩余的唤醒字节不再发送，直接发 READY/START
+            cancel(wakeTimer);
+            wakeBytesLeft = 0;
+            sendCommands(round);
+        }
+        // 正在发送的一轮完成后再处理，避免与未完成的命令交错
+        if (step == Step.AWAIT_RESPONSE) onResponded();
+    }
+
+    // 设备已响应：需要波形时再开启，否则握手完成
+    private void onResponded() {
+        if (waveformEnabled) {
+            sendWaveform();
+        } else {
+            finish();
+        }
+    }
+
+    private void sendRound() {
+        int r = ++round;
+        step = Step.SENDING;
+        roundFailed = false;
+        wakeBytesLeft = burstSize;
+        sendWakeByte(r);
+    }
+
+    // 发一个唤醒字节，本轮还有剩余时间隔 wakeIntervalMs 再发下一个，发完后发 READY/START
+    private void sendWakeByte(int r) {
+        queue.writeNoResponse(WAKE, ok -> onWakeWritten(r, ok));
+        if (--wakeBytesLeft > 0) {
+            wakeTimer = timer.schedule(() -> onWakeInterval(r), wakeIntervalMs, TimeUnit.MILLISECONDS);
+        } else {
+            sendCommands(r);
+        }
+    }
+
+    private synchronized void onWakeInterval(int r) {
+        if (r != round || step != Step.SENDING || wakeBytesLeft <= 0) return;
+        sendWakeByte(r);
+    }
+
+    private void sendCommands(int r) {
+        queue.write(OximeterCommands.deviceReady(), ok -> onCommandWritten(r, ok, false));
+        queue.write(OximeterCommands.startMeasure(), ok -> onCommandWritten(r, ok, true));
+    }
+
+    private synchronized void onWakeWritten(int r, boolean ok) {
+        if (r != round || step != Step.SENDING) return;
+        if (ok) {
+            wakeBytesSent++;
+        } else {
+            roundFailed = true;
+        }
+    }
+
+    private synchronized void onCommandWritten(int r, boolean ok, boolean last) {
+        if (r != round || step != Step.SENDING) return;
+        if (!ok) roundFailed = true;
+        if (!last) return;
+
+        if (responded) {
+            onResponded();
+        } else if (roundFailed) {
+            if (retries++ >= maxRetries) {
+                fail("命令写入失败");
+            } else {
+                sendRound();
+            }
+        } else {
+            step = Step.AWAIT_RESPONSE;
+            responseTimer = timer.schedule(() -> onResponseTimeout(r), responseTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private synchronized void onResponseTimeout(int r) {
+        if (r != round || step != Step.AWAIT_RESPONSE || responded) return;
+        // 不限总字节数，由总超时结束
+        burstSize = Math.min(Math.max(1, burstSize * WAKE_BURST_GROWTH), Math.max(1, maxWakeBytes));
+        sendRound();
+    }
+
+    private void sendWaveform() {
+        int r = ++round;
+        step = Step.WAVEFORM;
+        queue.write(OximeterCommands.startWaveform(), ok -> onWaveformWritten(r, ok));
+    }
+
+    private synchronized void onWaveformWritten(int r, boolean ok) {
+        if (r != round || step != Step.WAVEFORM) return;
+        if (ok) {
+            finish();
+        } else if (retries++ >= maxRetries) {
+            fail("开启波形失败");
+        } else {
+            sendWaveform();
+        }
+    }
+
+    private synchronized void timeout(String reason) {
+        if (isRunning()) fail(reason);
+    }
+
+    private void finish() {
+        cancelTimers();
+        step = Step.DONE;
+        listener.onAwake(clock.getAsLong() - startNanos, wakeBytesSent);
+    }
+
+    private void fail(String reason) {
+        cancelTimers();
+        round++;
+        step = Step.FAILED;
+        listener.onFailed(reason);
+    }
+
+    private void cancelTimers() {
+        cancel(responseTimer);
+        cancel(wakeTimer);
+        cancel(totalTimer);
+        responseTimer = wakeTimer = totalTimer = null;
+    }
+
+    private static void cancel(ScheduledFuture<?> f) {
+        if (f != null) f.cancel(false);
+    }
+}
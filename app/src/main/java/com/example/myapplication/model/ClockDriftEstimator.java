@@ -0,0 +1,171 @@
+package com.example.myapplication.model;
+
+/**
+ * 设备采样时钟估计：对“样本序号 -> 到达时间”做带遗忘因子的递推最小二乘（RLS）直线拟合
+ * 血氧仪按自己的晶振等间隔采样，而到达时间叠加了 BLE 连接间隔造成的几十毫秒抖动；
+ * 拟合出的直线即设备采样时间线（含平均传输延迟），斜率为实测采样周期，与标称周期之差即时钟漂移
+ *
+ * 断链时样本丢失、序号不再连续，调用 breakSequence()：保留斜率，下一个观测重新确定截距。
+ * 明显晚到的观测（链路拥塞后的补发）不参与拟合；连续多次晚到说明序号已错位（丢了样本），自动重新定位
+ *
+ * 非线程安全，由写入数据的线程调用（与 OximeterData 一起持锁）
+ */
+public final class ClockDriftEstimator {
+
+    // 预热：观测数少于这个值时不做离群判定
+    private static final int WARMUP = 25;
+    // 残差超过抖动 RMS 的这个倍数视为离群
+    private static final double OUTLIER_FACTOR = 4;
+    // 离群门限的下限：抖动很小时不至于把正常波动判为离群
+    private static final double OUTLIER_FLOOR_NANOS = 5_000_000;
+    // 连续离群这么多次后重新定位截距
+    private static final int MAX_CONSECUTIVE_OUTLIERS = 8;
+    // 先验：到达时间抖动量级、截距不确定度、标称周期的相对不确定度（1000 ppm）
+    private static final double NOISE_NANOS = 10_000_000;
+    private static final double OFFSET_PRIOR_NANOS = 50_000_000;
+    private static final double PERIOD_PRIOR = 1e-3;
+
+    private final double nominalPeriodNanos;
+    private double forgetting = 0.9995;
+
+    // 直线：t = anchorNanos + a + b * (index - anchorIndex)，时间以 NOISE_NANOS 为单位参与 RLS
+    private boolean anchored = false;
+    private long anchorIndex;
+    private long anchorNanos;
+    private double a;
+    private double b;
+    private double p00, p01, p11;
+
+    private long count = 0;
+    private long outliers = 0;
+    private long resyncs = 0;
+    private int consecutiveOutliers = 0;
+    // 离群判定用的残差方差（指数平均），以及预热后全部接受残差的平方和
+    private double residualVar = 1;
+    private double sumSq = 0;
+    private long sumCount = 0;
+
+    /**
+     * @param nominalPeriodNanos 标称采样周期（如 125Hz 为 8ms），作为斜率初值和漂移的参照
+     */
+    public ClockDriftEstimator(double nominalPeriodNanos) {
+        this.nominalPeriodNanos = nominalPeriodNanos;
+        clear();
+    }
+
+    /** 遗忘因子（0~1，越接近 1 记忆越长），默认 0.9995 */
+    public ClockDriftEstimator setForgetting(double forgetting) {
+        this.forgetting = forgetting;
+        return this;
+    }
+
+    /**
+     * 加入一个观测：序号为 index 的样本在 arrivalNanos 到达
+     *
+     * @return 该样本去抖后的时间（单调时钟）
+     */
+    public long update(long index, long arrivalNanos) {
+        if (!anchored) {
+            anchored = true;
+            anchorIndex = index;
+            anchorNanos = arrivalNanos;
+            a = 0;
+            p00 = square(OFFSET_PRIOR_NANOS / NOISE_NANOS);
+            p01 = 0;
+        }
+        double x = index - anchorIndex;
+        double y = (arrivalNanos - anchorNanos) / NOISE_NANOS;
+        double e = y - (a + b * x);
+
+        // 晚到太多的观测只计数，不更新直线
+        if (count >= WARMUP) {
+            double limit = Math.max(OUTLIER_FACTOR * Math.sqrt(residualVar), OUTLIER_FLOOR_NANOS / NOISE_NANOS);
+            if (e > limit) {
+                outliers++;
+                if (++consecutiveOutliers >= MAX_CONSECUTIVE_OUTLIERS) {
+                    breakSequence();
+                    resyncs++;
+                    return arrivalNanos;
+                }
+                return estimateNanos(index);
+            }
+        }
+        consecutiveOutliers = 0;
+
+        // RLS：k = P·φ / (λ + φᵀ·P·φ)，φ = [1, x]
+        double pp0 = p00 + p01 * x;
+        double pp1 = p01 + p11 * x;
+        double denom = forgetting + pp0 + pp1 * x;
+        double k0 = pp0 / denom;
+        double k1 = pp1 / denom;
+        a += k0 * e;
+        b += k1 * e;
+        p00 = (p00 - k0 * pp0) / forgetting;
+        p01 = (p01 - k0 * pp1) / forgetting;
+        p11 = (p11 - k1 * pp1) / forgetting;
+
+        count++;
+        if (count > WARMUP) {
+            sumSq += e * e;
+            sumCount++;
+        }
+        residualVar += 0.05 * (e * e - residualVar);
+        return estimateNanos(index);
+    }
+
+    /**
+     * 样本序号不再连续（断链丢样本）：保留斜率及其不确定度，下一个观测重新确定截距
+     */
+    public void breakSequence() {
+        anchored = false;
+        consecutiveOutliers = 0;
+    }
+
+    /** 按当前直线推算某序号样本的时间，没有观测时为 -1 */
+    public long estimateNanos(long index) {
+        if (count == 0 && !anchored) return -1;
+        return anchorNanos + Math.round((a + b * (index - anchorIndex)) * NOISE_NANOS);
+    }
+
+    /** 观测次数（不含离群） */
+    public long getCount() { return count; }
+
+    public long getOutlierCount() { return outliers; }
+
+    /** 因连续离群而重新定位的次数 */
+    public long getResyncCount() { return resyncs; }
+
+    public double getNominalPeriodNanos() { return nominalPeriodNanos; }
+
+    /** 实测采样周期（按手机时钟），没有观测时为标称周期 */
+    public double getPeriodNanos() { return b * NOISE_NANOS; }
+
+    /** 实测采样率（Hz） */
+    public double getRateHz() { return 1e9 / getPeriodNanos(); }
+
+    /**
+     * 设备时钟相对手机时钟的漂移（ppm）：正值表示设备采样比标称快
+     */
+    public double getDriftPpm() { return (nominalPeriodNanos / getPeriodNanos() - 1) * 1e6; }
+
+    /** 到达时间相对拟合直线的抖动 RMS（毫秒），预热期间为 -1 */
+    public double getJitterMs() {
+        return sumCount > 0 ? Math.sqrt(sumSq / sumCount) * NOISE_NANOS / 1e6 : -1;
+    }
+
+    public void clear() {
+        anchored = false;
+        a = 0;
+        b = nominalPeriodNanos / NOISE_NANOS;
+        p00 = square(OFFSET_PRIOR_NANOS / NOISE_NANOS);
+        p01 = 0;
+        p11 = square(nominalPeriodNanos * PERIOD_PRIOR / NOISE_NANOS);
+        count = outliers = resyncs = 0;
+        consecutiveOutliers = 0;
+        residualVar = 1;
+        sumSq = 0;
+        sumCount = 0;
+    }
+
+    private static double square(double v) { return v * v; }
+}
@@ -0,0 +1,63 @@
+package com.example.myapplication.model;
+
+/**
+ * 血氧仪协议命令表：按命令字节（0x00~0xFF）直接索引处理器
+ * 新增协议命令只需 register，不会给每包的分发路径增加分支；未注册的命令计数而不是静默丢弃
+ */
+public final class CommandRegistry {
+
+    /**
+     * 命令处理器：从 buf[off, off+len) 解析该命令的 DATA 段
+     */
+    public interface CommandHandler {
+        void handle(byte[] buf, int off, int len, long timestampNanos);
+    }
+
+    private final CommandHandler[] handlers = new CommandHandler[256];
+    private final int[] minPayloadLen = new int[256];
+    private final long[] frameCounts = new long[256];
+    private long unknownCount = 0;
+    private long shortPayloadCount = 0;
+
+    /**
+     * @param minLen DATA 段最少字节数，不足时不调用处理器
+     */
+    public void register(int cmd, int minLen, CommandHandler handler) {
+        handlers[cmd & 0xFF] = handler;
+        minPayloadLen[cmd & 0xFF] = minLen;
+    }
+
+    /**
+     * @return 是否由已注册的处理器处理
+     */
+    public boolean dispatch(int cmd, byte[] buf, int off, int len, long timestampNanos) {
+        cmd &= 0xFF;
+        frameCounts[cmd]++;
+        CommandHandler handler = handlers[cmd];
+        if (handler == null) {
+            unknownCount++;
+            return false;
+        }
+        if (len < minPayloadLen[cmd]) {
+            shortPayloadCount++;
+            return false;
+        }
+        handler.handle(buf, off, len, timestampNanos);
+        return true;
+    }
+
+    public boolean isRegistered(int cmd) { return handlers[cmd & 0xFF] != null; }
+
+    /** 某个命令（无论是否注册）收到的帧数 */
+    public long getFrameCount(int cmd) { return frameCounts[cmd & 0xFF]; }
+
+    public long getUnknownCount() { return unknownCount; }
+
+    public long getShortPayloadCount() { return shortPayloadCount; }
+
+    public void resetCounters() {
+        java.util.Arrays.fill(frameCounts, 0);
+        unknownCount = 0;
+        shortPayloadCount = 0;
+    }
+}
@@ -1,49 +1,132 @@
 package com.example.myapplication.model;
 
+import com.example.myapplication.utils.TimeUtils;
+
 /**
  * 时间戳模型：记录所有关键时间点
+ * 各时间点统一用单调时钟（SystemClock.elapsedRealtimeNanos()）记录为 long，未发生为 -1；
+ * 每次检测只取一个墙上时间锚点，显示时由锚点换算，不受系统改时间影响
  */
 public class DetectionTimeStamp {
-    // 蓝牙连接成功时间戳
-    private String bluetoothConnectTime;
-    // 视频录制开始时间戳
-    private String videoStartTime;
-    // 蓝牙数据开始检测时间戳
-    private String bluetoothDataStartTime;
+    // 墙上时间锚点：同一时刻的 System.currentTimeMillis() 与单调时钟
+    private long anchorWallClockMillis = -1;
+    private long anchorNanos = -1;
+    // 蓝牙连接成功（第一台设备的链路回调）
+    private long bluetoothConnectNanos = -1;
+    // 视频录制开始 / 结束（录制事件回调）
+    private long videoStartNanos = -1;
+    private long videoEndNanos = -1;
+    // 蓝牙数据开始检测（第一台设备第一个通知的到达时间）
+    private long bluetoothDataStartNanos = -1;
+    // 视频第一帧 / 最后一帧的曝光时间（传感器时间戳换算到单调时钟）及帧数统计，没有逐帧时间戳时为 -1
+    private long videoFirstFrameNanos = -1;
+    private long videoLastFrameNanos = -1;
+    private int videoFrameCount = -1;
+    private int videoDroppedFrames = -1;
 
     // 空构造
     public DetectionTimeStamp() {}
 
-    // Getter & Setter
-    public String getBluetoothConnectTime() {
-        return bluetoothConnectTime;
+    /**
+     * 设置墙上时间锚点，两个参数应在同一时刻取得
+     */
+    public void setAnchor(long wallClockMillis, long elapsedNanos) {
+        this.anchorWallClockMillis = wallClockMillis;
+        this.anchorNanos = elapsedNanos;
     }
 
-    public void setBluetoothConnectTime(String bluetoothConnectTime) {
-        this.bluetoothConnectTime = bluetoothConnectTime;
+    public boolean hasAnchor() { return anchorNanos >= 0; }
+
+    public long getAnchorWallClockMillis() { return anchorWallClockMillis; }
+
+    public long getAnchorNanos() { return anchorNanos; }
+
+    /**
+     * 单调时钟换算为墙上时间（毫秒），没有锚点或时间点未发生时为 -1
+     */
+    public long toWallClockMillis(long elapsedNanos) {
+        if (elapsedNanos < 0 || anchorNanos < 0) return -1;
+        return anchorWallClockMillis + Math.floorDiv(elapsedNanos - anchorNanos, 1_000_000L);
     }
 
-    public String getVideoStartTime() {
-        return videoStartTime;
+    // Getter & Setter（单调时钟纳秒）
+    public long getBluetoothConnectNanos() { return bluetoothConnectNanos; }
+
+    public void setBluetoothConnectNanos(long nanos) { this.bluetoothConnectNanos = nanos; }
+
+    public long getVideoStartNanos() { return videoStartNanos; }
+
+    public void setVideoStartNanos(long nanos) { this.videoStartNanos = nanos; }
+
+    public long getVideoEndNanos() { return videoEndNanos; }
+
+    public void setVideoEndNanos(long nanos) { this.videoEndNanos = nanos; }
+
+    public long getBluetoothDataStartNanos() { return bluetoothDataStartNanos; }
+
+    public void setBluetoothDataStartNanos(long nanos) { this.bluetoothDataStartNanos = nanos; }
+
+    /**
+     * 视频逐帧时间戳的汇总（详细的每帧时间见视频旁的 .frames 文件）
+     */
+    public void setVideoFrames(long firstFrameNanos, long lastFrameNanos, int frameCount, int droppedFrames) {
+        this.videoFirstFrameNanos = firstFrameNanos;
+        this.videoLastFrameNanos = lastFrameNanos;
+        this.videoFrameCount = frameCount;
+        this.videoDroppedFrames = droppedFrames;
+    }
+
+    public long getVideoFirstFrameNanos() { return videoFirstFrameNanos; }
+
+    public long getVideoLastFrameNanos() { return videoLastFrameNanos; }
+
+    public int getVideoFrameCount() { return videoFrameCount; }
+
+    public int getVideoDroppedFrames() { return videoDroppedFrames; }
+
+    /** 实测帧率，少于两帧为 -1 */
+    public double getVideoFps() {
+        if (videoFrameCount < 2 || videoLastFrameNanos <= videoFirstFrameNanos) return -1;
+        return (videoFrameCount - 1) * 1e9 / (videoLastFrameNanos - videoFirstFrameNanos);
     }
 
-    public void setVideoStartTime(String videoStartTime) {
-        this.videoStartTime = videoStartTime;
+    /**
+     * 开始新的一次检测：清除视频和数据时间点，保留连接时间和锚点
+     */
+    public void resetMeasurement() {
+        videoStartNanos = -1;
+        videoEndNanos = -1;
+        bluetoothDataStartNanos = -1;
+        videoFirstFrameNanos = videoLastFrameNanos = -1;
+        videoFrameCount = videoDroppedFrames = -1;
+    }
+
+    // 显示用的墙上时间（由锚点换算），未发生时为 null
+    public String getBluetoothConnectTime() {
+        return format(bluetoothConnectNanos);
+    }
+
+    public String getVideoStartTime() {
+        return format(videoStartNanos);
     }
 
     public String getBluetoothDataStartTime() {
-        return bluetoothDataStartTime;
+        return format(bluetoothDataStartNanos);
     }
 
-    public void setBluetoothDataStartTime(String bluetoothDataStartTime) {
-        this.bluetoothDataStartTime = bluetoothDataStartTime;
+    /**
+     * 单调时钟时间点的显示文本，未发生时为 null
+     */
+    public String format(long elapsedNanos) {
+        long millis = toWallClockMillis(elapsedNanos);
+        return millis >= 0 ? TimeUtils.getPreciseTimeStamp(millis) : null;
     }
 
     // 格式化显示所有时间戳
     @Override
     public String toString() {
-        return "蓝牙连接成功: " + bluetoothConnectTime + "\n" +
-                "视频开始录制: " + videoStartTime + "\n" +
-                "数据开始检测: " + bluetoothDataStartTime;
+        return "蓝牙连接成功: " + getBluetoothConnectTime() + "\n" +
+                "视频开始录制: " + getVideoStartTime() + "\n" +
+                "数据开始检测: " + getBluetoothDataStartTime();
     }
-}
\ No newline at end of file
+}
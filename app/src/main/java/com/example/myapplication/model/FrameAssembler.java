@@ -0,0 +1,149 @@
+package com.example.myapplication.model;
+
+/**
+ * 蓝牙通知流的帧重组器
+ * 一个通知可能只含半帧，也可能连续打包多帧；这里把字节流写入环形缓冲区，
+ * 按 FF FE 同步字重新对齐、按 LL 字节切帧，校验通过的完整帧交给 {@link FrameListener}
+ *
+ * LL 字节损坏时声明的长度可能远超实际帧长；等待期间如果缓存里后面已经有一个完整且校验通过的帧，
+ * 就判定当前帧头无效并立即重新同步，不让后面的正常帧被拖到更晚的通知才解析
+ */
+public final class FrameAssembler {
+
+    /**
+     * 完整帧回调；buf 为内部复用缓冲，只在回调期间有效
+     */
+    public interface FrameListener {
+        void onFrame(byte[] buf, int off, int len, long timestampNanos);
+    }
+
+    // LL 只有一个字节，所以单帧最长 255 + 2
+    private static final int MAX_FRAME_LEN = 257;
+    private static final int MIN_FRAME_LEN = 6;
+    private static final int CAPACITY = 1024;   // 必须是 2 的幂
+    private static final int MASK = CAPACITY - 1;
+
+    private final FrameListener listener;
+    private final byte[] ring = new byte[CAPACITY];
+    private final byte[] frame = new byte[MAX_FRAME_LEN];
+    private int head = 0;   // 读位置
+    private int size = 0;   // 已缓存字节数
+
+    private boolean inSync = true;
+    private long frameCount = 0;
+    private long resyncCount = 0;
+    private long discardedBytes = 0;
+    private long checksumErrorCount = 0;
+
+    public FrameAssembler(FrameListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 写入一个通知的数据，途中凑齐的每一帧都会同步回调
+     */
+    public void feed(byte[] buf, int off, int len, long timestampNanos) {
+        while (len > 0) {
+            int n = Math.min(len, CAPACITY - size);
+            int tail = (head + size) & MASK;
+            int first = Math.min(n, CAPACITY - tail);
+            System.arraycopy(buf, off, ring, tail, first);
+            System.arraycopy(buf, off + first, ring, 0, n - first);
+            size += n;
+            off += n;
+            len -= n;
+            drain(timestampNanos);
+        }
+    }
+
+    private void drain(long timestampNanos) {
+        while (size >= 2) {
+            if (at(0) != 0xFF || at(1) != 0xFE) {
+                discard();
+                continue;
+            }
+            if (size < 3) return;
+
+            int frameLen = at(2) + 2;
+            if (frameLen < MIN_FRAME_LEN) {
+                discard();
+                continue;
+            }
+            if (size < frameLen) {
+                // 半帧，等下一个通知；但后面已有完整的有效帧说明这个帧头是坏的
+                int next = findValidFrame(2);
+                if (next < 0) return;
+                checksumErrorCount++;
+                for (int i = 0; i < next; i++) discard();
+                continue;
+            }
+
+            int sum = 0;
+            for (int i = 2; i < frameLen; i++) {
+                int v = at(i);
+                frame[i] = (byte) v;
+                if (i != 3) sum += v;
+            }
+            if ((sum & 0xFF) != at(3)) {
+                // 数据里恰好出现 FF FE 或帧损坏，跳过同步字的第一个字节继续找
+                checksumErrorCount++;
+                discard();
+                continue;
+            }
+
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFE;
+            head = (head + frameLen) & MASK;
+            size -= frameLen;
+            if (!inSync) {
+                inSync = true;
+                resyncCount++;
+            }
+            frameCount++;
+            listener.onFrame(frame, 0, frameLen, timestampNanos);
+        }
+    }
+
+    // 缓存中从 from 起第一个完整且校验通过的帧的位置，没有为 -1
+    private int findValidFrame(int from) {
+        for (int p = from; p + MIN_FRAME_LEN <= size; p++) {
+            if (at(p) != 0xFF || at(p + 1) != 0xFE) continue;
+            int len = at(p + 2) + 2;
+            if (len < MIN_FRAME_LEN || p + len > size) continue;
+            int sum = 0;
+            for (int i = 2; i < len; i++) {
+                if (i != 3) sum += at(p + i);
+            }
+            if ((sum & 0xFF) == at(p + 3)) return p;
+        }
+        return -1;
+    }
+
+    private int at(int i) {
+        return ring[(head + i) & MASK] & 0xFF;
+    }
+
+    private void discard() {
+        head = (head + 1) & MASK;
+        size--;
+        discardedBytes++;
+        inSync = false;
+    }
+
+    public long getFrameCount() { return frameCount; }
+
+    public long getResyncCount() { return resyncCount; }
+
+    public long getDiscardedBytes() { return discardedBytes; }
+
+    public long getChecksumErrorCount() { return checksumErrorCount; }
+
+    /** 当前缓存中尚未成帧的字节数 */
+    public int getPendingBytes() { return size; }
+
+    public void reset() {
+        head = size = 0;
+        inSync = true;
+        frameCount = resyncCount = discardedBytes = checksumErrorCount = 0;
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.myapplication.model;
+
+/**
+ * 通知到达间隔统计：均值、标准差、最值与分位数（毫秒）
+ * 断链时调用 breakSequence()，断链前后两包之间的间隔不计入
+ */
+public final class InterArrivalStats {
+
+    private final QuantileSketch sketch = new QuantileSketch();
+    private long lastNanos = -1;
+    private long count = 0;
+    private double meanMs = 0;
+    private double m2 = 0;
+
+    /** 记录一个通知的到达时间（单调时钟） */
+    public void add(long timestampNanos) {
+        if (lastNanos >= 0) {
+            double ms = (timestampNanos - lastNanos) / 1e6;
+            count++;
+            double delta = ms - meanMs;
+            meanMs += delta / count;
+            m2 += delta * (ms - meanMs);
+            sketch.add((float) ms);
+        }
+        lastNanos = timestampNanos;
+    }
+
+    /** 链路中断：下一包不与上一包计算间隔 */
+    public void breakSequence() {
+        lastNanos = -1;
+    }
+
+    public long getCount() { return count; }
+
+    /** 没有间隔时为 -1 */
+    public double getMeanMs() { return count > 0 ? meanMs : -1; }
+
+    public double getStdDevMs() { return count > 1 ? Math.sqrt(m2 / (count - 1)) : -1; }
+
+    public double getMinMs() { return count > 0 ? sketch.getMin() : -1; }
+
+    public double getMaxMs() { return count > 0 ? sketch.getMax() : -1; }
+
+    /** 近似分位数，没有间隔时为 -1 */
+    public double getQuantileMs(double q) { return count > 0 ? sketch.getQuantile(q) : -1; }
+
+    public void clear() {
+        sketch.clear();
+        lastNanos = -1;
+        count = 0;
+        meanMs = m2 = 0;
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.myapplication.model;
+
+/**
+ * 一次连接协商得到的链路参数（不可变），随检测数据一起保存
+ * 未协商或协商失败时保留默认值：MTU 23、1M PHY
+ */
+public final class LinkParameters {
+
+    public static final int DEFAULT_MTU = 23;
+    public static final int PHY_UNKNOWN = -1;
+    public static final int PHY_1M = 1;
+    public static final int PHY_2M = 2;
+    public static final int PHY_CODED = 3;
+
+    public static final String PRIORITY_BALANCED = "balanced";
+    public static final String PRIORITY_HIGH = "high";
+    public static final String PRIORITY_LOW_POWER = "low_power";
+
+    public static final LinkParameters DEFAULT = new LinkParameters(DEFAULT_MTU, -1, PHY_1M, PHY_1M, false,
+            PRIORITY_BALANCED);
+
+    /** 协商后的 ATT MTU */
+    public final int mtu;
+    /** 请求的 MTU，未请求为 -1 */
+    public final int requestedMtu;
+    public final int txPhy;
+    public final int rxPhy;
+    /** 是否请求过 2M PHY（手机不支持时不请求） */
+    public final boolean requested2mPhy;
+    /** 当前请求的连接优先级 */
+    public final String connectionPriority;
+
+    public LinkParameters(int mtu, int requestedMtu, int txPhy, int rxPhy, boolean requested2mPhy,
+                          String connectionPriority) {
+        this.mtu = mtu;
+        this.requestedMtu = requestedMtu;
+        this.txPhy = txPhy;
+        this.rxPhy = rxPhy;
+        this.requested2mPhy = requested2mPhy;
+        this.connectionPriority = connectionPriority;
+    }
+
+    /** 单次写入/通知的最大负载（MTU - 3 字节 ATT 头） */
+    public int getMaxPayload() {
+        return mtu - 3;
+    }
+
+    public LinkParameters withMtu(int requested, int negotiated) {
+        return new LinkParameters(negotiated, requested, txPhy, rxPhy, requested2mPhy, connectionPriority);
+    }
+
+    public LinkParameters withPhy(boolean requested2m, int tx, int rx) {
+        return new LinkParameters(mtu, requestedMtu, tx, rx, requested2m, connectionPriority);
+    }
+
+    public LinkParameters withPriority(String priority) {
+        return new LinkParameters(mtu, requestedMtu, txPhy, rxPhy, requested2mPhy, priority);
+    }
+
+    public static String phyName(int phy) {
+        switch (phy) {
+            case PHY_1M: return "1M";
+            case PHY_2M: return "2M";
+            case PHY_CODED: return "Coded";
+            default: return "unknown";
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "MTU " + mtu + "，PHY " + phyName(txPhy) + "/" + phyName(rxPhy) + "，优先级 " + connectionPriority;
+    }
+}
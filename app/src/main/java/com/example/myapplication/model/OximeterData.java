@@ -2,8 +2,9 @@ package com.example.myapplication.model;
 
 import android.util.Log;
 
-import java.util.ArrayList;
-import java.util.List;
+import com.example.myapplication.utils.HexUtils;
+import com.example.myapplication.utils.TimeUtils;
+import com.example.myapplication.utils.TraceRecorder;
 
 /**
  * 指夹式血氧仪数据解析模型
@@ -14,8 +15,40 @@ public class OximeterData {
 
     private static final String TAG = "OximeterData";
 
-    // 原始数据
-    private final List<String> rawDataList = new ArrayList<>();
+    // 帧结构：FF FE | LL | CS | 设备ID | CMD | DATA...，LL = 帧总长度 - 2
+    private static final int SYNC_0 = 0xFF;
+    private static final int SYNC_1 = 0xFE;
+    private static final int HEADER_LEN = 6;
+    private static final int DEVICE_ID = 0x23;
+    private static final int CMD_PARAMS = 0x95;
+    private static final int CMD_BATTERY = 0x99;
+    // 波形数据包：DATA 段每字节一个样本（bit7 搏动标志 + 7 位幅值）
+    private static final int CMD_WAVEFORM = 0x96;
+    // 录制中增量对齐视频帧的最小间隔
+    private static final long ALIGN_INTERVAL_NANOS = 200_000_000L;
+
+    private static final String[] PROBE_STATUS = {
+            "正常", "探头未接", "电流过大", "探头故障", "手指脱落",
+            "未知状态(5)", "未知状态(6)", "未知状态(7)"
+    };
+
+    // 原始数据（按字节保存，保存文件时才转十六进制）
+    private final RawFrameLog rawFrames = new RawFrameLog();
+    // 通知流 -> 完整帧
+    private final FrameAssembler assembler = new FrameAssembler(this::onFrame);
+    // 命令字节 -> 处理器
+    private final CommandRegistry commands = new CommandRegistry();
+    // 每个 0x95 参数包解析出的逐条样本（带到达时间）
+    private final SampleStore samples = new SampleStore();
+    // 高速率脉搏波形
+    private final WaveformBuffer waveform = new WaveformBuffer();
+    // 由波形样本序号与到达时间估计设备采样时钟，给每批波形去抖
+    private final ClockDriftEstimator waveClock = new ClockDriftEstimator(1e9 / WaveformBuffer.NOMINAL_RATE_HZ);
+    // 与视频帧对齐（录制中随数据到达增量对齐）
+    private final SampleAligner aligner = new SampleAligner();
+    private long lastAlignNanos = Long.MIN_VALUE;
+    // addData(String) 兼容路径复用的解码缓冲
+    private byte[] hexScratch = new byte[32];
 
     // 实时值
     private int spo2 = -1;
@@ -28,85 +61,171 @@ public class OximeterData {
 
     // 统计值
     private int validCount = 0;
+    private int checksumErrorCount = 0;
+    private long foreignDeviceCount = 0;
+    private long lastPacketNanos = -1;
+    // 断链前最后一包的时间；重连后第一包到达时记为一段数据缺口
+    private long gapStartNanos = -1;
+    // 通知到达间隔与本次连接协商的链路参数
+    private final InterArrivalStats interArrival = new InterArrivalStats();
+    private LinkParameters linkParameters = LinkParameters.DEFAULT;
+
+    private final VitalStatistics stats = new VitalStatistics();
+    // 长时间监测的分位数（固定内存，可跨会话合并）
+    private final QuantileSketch spo2Sketch = new QuantileSketch();
+    private final QuantileSketch prSketch = new QuantileSketch();
+
+    // 第一包的到达时间（单调时钟）与同一时刻的墙上时间，显示时再格式化
+    private long firstPacketNanos = -1;
+    private long startWallClockMillis = -1;
+
+    // 跟踪记录（未设置时不记录）：原始通知和解析错误写入二进制环形缓冲区，不逐包输出到 logcat
+    private TraceRecorder trace;
+    private int traceSource;
+
+    public OximeterData() {
+        commands.register(CMD_PARAMS, 7, this::parseCmd95);   // 设备实际发送7字节数据，第8字节（呼吸率）可选
+        commands.register(CMD_BATTERY, 1, this::parseCmd99);
+        commands.register(CMD_WAVEFORM, 1, this::parseCmd96);
+    }
 
-    private int sumSpo2 = 0, sumPr = 0;
-    private int minSpo2 = 999, maxSpo2 = 0;
-    private int minPr = 999, maxPr = 0;
-
-    private String startTime;
-
+    /**
+     * 兼容旧接口：空格分隔的十六进制字符串
+     */
     public void addData(String hexData) {
-        if (rawDataList.isEmpty()) {
-            startTime = com.example.myapplication.utils.TimeUtils.getPreciseTimeStamp();
+        int n = HexUtils.decodedLength(hexData, 0, hexData.length());
+        if (hexScratch.length < n) {
+            hexScratch = new byte[Math.max(n, hexScratch.length * 2)];
         }
-        rawDataList.add(hexData);
-        parsePacket(hexData);
+        int len;
+        try {
+            len = HexUtils.decode(hexData, 0, hexData.length(), hexScratch, 0);
+        } catch (IllegalArgumentException e) {
+            if (trace != null) {
+                trace.event(traceSource, TraceRecorder.ERROR, TraceRecorder.EV_PARSE_ERROR, hexData.length(), 0,
+                        System.nanoTime());
+            }
+            Log.e(TAG, "解析异常: " + hexData, e);
+            return;
+        }
+        addPacket(hexScratch, 0, len, System.nanoTime());
     }
 
-    private void parsePacket(String hexData) {
-        String clean = hexData.replaceAll("\\s", "").toUpperCase();
-        if (clean.length() < 12 || !clean.startsWith("FFFE")) {
-            return;
+    /**
+     * 直接在字节上解析一个通知包，不产生中间字符串或数组
+     *
+     * @param timestampNanos 收到该包时的单调时钟（建议 SystemClock.elapsedRealtimeNanos()）
+     * @return 是否为校验通过的本设备数据帧
+     */
+    public boolean addPacket(byte[] buf, int off, int len, long timestampNanos) {
+        recordRaw(buf, off, len, timestampNanos);
+        boolean ok = decodeFrame(buf, off, len, timestampNanos);
+        alignFrames(timestampNanos);
+        return ok;
+    }
+
+    /**
+     * 写入一个蓝牙通知的原始数据，不要求一个通知恰好是一帧：
+     * 半帧会缓存到下一个通知，多帧会逐帧解析
+     */
+    public void addNotification(byte[] buf, int off, int len, long timestampNanos) {
+        recordRaw(buf, off, len, timestampNanos);
+        long errors = assembler.getChecksumErrorCount();
+        assembler.feed(buf, off, len, timestampNanos);
+        if (trace != null && assembler.getChecksumErrorCount() != errors) {
+            // 参数：本通知中的校验失败次数、累计重同步次数
+            trace.event(traceSource, TraceRecorder.WARN, TraceRecorder.EV_CHECKSUM_ERROR,
+                    assembler.getChecksumErrorCount() - errors, assembler.getResyncCount(), timestampNanos);
         }
+        alignFrames(timestampNanos);
+    }
 
-        try {
-            int ll = Integer.parseInt(clean.substring(4, 6), 16);
-            int csGiven = Integer.parseInt(clean.substring(6, 8), 16);
-            String deviceId = clean.substring(8, 10);
-            String cmdId = clean.substring(10, 12);
+    // 有待对齐的视频帧时，每隔一段时间把右侧已有数据的帧对齐掉，录制结束时只剩最后一小段
+    private void alignFrames(long nowNanos) {
+        if (!aligner.hasPendingFrames()) return;
+        if (lastAlignNanos != Long.MIN_VALUE && nowNanos - lastAlignNanos < ALIGN_INTERVAL_NANOS) return;
+        lastAlignNanos = nowNanos;
+        aligner.update(samples.view(), waveform);
+    }
 
-            if (!"23".equals(deviceId)) {
-                return;
-            }
+    private void recordRaw(byte[] buf, int off, int len, long timestampNanos) {
+        if (firstPacketNanos < 0) {
+            firstPacketNanos = timestampNanos;
+            startWallClockMillis = System.currentTimeMillis();
+        }
+        rawFrames.append(buf, off, len);
+        if (trace != null) trace.raw(traceSource, buf, off, len, timestampNanos);
+        if (gapStartNanos >= 0) {
+            samples.markGap(gapStartNanos, timestampNanos);
+            gapStartNanos = -1;
+        }
+        interArrival.add(timestampNanos);
+        lastPacketNanos = timestampNanos;
+    }
 
-            // 校验和计算：sum(LL + deviceID + CMD + DATA) & 0xFF
-            int calcCs = ll + 0x23 + Integer.parseInt(cmdId, 16);
-            for (int i = 12; i < clean.length(); i += 2) {
-                calcCs += Integer.parseInt(clean.substring(i, i + 2), 16);
-            }
-            calcCs &= 0xFF;
+    // 重组器已校验过同步字、长度和校验和，这里只分发
+    private void onFrame(byte[] buf, int off, int len, long timestampNanos) {
+        dispatchFrame(buf, off, len, timestampNanos);
+    }
 
-            if (calcCs != csGiven) {
-                Log.w(TAG, "校验和错误: 期望=" + String.format("%02X", csGiven) +
-                        " 计算=" + String.format("%02X", calcCs) + " 数据=" + hexData);
-                return;
-            }
+    private boolean decodeFrame(byte[] buf, int off, int len, long timestampNanos) {
+        if (len < HEADER_LEN
+                || (buf[off] & 0xFF) != SYNC_0
+                || (buf[off + 1] & 0xFF) != SYNC_1) {
+            return false;
+        }
 
-            String dataHex = clean.substring(12);
-            byte[] data = hexStringToByteArray(dataHex);
+        int ll = buf[off + 2] & 0xFF;
+        int frameLen = ll + 2;
+        if (frameLen < HEADER_LEN || frameLen > len) {
+            return false;
+        }
 
-            if ("95".equals(cmdId) && data.length >= 7) {  // 改为 >=7，支持设备实际发送的7字节数据
-                parseCmd95(data);
-            } else if ("99".equals(cmdId) && data.length >= 1) {
-                parseCmd99(data);
+        // 校验和计算：sum(LL + deviceID + CMD + DATA) & 0xFF
+        int csGiven = buf[off + 3] & 0xFF;
+        int calcCs = ll;
+        for (int i = off + 4; i < off + frameLen; i++) {
+            calcCs += buf[i] & 0xFF;
+        }
+        calcCs &= 0xFF;
+
+        if (calcCs != csGiven) {
+            checksumErrorCount++;
+            if (trace != null) {
+                // 参数：帧中的校验和、计算出的校验和
+                trace.event(traceSource, TraceRecorder.WARN, TraceRecorder.EV_CHECKSUM_ERROR, csGiven, calcCs,
+                        timestampNanos);
             }
+            return false;
+        }
 
-        } catch (Exception e) {
-            Log.e(TAG, "解析异常: " + hexData, e);
+        return dispatchFrame(buf, off, frameLen, timestampNanos);
+    }
+
+    // 完整且校验通过的一帧：只处理本设备的帧，按命令字节分发
+    private boolean dispatchFrame(byte[] buf, int off, int frameLen, long timestampNanos) {
+        int deviceId = buf[off + 4] & 0xFF;
+        if (deviceId != DEVICE_ID) {
+            foreignDeviceCount++;
+            return false;
         }
+        commands.dispatch(buf[off + 5], buf, off + HEADER_LEN, frameLen - HEADER_LEN, timestampNanos);
+        return true;
     }
 
-    private void parseCmd95(byte[] d) {
-        int b0 = d[0] & 0xFF;
-        int b1 = d[1] & 0xFF;
-        int b2 = d[2] & 0xFF;
-        int b3 = d[3] & 0xFF;
-        int b4 = d[4] & 0xFF;
-        int b5 = d[5] & 0xFF;
-        int b6 = d[6] & 0xFF;
-        int b7 = (d.length >= 8) ? d[7] & 0xFF : -1;  // 如果有第8字节，才解析呼吸率，否则-1
+    private void parseCmd95(byte[] d, int off, int len, long timestampNanos) {
+        int b0 = d[off] & 0xFF;
+        int b1 = d[off + 1] & 0xFF;
+        int b2 = d[off + 2] & 0xFF;
+        int b3 = d[off + 3] & 0xFF;
+        int b4 = d[off + 4] & 0xFF;
+        int b5 = d[off + 5] & 0xFF;
+        int b6 = d[off + 6] & 0xFF;
+        int b7 = (len >= 8) ? d[off + 7] & 0xFF : -1;  // 如果有第8字节，才解析呼吸率，否则-1
 
         // 探头状态
         int probeCode = (b0 >> 2) & 0x07;
-        switch (probeCode) {
-            case 0: probeStatus = "正常"; break;
-            case 1: probeStatus = "探头未接"; break;
-            case 2: probeStatus = "电流过大"; break;
-            case 3: probeStatus = "探头故障"; break;
-            case 4: probeStatus = "手指脱落"; break;
-            default: probeStatus = "未知状态(" + probeCode + ")"; break;
-        }
-
+        probeStatus = PROBE_STATUS[probeCode];
         // PR
         pr = b1 + ((b2 >> 7) & 1) * 256;
         if (pr < 25 || pr > 300) pr = -1;
@@ -116,15 +235,19 @@ public class OximeterData {
         if (spo2 > 100) spo2 = -1;
 
         // 体温
+        int temp10 = -1;
         if (b3 >= 1 && b3 <= 99 && b4 <= 9) {
-            temperature = b3 + b4 / 10.0;
+            temp10 = b3 * 10 + b4;
+            temperature = temp10 / 10.0;
         } else {
             temperature = -1.0;
         }
 
         // PI
+        int pi100 = -1;
         if (b5 != 0x7F && b6 != 0x7F && b5 <= 20) {
-            pi = b5 + b6 / 100.0;
+            pi100 = b5 * 100 + b6;
+            pi = pi100 / 100.0;
         } else {
             pi = -1.0;
         }
@@ -136,75 +259,160 @@ public class OximeterData {
             respirationRate = -1;
         }
 
-        // 统计
+        samples.append(timestampNanos, spo2, pr, pi100, temp10, probeCode);
+
+        // 统计（每个指标只计入自身有效的值）
         if (spo2 > 0 || pr > 0) {
             validCount++;
-            if (spo2 > 0 && spo2 <= 100) {
-                sumSpo2 += spo2;
-                minSpo2 = Math.min(minSpo2, spo2);
-                maxSpo2 = Math.max(maxSpo2, spo2);
-            }
-            if (pr >= 25 && pr <= 300) {
-                sumPr += pr;
-                minPr = Math.min(minPr, pr);
-                maxPr = Math.max(maxPr, pr);
-            }
         }
+        stats.add(timestampNanos, spo2 > 0 ? spo2 : -1, pr, pi100);
+        if (spo2 > 0) spo2Sketch.add(spo2);
+        if (pr > 0) prSketch.add(pr);
     }
 
-    private void parseCmd99(byte[] d) {
-        batteryLevel = d[0] & 0x03;
+    // 波形包：该批最后一个样本的序号与到达时间作为一次时钟观测
+    private void parseCmd96(byte[] d, int off, int len, long timestampNanos) {
+        long sampleNanos = waveClock.update(waveform.getTotalSamples() + len - 1, timestampNanos);
+        waveform.appendBatch(d, off, len, timestampNanos, sampleNanos);
     }
 
-    private byte[] hexStringToByteArray(String s) {
-        int len = s.length();
-        byte[] data = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            data[i / 2] = (byte) ((Character.digit(s.charAt(i), 16) << 4)
-                    | Character.digit(s.charAt(i + 1), 16));
-        }
-        return data;
+    private void parseCmd99(byte[] d, int off, int len, long timestampNanos) {
+        batteryLevel = d[off] & 0x03;
     }
 
     // ====================== 对外接口 ======================
     public String toHexString() {
-        return String.join(",", rawDataList);
+        return rawFrames.toHexString();
     }
 
-    public int getCount() { return rawDataList.size(); }
+    public int getCount() { return rawFrames.size(); }
 
-    public String getStartTime() { return startTime != null ? startTime : ""; }
+    public String getStartTime() {
+        return startWallClockMillis >= 0
+                ? TimeUtils.getPreciseTimeStamp(startWallClockMillis) : "";
+    }
+
+    /** 第一包到达时的单调时钟，没有数据为 -1 */
+    public long getFirstPacketNanos() { return firstPacketNanos; }
 
-    public boolean hasData() { return !rawDataList.isEmpty(); }
+    public boolean hasData() { return !rawFrames.isEmpty(); }
 
     public int getValidCount() { return validCount; }  // 关键！DataSaver 需要的
 
+    public long getChecksumErrorCount() { return checksumErrorCount + assembler.getChecksumErrorCount(); }
+
+    public long getLastPacketNanos() { return lastPacketNanos; }
+
+    public long getFrameCount() { return assembler.getFrameCount(); }
+
+    /**
+     * 把原始通知和解析错误记入跟踪缓冲区
+     *
+     * @param source 区分设备的来源编号（0~255）
+     */
+    public void setTrace(TraceRecorder trace, int source) {
+        this.trace = trace;
+        this.traceSource = source;
+    }
+
+    public int getTraceSource() { return traceSource; }
+
+    /** 通知到达间隔统计（断链前后的间隔不计入） */
+    public InterArrivalStats getInterArrival() { return interArrival; }
+
+    public LinkParameters getLinkParameters() { return linkParameters; }
+
+    /** 每次连接成功后记录协商得到的链路参数 */
+    public void setLinkParameters(LinkParameters linkParameters) { this.linkParameters = linkParameters; }
+
+    /**
+     * 链路中断：下一个通知不与断链前的通知计算到达间隔；
+     * 之前收到过数据时，从最后一包到重连后第一包之间记为一段数据缺口
+     */
+    public void onLinkDown() {
+        interArrival.breakSequence();
+        waveClock.breakSequence();
+        if (lastPacketNanos >= 0 && gapStartNanos < 0) gapStartNanos = lastPacketNanos;
+    }
+
+    /** 已记下的数据缺口数（尚未恢复的断链不计） */
+    public int getGapCount() { return samples.getGapCount(); }
+
+    /** 协议命令表：可注册其他命令的处理器，也可查询各命令的帧数与未知命令数 */
+    public CommandRegistry getCommands() { return commands; }
+
+    public long getUnknownCommandCount() { return commands.getUnknownCount(); }
+
+    /** 设备 ID 不是 0x23 的帧数 */
+    public long getForeignDeviceCount() { return foreignDeviceCount; }
+
+    /** 逐条参数样本的只读视图，供保存、上传和分析使用 */
+    public SampleStore.View getSamples() { return samples.view(); }
+
+    public int getSampleCount() { return samples.size(); }
+
+    /** 脉搏波形样本（每个波形包一个批时间戳） */
+    public WaveformBuffer getWaveform() { return waveform; }
+
+    /** 设备波形采样时钟估计（漂移、抖动） */
+    public ClockDriftEstimator getWaveformClock() { return waveClock; }
+
+    /** 视频帧对齐器：帧时间可随时加入，读取结果前需 synchronized (data) 并调用 finish() */
+    public SampleAligner getAligner() { return aligner; }
+
+    public long getResyncCount() { return assembler.getResyncCount(); }
+
+    public long getDiscardedBytes() { return assembler.getDiscardedBytes(); }
+
     public String generateReport() {
         StringBuilder sb = new StringBuilder();
         sb.append("指夹式血氧检测报告\n");
         sb.append("══════════════════════════\n");
-        sb.append("检测时间：").append(getStartTime()).append("\n");
-        sb.append("数据包总数：").append(rawDataList.size()).append(" 条\n");
+        sb.append("检测时间：");
+        if (startWallClockMillis >= 0) TimeUtils.appendPreciseTimeStamp(sb, startWallClockMillis);
+        sb.append("\n");
+        sb.append("数据包总数：").append(rawFrames.size()).append(" 条\n");
         sb.append("有效数据：").append(validCount).append(" 条\n");
         sb.append("探头状态：").append(probeStatus).append("\n\n");
 
+        WindowedStats spo2Stats = stats.session(VitalStatistics.SPO2);
+        WindowedStats prStats = stats.session(VitalStatistics.PR);
+        WindowedStats piStats = stats.session(VitalStatistics.PI);
+
         if (spo2 >= 0) {
             sb.append(String.format("当前血氧 SpO₂： %3d%%\n", spo2));
-            if (validCount > 0) {
-                sb.append(String.format("  ├ 平均值域：%d ~ %d %%\n", minSpo2 == 999 ? 0 : minSpo2, maxSpo2));
-                sb.append(String.format("  └ 平均：%.1f %%\n", sumSpo2 * 1.0 / validCount));
+            if (spo2Stats.getCount() > 0) {
+                sb.append(String.format("  ├ 平均值域：%.0f ~ %.0f %%\n", spo2Stats.getMin(), spo2Stats.getMax()));
+                sb.append(String.format("  ├ 近30秒平均：%.1f %%\n",
+                        stats.get(VitalStatistics.SPO2, VitalStatistics.WINDOW_30S).getMean()));
+                sb.append(String.format("  └ 平均：%.1f %%\n", spo2Stats.getMean()));
             }
         }
         if (pr >= 0) {
             sb.append(String.format("当前心率 PR：   %3d bpm\n", pr));
-            if (validCount > 0) {
-                sb.append(String.format("  ├ 平均：%d bpm\n", sumPr / validCount));
+            if (prStats.getCount() > 0) {
+                sb.append(String.format("  ├ 范围：%.0f ~ %.0f bpm\n", prStats.getMin(), prStats.getMax()));
+                if (prStats.getCount() > 1) {
+                    sb.append(String.format("  ├ 标准差：%.1f bpm\n", prStats.getStdDev()));
+                }
+                sb.append(String.format("  └ 平均：%.0f bpm\n", prStats.getMean()));
             }
         }
         if (temperature > 0) sb.append(String.format("体温：         %.1f ℃\n", temperature));
-        if (pi >= 0) sb.append(String.format("灌注指数 PI：  %.2f%%\n", pi));
+        if (pi >= 0) {
+            sb.append(String.format("灌注指数 PI：  %.2f%%\n", pi));
+            if (piStats.getCount() > 0) {
+                sb.append(String.format("  └ 平均：%.2f %%\n", piStats.getMean()));
+            }
+        }
         if (respirationRate > 0) sb.append(String.format("呼吸率：       %d 次/分\n", respirationRate));
 
+        SampleStore.View view = samples.view();
+        if (view.getGapCount() > 0) {
+            sb.append(String.format("数据中断：     %d 次，共 %.1f 秒\n",
+                    view.getGapCount(), view.getTotalGapNanos() / 1e9));
+        }
+
         if (batteryLevel >= 0) {
             String[] bats = {"电量空", "电量低", "电量中等", "电量充足"};
             sb.append("设备电量：     ").append(bats[batteryLevel]).append("\n");
@@ -224,22 +432,49 @@ public class OximeterData {
     public String getProbeStatus() { return probeStatus; }
     public int getBatteryLevel() { return batteryLevel; }
 
-    public int getAvgSpo2() { return validCount > 0 ? sumSpo2 / validCount : -1; }
-    public int getMinSpo2() { return minSpo2 == 999 ? -1 : minSpo2; }
-    public int getMaxSpo2() { return maxSpo2; }
-    public int getAvgPr() { return validCount > 0 ? sumPr / validCount : -1; }
-    public int getMinPr() { return minPr == 999 ? -1 : minPr; }
-    public int getMaxPr() { return maxPr; }
+    /** 多窗口统计（5 秒 / 30 秒 / 整个会话） */
+    public VitalStatistics getStatistics() { return stats; }
+
+    public QuantileSketch getSpo2Sketch() { return spo2Sketch; }
+
+    public QuantileSketch getPrSketch() { return prSketch; }
+
+    // 整个会话的统计，无有效数据时为 -1
+    public int getAvgSpo2() { return roundOrInvalid(stats.session(VitalStatistics.SPO2).getMean()); }
+    public int getMinSpo2() { return roundOrInvalid(stats.session(VitalStatistics.SPO2).getMin()); }
+    public int getMaxSpo2() { return roundOrInvalid(stats.session(VitalStatistics.SPO2).getMax()); }
+    public int getAvgPr() { return roundOrInvalid(stats.session(VitalStatistics.PR).getMean()); }
+    public int getMinPr() { return roundOrInvalid(stats.session(VitalStatistics.PR).getMin()); }
+    public int getMaxPr() { return roundOrInvalid(stats.session(VitalStatistics.PR).getMax()); }
+    public double getAvgPi() { return stats.session(VitalStatistics.PI).getMean(); }
+
+    private static int roundOrInvalid(double v) {
+        return v < 0 ? -1 : (int) Math.round(v);
+    }
 
     public void clear() {
-        rawDataList.clear();
-        startTime = null;
+        rawFrames.clear();
+        assembler.reset();
+        samples.clear();
+        waveform.clear();
+        waveClock.clear();
+        firstPacketNanos = -1;
+        startWallClockMillis = -1;
+        aligner.clear();
+        lastAlignNanos = Long.MIN_VALUE;
+        lastPacketNanos = -1;
+        gapStartNanos = -1;
+        interArrival.clear();
+        linkParameters = LinkParameters.DEFAULT;
         spo2 = pr = -1;
         temperature = pi = -1.0;
         respirationRate = batteryLevel = -1;
         probeStatus = "未知";
-        validCount = sumSpo2 = sumPr = 0;
-        minSpo2 = minPr = 999;
-        maxSpo2 = maxPr = 0;
+        validCount = checksumErrorCount = 0;
+        foreignDeviceCount = 0;
+        commands.resetCounters();
+        stats.clear();
+        spo2Sketch.clear();
+        prSketch.clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,281 @@
+package com.example.myapplication.model;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * KLL 分位数草图：内存固定（约 3k 个 float），可序列化、可跨会话合并
+ * 用于长时间监测的中位数 / P5 / P95，不需要保留或排序全部原始值
+ *
+ * 第 h 层的每个元素代表 2^h 个原始值；某层装满时排序后隔一个取一个晋升到上一层
+ * 误差约为 1.7/k 的秩误差（k=200 时约 ±1%）
+ */
+public final class QuantileSketch {
+
+    public static final int DEFAULT_K = 200;
+    private static final double CAPACITY_DECAY = 2.0 / 3.0;
+    private static final int MIN_LEVEL_CAPACITY = 2;
+    private static final int SERIAL_MAGIC = 0x4B4C4C31;   // "KLL1"
+
+    private final int k;
+    private float[][] levels = new float[1][];
+    private int[] sizes = new int[1];
+    private int numLevels = 1;
+    private long count = 0;
+    private float min = Float.NaN;
+    private float max = Float.NaN;
+    // 压缩时选择奇/偶位的随机位；固定种子保证同一数据流回放结果一致
+    private long random = 0x2545F4914F6CDD1DL;
+
+    public QuantileSketch() {
+        this(DEFAULT_K);
+    }
+
+    public QuantileSketch(int k) {
+        if (k < 8) throw new IllegalArgumentException("k 太小: " + k);
+        this.k = k;
+        levels[0] = new float[k];
+    }
+
+    public void add(float value) {
+        if (count == 0) {
+            min = max = value;
+        } else {
+            if (value < min) min = value;
+            if (value > max) max = value;
+        }
+        count++;
+        append(0, value);
+        compress();
+    }
+
+    /**
+     * 把另一个草图合并进来（other 不变），合并结果与顺序无关地近似全部数据
+     *
+     * @throws IllegalArgumentException 两个草图的 k 不同（各层容量与误差不同，不能直接合并）
+     */
+    public void merge(QuantileSketch other) {
+        if (other.k != k) {
+            throw new IllegalArgumentException("k 不同的草图不能合并: " + k + " / " + other.k);
+        }
+        if (other.count == 0) return;
+        // 与自身合并时先取快照，否则边追加边读取同一层永远读不完
+        if (other == this) other = fromByteArray(toByteArray());
+        if (count == 0) {
+            min = other.min;
+            max = other.max;
+        } else {
+            min = Math.min(min, other.min);
+            max = Math.max(max, other.max);
+        }
+        count += other.count;
+        for (int h = 0; h < other.numLevels; h++) {
+            while (numLevels <= h) addLevel();
+            for (int i = 0; i < other.sizes[h]; i++) append(h, other.levels[h][i]);
+        }
+        compress();
+    }
+
+    private void append(int h, float value) {
+        if (sizes[h] == levels[h].length) {
+            levels[h] = Arrays.copyOf(levels[h], levels[h].length * 2);
+        }
+        levels[h][sizes[h]++] = value;
+    }
+
+    private void addLevel() {
+        levels = Arrays.copyOf(levels, numLevels + 1);
+        sizes = Arrays.copyOf(sizes, numLevels + 1);
+        levels[numLevels] = new float[k];
+        numLevels++;
+    }
+
+    private int capacity(int h) {
+        int depth = numLevels - 1 - h;
+        return Math.max(MIN_LEVEL_CAPACITY, (int) Math.ceil(k * Math.pow(CAPACITY_DECAY, depth)));
+    }
+
+    private void compress() {
+        for (int h = 0; h < numLevels; h++) {
+            if (sizes[h] >= capacity(h)) {
+                compact(h);
+            }
+        }
+    }
+
+    private void compact(int h) {
+        if (h + 1 == numLevels) addLevel();
+        float[] items = levels[h];
+        int size = sizes[h];
+        Arrays.sort(items, 0, size);
+        int pairs = size & ~1;
+        int offset = nextBit();
+        for (int i = offset; i < pairs; i += 2) {
+            append(h + 1, items[i]);
+        }
+        // 奇数个时最大的那个留在本层
+        if ((size & 1) == 1) {
+            items[0] = items[size - 1];
+            sizes[h] = 1;
+        } else {
+            sizes[h] = 0;
+        }
+    }
+
+    private int nextBit() {
+        random ^= random << 13;
+        random ^= random >>> 7;
+        random ^= random << 17;
+        return (int) (random & 1);
+    }
+
+    // ====================== 查询 ======================
+    public long getCount() { return count; }
+
+    public int getK() { return k; }
+
+    public float getMin() { return min; }
+
+    public float getMax() { return max; }
+
+    /**
+     * 单个分位数，q 取 0~1；空草图返回 NaN
+     */
+    public float getQuantile(double q) {
+        return getQuantiles(q)[0];
+    }
+
+    /**
+     * 一次排序计算多个分位数
+     */
+    public float[] getQuantiles(double... qs) {
+        float[] result = new float[qs.length];
+        if (count == 0) {
+            Arrays.fill(result, Float.NaN);
+            return result;
+        }
+
+        int total = 0;
+        for (int h = 0; h < numLevels; h++) total += sizes[h];
+        float[] values = new float[total];
+        long[] weights = new long[total];
+        int n = 0;
+        for (int h = 0; h < numLevels; h++) {
+            float[] sorted = Arrays.copyOf(levels[h], sizes[h]);
+            Arrays.sort(sorted);
+            n = mergeSorted(values, weights, n, sorted, 1L << h);
+        }
+
+        for (int j = 0; j < qs.length; j++) {
+            double q = qs[j];
+            if (q <= 0) {
+                result[j] = min;
+            } else if (q >= 1) {
+                result[j] = max;
+            } else {
+                long target = (long) Math.ceil(q * count);
+                long cumulative = 0;
+                result[j] = max;
+                for (int i = 0; i < n; i++) {
+                    cumulative += weights[i];
+                    if (cumulative >= target) {
+                        result[j] = values[i];
+                        break;
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    // 把一层（已排序、同权重）并入已排序的 values/weights 前 n 项
+    private static int mergeSorted(float[] values, long[] weights, int n, float[] level, long weight) {
+        int i = n - 1;
+        int j = level.length - 1;
+        int out = n + level.length - 1;
+        while (j >= 0) {
+            if (i >= 0 && values[i] > level[j]) {
+                values[out] = values[i];
+                weights[out] = weights[i];
+                i--;
+            } else {
+                values[out] = level[j];
+                weights[out] = weight;
+                j--;
+            }
+            out--;
+        }
+        return n + level.length;
+    }
+
+    // ====================== 序列化 ======================
+    public byte[] toByteArray() {
+        int items = 0;
+        for (int h = 0; h < numLevels; h++) items += sizes[h];
+        ByteBuffer buf = ByteBuffer.allocate(4 + 4 + 8 + 4 + 4 + 4 + numLevels * 4 + items * 4);
+        buf.putInt(SERIAL_MAGIC).putInt(k).putLong(count).putFloat(min).putFloat(max).putInt(numLevels);
+        for (int h = 0; h < numLevels; h++) {
+            buf.putInt(sizes[h]);
+            for (int i = 0; i < sizes[h]; i++) buf.putFloat(levels[h][i]);
+        }
+        return buf.array();
+    }
+
+    /**
+     * 读回草图，并要求与本端使用的 k 相同（之后要与本端草图合并时用这个）
+     *
+     * @throws IllegalArgumentException 数据无效或 k 不同
+     */
+    public static QuantileSketch fromByteArray(byte[] bytes, int expectedK) {
+        QuantileSketch sketch = fromByteArray(bytes);
+        if (sketch.k != expectedK) {
+            throw new IllegalArgumentException("草图的 k 为 " + sketch.k + "，需要 " + expectedK);
+        }
+        return sketch;
+    }
+
+    /**
+     * @throws IllegalArgumentException 数据不是 toByteArray() 的输出（各层权重之和与计数不符也视为无效）
+     */
+    public static QuantileSketch fromByteArray(byte[] bytes) {
+        try {
+            ByteBuffer buf = ByteBuffer.wrap(bytes);
+            if (buf.getInt() != SERIAL_MAGIC) {
+                throw new IllegalArgumentException("不是分位数草图数据");
+            }
+            QuantileSketch sketch = new QuantileSketch(buf.getInt());
+            sketch.count = buf.getLong();
+            sketch.min = buf.getFloat();
+            sketch.max = buf.getFloat();
+            int levelCount = buf.getInt();
+            if (levelCount < 1 || levelCount > 62) {
+                throw new IllegalArgumentException("分位数草图层数无效: " + levelCount);
+            }
+            long weight = 0;
+            for (int h = 0; h < levelCount; h++) {
+                if (h > 0) sketch.addLevel();
+                int size = buf.getInt();
+                if (size < 0 || size > buf.remaining() / 4) {
+                    throw new IllegalArgumentException("分位数草图数据不完整");
+                }
+                for (int i = 0; i < size; i++) sketch.append(h, buf.getFloat());
+                weight += (long) size << h;
+            }
+            if (weight != sketch.count) {
+                throw new IllegalArgumentException("分位数草图计数不一致: " + weight + " / " + sketch.count);
+            }
+            return sketch;
+        } catch (java.nio.BufferUnderflowException e) {
+            throw new IllegalArgumentException("分位数草图数据不完整", e);
+        }
+    }
+
+    public void clear() {
+        levels = new float[1][];
+        levels[0] = new float[k];
+        sizes = new int[1];
+        numLevels = 1;
+        count = 0;
+        min = max = Float.NaN;
+    }
+}
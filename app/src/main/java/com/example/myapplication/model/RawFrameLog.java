@@ -0,0 +1,66 @@
+package com.example.myapplication.model;
+
+import com.example.myapplication.utils.HexUtils;
+
+/**
+ * 原始帧日志：把每个蓝牙通知的原始字节顺序拷贝进一块连续的 byte[]
+ * 只在容量不足时扩容，追加本身不产生任何对象；保存时才统一转成十六进制文本
+ */
+final class RawFrameLog {
+
+    private byte[] bytes = new byte[4096];
+    private int byteCount = 0;
+
+    // 第 i 帧在 bytes 中的结束位置（不含）
+    private int[] frameEnds = new int[256];
+    private int frameCount = 0;
+
+    void append(byte[] buf, int off, int len) {
+        if (byteCount + len > bytes.length) {
+            bytes = grow(bytes, byteCount + len);
+        }
+        if (frameCount == frameEnds.length) {
+            int[] bigger = new int[frameEnds.length * 2];
+            System.arraycopy(frameEnds, 0, bigger, 0, frameCount);
+            frameEnds = bigger;
+        }
+        System.arraycopy(buf, off, bytes, byteCount, len);
+        byteCount += len;
+        frameEnds[frameCount++] = byteCount;
+    }
+
+    int size() {
+        return frameCount;
+    }
+
+    boolean isEmpty() {
+        return frameCount == 0;
+    }
+
+    /**
+     * 与旧版 rawDataList 的输出格式一致：帧内字节空格分隔，帧之间逗号分隔
+     */
+    String toHexString() {
+        StringBuilder sb = new StringBuilder(byteCount * 3 + frameCount);
+        int start = 0;
+        for (int f = 0; f < frameCount; f++) {
+            if (f > 0) sb.append(',');
+            HexUtils.appendHex(sb, bytes, start, frameEnds[f] - start, true);
+            start = frameEnds[f];
+        }
+        return sb.toString();
+    }
+
+    void clear() {
+        byteCount = 0;
+        frameCount = 0;
+    }
+
+    private static byte[] grow(byte[] old, int minCapacity) {
+        int capacity = old.length * 2;
+        while (capacity < minCapacity) capacity *= 2;
+        byte[] bigger = new byte[capacity];
+        System.arraycopy(old, 0, bigger, 0, old.length);
+        return bigger;
+    }
+}
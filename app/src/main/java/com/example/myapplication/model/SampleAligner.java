@@ -0,0 +1,225 @@
+package com.example.myapplication.model;
+
+import java.util.Arrays;
+
+/**
+ * 血氧数据与视频帧对齐：把不规则到达的参数样本和脉搏波形重采样到每个视频帧的时间上，得到逐帧的真值序列
+ *
+ * 帧时间与样本时间为同一单调时钟（elapsedRealtimeNanos）。对齐时把帧时间加上延迟补偿再查样本：
+ * 血氧仪显示的 SpO2/PR 是设备内部平均后的结果，反映的是若干秒前的生理状态，同一数值要到更晚才收到
+ *
+ * 参数与波形各有一个只前进的游标，整个会话只扫描一遍：
+ * 录制中调用 update() 对齐右侧已有样本的帧，录制结束调用 finish() 处理剩余的帧；
+ * 对已保存的会话可一次性 addFrame() 全部帧后直接 finish()，结果相同
+ *
+ * 无效值为 -1。所有方法线程安全：帧时间可在相机回调线程加入，update() 在持有数据锁的线程调用
+ */
+public final class SampleAligner {
+
+    /** 零阶保持：取帧时间之前最近的一个样本 */
+    public static final int ZERO_ORDER_HOLD = 0;
+    /** 线性插值：在前后两个样本之间插值，右侧样本无效或相隔太远时退化为零阶保持 */
+    public static final int LINEAR = 1;
+
+    // 波形相邻样本相隔超过这个时长（丢包、断链）时不插值，也不跨越保持
+    private static final long WAVE_MAX_HOLD_NANOS = 200_000_000L;
+
+    private int mode = LINEAR;
+    private long parameterLatencyNanos = 0;
+    private long waveformLatencyNanos = 0;
+    private long maxHoldNanos = 3_000_000_000L;
+    private double wavePeriodNanos = 1e9 / WaveformBuffer.NOMINAL_RATE_HZ;
+
+    private long[] frameNanos = new long[1024];
+    private float[] spo2 = new float[1024];
+    private float[] pr = new float[1024];
+    private float[] pi = new float[1024];
+    private float[] wave = new float[1024];
+    private boolean[] beat = new boolean[1024];
+    private int frameCount = 0;
+    private int alignedCount = 0;
+
+    // 参数游标：时间不晚于当前目标的最后一个样本，-1 表示还没有
+    private int paramCursor = -1;
+    // 波形游标：时间不晚于当前目标的最后一个样本序号，-1 表示还没有；waveBatch 为它所在的批
+    private long waveCursor = -1;
+    private long waveBatch = 0;
+
+    public synchronized SampleAligner setMode(int mode) { this.mode = mode; return this; }
+
+    public synchronized int getMode() { return mode; }
+
+    /**
+     * 延迟补偿：帧时间 t 的真值取 t + latency 时刻收到的数据
+     *
+     * @param parameterMs SpO2/PR/PI 的延迟（设备内部平均 + 传输）
+     * @param waveformMs  脉搏波形的延迟（主要是传输）
+     */
+    public synchronized SampleAligner setLatencyMs(long parameterMs, long waveformMs) {
+        this.parameterLatencyNanos = parameterMs * 1_000_000L;
+        this.waveformLatencyNanos = waveformMs * 1_000_000L;
+        return this;
+    }
+
+    public synchronized long getParameterLatencyNanos() { return parameterLatencyNanos; }
+
+    public synchronized long getWaveformLatencyNanos() { return waveformLatencyNanos; }
+
+    /** 参数样本超过这么久没有更新（断链、探头脱落）时输出无效值 */
+    public synchronized SampleAligner setMaxHoldMs(long ms) { this.maxHoldNanos = ms * 1_000_000L; return this; }
+
+    /** 波形采样率，用于推算一批波形中每个样本的时间（批内最后一个样本的时间已知） */
+    public synchronized SampleAligner setWaveformRateHz(double hz) { this.wavePeriodNanos = 1e9 / hz; return this; }
+
+    /** 加入一个视频帧的时间，需按时间顺序加入 */
+    public synchronized void addFrame(long nanos) {
+        if (frameCount == frameNanos.length) grow();
+        frameNanos[frameCount++] = nanos;
+    }
+
+    /**
+     * 删去晚于 endNanos 的帧（录制停止后才确定视频最后一帧时），已对齐的结果一并删去
+     *
+     * @return 删去的帧数
+     */
+    public synchronized int truncateAfter(long endNanos) {
+        int n = frameCount;
+        while (frameCount > 0 && frameNanos[frameCount - 1] > endNanos) frameCount--;
+        if (alignedCount > frameCount) alignedCount = frameCount;
+        return n - frameCount;
+    }
+
+    /** 还有未对齐的帧 */
+    public synchronized boolean hasPendingFrames() { return alignedCount < frameCount; }
+
+    /**
+     * 对齐右侧已有数据的帧（录制中周期调用，调用方需持有数据锁）
+     *
+     * @return 本次对齐的帧数
+     */
+    public synchronized int update(SampleStore.View samples, WaveformBuffer waveform) {
+        return align(samples, waveform, false);
+    }
+
+    /**
+     * 数据不再增加：对齐剩余的全部帧，右侧没有样本的帧按零阶保持处理
+     */
+    public synchronized int finish(SampleStore.View samples, WaveformBuffer waveform) {
+        return align(samples, waveform, true);
+    }
+
+    private int align(SampleStore.View s, WaveformBuffer w, boolean last) {
+        int n = s.size();
+        long waveTotal = w.getTotalSamples();
+        long waveFirst = w.getFirstRetainedIndex();
+        if (waveCursor >= 0 && waveCursor < waveFirst) waveCursor = waveFirst - 1;
+        if (waveBatch < w.getFirstRetainedBatch()) waveBatch = w.getFirstRetainedBatch();
+        // 右侧已有数据的最晚时间：目标时间早于它的帧才能确定前后两个样本
+        long paramHorizon = n > 0 ? s.getTimestampNanos(n - 1) : Long.MIN_VALUE;
+        long waveHorizon = waveTotal > waveFirst ? waveTime(w, waveTotal - 1) : Long.MIN_VALUE;
+
+        int start = alignedCount;
+        while (alignedCount < frameCount) {
+            int f = alignedCount;
+            long tp = frameNanos[f] + parameterLatencyNanos;
+            long tw = frameNanos[f] + waveformLatencyNanos;
+            if (!last && (tp >= paramHorizon || (waveTotal > 0 && tw >= waveHorizon))) break;
+
+            while (paramCursor + 1 < n && s.getTimestampNanos(paramCursor + 1) <= tp) paramCursor++;
+            int l = paramCursor;
+            if (l < 0) {
+                spo2[f] = pr[f] = pi[f] = -1;
+            } else {
+                long lt = s.getTimestampNanos(l);
+                boolean right = l + 1 < n;
+                long rt = right ? s.getTimestampNanos(l + 1) : lt;
+                spo2[f] = interp(s.getSpo2(l), right ? s.getSpo2(l + 1) : -1, lt, rt, tp, maxHoldNanos, 1);
+                pr[f] = interp(s.getPr(l), right ? s.getPr(l + 1) : -1, lt, rt, tp, maxHoldNanos, 1);
+                pi[f] = interp(s.getPi100(l), right ? s.getPi100(l + 1) : -1, lt, rt, tp, maxHoldNanos, 100);
+            }
+
+            boolean beatSeen = false;
+            while (waveCursor + 1 < waveTotal) {
+                long next = Math.max(waveCursor + 1, waveFirst);
+                if (waveTime(w, next) > tw) break;
+                if (w.isBeat(next)) beatSeen = true;
+                waveCursor = next;
+                waveBatch = batchOf(w, next);
+            }
+            beat[f] = beatSeen;
+            if (waveCursor < waveFirst) {
+                wave[f] = -1;
+            } else {
+                long lt = waveTime(w, waveCursor);
+                boolean right = waveCursor + 1 < waveTotal;
+                long rt = right ? waveTime(w, waveCursor + 1) : lt;
+                wave[f] = interp(w.getAmplitude(waveCursor), right ? w.getAmplitude(waveCursor + 1) : -1,
+                        lt, rt, tw, WAVE_MAX_HOLD_NANOS, 1);
+            }
+            alignedCount++;
+        }
+        return alignedCount - start;
+    }
+
+    // 左样本 a（时间 ta）与右样本 b（时间 tb）之间取 t 时刻的值
+    private float interp(int a, int b, long ta, long tb, long t, long maxHold, int scale) {
+        if (a < 0 || t - ta > maxHold) return -1;
+        if (mode == LINEAR && b >= 0 && tb > ta && tb - ta <= maxHold) {
+            return (float) ((a + (b - a) * (double) (t - ta) / (tb - ta)) / scale);
+        }
+        return (float) a / scale;
+    }
+
+    // 波形样本的时间：取该批最后一个样本去抖后的时间，批内样本按采样间隔往前推
+    private long waveTime(WaveformBuffer w, long index) {
+        long b = batchOf(w, index);
+        long end = b + 1 < w.getTotalBatches() ? w.getBatchStartIndex(b + 1) : w.getTotalSamples();
+        return w.getBatchSampleNanos(b) - (long) ((end - 1 - index) * wavePeriodNanos);
+    }
+
+    // 样本所在的批：从游标所在的批往后找（index 不早于游标，整体只前进一遍）
+    private long batchOf(WaveformBuffer w, long index) {
+        long batches = w.getTotalBatches();
+        long b = waveBatch;
+        while (b + 1 < batches && w.getBatchStartIndex(b + 1) <= index) b++;
+        return b;
+    }
+
+    private void grow() {
+        int cap = frameNanos.length * 2;
+        frameNanos = Arrays.copyOf(frameNanos, cap);
+        spo2 = Arrays.copyOf(spo2, cap);
+        pr = Arrays.copyOf(pr, cap);
+        pi = Arrays.copyOf(pi, cap);
+        wave = Arrays.copyOf(wave, cap);
+        beat = Arrays.copyOf(beat, cap);
+    }
+
+    /** 已加入的帧数 */
+    public synchronized int getFrameCount() { return frameCount; }
+
+    /** 已对齐的帧数，下标小于它的结果可读 */
+    public synchronized int getAlignedCount() { return alignedCount; }
+
+    public synchronized long getFrameNanos(int i) { return frameNanos[i]; }
+
+    public synchronized float getSpo2(int i) { return spo2[i]; }
+
+    public synchronized float getPr(int i) { return pr[i]; }
+
+    public synchronized float getPi(int i) { return pi[i]; }
+
+    /** 波形幅值（0~127） */
+    public synchronized float getWaveform(int i) { return wave[i]; }
+
+    /** 上一帧到这一帧之间是否有搏动标志 */
+    public synchronized boolean isBeat(int i) { return beat[i]; }
+
+    /** 清除帧和对齐结果，配置保留 */
+    public synchronized void clear() {
+        frameCount = alignedCount = 0;
+        paramCursor = -1;
+        waveCursor = -1;
+        waveBatch = 0;
+    }
+}
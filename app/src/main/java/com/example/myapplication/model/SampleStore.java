@@ -0,0 +1,187 @@
+package com.example.myapplication.model;
+
+/**
+ * 血氧参数样本的列式存储：每个字段一列基本类型数组，按块分配
+ * 追加为 O(1)，扩容只新增一个块，不会拷贝已有数据
+ *
+ * 列：时间戳(ns) / SpO2 / PR / PI×100 / 体温×10 / 探头状态码，无效值统一为 -1
+ * 另记链路中断造成的数据缺口：[缺口前最后一包, 缺口后第一包] 以及缺口后第一个样本的下标
+ */
+public final class SampleStore {
+
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;   // 每块 1024 个样本
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private long[][] timestamps = new long[8][];
+    private short[][] spo2 = new short[8][];
+    private short[][] pr = new short[8][];
+    private short[][] pi100 = new short[8][];
+    private short[][] temp10 = new short[8][];
+    private byte[][] probe = new byte[8][];
+
+    private volatile int size = 0;
+
+    private long[] gapStart = new long[4];
+    private long[] gapEnd = new long[4];
+    private int[] gapIndex = new int[4];
+    private volatile int gapCount = 0;
+
+    public void append(long timestampNanos, int spo2Value, int prValue,
+                       int pi100Value, int temp10Value, int probeCode) {
+        int n = size;
+        int c = n >>> CHUNK_SHIFT;
+        int i = n & CHUNK_MASK;
+        if (i == 0) {
+            allocateChunk(c);
+        }
+        timestamps[c][i] = timestampNanos;
+        spo2[c][i] = (short) spo2Value;
+        pr[c][i] = (short) prValue;
+        pi100[c][i] = (short) pi100Value;
+        temp10[c][i] = (short) temp10Value;
+        probe[c][i] = (byte) probeCode;
+        size = n + 1;   // 写 volatile 发布本条样本
+    }
+
+    private void allocateChunk(int c) {
+        if (c == timestamps.length) {
+            int cap = c * 2;
+            timestamps = java.util.Arrays.copyOf(timestamps, cap);
+            spo2 = java.util.Arrays.copyOf(spo2, cap);
+            pr = java.util.Arrays.copyOf(pr, cap);
+            pi100 = java.util.Arrays.copyOf(pi100, cap);
+            temp10 = java.util.Arrays.copyOf(temp10, cap);
+            probe = java.util.Arrays.copyOf(probe, cap);
+        }
+        timestamps[c] = new long[CHUNK_SIZE];
+        spo2[c] = new short[CHUNK_SIZE];
+        pr[c] = new short[CHUNK_SIZE];
+        pi100[c] = new short[CHUNK_SIZE];
+        temp10[c] = new short[CHUNK_SIZE];
+        probe[c] = new byte[CHUNK_SIZE];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 记一段数据缺口，下一个追加的样本即缺口后的第一个样本
+     */
+    public void markGap(long startNanos, long endNanos) {
+        int n = gapCount;
+        if (n == gapStart.length) {
+            gapStart = java.util.Arrays.copyOf(gapStart, n * 2);
+            gapEnd = java.util.Arrays.copyOf(gapEnd, n * 2);
+            gapIndex = java.util.Arrays.copyOf(gapIndex, n * 2);
+        }
+        gapStart[n] = startNanos;
+        gapEnd[n] = endNanos;
+        gapIndex[n] = size;
+        gapCount = n + 1;
+    }
+
+    public int getGapCount() {
+        return gapCount;
+    }
+
+    /**
+     * 当前内容的只读视图：不拷贝数据，只固定住样本数，之后追加的样本对该视图不可见；
+     * clear() 之后视图仍指向旧会话的块，内容不变
+     */
+    public View view() {
+        int n = size;
+        int g = gapCount;
+        return new View(n, timestamps, spo2, pr, pi100, temp10, probe, g, gapStart, gapEnd, gapIndex);
+    }
+
+    /**
+     * 清空：换用新的块和缺口数组，旧块只留给仍持有的视图（例如还在保存的上一次会话），不再写入
+     */
+    public void clear() {
+        timestamps = new long[8][];
+        spo2 = new short[8][];
+        pr = new short[8][];
+        pi100 = new short[8][];
+        temp10 = new short[8][];
+        probe = new byte[8][];
+        gapStart = new long[4];
+        gapEnd = new long[4];
+        gapIndex = new int[4];
+        gapCount = 0;
+        size = 0;   // 写 volatile 发布新的数组
+    }
+
+    public static final class View {
+        private final int size;
+        private final long[][] timestamps;
+        private final short[][] spo2, pr, pi100, temp10;
+        private final byte[][] probe;
+        private final int gapCount;
+        private final long[] gapStart, gapEnd;
+        private final int[] gapIndex;
+
+        private View(int size, long[][] timestamps, short[][] spo2, short[][] pr,
+                     short[][] pi100, short[][] temp10, byte[][] probe,
+                     int gapCount, long[] gapStart, long[] gapEnd, int[] gapIndex) {
+            this.size = size;
+            this.timestamps = timestamps;
+            this.spo2 = spo2;
+            this.pr = pr;
+            this.pi100 = pi100;
+            this.temp10 = temp10;
+            this.probe = probe;
+            this.gapCount = gapCount;
+            this.gapStart = gapStart;
+            this.gapEnd = gapEnd;
+            this.gapIndex = gapIndex;
+        }
+
+        public int size() { return size; }
+
+        public long getTimestampNanos(int i) { return timestamps[chunk(i)][i & CHUNK_MASK]; }
+
+        public int getSpo2(int i) { return spo2[chunk(i)][i & CHUNK_MASK]; }
+
+        public int getPr(int i) { return pr[chunk(i)][i & CHUNK_MASK]; }
+
+        public int getPi100(int i) { return pi100[chunk(i)][i & CHUNK_MASK]; }
+
+        public int getTemp10(int i) { return temp10[chunk(i)][i & CHUNK_MASK]; }
+
+        public int getProbeCode(int i) { return probe[chunk(i)][i & CHUNK_MASK]; }
+
+        public int getGapCount() { return gapCount; }
+
+        /** 缺口前最后一包的时间 */
+        public long getGapStartNanos(int g) { return gapStart[gap(g)]; }
+
+        /** 缺口后第一包的时间 */
+        public long getGapEndNanos(int g) { return gapEnd[gap(g)]; }
+
+        /** 缺口后第一个样本的下标（缺口后还没有样本时等于当时的样本数） */
+        public int getGapSampleIndex(int g) { return gapIndex[gap(g)]; }
+
+        /** 所有缺口的总时长 */
+        public long getTotalGapNanos() {
+            long total = 0;
+            for (int g = 0; g < gapCount; g++) total += gapEnd[g] - gapStart[g];
+            return total;
+        }
+
+        private int gap(int g) {
+            if (g < 0 || g >= gapCount) {
+                throw new IndexOutOfBoundsException("gap " + g + ", count " + gapCount);
+            }
+            return g;
+        }
+
+        private int chunk(int i) {
+            if (i < 0 || i >= size) {
+                throw new IndexOutOfBoundsException("index " + i + ", size " + size);
+            }
+            return i >>> CHUNK_SHIFT;
+        }
+    }
+}
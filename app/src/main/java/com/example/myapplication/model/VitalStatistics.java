@@ -0,0 +1,93 @@
+package com.example.myapplication.model;
+
+/**
+ * SpO2 / PR / PI 的多窗口统计（默认 5 秒、30 秒、整个会话）
+ * 每个指标只统计自身有效的样本，界面、报告和上传 JSON 统一从这里读取
+ */
+public final class VitalStatistics {
+
+    public static final int SPO2 = 0;
+    public static final int PR = 1;
+    public static final int PI = 2;
+    private static final int METRIC_COUNT = 3;
+
+    public static final long WINDOW_5S = 5_000_000_000L;
+    public static final long WINDOW_30S = 30_000_000_000L;
+    public static final long WINDOW_SESSION = 0;
+
+    // 各指标的整数取值上限与换算系数（PI 以 ×100 存储）
+    private static final int[] MAX_VALUE = {100, 300, 2555};
+    private static final double[] SCALE = {1, 1, 100};
+
+    private final long[] windows;
+    private final WindowedStats[][] stats;
+
+    public VitalStatistics() {
+        this(WINDOW_5S, WINDOW_30S, WINDOW_SESSION);
+    }
+
+    /**
+     * @param windows 窗口长度（纳秒），WINDOW_SESSION 表示整个会话
+     */
+    public VitalStatistics(long... windows) {
+        this.windows = windows.clone();
+        this.stats = new WindowedStats[METRIC_COUNT][windows.length];
+        for (int m = 0; m < METRIC_COUNT; m++) {
+            for (int w = 0; w < windows.length; w++) {
+                stats[m][w] = new WindowedStats(windows[w], MAX_VALUE[m], SCALE[m]);
+            }
+        }
+    }
+
+    /**
+     * 写入一条样本，无效值（&lt;0）对应指标不计入
+     */
+    public void add(long timestampNanos, int spo2, int pr, int pi100) {
+        addMetric(SPO2, timestampNanos, spo2);
+        addMetric(PR, timestampNanos, pr);
+        addMetric(PI, timestampNanos, pi100);
+    }
+
+    private void addMetric(int metric, long timestampNanos, int value) {
+        WindowedStats[] row = stats[metric];
+        if (value < 0) {
+            for (WindowedStats s : row) s.advanceTo(timestampNanos);
+            return;
+        }
+        for (WindowedStats s : row) s.add(timestampNanos, value);
+    }
+
+    /**
+     * 没有新样本时推进所有滑动窗口（例如手指脱落期间）
+     */
+    public void advanceTo(long nowNanos) {
+        for (WindowedStats[] row : stats) {
+            for (WindowedStats s : row) s.advanceTo(nowNanos);
+        }
+    }
+
+    /**
+     * @param window 构造时传入的某个窗口长度
+     */
+    public WindowedStats get(int metric, long window) {
+        for (int w = 0; w < windows.length; w++) {
+            if (windows[w] == window) return stats[metric][w];
+        }
+        throw new IllegalArgumentException("未配置的统计窗口: " + window);
+    }
+
+    /** 构造时配置的窗口长度（副本），按配置顺序 */
+    public long[] getWindows() {
+        return windows.clone();
+    }
+
+    public WindowedStats session(int metric) {
+        return get(metric, WINDOW_SESSION);
+    }
+
+    public void clear() {
+        for (WindowedStats[] row : stats) {
+            for (WindowedStats s : row) s.clear();
+        }
+    }
+}
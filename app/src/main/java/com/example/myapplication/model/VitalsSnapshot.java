@@ -0,0 +1,45 @@
+package com.example.myapplication.model;
+
+/**
+ * 实时界面用的一份生命体征快照（不可变），由处理线程生成、主线程显示
+ * 数值无效时为 -1
+ */
+public final class VitalsSnapshot {
+
+    public final int spo2;
+    public final int pr;
+    public final double pi;
+    public final String probeStatus;
+    public final double spo2Mean5s;
+    public final double prMean5s;
+    /** 已处理的通知总数 */
+    public final long packetCount;
+    /** 最近一包的到达时间（单调时钟） */
+    public final long timestampNanos;
+    /** 近 1 秒左右的通知速率，尚无法计算时为 -1 */
+    public final double packetsPerSecond;
+
+    public VitalsSnapshot(int spo2, int pr, double pi, String probeStatus, double spo2Mean5s, double prMean5s,
+                          long packetCount, long timestampNanos, double packetsPerSecond) {
+        this.spo2 = spo2;
+        this.pr = pr;
+        this.pi = pi;
+        this.probeStatus = probeStatus;
+        this.spo2Mean5s = spo2Mean5s;
+        this.prMean5s = prMean5s;
+        this.packetCount = packetCount;
+        this.timestampNanos = timestampNanos;
+        this.packetsPerSecond = packetsPerSecond;
+    }
+
+    /**
+     * 从 OximeterData 取当前值，调用方需持有 synchronized (data)
+     */
+    public static VitalsSnapshot capture(OximeterData data, long packetCount, double packetsPerSecond) {
+        VitalStatistics stats = data.getStatistics();
+        return new VitalsSnapshot(data.getSpo2(), data.getPr(), data.getPi(), data.getProbeStatus(),
+                stats.get(VitalStatistics.SPO2, VitalStatistics.WINDOW_5S).getMean(),
+                stats.get(VitalStatistics.PR, VitalStatistics.WINDOW_5S).getMean(),
+                packetCount, data.getLastPacketNanos(), packetsPerSecond);
+    }
+}
@@ -0,0 +1,115 @@
+package com.example.myapplication.model;
+
+/**
+ * 脉搏波形（容积描记图）环形缓冲区
+ * 每个样本 1 字节：bit7 为搏动标志，bit0~6 为幅值（0~127）；
+ * 每个波形包记录一次批时间戳（该批第一个样本的绝对序号 + 到达时间 + 最后一个样本去抖后的时间）
+ * 追加只做数组拷贝，不分配对象；写满后覆盖最旧的数据并计数
+ */
+public final class WaveformBuffer {
+
+    public static final int DEFAULT_SAMPLE_CAPACITY = 1 << 17;   // 125Hz 下约 17 分钟
+    public static final int DEFAULT_BATCH_CAPACITY = 1 << 15;
+    /** 血氧仪波形的标称采样率 */
+    public static final double NOMINAL_RATE_HZ = 125;
+
+    private final byte[] samples;
+    private final int sampleMask;
+    private final long[] batchStart;
+    private final long[] batchTime;
+    private final long[] batchSampleTime;
+    private final int batchMask;
+
+    // 绝对序号：从会话开始累计，不随环形覆盖回绕
+    private volatile long sampleEnd = 0;
+    private long batchEnd = 0;
+
+    public WaveformBuffer() {
+        this(DEFAULT_SAMPLE_CAPACITY, DEFAULT_BATCH_CAPACITY);
+    }
+
+    /**
+     * @param sampleCapacity 样本容量，必须是 2 的幂
+     * @param batchCapacity  批容量，必须是 2 的幂
+     */
+    public WaveformBuffer(int sampleCapacity, int batchCapacity) {
+        if (Integer.bitCount(sampleCapacity) != 1 || Integer.bitCount(batchCapacity) != 1) {
+            throw new IllegalArgumentException("容量必须是 2 的幂");
+        }
+        samples = new byte[sampleCapacity];
+        sampleMask = sampleCapacity - 1;
+        batchStart = new long[batchCapacity];
+        batchTime = new long[batchCapacity];
+        batchSampleTime = new long[batchCapacity];
+        batchMask = batchCapacity - 1;
+    }
+
+    /**
+     * 写入一个波形包的全部样本（没有去抖时间，以到达时间代替）
+     */
+    public void appendBatch(byte[] buf, int off, int len, long timestampNanos) {
+        appendBatch(buf, off, len, timestampNanos, timestampNanos);
+    }
+
+    /**
+     * 写入一个波形包的全部样本
+     *
+     * @param timestampNanos  到达时间
+     * @param sampleTimeNanos 该批最后一个样本去抖后的时间（ClockDriftEstimator）
+     */
+    public void appendBatch(byte[] buf, int off, int len, long timestampNanos, long sampleTimeNanos) {
+        if (len <= 0) return;
+        long start = sampleEnd;
+        int b = (int) (batchEnd & batchMask);
+        batchStart[b] = start;
+        batchTime[b] = timestampNanos;
+        batchSampleTime[b] = sampleTimeNanos;
+        batchEnd++;
+
+        // 单包超过整个容量时只保留最后一圈，写入位置按这些样本的绝对序号计算
+        int skip = Math.max(0, len - samples.length);
+        int n = len - skip;
+        int pos = (int) ((start + skip) & sampleMask);
+        int first = Math.min(n, samples.length - pos);
+        System.arraycopy(buf, off + skip, samples, pos, first);
+        System.arraycopy(buf, off + skip + first, samples, 0, n - first);
+        sampleEnd = start + len;   // 写 volatile 发布本批样本
+    }
+
+    /** 会话开始以来收到的样本总数（含已被覆盖的） */
+    public long getTotalSamples() { return sampleEnd; }
+
+    public long getTotalBatches() { return batchEnd; }
+
+    /** 因容量不足被覆盖的样本数 */
+    public long getOverwrittenSamples() { return Math.max(0, sampleEnd - samples.length); }
+
+    /** 仍保留在缓冲区中的最旧样本的绝对序号 */
+    public long getFirstRetainedIndex() { return getOverwrittenSamples(); }
+
+    public int getAmplitude(long index) { return samples[(int) (index & sampleMask)] & 0x7F; }
+
+    public boolean isBeat(long index) { return (samples[(int) (index & sampleMask)] & 0x80) != 0; }
+
+    /** 仍保留的最旧批次序号 */
+    public long getFirstRetainedBatch() {
+        long first = Math.max(0, batchEnd - batchStart.length);
+        long oldestSample = getFirstRetainedIndex();
+        while (first < batchEnd - 1 && batchStart[(int) ((first + 1) & batchMask)] <= oldestSample) {
+            first++;
+        }
+        return first;
+    }
+
+    public long getBatchStartIndex(long batch) { return batchStart[(int) (batch & batchMask)]; }
+
+    public long getBatchTimestampNanos(long batch) { return batchTime[(int) (batch & batchMask)]; }
+
+    /** 该批最后一个样本去抖后的时间 */
+    public long getBatchSampleNanos(long batch) { return batchSampleTime[(int) (batch & batchMask)]; }
+
+    public void clear() {
+        sampleEnd = 0;
+        batchEnd = 0;
+    }
+}
@@ -0,0 +1,201 @@
+package com.example.myapplication.model;
+
+/**
+ * 单个指标在一个时间窗口内的流式统计
+ * - 均值/方差：Welford 增量算法，滑出窗口时做逆向更新
+ * - 最小/最大：单调双端队列，每个样本最多入队出队各一次
+ * - 分位数：按整数值分桶的直方图（PI 以 ×100 的整数存储，分辨率 0.01）
+ * 每个样本的更新均摊 O(1)；窗口长度 ≤0 表示整个会话，不保存样本
+ */
+public final class WindowedStats {
+
+    private final long windowNanos;
+    private final double scale;
+    private final int[] histogram;
+
+    // 窗口内样本（环形缓冲，容量为 2 的幂，按需翻倍）
+    private long[] times;
+    private int[] values;
+    private int head = 0;
+    private int size = 0;
+    private long headSeq = 0;   // 最旧样本的序号
+    private long nextSeq = 0;
+
+    // 单调队列中存放样本序号
+    private long[] minQueue;
+    private long[] maxQueue;
+    private int minHead = 0, minSize = 0;
+    private int maxHead = 0, maxSize = 0;
+
+    // 整个会话窗口直接记录极值
+    private int sessionMin = Integer.MAX_VALUE;
+    private int sessionMax = Integer.MIN_VALUE;
+
+    private long count = 0;
+    private double mean = 0;
+    private double m2 = 0;
+
+    /**
+     * @param windowNanos 窗口长度，≤0 表示整个会话
+     * @param maxValue    可能出现的最大整数值，超出的值计入最后一个分桶
+     * @param scale       整数值到物理量的换算（PI 为 100，其余为 1）
+     */
+    public WindowedStats(long windowNanos, int maxValue, double scale) {
+        this.windowNanos = windowNanos;
+        this.scale = scale;
+        this.histogram = new int[maxValue + 1];
+        if (isWindowed()) {
+            times = new long[64];
+            values = new int[64];
+            minQueue = new long[64];
+            maxQueue = new long[64];
+        }
+    }
+
+    public void add(long timestampNanos, int value) {
+        if (isWindowed()) {
+            advanceTo(timestampNanos);
+            if (size == values.length) grow();
+            int mask = values.length - 1;
+            times[(head + size) & mask] = timestampNanos;
+            values[(head + size) & mask] = value;
+            size++;
+            long seq = nextSeq++;
+
+            while (maxSize > 0 && valueOf(maxQueue[(maxHead + maxSize - 1) & mask]) <= value) maxSize--;
+            maxQueue[(maxHead + maxSize++) & mask] = seq;
+            while (minSize > 0 && valueOf(minQueue[(minHead + minSize - 1) & mask]) >= value) minSize--;
+            minQueue[(minHead + minSize++) & mask] = seq;
+        } else {
+            if (value < sessionMin) sessionMin = value;
+            if (value > sessionMax) sessionMax = value;
+        }
+
+        count++;
+        double delta = value - mean;
+        mean += delta / count;
+        m2 += delta * (value - mean);
+        histogram[bucket(value)]++;
+    }
+
+    /**
+     * 把窗口推进到给定时刻，移出过期样本（无新样本时也可调用）
+     */
+    public void advanceTo(long nowNanos) {
+        if (!isWindowed()) return;
+        long cutoff = nowNanos - windowNanos;
+        while (size > 0 && times[head] <= cutoff) {
+            removeOldest();
+        }
+    }
+
+    private void removeOldest() {
+        int mask = values.length - 1;
+        int value = values[head];
+        if (maxSize > 0 && maxQueue[maxHead] == headSeq) {
+            maxHead = (maxHead + 1) & mask;
+            maxSize--;
+        }
+        if (minSize > 0 && minQueue[minHead] == headSeq) {
+            minHead = (minHead + 1) & mask;
+            minSize--;
+        }
+        head = (head + 1) & mask;
+        size--;
+        headSeq++;
+
+        count--;
+        if (count == 0) {
+            mean = 0;
+            m2 = 0;
+        } else {
+            double delta = value - mean;
+            mean -= delta / count;
+            m2 -= delta * (value - mean);
+            if (m2 < 0) m2 = 0;
+        }
+        histogram[bucket(value)]--;
+    }
+
+    private int valueOf(long seq) {
+        return values[(int) (head + (seq - headSeq)) & (values.length - 1)];
+    }
+
+    private void grow() {
+        int cap = values.length;
+        int mask = cap - 1;
+        long[] t = new long[cap * 2];
+        int[] v = new int[cap * 2];
+        long[] minQ = new long[cap * 2];
+        long[] maxQ = new long[cap * 2];
+        for (int i = 0; i < size; i++) {
+            t[i] = times[(head + i) & mask];
+            v[i] = values[(head + i) & mask];
+        }
+        for (int i = 0; i < minSize; i++) minQ[i] = minQueue[(minHead + i) & mask];
+        for (int i = 0; i < maxSize; i++) maxQ[i] = maxQueue[(maxHead + i) & mask];
+        times = t;
+        values = v;
+        minQueue = minQ;
+        maxQueue = maxQ;
+        head = minHead = maxHead = 0;
+    }
+
+    private int bucket(int value) {
+        if (value < 0) return 0;
+        return Math.min(value, histogram.length - 1);
+    }
+
+    private boolean isWindowed() {
+        return windowNanos > 0;
+    }
+
+    // ====================== 查询（无样本时返回 -1） ======================
+    public long getWindowNanos() { return windowNanos; }
+
+    public long getCount() { return count; }
+
+    public double getMean() { return count > 0 ? mean / scale : -1; }
+
+    /** 样本方差（n-1） */
+    public double getVariance() { return count > 1 ? m2 / (count - 1) / (scale * scale) : -1; }
+
+    public double getStdDev() { return count > 1 ? Math.sqrt(m2 / (count - 1)) / scale : -1; }
+
+    public double getMin() {
+        if (count == 0) return -1;
+        if (!isWindowed()) return sessionMin / scale;
+        return valueOf(minQueue[minHead]) / scale;
+    }
+
+    public double getMax() {
+        if (count == 0) return -1;
+        if (!isWindowed()) return sessionMax / scale;
+        return valueOf(maxQueue[maxHead]) / scale;
+    }
+
+    /**
+     * 近似分位数（按分桶的最近秩法），p 取 0~1
+     */
+    public double getPercentile(double p) {
+        if (count == 0) return -1;
+        long rank = Math.max(1, (long) Math.ceil(p * count));
+        long seen = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            seen += histogram[i];
+            if (seen >= rank) return i / scale;
+        }
+        return (histogram.length - 1) / scale;
+    }
+
+    public void clear() {
+        head = size = 0;
+        headSeq = nextSeq = 0;
+        minHead = minSize = maxHead = maxSize = 0;
+        sessionMin = Integer.MAX_VALUE;
+        sessionMax = Integer.MIN_VALUE;
+        count = 0;
+        mean = m2 = 0;
+        java.util.Arrays.fill(histogram, 0);
+    }
+}
@@ -0,0 +1,178 @@
+package com.example.myapplication.replay;
+
+import com.example.myapplication.model.SampleAligner;
+import com.example.myapplication.model.SampleStore;
+import com.example.myapplication.model.WaveformBuffer;
+import com.example.myapplication.utils.DataSaver;
+import com.example.myapplication.utils.FrameTimestampLog;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 离线帧对齐：对已保存的会话重新生成 05_视频帧对齐.csv（例如标定出延迟之后重算）
+ * 读取设备目录下的 03_样本数据.csv、04_波形数据.csv，以及设备目录或其上级目录中视频旁的 .frames 文件，
+ * 与录制中使用同一个 SampleAligner，结果相同：
+ *   ./gradlew :benchmark:align --args="--parameter-latency-ms=2000 --mode=linear /path/to/OximeterRecords"
+ */
+public class SessionAligner {
+
+    public static final String ALIGNED_FILE_NAME = "05_视频帧对齐.csv";
+    private static final String SAMPLES_FILE_NAME = "03_样本数据.csv";
+    private static final String WAVEFORM_FILE_NAME = "04_波形数据.csv";
+
+    private SessionAligner() {}
+
+    /**
+     * 查找目录下（递归）所有有样本 CSV 的设备目录
+     */
+    public static List<File> findDeviceDirs(File path) {
+        List<File> out = new ArrayList<>();
+        collect(path, out);
+        out.sort(null);
+        return out;
+    }
+
+    private static void collect(File path, List<File> out) {
+        if (!path.isDirectory()) return;
+        if (new File(path, SAMPLES_FILE_NAME).isFile()) out.add(path);
+        File[] children = path.listFiles();
+        if (children == null) return;
+        for (File child : children) collect(child, out);
+    }
+
+    /** 设备目录或其上级目录（多设备时视频在上级）中的帧时间戳文件，没有为 null */
+    public static File findFramesFile(File deviceDir) {
+        File[] dirs = {deviceDir, deviceDir.getParentFile()};
+        for (File dir : dirs) {
+            if (dir == null) continue;
+            File[] files = dir.listFiles((d, name) -> name.endsWith(FrameTimestampLog.EXTENSION));
+            if (files != null && files.length > 0) return files[0];
+        }
+        return null;
+    }
+
+    /**
+     * 对齐一个设备目录，返回对齐器（结果见 getAlignedCount 等）
+     */
+    public static SampleAligner align(File deviceDir, SampleAligner aligner) throws IOException {
+        File framesFile = findFramesFile(deviceDir);
+        if (framesFile == null) throw new IOException("找不到帧时间戳文件: " + deviceDir);
+        long[] frames;
+        try (InputStream in = new FileInputStream(framesFile)) {
+            frames = FrameTimestampLog.readFrameNanos(in);
+        }
+        SampleStore samples = readSamples(new File(deviceDir, SAMPLES_FILE_NAME));
+        WaveformBuffer waveform = readWaveform(new File(deviceDir, WAVEFORM_FILE_NAME));
+
+        aligner.clear();
+        for (long frame : frames) aligner.addFrame(frame);
+        aligner.finish(samples.view(), waveform);
+        return aligner;
+    }
+
+    /**
+     * 读回 03_样本数据.csv：timestamp_ns,spo2,pr,pi,temperature,probe_code（空值为无效）
+     */
+    static SampleStore readSamples(File file) throws IOException {
+        SampleStore store = new SampleStore();
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        for (int i = 1; i < lines.size(); i++) {
+            String[] f = lines.get(i).split(",", -1);
+            if (f.length < 6) continue;
+            store.append(Long.parseLong(f[0]), parseScaled(f[1], 1), parseScaled(f[2], 1),
+                    parseScaled(f[3], 100), parseScaled(f[4], 10), Integer.parseInt(f[5]));
+        }
+        return store;
+    }
+
+    /**
+     * 读回 04_波形数据.csv：sample_index,batch_timestamp_ns,amplitude,beat[,sample_ns]
+     * 批时间戳只写在每批第一个样本上，据此还原出原来的批；第一个批时间戳之前的样本（已被覆盖的半批）丢弃。
+     * 每批最后一个样本的 sample_ns 即录制时的去抖时间；旧文件没有这一列时以到达时间代替
+     */
+    static WaveformBuffer readWaveform(File file) throws IOException {
+        WaveformBuffer waveform = new WaveformBuffer();
+        if (!file.isFile()) return waveform;
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        byte[] batch = new byte[64];
+        int len = 0;
+        long batchTime = -1;
+        long sampleTime = -1;
+        for (int i = 1; i < lines.size(); i++) {
+            String[] f = lines.get(i).split(",", -1);
+            if (f.length < 4) continue;
+            if (!f[1].isEmpty()) {
+                if (len > 0) waveform.appendBatch(batch, 0, len, batchTime, sampleTime);
+                batchTime = Long.parseLong(f[1]);
+                len = 0;
+            }
+            if (batchTime < 0) continue;
+            sampleTime = f.length > 4 && !f[4].isEmpty() ? Long.parseLong(f[4]) : batchTime;
+            if (len == batch.length) batch = Arrays.copyOf(batch, len * 2);
+            int amplitude = Integer.parseInt(f[2]) & 0x7F;
+            batch[len++] = (byte) (f[3].equals("1") ? amplitude | 0x80 : amplitude);
+        }
+        if (len > 0) waveform.appendBatch(batch, 0, len, batchTime, sampleTime);
+        return waveform;
+    }
+
+    // "97" / "1.25" / "" -> 97 / 125 / -1
+    private static int parseScaled(String s, int scale) {
+        if (s.isEmpty()) return -1;
+        return (int) Math.round(Double.parseDouble(s) * scale);
+    }
+
+    // ====================== 命令行 ======================
+    public static void main(String[] args) throws Exception {
+        long parameterLatency = 0;
+        long waveformLatency = 0;
+        int mode = SampleAligner.LINEAR;
+        List<File> inputs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--parameter-latency-ms=")) {
+                parameterLatency = Long.parseLong(arg.substring("--parameter-latency-ms=".length()));
+            } else if (arg.startsWith("--waveform-latency-ms=")) {
+                waveformLatency = Long.parseLong(arg.substring("--waveform-latency-ms=".length()));
+            } else if (arg.startsWith("--mode=")) {
+                mode = arg.substring("--mode=".length()).equals("hold") ? SampleAligner.ZERO_ORDER_HOLD : SampleAligner.LINEAR;
+            } else {
+                inputs.add(new File(arg));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("用法: SessionAligner [--mode=linear|hold] [--parameter-latency-ms=0] "
+                    + "[--waveform-latency-ms=0] <会话目录或设备目录>...");
+            System.exit(2);
+        }
+
+        int sessions = 0;
+        for (File input : inputs) {
+            for (File dir : findDeviceDirs(input)) {
+                SampleAligner aligner = new SampleAligner()
+                        .setMode(mode)
+                        .setLatencyMs(parameterLatency, waveformLatency);
+                try {
+                    align(dir, aligner);
+                } catch (IOException | RuntimeException e) {
+                    System.err.println(dir.getPath() + "\n  跳过：" + e.getMessage());
+                    continue;
+                }
+                File out = new File(dir, ALIGNED_FILE_NAME);
+                Files.write(out.toPath(), DataSaver.generateAlignedCsv(aligner).getBytes(StandardCharsets.UTF_8));
+                System.out.printf(Locale.US, "%s%n  视频帧 %d，已写入 %s%n",
+                        dir.getPath(), aligner.getAlignedCount(), out.getName());
+                sessions++;
+            }
+        }
+        System.out.printf(Locale.US, "%n共对齐 %d 个设备目录%n", sessions);
+    }
+}
@@ -0,0 +1,228 @@
+package com.example.myapplication.replay;
+
+import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.model.QuantileSketch;
+import com.example.myapplication.utils.HexUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 会话回放：读取 DataSaver 保存的 01_原始数据.txt，把原始通知按实时 / N 倍速 / 最快速度
+ * 重新灌入 OximeterData，输出吞吐量和解析后的统计结果
+ * 纯 JVM 代码，不依赖手机或血氧仪；既可以在单元测试里调用，也可以命令行运行：
+ *   ./gradlew :benchmark:replay --args="--speed=max /path/to/OximeterRecords"
+ */
+public class SessionReplayer {
+
+    public static final String RAW_FILE_NAME = "01_原始数据.txt";
+    private static final String SAMPLES_FILE_NAME = "03_样本数据.csv";
+
+    /** 以最快速度回放（不等待） */
+    public static final double SPEED_MAX = Double.POSITIVE_INFINITY;
+    /** 没有样本时间戳可参考时假定的通知间隔 */
+    public static final long DEFAULT_INTERVAL_NANOS = 100_000_000L;
+
+    private final double speed;
+    private final long defaultIntervalNanos;
+
+    /**
+     * @param speed 1 为实时，N 为 N 倍速，{@link #SPEED_MAX} 为不等待
+     */
+    public SessionReplayer(double speed, long defaultIntervalNanos) {
+        if (!(speed > 0)) throw new IllegalArgumentException("speed 必须大于 0");
+        this.speed = speed;
+        this.defaultIntervalNanos = defaultIntervalNanos;
+    }
+
+    public SessionReplayer(double speed) {
+        this(speed, DEFAULT_INTERVAL_NANOS);
+    }
+
+    /** 单个会话的回放结果 */
+    public static final class Result {
+        public final File source;
+        public final OximeterData data;
+        public final int notifications;
+        /** 含非十六进制字符、被跳过的条目数 */
+        public final int malformedEntries;
+        public final long bytes;
+        public final long elapsedNanos;
+
+        Result(File source, OximeterData data, int notifications, int malformedEntries, long bytes,
+               long elapsedNanos) {
+            this.source = source;
+            this.data = data;
+            this.notifications = notifications;
+            this.malformedEntries = malformedEntries;
+            this.bytes = bytes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        public double getNotificationsPerSecond() {
+            return elapsedNanos > 0 ? notifications * 1e9 / elapsedNanos : 0;
+        }
+    }
+
+    /**
+     * 查找目录下（递归）所有会话的原始数据文件；参数本身是文件时直接返回
+     */
+    public static List<File> findSessions(File path) {
+        List<File> out = new ArrayList<>();
+        collect(path, out);
+        out.sort(null);
+        return out;
+    }
+
+    private static void collect(File path, List<File> out) {
+        if (path.isFile()) {
+            if (path.getName().equals(RAW_FILE_NAME)) out.add(path);
+            return;
+        }
+        File[] children = path.listFiles();
+        if (children == null) return;
+        for (File child : children) collect(child, out);
+    }
+
+    public Result replay(File rawFile) throws IOException, InterruptedException {
+        String text = new String(Files.readAllBytes(rawFile.toPath()), StandardCharsets.UTF_8);
+        long interval = estimateInterval(rawFile, text);
+        return replay(rawFile, text, interval);
+    }
+
+    /**
+     * 直接回放一段与 01_原始数据.txt 格式相同的文本（逗号分隔的十六进制通知）
+     * 含非法字符的条目（文件损坏、手工编辑）整条跳过并计数，不中断回放
+     */
+    public Result replay(File source, CharSequence text, long intervalNanos) throws InterruptedException {
+        OximeterData data = new OximeterData();
+        byte[] buf = new byte[64];
+        int notifications = 0;
+        int malformed = 0;
+        long bytes = 0;
+
+        long start = System.nanoTime();
+        int entryStart = 0;
+        int length = text.length();
+        for (int i = 0; i <= length; i++) {
+            if (i < length && text.charAt(i) != ',') continue;
+            int n = HexUtils.decodedLength(text, entryStart, i - entryStart);
+            if (n > 0) {
+                if (n > buf.length) buf = new byte[n];
+                try {
+                    HexUtils.decode(text, entryStart, i - entryStart, buf, 0);
+                } catch (IllegalArgumentException e) {
+                    malformed++;
+                    entryStart = i + 1;
+                    continue;
+                }
+                long timestamp = notifications * intervalNanos;
+                pace(start, timestamp);
+                data.addNotification(buf, 0, n, timestamp);
+                notifications++;
+                bytes += n;
+            }
+            entryStart = i + 1;
+        }
+        return new Result(source, data, notifications, malformed, bytes, System.nanoTime() - start);
+    }
+
+    private void pace(long startNanos, long sessionNanos) throws InterruptedException {
+        if (speed == SPEED_MAX) return;
+        long target = startNanos + (long) (sessionNanos / speed);
+        long wait = target - System.nanoTime();
+        if (wait > 0) {
+            Thread.sleep(wait / 1_000_000, (int) (wait % 1_000_000));
+        }
+    }
+
+    /**
+     * 原始数据没有逐包时间：有样本 CSV 时按首末样本时间平均分配，否则用默认间隔
+     */
+    private long estimateInterval(File rawFile, String rawText) {
+        File samplesFile = new File(rawFile.getParentFile(), SAMPLES_FILE_NAME);
+        if (!samplesFile.isFile()) return defaultIntervalNanos;
+        try {
+            List<String> lines = Files.readAllLines(samplesFile.toPath(), StandardCharsets.UTF_8);
+            if (lines.size() < 3) return defaultIntervalNanos;
+            long first = Long.parseLong(lines.get(1).substring(0, lines.get(1).indexOf(',')));
+            String lastLine = lines.get(lines.size() - 1);
+            long last = Long.parseLong(lastLine.substring(0, lastLine.indexOf(',')));
+            int notifications = 1;
+            for (int i = 0; i < rawText.length(); i++) {
+                if (rawText.charAt(i) == ',') notifications++;
+            }
+            return last > first && notifications > 1 ? (last - first) / (notifications - 1) : defaultIntervalNanos;
+        } catch (RuntimeException | IOException e) {
+            return defaultIntervalNanos;
+        }
+    }
+
+    // ====================== 命令行 ======================
+    public static void main(String[] args) throws Exception {
+        double speed = SPEED_MAX;
+        long interval = DEFAULT_INTERVAL_NANOS;
+        List<File> inputs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--speed=")) {
+                String v = arg.substring("--speed=".length());
+                speed = v.equals("max") ? SPEED_MAX : v.equals("realtime") ? 1 : Double.parseDouble(v);
+            } else if (arg.startsWith("--interval-ms=")) {
+                interval = Long.parseLong(arg.substring("--interval-ms=".length())) * 1_000_000L;
+            } else {
+                inputs.add(new File(arg));
+            }
+        }
+        if (inputs.isEmpty()) {
+            System.err.println("用法: SessionReplayer [--speed=max|realtime|N] [--interval-ms=100] <会话目录或原始数据文件>...");
+            System.exit(2);
+        }
+
+        SessionReplayer replayer = new SessionReplayer(speed, interval);
+        QuantileSketch spo2 = new QuantileSketch();
+        QuantileSketch pr = new QuantileSketch();
+        long totalNotifications = 0;
+        long totalNanos = 0;
+        int sessions = 0;
+        for (File input : inputs) {
+            for (File raw : findSessions(input)) {
+                Result r = replayer.replay(raw);
+                printResult(r);
+                spo2.merge(r.data.getSpo2Sketch());
+                pr.merge(r.data.getPrSketch());
+                totalNotifications += r.notifications;
+                totalNanos += r.elapsedNanos;
+                sessions++;
+            }
+        }
+
+        System.out.printf(Locale.US, "%n共 %d 个会话，%d 个通知，耗时 %.1f ms，%.0f 通知/秒%n",
+                sessions, totalNotifications, totalNanos / 1e6,
+                totalNanos > 0 ? totalNotifications * 1e9 / totalNanos : 0.0);
+        if (spo2.getCount() > 0) {
+            float[] q = spo2.getQuantiles(0.05, 0.5, 0.95);
+            System.out.printf(Locale.US, "全部会话 SpO2 P5/P50/P95: %.0f / %.0f / %.0f%n", q[0], q[1], q[2]);
+        }
+        if (pr.getCount() > 0) {
+            float[] q = pr.getQuantiles(0.05, 0.5, 0.95);
+            System.out.printf(Locale.US, "全部会话 PR   P5/P50/P95: %.0f / %.0f / %.0f%n", q[0], q[1], q[2]);
+        }
+    }
+
+    private static void printResult(Result r) {
+        OximeterData d = r.data;
+        System.out.printf(Locale.US,
+                "%s%n  通知 %d（%d 字节，跳过格式错误 %d 条），帧 %d，有效 %d，校验错误 %d，重同步 %d，丢弃 %d 字节，未知命令 %d%n"
+                        + "  SpO2 平均/最低/最高 %d/%d/%d，PR 平均/最低/最高 %d/%d/%d，波形样本 %d%n"
+                        + "  耗时 %.2f ms，%.0f 通知/秒%n",
+                r.source.getPath(), r.notifications, r.bytes, r.malformedEntries, d.getFrameCount(), d.getValidCount(),
+                d.getChecksumErrorCount(), d.getResyncCount(), d.getDiscardedBytes(), d.getUnknownCommandCount(),
+                d.getAvgSpo2(), d.getMinSpo2(), d.getMaxSpo2(), d.getAvgPr(), d.getMinPr(), d.getMaxPr(),
+                d.getWaveform().getTotalSamples(), r.elapsedNanos / 1e6, r.getNotificationsPerSecond());
+    }
+}
@@ -0,0 +1,304 @@
+package com.example.myapplication.replay;
+
+import com.example.myapplication.ble.GattOperationQueue;
+import com.example.myapplication.ble.NotificationProcessor;
+import com.example.myapplication.ble.OximeterSession;
+import com.example.myapplication.ble.SimulatedOximeterTransport;
+import com.example.myapplication.ble.WakeHandshake;
+import com.example.myapplication.model.InterArrivalStats;
+import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.utils.DataSaver;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 模拟器压测：每台 SimulatedOximeterTransport 建一个 OximeterSession，按协议完成唤醒握手，
+ * 以 N 倍真实速率经共用的 NotificationProcessor 把通知灌入各自的 OximeterData，
+ * 结束后统计丢帧/误码/排队延迟并计时报告生成
+ *   ./gradlew :benchmark:soak --args="--speed=100 --seconds=30 --corruption=0.01 --devices=2"
+ */
+public class SimulatorSoak {
+
+    /** 一台设备一次压测的结果 */
+    public static final class Result {
+        public final String address;
+        public final OximeterData data;
+        public final long sentFrames;
+        public final long corruptedFrames;
+        public final long notifications;
+        public final long linkDrops;
+        /** 连接成功次数（含自动重连） */
+        public final int connects;
+        /** 重连后恢复推送的次数，及其中重新发送的唤醒字节总数（设备仍醒着时为 0） */
+        public final int resumes;
+        public final int resumeWakeBytes;
+        /** 第一次握手从开始到设备推送数据的时间，未成功为 -1 */
+        public final long timeToAwakeNanos;
+        public final int wakeBytesSent;
+        public final GattOperationQueue queue;
+        public final NotificationProcessor.Channel channel;
+        /** 所有设备共用的处理线程 */
+        public final NotificationProcessor processor;
+        public final long elapsedNanos;
+
+        Result(Driver d, SimulatedOximeterTransport sim, NotificationProcessor processor, long elapsedNanos) {
+            this.address = d.session.getAddress();
+            this.data = d.session.getData();
+            this.sentFrames = sim.getSentFrames();
+            this.corruptedFrames = sim.getCorruptedFrames();
+            this.notifications = sim.getNotificationCount();
+            this.linkDrops = sim.getLinkDropCount();
+            this.connects = d.connects;
+            this.resumes = d.resumes;
+            this.resumeWakeBytes = d.resumeWakeBytes;
+            this.timeToAwakeNanos = d.timeToAwakeNanos;
+            this.wakeBytesSent = d.wakeBytesSent;
+            this.queue = d.session.getQueue();
+            this.channel = d.session.getChannel();
+            this.processor = processor;
+            this.elapsedNanos = elapsedNanos;
+        }
+    }
+
+    /** 第 i 台模拟设备的地址，第 0 台为 SimulatedOximeterTransport.DEVICE_ADDRESS */
+    public static String deviceAddress(int i) {
+        return i == 0 ? SimulatedOximeterTransport.DEVICE_ADDRESS
+                : String.format(Locale.US, "00:11:22:33:45:%02X", i);
+    }
+
+    /**
+     * 同时连接多台模拟器并运行给定时长；断链后由会话自动重连并恢复推送，任一台握手或重连失败即结束
+     *
+     * @param responseTimeoutMs 握手等待设备响应的超时，高倍速时可以调小
+     */
+    public static List<Result> runAll(List<SimulatedOximeterTransport> sims, long responseTimeoutMs,
+                                      long durationNanos) throws InterruptedException {
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        NotificationProcessor processor = new NotificationProcessor(System::nanoTime);
+        CountDownLatch finished = new CountDownLatch(1);
+        try {
+            List<Driver> drivers = new ArrayList<>();
+            for (int i = 0; i < sims.size(); i++) {
+                drivers.add(new Driver(deviceAddress(i), sims.get(i), processor, timer, responseTimeoutMs, finished));
+            }
+            long start = System.nanoTime();
+            processor.start();
+            for (Driver d : drivers) d.session.connect();
+            finished.await(durationNanos, TimeUnit.NANOSECONDS);
+            for (Driver d : drivers) {
+                d.stopped = true;
+                d.session.disconnect();
+            }
+            processor.stop();
+            long elapsed = System.nanoTime() - start;
+
+            List<Result> results = new ArrayList<>();
+            for (int i = 0; i < drivers.size(); i++) {
+                Driver d = drivers.get(i);
+                if (d.failure != null) {
+                    throw new IllegalStateException("模拟器 " + d.session.getAddress() + " 握手失败: " + d.failure);
+                }
+                results.add(new Result(d, sims.get(i), processor, elapsed));
+            }
+            return results;
+        } finally {
+            timer.shutdownNow();
+        }
+    }
+
+    /** 单台模拟器 */
+    public static Result run(SimulatedOximeterTransport sim, long responseTimeoutMs, long durationNanos)
+            throws InterruptedException {
+        return runAll(Collections.singletonList(sim), responseTimeoutMs, durationNanos).get(0);
+    }
+
+    public static Result run(SimulatedOximeterTransport sim, long durationNanos) throws InterruptedException {
+        return run(sim, 1500, durationNanos);
+    }
+
+    private static final class Driver implements OximeterSession.Listener {
+        private final OximeterSession session;
+        private final CountDownLatch finished;
+        private int connects;
+        private int resumes;
+        private int resumeWakeBytes;
+        private volatile long timeToAwakeNanos = -1;
+        private volatile int wakeBytesSent;
+        private volatile boolean stopped;
+        private volatile String failure;
+
+        Driver(String address, SimulatedOximeterTransport sim, NotificationProcessor processor,
+               ScheduledExecutorService timer, long responseTimeoutMs, CountDownLatch finished) {
+            this.finished = finished;
+            this.session = new OximeterSession(address, sim, processor, timer, System::nanoTime, this);
+            // 唤醒间隔和总超时按响应超时相对默认值的比例缩短（高倍速下设备也更快醒来）
+            WakeHandshake handshake = session.getHandshake();
+            double scale = (double) responseTimeoutMs / handshake.getResponseTimeoutMs();
+            handshake.setWakeIntervalMs(Math.max(1, Math.round(handshake.getWakeIntervalMs() * scale)))
+                    .setTotalTimeoutMs(Math.round(handshake.getTotalTimeoutMs() * scale))
+                    .setResponseTimeoutMs(responseTimeoutMs);
+            // 模拟器按假定的 START_WAVEFORM 命令码推送波形
+            session.getHandshake().setWaveformEnabled(true);
+            // 高倍速下断链频繁，退避和恢复等待按握手超时的量级缩短
+            session.setReconnectDelayMs(10, 200).setResumeProbeMs(responseTimeoutMs);
+        }
+
+        @Override
+        public void onConnected(OximeterSession s, boolean notificationsEnabled) {
+            connects++;
+            if (notificationsEnabled) s.startHandshake();
+        }
+
+        @Override
+        public void onConnectFailed(OximeterSession s, String errorMsg) {
+            fail(errorMsg);
+        }
+
+        @Override
+        public void onLinkLost(OximeterSession s, int attempt, long delayMs) {
+        }
+
+        @Override
+        public void onReconnected(OximeterSession s, boolean notificationsEnabled) {
+            connects++;
+        }
+
+        @Override
+        public void onResumed(OximeterSession s, long gapNanos, int wakeBytes) {
+            resumes++;
+            resumeWakeBytes += wakeBytes;
+        }
+
+        @Override
+        public void onDisconnected(OximeterSession s) {
+            if (!stopped) fail("自动重连失败");
+        }
+
+        @Override
+        public void onAwake(OximeterSession s, long elapsedNanos, int wakeBytes) {
+            if (timeToAwakeNanos < 0) {
+                timeToAwakeNanos = elapsedNanos;
+                wakeBytesSent = wakeBytes;
+            }
+        }
+
+        @Override
+        public void onHandshakeFailed(OximeterSession s, String reason) {
+            fail(reason);
+        }
+
+        @Override
+        public void onBatchProcessed(OximeterSession s, int notifications, long newFrames) {
+        }
+
+        private void fail(String reason) {
+            failure = reason;
+            finished.countDown();
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        Consumer<SimulatedOximeterTransport> config = sim -> { };
+        double speed = 10;
+        double seconds = 10;
+        int wakeBytes = 10;
+        int devices = 1;
+        long seed = 1;
+        long responseTimeoutMs = 1500;
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            String key = eq > 0 ? arg.substring(0, eq) : arg;
+            String v = eq > 0 ? arg.substring(eq + 1) : "";
+            switch (key) {
+                case "--speed": speed = Double.parseDouble(v); break;
+                case "--seconds": seconds = Double.parseDouble(v); break;
+                case "--jitter-ms": config = config.andThen(s -> s.setJitterMs(Double.parseDouble(v))); break;
+                case "--corruption": config = config.andThen(s -> s.setCorruptionRate(Double.parseDouble(v))); break;
+                case "--frames-per-notification":
+                    config = config.andThen(s -> s.setFramesPerNotification(Integer.parseInt(v)));
+                    break;
+                case "--mtu": config = config.andThen(s -> s.setMaxNotificationSize(Integer.parseInt(v) - 3)); break;
+                case "--drop-every-ms": config = config.andThen(s -> s.setLinkDropIntervalMs(Long.parseLong(v))); break;
+                case "--stay-awake": config = config.andThen(s -> s.setSleepOnDisconnect(false)); break;
+                case "--waveform-hz": config = config.andThen(s -> s.setWaveform(Integer.parseInt(v), 5)); break;
+                case "--seed": seed = Long.parseLong(v); break;
+                case "--wake-bytes": wakeBytes = Integer.parseInt(v); break;
+                case "--response-timeout-ms": responseTimeoutMs = Long.parseLong(v); break;
+                case "--devices": devices = Integer.parseInt(v); break;
+                default:
+                    System.err.println("用法: SimulatorSoak [--speed=10] [--seconds=10] [--jitter-ms=0] [--corruption=0]"
+                            + " [--frames-per-notification=1] [--mtu=23] [--drop-every-ms=0] [--waveform-hz=125] [--seed=1]"
+                            + " [--wake-bytes=10] [--response-timeout-ms=1500] [--devices=1]");
+                    System.exit(2);
+            }
+        }
+        List<SimulatedOximeterTransport> sims = new ArrayList<>();
+        for (int i = 0; i < devices; i++) {
+            SimulatedOximeterTransport sim = new SimulatedOximeterTransport()
+                    .setSeed(seed + i).setSpeed(speed).setWakeBytesRequired(wakeBytes)
+                    .setWriteLatencyMs(1).setConnectDelayMs(5);
+            config.accept(sim);
+            sims.add(sim);
+        }
+
+        List<Result> results = runAll(sims, responseTimeoutMs, (long) (seconds * 1e9));
+        for (Result r : results) {
+            OximeterData d = r.data;
+            System.out.printf(Locale.US,
+                    "[%s] %.1f 秒，%.0f 倍速，连接 %d 次，断链 %d 次，首次唤醒 %.1f ms（%d 个唤醒字节）%n"
+                            + "  重连后恢复 %d 次（重新唤醒字节 %d），数据缺口 %d 段共 %.1f ms%n"
+                            + "  发送帧 %d（其中改写 %d），通知 %d，%.0f 通知/秒%n"
+                            + "  解析帧 %d，样本 %d，校验错误 %d，重同步 %d，丢弃 %d 字节，波形样本 %d%n"
+                            + "  SpO2 平均/最低/最高 %d/%d/%d，PR 平均/最低/最高 %d/%d/%d%n",
+                    r.address, r.elapsedNanos / 1e9, speed, r.connects, r.linkDrops, r.timeToAwakeNanos / 1e6,
+                    r.wakeBytesSent, r.resumes, r.resumeWakeBytes, d.getGapCount(),
+                    d.getSamples().getTotalGapNanos() / 1e6, r.sentFrames, r.corruptedFrames, r.notifications,
+                    r.notifications * 1e9 / r.elapsedNanos,
+                    d.getFrameCount(), d.getSampleCount(), d.getChecksumErrorCount(), d.getResyncCount(),
+                    d.getDiscardedBytes(), d.getWaveform().getTotalSamples(),
+                    d.getAvgSpo2(), d.getMinSpo2(), d.getMaxSpo2(), d.getAvgPr(), d.getMinPr(), d.getMaxPr());
+            GattOperationQueue q = r.queue;
+            System.out.printf(Locale.US,
+                    "  GATT 操作成功 %d 个，链路写入 %d 次（合并 %d 个无响应写），最大深度 %d，"
+                            + "平均/最大延迟 %.1f/%.1f ms，失败 %d，超时 %d，拒绝 %d，取消 %d%n",
+                    q.getCompletedOps(), q.getLinkOps(), q.getMergedWrites(), q.getMaxDepth(),
+                    q.getMeanLatencyNanos() / 1e6, q.getMaxLatencyNanos() / 1e6, q.getFailedOps(), q.getTimeoutOps(),
+                    q.getRejectedOps(), q.getCancelledOps());
+            System.out.printf(Locale.US, "  处理 %d 个通知，缓冲区峰值 %d 字节，丢弃 %d%n",
+                    r.channel.getProcessedCount(), r.channel.getRing().getHighWaterBytes(),
+                    r.channel.getDroppedCount());
+            InterArrivalStats ia = d.getInterArrival();
+            System.out.printf(Locale.US, "  链路 %s，通知间隔 平均/标准差/P95/最大 %.2f/%.2f/%.2f/%.2f ms%n",
+                    d.getLinkParameters(), ia.getMeanMs(), ia.getStdDevMs(), ia.getQuantileMs(0.95), ia.getMaxMs());
+        }
+        NotificationProcessor p = results.get(0).processor;
+        System.out.printf(Locale.US,
+                "处理线程：%d 台设备，%d 个通知 / %d 批（平均 %.1f，最大 %d），排队延迟 平均/最大 %.3f/%.3f ms，丢弃 %d%n",
+                results.size(), p.getProcessedCount(), p.getBatchCount(), p.getMeanBatchSize(), p.getMaxBatchSize(),
+                p.getMeanQueueDelayNanos() / 1e6, p.getMaxQueueDelayNanos() / 1e6, p.getDroppedCount());
+
+        OximeterData d = results.get(0).data;
+        long t0 = System.nanoTime();
+        String report = d.generateReport();
+        long t1 = System.nanoTime();
+        String stats = DataSaver.statisticsJson(d.getStatistics());
+        long t2 = System.nanoTime();
+        String samplesCsv = DataSaver.generateSamplesCsv(d.getSamples());
+        long t3 = System.nanoTime();
+        String waveCsv = DataSaver.generateWaveformCsv(d.getWaveform());
+        long t4 = System.nanoTime();
+        System.out.printf(Locale.US,
+                "报告 %.2f ms，统计 JSON %.2f ms，样本 CSV %.2f ms（%d 字符），波形 CSV %.2f ms（%d 字符）%n",
+                (t1 - t0) / 1e6, (t2 - t1) / 1e6, (t3 - t2) / 1e6, samplesCsv.length(),
+                (t4 - t3) / 1e6, waveCsv.length());
+        if (report.isEmpty() || stats.isEmpty()) System.exit(1);
+    }
+}
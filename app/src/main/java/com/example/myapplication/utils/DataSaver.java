@@ -4,13 +4,25 @@ import android.content.Context;
 import android.os.Build;
 import android.util.Log;
 
+import com.example.myapplication.model.ClockDriftEstimator;
 import com.example.myapplication.model.DetectionTimeStamp;
+import com.example.myapplication.model.InterArrivalStats;
+import com.example.myapplication.model.LinkParameters;
 import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.model.QuantileSketch;
+import com.example.myapplication.model.SampleAligner;
+import com.example.myapplication.model.SampleStore;
+import com.example.myapplication.model.VitalStatistics;
+import com.example.myapplication.model.WaveformBuffer;
+import com.example.myapplication.model.WindowedStats;
 
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 public class DataSaver {
     private static final String TAG = "DataSaver";
@@ -19,6 +31,23 @@ public class DataSaver {
                                    String videoPath,
                                    OximeterData oximeterData,
                                    DetectionTimeStamp timeStamp) {
+        saveAllData(context, videoPath, Collections.singletonMap(null, oximeterData), timeStamp);
+    }
+
+    /**
+     * 多台设备同一次检测：视频保存一份，每台设备的数据放在以设备地址命名的子目录下
+     * 只有一台设备时与单设备的目录结构相同；没有收到数据的设备（未连上、重连失败）跳过
+     *
+     * @param devices 设备地址 -> 数据
+     */
+    public static void saveAllData(Context context,
+                                   String videoPath,
+                                   Map<String, OximeterData> devices,
+                                   DetectionTimeStamp timeStamp) {
+        Map<String, OximeterData> recorded = withData(devices);
+        if (recorded.size() < devices.size()) {
+            Log.w(TAG, "跳过没有数据的设备 " + (devices.size() - recorded.size()) + " 台");
+        }
         try {
             File rootDir = new File(context.getExternalFilesDir(null), "OximeterRecords");
             if (!rootDir.exists()) rootDir.mkdirs();
@@ -34,19 +63,22 @@ public class DataSaver {
                 Files.copy(sourceVideo.toPath(), targetVideo.toPath(), StandardCopyOption.REPLACE_EXISTING);
                 Log.i(TAG, "视频保存成功: " + targetVideo.getAbsolutePath());
             }
+            // 1.1 逐帧时间戳（与视频同名）
+            File sourceFrames = FrameTimestampLog.sidecarFor(videoPath);
+            if (sourceFrames.exists()) {
+                File targetFrames = FrameTimestampLog.sidecarFor(targetVideo.getAbsolutePath());
+                Files.copy(sourceFrames.toPath(), targetFrames.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }
 
-            // 2. 保存原始数据
-            File rawFile = new File(timeDir, "01_原始数据.txt");
-            Files.write(rawFile.toPath(), oximeterData.toHexString().getBytes());
-
-            // 3. 保存报告
-            File reportFile = new File(timeDir, "02_检测报告.txt");
-            Files.write(reportFile.toPath(), oximeterData.generateReport().getBytes("UTF-8"));
-
-            // 4. 保存 JSON
-            File jsonFile = new File(timeDir, "检测信息.json");
-            String json = generateJson(oximeterData, timeStamp);
-            Files.write(jsonFile.toPath(), json.getBytes("UTF-8"));
+            for (Map.Entry<String, OximeterData> e : recorded.entrySet()) {
+                File deviceDir = timeDir;
+                if (recorded.size() > 1) {
+                    // 地址里的冒号不能出现在部分文件系统的目录名中
+                    deviceDir = new File(timeDir, "设备_" + e.getKey().replace(':', '-'));
+                    deviceDir.mkdirs();
+                }
+                saveDeviceData(deviceDir, e.getKey(), e.getValue(), timeStamp);
+            }
 
             Log.e(TAG, "检测数据已完整保存！\n路径: " + timeDir.getAbsolutePath());
 
@@ -56,21 +88,101 @@ public class DataSaver {
         }
     }
 
-    private static String generateJson(OximeterData data, DetectionTimeStamp ts) {
+    /**
+     * 只保留收到过数据的设备，保持原顺序
+     */
+    public static Map<String, OximeterData> withData(Map<String, OximeterData> devices) {
+        Map<String, OximeterData> result = new LinkedHashMap<>();
+        for (Map.Entry<String, OximeterData> e : devices.entrySet()) {
+            if (e.getValue() != null && e.getValue().hasData()) result.put(e.getKey(), e.getValue());
+        }
+        return result;
+    }
+
+    private static void saveDeviceData(File dir, String deviceAddress, OximeterData oximeterData,
+                                       DetectionTimeStamp timeStamp) throws IOException {
+        // 处理线程仍可能在写入：持锁一次性生成全部内容，写文件时不持锁
+        String rawHex, report, samplesCsv, waveCsv, alignedCsv, json;
+        synchronized (oximeterData) {
+            rawHex = oximeterData.toHexString();
+            report = oximeterData.generateReport();
+            samplesCsv = generateSamplesCsv(oximeterData.getSamples());
+            waveCsv = oximeterData.getWaveform().getTotalSamples() > 0
+                    ? generateWaveformCsv(oximeterData.getWaveform()) : null;
+            alignedCsv = oximeterData.getAligner().getAlignedCount() > 0
+                    ? generateAlignedCsv(oximeterData.getAligner()) : null;
+            json = generateJson(oximeterData, timeStamp, deviceAddress);
+        }
+
+        // 2. 保存原始数据
+        File rawFile = new File(dir, "01_原始数据.txt");
+        Files.write(rawFile.toPath(), rawHex.getBytes());
+
+        // 3. 保存报告
+        File reportFile = new File(dir, "02_检测报告.txt");
+        Files.write(reportFile.toPath(), report.getBytes("UTF-8"));
+
+        // 3.1 保存逐条样本（列式存储导出为 CSV）
+        File samplesFile = new File(dir, "03_样本数据.csv");
+        Files.write(samplesFile.toPath(), samplesCsv.getBytes("UTF-8"));
+
+        // 3.2 保存脉搏波形
+        if (waveCsv != null) {
+            File waveFile = new File(dir, "04_波形数据.csv");
+            Files.write(waveFile.toPath(), waveCsv.getBytes("UTF-8"));
+        }
+
+        // 3.3 保存逐视频帧的真值（SampleAligner 对齐结果）
+        if (alignedCsv != null) {
+            File alignedFile = new File(dir, "05_视频帧对齐.csv");
+            Files.write(alignedFile.toPath(), alignedCsv.getBytes("UTF-8"));
+        }
+
+        // 4. 保存 JSON
+        File jsonFile = new File(dir, "检测信息.json");
+        Files.write(jsonFile.toPath(), json.getBytes("UTF-8"));
+    }
+
+    // 包级可见只为同包的 DataSaverBenchmark（benchmark 模块）直接计时序列化，不对外公开
+    static String generateJson(OximeterData data, DetectionTimeStamp ts) {
+        return generateJson(data, ts, null);
+    }
+
+    /**
+     * @param deviceAddress 血氧仪地址，null 时不输出该字段
+     */
+    static String generateJson(OximeterData data, DetectionTimeStamp ts, String deviceAddress) {
         return "{\n" +
                 "  \"device_model\": \"" + Build.MODEL + "\",\n" +
+                (deviceAddress != null ? "  \"oximeter_address\": \"" + deviceAddress + "\",\n" : "") +
                 "  \"detect_start_time\": \"" + data.getStartTime() + "\",\n" +
                 "  \"bluetooth_connect_time\": \"" + safe(ts != null ? ts.getBluetoothConnectTime() : null) + "\",\n" +
                 "  \"data_start_time\": \"" + safe(ts != null ? ts.getBluetoothDataStartTime() : null) + "\",\n" +
                 "  \"video_start_time\": \"" + safe(ts != null ? ts.getVideoStartTime() : null) + "\",\n" +
+                "  \"timeline\": " + timelineJson(ts) + ",\n" +
+                "  \"first_packet_ns\": " + nanosJson(data.getFirstPacketNanos()) + ",\n" +
                 "  \"total_packets\": " + data.getCount() + ",\n" +
                 "  \"valid_packets\": " + data.getValidCount() + ",\n" +
+                "  \"frame_count\": " + data.getFrameCount() + ",\n" +
+                "  \"resync_count\": " + data.getResyncCount() + ",\n" +
+                "  \"discarded_bytes\": " + data.getDiscardedBytes() + ",\n" +
+                "  \"unknown_command_frames\": " + data.getUnknownCommandCount() + ",\n" +
+                "  \"waveform_samples\": " + data.getWaveform().getTotalSamples() + ",\n" +
+                "  \"waveform_overwritten\": " + data.getWaveform().getOverwrittenSamples() + ",\n" +
                 "  \"avg_spo2\": " + (data.getAvgSpo2() >= 0 ? data.getAvgSpo2() : "null") + ",\n" +
                 "  \"min_spo2\": " + (data.getMinSpo2() >= 0 ? data.getMinSpo2() : "null") + ",\n" +
-                "  \"max_spo2\": " + data.getMaxSpo2() + ",\n" +
+                "  \"max_spo2\": " + (data.getMaxSpo2() >= 0 ? data.getMaxSpo2() : "null") + ",\n" +
                 "  \"avg_pr\": " + (data.getAvgPr() >= 0 ? data.getAvgPr() : "null") + ",\n" +
                 "  \"min_pr\": " + (data.getMinPr() >= 0 ? data.getMinPr() : "null") + ",\n" +
-                "  \"max_pr\": " + data.getMaxPr() + ",\n" +
+                "  \"max_pr\": " + (data.getMaxPr() >= 0 ? data.getMaxPr() : "null") + ",\n" +
+                "  \"statistics\": " + statisticsJson(data.getStatistics()) + ",\n" +
+                "  \"spo2_quantiles\": " + quantilesJson(data.getSpo2Sketch()) + ",\n" +
+                "  \"pr_quantiles\": " + quantilesJson(data.getPrSketch()) + ",\n" +
+                "  \"link\": " + linkJson(data.getLinkParameters()) + ",\n" +
+                "  \"notification_interval_ms\": " + interArrivalJson(data.getInterArrival()) + ",\n" +
+                "  \"gaps\": " + gapsJson(data.getSamples()) + ",\n" +
+                "  \"video_alignment\": " + alignmentJson(data.getAligner()) + ",\n" +
+                "  \"waveform_clock\": " + clockJson(data.getWaveformClock()) + ",\n" +
                 "  \"temperature\": " + (data.getTemperature() > 0 ? String.format("%.1f", data.getTemperature()) : "null") + ",\n" +
                 "  \"pi\": " + (data.getPi() >= 0 ? String.format("%.2f", data.getPi()) : "null") + ",\n" +
                 "  \"respiration_rate\": " + (data.getRespirationRate() > 0 ? data.getRespirationRate() : "null") + ",\n" +
@@ -79,6 +191,259 @@ public class DataSaver {
                 "}";
     }
 
+    /**
+     * 各指标在每个窗口上的统计：{"spo2": {"5s": {...}, "30s": {...}, "session": {...}}, ...}
+     * 窗口按 stats 构造时的配置依次输出，键名由窗口长度得出（见 windowKey）
+     */
+    public static String statisticsJson(VitalStatistics stats) {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append('{');
+        appendMetricJson(sb, "spo2", stats, VitalStatistics.SPO2).append(", ");
+        appendMetricJson(sb, "pr", stats, VitalStatistics.PR).append(", ");
+        appendMetricJson(sb, "pi", stats, VitalStatistics.PI);
+        return sb.append('}').toString();
+    }
+
+    private static StringBuilder appendMetricJson(StringBuilder sb, String name,
+                                                  VitalStatistics stats, int metric) {
+        sb.append('"').append(name).append("\": {");
+        long[] windows = stats.getWindows();
+        for (int w = 0; w < windows.length; w++) {
+            if (w > 0) sb.append(", ");
+            appendWindowJson(sb, windowKey(windows[w]), stats.get(metric, windows[w]));
+        }
+        return sb.append('}');
+    }
+
+    // 5_000_000_000 -> "5s"，120_000_000_000 -> "2m"，1_500_000_000 -> "1500ms"，整个会话 -> "session"
+    static String windowKey(long windowNanos) {
+        if (windowNanos <= VitalStatistics.WINDOW_SESSION) return "session";
+        long ms = windowNanos / 1_000_000L;
+        if (ms % 60_000 == 0) return ms / 60_000 + "m";
+        if (ms % 1000 == 0) return ms / 1000 + "s";
+        return ms + "ms";
+    }
+
+    private static StringBuilder appendWindowJson(StringBuilder sb, String name, WindowedStats s) {
+        sb.append('"').append(name).append("\": {\"count\": ").append(s.getCount());
+        sb.append(", \"mean\": ").append(jsonNumber(s.getMean()));
+        sb.append(", \"std\": ").append(jsonNumber(s.getStdDev()));
+        sb.append(", \"min\": ").append(jsonNumber(s.getMin()));
+        sb.append(", \"max\": ").append(jsonNumber(s.getMax()));
+        sb.append(", \"p50\": ").append(jsonNumber(s.getPercentile(0.5)));
+        return sb.append('}');
+    }
+
+    /**
+     * 关键时间点（单调时钟纳秒，与样本 CSV 的时间戳同一时钟）及墙上时间锚点：
+     * {"anchor_wall_clock_ms": .., "anchor_ns": .., "bluetooth_connect_ns": .., "video_start_ns": .., ...}
+     * 未发生的时间点为 null；任一时间点的墙上时间 = anchor_wall_clock_ms + (t - anchor_ns) / 1e6
+     * video_*_frame_ns 为第一帧 / 最后一帧的曝光时间，逐帧时间见视频旁的 .frames 文件
+     */
+    public static String timelineJson(DetectionTimeStamp ts) {
+        if (ts == null) return "null";
+        StringBuilder sb = new StringBuilder(192);
+        sb.append("{\"anchor_wall_clock_ms\": ").append(nanosJson(ts.getAnchorWallClockMillis()));
+        sb.append(", \"anchor_ns\": ").append(nanosJson(ts.getAnchorNanos()));
+        sb.append(", \"bluetooth_connect_ns\": ").append(nanosJson(ts.getBluetoothConnectNanos()));
+        sb.append(", \"data_start_ns\": ").append(nanosJson(ts.getBluetoothDataStartNanos()));
+        sb.append(", \"video_start_ns\": ").append(nanosJson(ts.getVideoStartNanos()));
+        sb.append(", \"video_end_ns\": ").append(nanosJson(ts.getVideoEndNanos()));
+        sb.append(", \"video_first_frame_ns\": ").append(nanosJson(ts.getVideoFirstFrameNanos()));
+        sb.append(", \"video_last_frame_ns\": ").append(nanosJson(ts.getVideoLastFrameNanos()));
+        sb.append(", \"video_frames\": ").append(nanosJson(ts.getVideoFrameCount()));
+        sb.append(", \"video_dropped_frames\": ").append(nanosJson(ts.getVideoDroppedFrames()));
+        sb.append(", \"video_fps\": ").append(jsonNumber(ts.getVideoFps()));
+        return sb.append('}').toString();
+    }
+
+    private static String nanosJson(long v) {
+        return v >= 0 ? Long.toString(v) : "null";
+    }
+
+    /**
+     * 协商得到的链路参数：{"mtu": 247, "requested_mtu": 247, "tx_phy": "2M", ...}
+     */
+    public static String linkJson(LinkParameters link) {
+        return "{\"mtu\": " + link.mtu
+                + ", \"requested_mtu\": " + (link.requestedMtu > 0 ? link.requestedMtu : "null")
+                + ", \"max_payload\": " + link.getMaxPayload()
+                + ", \"tx_phy\": \"" + LinkParameters.phyName(link.txPhy) + "\""
+                + ", \"rx_phy\": \"" + LinkParameters.phyName(link.rxPhy) + "\""
+                + ", \"requested_2m_phy\": " + link.requested2mPhy
+                + ", \"connection_priority\": \"" + link.connectionPriority + "\"}";
+    }
+
+    /**
+     * 断链造成的数据缺口：[{"start_ns": .., "end_ns": .., "duration_ms": .., "sample_index": ..}, ...]
+     * sample_index 为缺口后第一个样本在样本 CSV 中的行号（从 0 起）
+     */
+    public static String gapsJson(SampleStore.View samples) {
+        int n = samples.getGapCount();
+        StringBuilder sb = new StringBuilder(2 + n * 96);
+        sb.append('[');
+        for (int g = 0; g < n; g++) {
+            if (g > 0) sb.append(", ");
+            long start = samples.getGapStartNanos(g);
+            long end = samples.getGapEndNanos(g);
+            sb.append("{\"start_ns\": ").append(start);
+            sb.append(", \"end_ns\": ").append(end);
+            sb.append(", \"duration_ms\": ").append(jsonNumber((end - start) / 1e6));
+            sb.append(", \"sample_index\": ").append(samples.getGapSampleIndex(g)).append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    /**
+     * 通知到达间隔（毫秒）：{"count": n, "mean": .., "std": .., "min": .., "max": .., "p50": .., "p95": .., "p99": ..}
+     */
+    public static String interArrivalJson(InterArrivalStats s) {
+        StringBuilder sb = new StringBuilder(160);
+        sb.append("{\"count\": ").append(s.getCount());
+        sb.append(", \"mean\": ").append(jsonNumber(s.getMeanMs()));
+        sb.append(", \"std\": ").append(jsonNumber(s.getStdDevMs()));
+        sb.append(", \"min\": ").append(jsonNumber(s.getMinMs()));
+        sb.append(", \"max\": ").append(jsonNumber(s.getMaxMs()));
+        sb.append(", \"p50\": ").append(jsonNumber(s.getQuantileMs(0.5)));
+        sb.append(", \"p95\": ").append(jsonNumber(s.getQuantileMs(0.95)));
+        sb.append(", \"p99\": ").append(jsonNumber(s.getQuantileMs(0.99)));
+        return sb.append('}').toString();
+    }
+
+    /**
+     * 设备波形时钟估计：{"nominal_hz": 125.00, "rate_hz": .., "drift_ppm": .., "jitter_ms": .., "observations": n, ...}
+     * drift_ppm 为正表示设备采样比标称快；没有观测时各估计值为 null
+     */
+    public static String clockJson(ClockDriftEstimator c) {
+        boolean has = c.getCount() > 0;
+        StringBuilder sb = new StringBuilder(160);
+        sb.append("{\"nominal_hz\": ").append(String.format(java.util.Locale.US, "%.2f", 1e9 / c.getNominalPeriodNanos()));
+        sb.append(", \"rate_hz\": ").append(has ? String.format(java.util.Locale.US, "%.4f", c.getRateHz()) : "null");
+        sb.append(", \"drift_ppm\": ").append(has ? String.format(java.util.Locale.US, "%.1f", c.getDriftPpm()) : "null");
+        sb.append(", \"jitter_ms\": ").append(jsonNumber(c.getJitterMs()));
+        sb.append(", \"observations\": ").append(c.getCount());
+        sb.append(", \"outliers\": ").append(c.getOutlierCount());
+        sb.append(", \"resyncs\": ").append(c.getResyncCount());
+        return sb.append('}').toString();
+    }
+
+    private static String jsonNumber(double v) {
+        return v >= 0 ? String.format(java.util.Locale.US, "%.2f", v) : "null";
+    }
+
+    /**
+     * P5 / 中位数 / P95，并附上序列化的草图（十六进制），分析端可直接合并多个会话
+     */
+    public static String quantilesJson(QuantileSketch sketch) {
+        StringBuilder sb = new StringBuilder(128);
+        sb.append("{\"count\": ").append(sketch.getCount());
+        if (sketch.getCount() > 0) {
+            float[] q = sketch.getQuantiles(0.05, 0.5, 0.95);
+            sb.append(", \"p5\": ").append(q[0]);
+            sb.append(", \"p50\": ").append(q[1]);
+            sb.append(", \"p95\": ").append(q[2]);
+        } else {
+            sb.append(", \"p5\": null, \"p50\": null, \"p95\": null");
+        }
+        byte[] bytes = sketch.toByteArray();
+        sb.append(", \"sketch\": \"");
+        HexUtils.appendHex(sb, bytes, 0, bytes.length, false);
+        return sb.append("\"}").toString();
+    }
+
+    /**
+     * 逐条样本 CSV：时间戳为 elapsedRealtimeNanos，无效值留空
+     */
+    public static String generateSamplesCsv(SampleStore.View samples) {
+        int n = samples.size();
+        StringBuilder sb = new StringBuilder(32 + n * 40);
+        sb.append("timestamp_ns,spo2,pr,pi,temperature,probe_code\n");
+        for (int i = 0; i < n; i++) {
+            sb.append(samples.getTimestampNanos(i)).append(',');
+            appendValid(sb, samples.getSpo2(i)).append(',');
+            appendValid(sb, samples.getPr(i)).append(',');
+            appendScaled(sb, samples.getPi100(i), 100).append(',');
+            appendScaled(sb, samples.getTemp10(i), 10).append(',');
+            sb.append(samples.getProbeCode(i)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 波形 CSV：每个样本一行，批时间戳（到达时间）只写在每批的第一个样本上；
+     * sample_ns 为每个样本去抖后的时间（批内最后一个样本的时间往前按标称采样间隔推算）
+     */
+    public static String generateWaveformCsv(WaveformBuffer waveform) {
+        long first = waveform.getFirstRetainedIndex();
+        long end = waveform.getTotalSamples();
+        StringBuilder sb = new StringBuilder(80 + (int) (end - first) * 40);
+        sb.append("sample_index,batch_timestamp_ns,amplitude,beat,sample_ns\n");
+        double period = 1e9 / WaveformBuffer.NOMINAL_RATE_HZ;
+        long batch = waveform.getFirstRetainedBatch();
+        long batchEnd = waveform.getTotalBatches();
+        // 当前样本所在批的最后一个样本序号
+        long last = -1;
+        for (long i = first; i < end; i++) {
+            sb.append(i).append(',');
+            while (batch + 1 < batchEnd && waveform.getBatchStartIndex(batch + 1) <= i) batch++;
+            if (waveform.getBatchStartIndex(batch) == i) {
+                sb.append(waveform.getBatchTimestampNanos(batch));
+            }
+            if (i > last) last = (batch + 1 < batchEnd ? waveform.getBatchStartIndex(batch + 1) : end) - 1;
+            sb.append(',').append(waveform.getAmplitude(i));
+            sb.append(',').append(waveform.isBeat(i) ? 1 : 0);
+            sb.append(',').append(waveform.getBatchSampleNanos(batch) - (long) ((last - i) * period)).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 逐视频帧的真值 CSV：每帧一行，无效值留空，beat 为上一帧到本帧之间是否有搏动
+     */
+    public static String generateAlignedCsv(SampleAligner aligner) {
+        int n = aligner.getAlignedCount();
+        StringBuilder sb = new StringBuilder(64 + n * 48);
+        sb.append("frame_index,frame_ns,spo2,pr,pi,pleth,beat\n");
+        for (int i = 0; i < n; i++) {
+            sb.append(i).append(',').append(aligner.getFrameNanos(i)).append(',');
+            appendFixed(sb, aligner.getSpo2(i), 10).append(',');
+            appendFixed(sb, aligner.getPr(i), 10).append(',');
+            appendFixed(sb, aligner.getPi(i), 100).append(',');
+            appendFixed(sb, aligner.getWaveform(i), 10).append(',');
+            sb.append(aligner.isBeat(i) ? 1 : 0).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 对齐参数：{"frames": n, "mode": "linear", "parameter_latency_ms": .., "waveform_latency_ms": ..}
+     */
+    public static String alignmentJson(SampleAligner aligner) {
+        return "{\"frames\": " + aligner.getAlignedCount()
+                + ", \"mode\": \"" + (aligner.getMode() == SampleAligner.LINEAR ? "linear" : "zoh") + "\""
+                + ", \"parameter_latency_ms\": " + aligner.getParameterLatencyNanos() / 1_000_000L
+                + ", \"waveform_latency_ms\": " + aligner.getWaveformLatencyNanos() / 1_000_000L + "}";
+    }
+
+    // 非负小数按 1/scale 精度输出（scale 为 10 / 100），负数（无效值）留空
+    private static StringBuilder appendFixed(StringBuilder sb, float v, int scale) {
+        if (v < 0) return sb;
+        return appendScaled(sb, Math.round(v * scale), scale);
+    }
+
+    private static StringBuilder appendValid(StringBuilder sb, int v) {
+        return v >= 0 ? sb.append(v) : sb;
+    }
+
+    // 定点数按原精度输出，避免 double 格式化
+    private static StringBuilder appendScaled(StringBuilder sb, int v, int scale) {
+        if (v < 0) return sb;
+        sb.append(v / scale).append('.');
+        int frac = v % scale;
+        if (scale == 100 && frac < 10) sb.append('0');
+        return sb.append(frac);
+    }
+
     private static String safe(String s) {
         return s != null ? s : "";
     }
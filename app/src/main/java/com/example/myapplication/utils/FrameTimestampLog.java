@@ -0,0 +1,406 @@
+package com.example.myapplication.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 视频逐帧时间戳旁路文件：录制期间每帧记录传感器时间戳，边录边写，并检测丢帧
+ * 相机回调线程只把记录写进内存块，写满一块交给 I/O 线程落盘，回调中不做文件操作、不分配对象
+ *
+ * 预览在录制前后也出帧，只记录录制窗口 [setRecordingStart, setRecordingEnd] 内的帧，第 i 条记录即视频第 i 帧。
+ * 结束时间要等视频封装完成才知道准确值，为此最近一整块不立即落盘，收窄结束时间时可从尾部删去多记的帧
+ *
+ * 文件格式（大端）：
+ * 文件头 40 字节：魔数 "OXVF"、版本、时间戳来源、保留、墙上时间（毫秒）、单调时钟（elapsedRealtimeNanos）、
+ * 同一时刻的传感器时钟，三个时刻用于把传感器时间戳换算到样本的时钟
+ * 每帧 24 字节：帧号 8B、传感器时间戳 8B（-1 表示该帧采集失败）、帧时长 4B、曝光时间 4B（纳秒）
+ *
+ * 方法线程安全
+ */
+public final class FrameTimestampLog implements Closeable {
+
+    /** 传感器时间戳为 CLOCK_MONOTONIC 时基（与 elapsedRealtimeNanos 只差设备休眠时间，录制期间可视为常数） */
+    public static final int SOURCE_UNKNOWN = 0;
+    /** 传感器时间戳与 SystemClock.elapsedRealtimeNanos() 同一时钟 */
+    public static final int SOURCE_REALTIME = 1;
+
+    /** 旁路文件扩展名，与视频同名 */
+    public static final String EXTENSION = ".frames";
+
+    private static final int FILE_MAGIC = 0x4F585646;   // "OXVF"
+    private static final int FILE_VERSION = 1;
+    private static final int RECORD_SIZE = 24;
+    private static final int BLOCK_RECORDS = 256;
+    // 帧间隔超过帧时长的这个倍数记为丢帧
+    private static final double DROP_FACTOR = 1.5;
+    private static final long CLOSE_TIMEOUT_MS = 2000;
+
+    private final OutputStream out;
+    private final Executor ioExecutor;
+    private final long clockOffsetNanos;
+    private final ConcurrentLinkedQueue<byte[]> freeBlocks = new ConcurrentLinkedQueue<>();
+
+    private byte[] block = new byte[BLOCK_RECORDS * RECORD_SIZE];
+    private int blockPos = 0;
+    // 已写满但暂不落盘的上一块，没有为 null
+    private byte[] heldBlock;
+    // 录制窗口（传感器时钟）
+    private long startTimestamp = Long.MIN_VALUE;
+    private long endTimestamp = Long.MAX_VALUE;
+    private volatile IOException writeError;
+    private boolean closed = false;
+
+    private int frameCount = 0;
+    private int droppedFrames = 0;
+    private int failedFrames = 0;
+    private long firstTimestamp = -1;
+    private long lastTimestamp = -1;
+    private long maxIntervalNanos = 0;
+    // 没有帧时长时的帧间隔估计（只用正常间隔更新）
+    private double intervalEstimate = 0;
+
+    /**
+     * 写文件头
+     *
+     * @param ioExecutor        落盘用的线程（单线程，保证块按顺序写入）
+     * @param timestampSource   SOURCE_REALTIME / SOURCE_UNKNOWN（CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE）
+     * @param wallClockMillis   同一时刻的 System.currentTimeMillis()
+     * @param elapsedNanos      同一时刻的 SystemClock.elapsedRealtimeNanos()
+     * @param sensorClockNanos  同一时刻的传感器时钟（REALTIME 时同 elapsedNanos，否则为 System.nanoTime()）
+     */
+    public FrameTimestampLog(OutputStream out, Executor ioExecutor, int timestampSource,
+                             long wallClockMillis, long elapsedNanos, long sensorClockNanos) throws IOException {
+        this.out = out;
+        this.ioExecutor = ioExecutor;
+        this.clockOffsetNanos = elapsedNanos - sensorClockNanos;
+        DataOutputStream header = new DataOutputStream(out);
+        header.writeInt(FILE_MAGIC);
+        header.writeInt(FILE_VERSION);
+        header.writeInt(timestampSource);
+        header.writeInt(0);
+        header.writeLong(wallClockMillis);
+        header.writeLong(elapsedNanos);
+        header.writeLong(sensorClockNanos);
+        header.flush();
+    }
+
+    /** 在视频文件旁边创建旁路文件 */
+    public static FrameTimestampLog create(File file, Executor ioExecutor, int timestampSource,
+                                           long wallClockMillis, long elapsedNanos,
+                                           long sensorClockNanos) throws IOException {
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(file));
+        try {
+            return new FrameTimestampLog(out, ioExecutor, timestampSource, wallClockMillis, elapsedNanos,
+                    sensorClockNanos);
+        } catch (IOException e) {
+            out.close();
+            throw e;
+        }
+    }
+
+    /** 视频路径对应的旁路文件：Oximeter_xxx.mp4 -> Oximeter_xxx.frames */
+    public static File sidecarFor(String videoPath) {
+        int dot = videoPath.lastIndexOf('.');
+        int slash = videoPath.lastIndexOf(File.separatorChar);
+        String base = dot > slash ? videoPath.substring(0, dot) : videoPath;
+        return new File(base + EXTENSION);
+    }
+
+    /**
+     * 录制开始（elapsedRealtimeNanos），更早曝光的帧不记录
+     */
+    public synchronized void setRecordingStart(long elapsedNanos) {
+        startTimestamp = elapsedNanos - clockOffsetNanos;
+    }
+
+    /**
+     * 录制结束（elapsedRealtimeNanos），更晚曝光的帧和之后的采集失败不再记录；
+     * 已记录的帧中晚于它的从尾部删去（只能删去还在内存中的最近一到两块，即最近 256~512 帧）。
+     * 丢帧数和最大帧间隔不回退
+     */
+    public synchronized void setRecordingEnd(long elapsedNanos) {
+        endTimestamp = elapsedNanos - clockOffsetNanos;
+        if (!closed) trimTail();
+    }
+
+    /**
+     * 记一帧（相机回调线程）
+     *
+     * @param frameNumber        CaptureResult.getFrameNumber()
+     * @param timestampNanos     SENSOR_TIMESTAMP：该帧开始曝光的时间
+     * @param frameDurationNanos SENSOR_FRAME_DURATION，没有时传 0
+     * @param exposureNanos      SENSOR_EXPOSURE_TIME，没有时传 0
+     * @return 该帧在录制窗口内并已记录
+     */
+    public synchronized boolean onFrame(long frameNumber, long timestampNanos, long frameDurationNanos,
+                                        long exposureNanos) {
+        if (closed || timestampNanos < startTimestamp || timestampNanos > endTimestamp) return false;
+        if (lastTimestamp >= 0) {
+            long interval = timestampNanos - lastTimestamp;
+            double expected = frameDurationNanos > 0 ? frameDurationNanos : intervalEstimate;
+            if (expected > 0 && interval > expected * DROP_FACTOR) {
+                droppedFrames += (int) Math.max(1, Math.round(interval / expected) - 1);
+            } else if (interval > 0) {
+                intervalEstimate = intervalEstimate == 0 ? interval : intervalEstimate + 0.1 * (interval - intervalEstimate);
+            }
+            if (interval > maxIntervalNanos) maxIntervalNanos = interval;
+        } else {
+            firstTimestamp = timestampNanos;
+        }
+        lastTimestamp = timestampNanos;
+        frameCount++;
+        append(frameNumber, timestampNanos, frameDurationNanos, exposureNanos);
+        return true;
+    }
+
+    /** 某帧采集失败（onCaptureFailed）；录制结束后的不记录 */
+    public synchronized void onFrameFailed(long frameNumber) {
+        if (closed || endTimestamp != Long.MAX_VALUE) return;
+        failedFrames++;
+        append(frameNumber, -1, 0, 0);
+    }
+
+    private void append(long frameNumber, long timestamp, long frameDuration, long exposure) {
+        byte[] b = block;
+        int p = blockPos;
+        putLong(b, p, frameNumber);
+        putLong(b, p + 8, timestamp);
+        putInt(b, p + 16, (int) Math.min(Integer.MAX_VALUE, frameDuration));
+        putInt(b, p + 20, (int) Math.min(Integer.MAX_VALUE, exposure));
+        blockPos = p + RECORD_SIZE;
+        if (blockPos == b.length) {
+            // 当前块写满：上一块落盘，这一块留在内存中备删尾
+            if (heldBlock != null) submit(heldBlock, heldBlock.length);
+            heldBlock = b;
+            byte[] next = freeBlocks.poll();
+            block = next != null ? next : new byte[b.length];
+            blockPos = 0;
+        }
+    }
+
+    // 持锁调用：从尾部删去录制窗口外的记录（晚于结束时间的帧、最后一帧之后的采集失败），并修正统计
+    private void trimTail() {
+        int held = heldBlock != null ? heldBlock.length / RECORD_SIZE : 0;
+        int n = held + blockPos / RECORD_SIZE;
+        boolean removed = false;
+        while (n > 0) {
+            long ts = tailTimestamp(n - 1, held);
+            if (ts >= 0 && ts <= endTimestamp) break;
+            if (ts < 0) failedFrames--; else frameCount--;
+            n--;
+            removed = true;
+        }
+        if (!removed) return;
+        if (frameCount == 0) {
+            firstTimestamp = lastTimestamp = -1;
+        } else {
+            for (int i = n - 1; i >= 0; i--) {
+                long ts = tailTimestamp(i, held);
+                if (ts >= 0) {
+                    lastTimestamp = ts;
+                    break;
+                }
+            }
+        }
+        if (n <= held) {
+            freeBlocks.offer(block);
+            block = heldBlock;
+            heldBlock = null;
+            blockPos = n * RECORD_SIZE;
+        } else {
+            blockPos = (n - held) * RECORD_SIZE;
+        }
+    }
+
+    // 内存中第 i 条记录（上一块在前）的传感器时间戳
+    private long tailTimestamp(int i, int held) {
+        return i < held ? getLong(heldBlock, i * RECORD_SIZE + 8) : getLong(block, (i - held) * RECORD_SIZE + 8);
+    }
+
+    // 持锁调用：把内存中的记录全部交给 I/O 线程
+    private void flushBlock() {
+        if (heldBlock != null) {
+            submit(heldBlock, heldBlock.length);
+            heldBlock = null;
+        }
+        if (blockPos == 0) return;
+        submit(block, blockPos);
+        byte[] next = freeBlocks.poll();
+        block = next != null ? next : new byte[block.length];
+        blockPos = 0;
+    }
+
+    private void submit(byte[] full, int len) {
+        ioExecutor.execute(() -> {
+            try {
+                out.write(full, 0, len);
+            } catch (IOException e) {
+                writeError = e;
+            }
+            freeBlocks.offer(full);
+        });
+    }
+
+    /**
+     * 写出剩余记录并关闭文件，等 I/O 线程写完（最多两块）后返回；之后的帧被忽略
+     *
+     * @throws IOException 写入出过错
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (this) {
+            if (closed) return;
+            flushBlock();
+            closed = true;
+        }
+        CountDownLatch done = new CountDownLatch(1);
+        ioExecutor.execute(() -> {
+            try {
+                out.close();
+            } catch (IOException e) {
+                writeError = e;
+            }
+            done.countDown();
+        });
+        try {
+            if (!done.await(CLOSE_TIMEOUT_MS, TimeUnit.MILLISECONDS)) throw new IOException("帧时间戳文件关闭超时");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("等待帧时间戳文件关闭时被中断", e);
+        }
+        IOException e = writeError;
+        if (e != null) throw e;
+    }
+
+    /** 记录到的帧数（不含采集失败的帧） */
+    public synchronized int getFrameCount() { return frameCount; }
+
+    /** 根据帧间隔推算的丢帧数 */
+    public synchronized int getDroppedFrames() { return droppedFrames; }
+
+    /** 相机报告采集失败的帧数 */
+    public synchronized int getFailedFrames() { return failedFrames; }
+
+    /** 最大帧间隔（纳秒） */
+    public synchronized long getMaxIntervalNanos() { return maxIntervalNanos; }
+
+    /** 第一帧 / 最后一帧换算到 elapsedRealtimeNanos 的时间，没有帧为 -1 */
+    public synchronized long getFirstFrameNanos() {
+        return firstTimestamp >= 0 ? toElapsedNanos(firstTimestamp) : -1;
+    }
+
+    public synchronized long getLastFrameNanos() {
+        return lastTimestamp >= 0 ? toElapsedNanos(lastTimestamp) : -1;
+    }
+
+    /** 实测帧率，少于两帧为 -1 */
+    public synchronized double getFps() {
+        if (frameCount < 2 || lastTimestamp <= firstTimestamp) return -1;
+        return (frameCount - 1) * 1e9 / (lastTimestamp - firstTimestamp);
+    }
+
+    /** 传感器时间戳换算为 elapsedRealtimeNanos */
+    public long toElapsedNanos(long sensorTimestampNanos) {
+        return sensorTimestampNanos + clockOffsetNanos;
+    }
+
+    /**
+     * 把旁路文件转成 CSV：frame_number,elapsed_ns,interval_ms,frame_duration_ms,exposure_ms
+     * elapsed_ns 已换算到样本 CSV 的时钟；采集失败的帧 elapsed_ns 为空
+     */
+    public static void decode(InputStream in, Appendable out) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        long offset = readHeader(data);
+
+        out.append("frame_number,elapsed_ns,interval_ms,frame_duration_ms,exposure_ms\n");
+        StringBuilder sb = new StringBuilder(96);
+        long last = -1;
+        try {
+            while (true) {
+                long frameNumber = data.readLong();
+                long ts = data.readLong();
+                int frameDuration = data.readInt();
+                int exposure = data.readInt();
+                sb.setLength(0);
+                sb.append(frameNumber).append(',');
+                if (ts >= 0) {
+                    sb.append(ts + offset).append(',');
+                    if (last >= 0) sb.append(String.format(Locale.US, "%.3f", (ts - last) / 1e6));
+                    last = ts;
+                } else {
+                    sb.append(',');
+                }
+                sb.append(',').append(String.format(Locale.US, "%.3f", frameDuration / 1e6));
+                sb.append(',').append(String.format(Locale.US, "%.3f", exposure / 1e6));
+                out.append(sb).append('\n');
+            }
+        } catch (EOFException e) {
+            // 文件结束（录制中断时最后一条可能不完整）
+        }
+    }
+
+    /**
+     * 读出旁路文件中成功采集的各帧时间（已换算到 elapsedRealtimeNanos），按记录顺序
+     */
+    public static long[] readFrameNanos(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        long offset = readHeader(data);
+        long[] frames = new long[1024];
+        int n = 0;
+        try {
+            while (true) {
+                data.readLong();   // 帧号
+                long ts = data.readLong();
+                data.readLong();   // 帧时长、曝光时间
+                if (ts < 0) continue;
+                if (n == frames.length) frames = Arrays.copyOf(frames, n * 2);
+                frames[n++] = ts + offset;
+            }
+        } catch (EOFException e) {
+            // 文件结束
+        }
+        return Arrays.copyOf(frames, n);
+    }
+
+    // 校验文件头，返回传感器时钟到 elapsedRealtimeNanos 的偏移
+    private static long readHeader(DataInputStream data) throws IOException {
+        if (data.readInt() != FILE_MAGIC) throw new IOException("不是帧时间戳文件");
+        int version = data.readInt();
+        if (version != FILE_VERSION) throw new IOException("不支持的帧时间戳文件版本: " + version);
+        data.readInt();   // 时间戳来源
+        data.readInt();
+        data.readLong();  // 墙上时间
+        return data.readLong() - data.readLong();
+    }
+
+    private static void putLong(byte[] b, int off, long v) {
+        for (int i = 0; i < 8; i++) b[off + i] = (byte) (v >>> (56 - 8 * i));
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) v = (v << 8) | (b[off + i] & 0xFF);
+        return v;
+    }
+
+    private static void putInt(byte[] b, int off, int v) {
+        b[off] = (byte) (v >>> 24);
+        b[off + 1] = (byte) (v >>> 16);
+        b[off + 2] = (byte) (v >>> 8);
+        b[off + 3] = (byte) v;
+    }
+}
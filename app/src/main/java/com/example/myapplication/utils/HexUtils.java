@@ -1,41 +1,168 @@
 package com.example.myapplication.utils;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 /**
  * 十六进制工具类：蓝牙数据转换
+ * 编解码均为查表实现；带 off/len 的重载直接写入调用方提供的缓冲区，不产生临时对象
  */
 public class HexUtils {
+
+    private static final char[] HEX_UPPER = "0123456789ABCDEF".toCharArray();
+
+    // 字符 -> 半字节；SEPARATOR 表示可跳过的分隔符，INVALID 表示非法字符
+    private static final byte INVALID = -1;
+    private static final byte SEPARATOR = -2;
+    private static final byte[] NIBBLE = new byte[128];
+
+    static {
+        java.util.Arrays.fill(NIBBLE, INVALID);
+        for (int i = 0; i < 10; i++) NIBBLE['0' + i] = (byte) i;
+        for (int i = 0; i < 6; i++) {
+            NIBBLE['A' + i] = (byte) (10 + i);
+            NIBBLE['a' + i] = (byte) (10 + i);
+        }
+        NIBBLE[' '] = SEPARATOR;
+        NIBBLE['\t'] = SEPARATOR;
+        NIBBLE['\r'] = SEPARATOR;
+        NIBBLE['\n'] = SEPARATOR;
+    }
+
     /**
-     * 字节数组转十六进制字符串
+     * 字节数组转十六进制字符串（大写、空格分隔，如 "FF FE 0B"）
      */
     public static String bytesToHex(byte[] bytes) {
         if (bytes == null || bytes.length == 0) {
             return "";
         }
-        StringBuilder sb = new StringBuilder();
-        for (byte b : bytes) {
-            String hex = Integer.toHexString(b & 0xFF);
-            if (hex.length() == 1) {
-                sb.append("0");
-            }
-            sb.append(hex.toUpperCase()).append(" ");
+        return bytesToHex(bytes, 0, bytes.length);
+    }
+
+    public static String bytesToHex(byte[] bytes, int off, int len) {
+        if (len <= 0) {
+            return "";
         }
-        return sb.toString().trim();
+        char[] out = new char[encodedLength(len, true)];
+        encode(bytes, off, len, out, 0, true);
+        return new String(out);
+    }
+
+    /**
+     * 编码后的字符数；spaced 为 true 时字节之间有一个空格
+     */
+    public static int encodedLength(int byteCount, boolean spaced) {
+        if (byteCount <= 0) return 0;
+        return spaced ? byteCount * 3 - 1 : byteCount * 2;
     }
 
     /**
-     * 十六进制字符串转字节数组
+     * 编码到调用方提供的 char[]，返回写入的字符数
+     */
+    public static int encode(byte[] src, int off, int len, char[] dst, int dstOff, boolean spaced) {
+        int p = dstOff;
+        for (int i = 0; i < len; i++) {
+            if (spaced && i > 0) dst[p++] = ' ';
+            int v = src[off + i] & 0xFF;
+            dst[p++] = HEX_UPPER[v >>> 4];
+            dst[p++] = HEX_UPPER[v & 0x0F];
+        }
+        return p - dstOff;
+    }
+
+    public static StringBuilder appendHex(StringBuilder sb, byte[] src, int off, int len, boolean spaced) {
+        sb.ensureCapacity(sb.length() + encodedLength(len, spaced));
+        for (int i = 0; i < len; i++) {
+            if (spaced && i > 0) sb.append(' ');
+            int v = src[off + i] & 0xFF;
+            sb.append(HEX_UPPER[v >>> 4]).append(HEX_UPPER[v & 0x0F]);
+        }
+        return sb;
+    }
+
+    public static Appendable appendHex(Appendable out, byte[] src, int off, int len, boolean spaced)
+            throws IOException {
+        for (int i = 0; i < len; i++) {
+            if (spaced && i > 0) out.append(' ');
+            int v = src[off + i] & 0xFF;
+            out.append(HEX_UPPER[v >>> 4]).append(HEX_UPPER[v & 0x0F]);
+        }
+        return out;
+    }
+
+    /**
+     * 十六进制字符串转字节数组（有无空格/换行分隔均可，大小写均可；末尾落单的半字节忽略）
+     * 注意：旧实现不检查非法字符，会解出错误的字节；现在遇到非法字符直接抛异常，调用方需要处理
+     *
+     * @throws IllegalArgumentException 遇到既不是十六进制数字也不是空白的字符
      */
     public static byte[] hexToBytes(String hexStr) {
         if (hexStr == null || hexStr.isEmpty()) {
             return new byte[0];
         }
-        hexStr = hexStr.replaceAll(" ", "");
-        int len = hexStr.length();
-        byte[] bytes = new byte[len / 2];
-        for (int i = 0; i < len; i += 2) {
-            bytes[i / 2] = (byte) ((Character.digit(hexStr.charAt(i), 16) << 4)
-                    + Character.digit(hexStr.charAt(i + 1), 16));
-        }
+        byte[] bytes = new byte[decodedLength(hexStr, 0, hexStr.length())];
+        decode(hexStr, 0, hexStr.length(), bytes, 0);
         return bytes;
     }
-}
\ No newline at end of file
+
+    /**
+     * 区间内可解码出的字节数（只数十六进制数字，末尾落单的半字节不计）
+     */
+    public static int decodedLength(CharSequence src, int off, int len) {
+        int digits = 0;
+        for (int i = off; i < off + len; i++) {
+            char c = src.charAt(i);
+            if (c < 128 && NIBBLE[c] >= 0) digits++;
+        }
+        return digits / 2;
+    }
+
+    /**
+     * 解码到调用方提供的 byte[]，返回写入的字节数
+     *
+     * @throws IllegalArgumentException 遇到既不是十六进制数字也不是空白的字符
+     */
+    public static int decode(CharSequence src, int off, int len, byte[] dst, int dstOff) {
+        int p = dstOff;
+        int hi = -1;
+        for (int i = off; i < off + len; i++) {
+            int n = nibble(src.charAt(i));
+            if (n == SEPARATOR) continue;
+            if (hi < 0) {
+                hi = n;
+            } else {
+                dst[p++] = (byte) ((hi << 4) | n);
+                hi = -1;
+            }
+        }
+        return p - dstOff;
+    }
+
+    /**
+     * 解码到 ByteBuffer 的当前位置，返回写入的字节数
+     */
+    public static int decode(CharSequence src, int off, int len, ByteBuffer dst) {
+        int written = 0;
+        int hi = -1;
+        for (int i = off; i < off + len; i++) {
+            int n = nibble(src.charAt(i));
+            if (n == SEPARATOR) continue;
+            if (hi < 0) {
+                hi = n;
+            } else {
+                dst.put((byte) ((hi << 4) | n));
+                written++;
+                hi = -1;
+            }
+        }
+        return written;
+    }
+
+    private static int nibble(char c) {
+        int n = c < 128 ? NIBBLE[c] : INVALID;
+        if (n == INVALID) {
+            throw new IllegalArgumentException("非法十六进制字符: '" + c + "'");
+        }
+        return n;
+    }
+}
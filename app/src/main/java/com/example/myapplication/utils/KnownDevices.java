@@ -0,0 +1,78 @@
+package com.example.myapplication.utils;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 连接过的血氧仪（SharedPreferences 持久化）：
+ * 上次使用的一组设备地址，以及每台设备的名称，启动时可不扫描直接连接
+ */
+public class KnownDevices {
+    private static final String PREFS_NAME = "known_devices";
+    private static final String KEY_LAST_ADDRESSES = "last_addresses";
+    private static final String KEY_KNOWN_ADDRESSES = "known_addresses";
+    private static final String KEY_NAME_PREFIX = "name_";
+
+    private final SharedPreferences mPrefs;
+
+    public KnownDevices(Context context) {
+        mPrefs = context.getApplicationContext().getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * 上次使用的设备地址（按选择顺序），没有时为空列表
+     */
+    public List<String> getLastAddresses() {
+        String joined = mPrefs.getString(KEY_LAST_ADDRESSES, "");
+        List<String> addresses = new ArrayList<>();
+        for (String address : joined.split(",")) {
+            if (BluetoothUtils.isBluetoothAddressValid(address)) addresses.add(address);
+        }
+        return addresses;
+    }
+
+    /**
+     * 记住本次选择的设备，下次启动直接连接
+     */
+    public void setLastAddresses(List<String> addresses) {
+        mPrefs.edit().putString(KEY_LAST_ADDRESSES, String.join(",", addresses)).apply();
+    }
+
+    /**
+     * 所有连接成功过的设备地址
+     */
+    public Set<String> getKnownAddresses() {
+        return new HashSet<>(mPrefs.getStringSet(KEY_KNOWN_ADDRESSES, new HashSet<>()));
+    }
+
+    /**
+     * 连接成功时记下设备及名称
+     */
+    public void onConnected(String address, String name) {
+        Set<String> known = getKnownAddresses();
+        SharedPreferences.Editor editor = mPrefs.edit();
+        if (known.add(address)) editor.putStringSet(KEY_KNOWN_ADDRESSES, known);
+        if (name != null && !name.isEmpty()) editor.putString(KEY_NAME_PREFIX + address, name);
+        editor.apply();
+    }
+
+    /**
+     * 连接过的设备名称，未知时为 null
+     */
+    public String getName(String address) {
+        return mPrefs.getString(KEY_NAME_PREFIX + address, null);
+    }
+
+    /**
+     * 上次使用的设备中是否包含该地址
+     */
+    public boolean isLastUsed(String address) {
+        return Arrays.asList(mPrefs.getString(KEY_LAST_ADDRESSES, "").split(",")).contains(address);
+    }
+}
@@ -1,33 +1,74 @@
 package com.example.myapplication.utils;
 
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.Locale;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 
 /**
  * 时间工具类：提供各种格式的时间戳
+ * 各格式缓存到秒为止的前缀，同一秒内只拼接毫秒部分；带 StringBuilder 的重载直接追加，不产生临时对象
+ * 所有方法线程安全
  */
 public class TimeUtils {
 
+    // 格式：2025-04-05 15:22:33.456
+    private static final CachedFormat PRECISE = new CachedFormat("yyyy-MM-dd HH:mm:ss", '.');
+    // 格式：20250405152233456
+    private static final CachedFormat FILE_NAME = new CachedFormat("yyyyMMddHHmmss", CachedFormat.NO_SEPARATOR);
+    // 格式：20250405_152233
+    private static final CachedFormat SIMPLE = new CachedFormat("yyyyMMdd_HHmmss", CachedFormat.NO_MILLIS);
+    // 格式：2025年04月05日 15:22:33
+    private static final CachedFormat CHINESE = new CachedFormat("yyyy年MM月dd日 HH:mm:ss", CachedFormat.NO_MILLIS);
+
     /**
      * 获取精确到毫秒的时间戳（用于日志、时间戳对齐）
      * 格式：2025-04-05 15:22:33.456
      */
     public static String getPreciseTimeStamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat(
-                "yyyy-MM-dd HH:mm:ss.SSS", Locale.getDefault());
-        return sdf.format(new Date());
+        return getPreciseTimeStamp(System.currentTimeMillis());
+    }
+
+    /**
+     * 指定时刻的毫秒精度时间戳，格式同 getPreciseTimeStamp()
+     *
+     * @param epochMillis System.currentTimeMillis() 格式的时刻
+     */
+    public static String getPreciseTimeStamp(long epochMillis) {
+        return PRECISE.format(epochMillis);
+    }
+
+    /**
+     * 纳秒时刻（自 1970-01-01 起）的时间戳，截断到毫秒，格式同 getPreciseTimeStamp()
+     */
+    public static String getPreciseTimeStampNanos(long epochNanos) {
+        return PRECISE.format(Math.floorDiv(epochNanos, 1_000_000L));
+    }
+
+    /**
+     * 把时间戳追加到 sb，格式同 getPreciseTimeStamp()
+     */
+    public static StringBuilder appendPreciseTimeStamp(StringBuilder sb, long epochMillis) {
+        return PRECISE.append(sb, epochMillis);
+    }
+
+    public static StringBuilder appendPreciseTimeStampNanos(StringBuilder sb, long epochNanos) {
+        return PRECISE.append(sb, Math.floorDiv(epochNanos, 1_000_000L));
     }
 
     /**
-     /**
      * 获取用于文件名的超精准时间戳（毫秒级，永不重复）
      * 格式：20250405152233456
      */
     public static String getFileNameTimeStamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat(
-                "yyyyMMddHHmmssSSS", Locale.getDefault());
-        return sdf.format(new Date());
+        return getFileNameTimeStamp(System.currentTimeMillis());
+    }
+
+    public static String getFileNameTimeStamp(long epochMillis) {
+        return FILE_NAME.format(epochMillis);
+    }
+
+    public static StringBuilder appendFileNameTimeStamp(StringBuilder sb, long epochMillis) {
+        return FILE_NAME.append(sb, epochMillis);
     }
 
     /**
@@ -35,9 +76,15 @@ public class TimeUtils {
      * 格式：20250405_152233
      */
     public static String getSimpleTimeStamp() {
-        SimpleDateFormat sdf = new SimpleDateFormat(
-                "yyyyMMdd_HHmmss", Locale.getDefault());
-        return sdf.format(new Date());
+        return getSimpleTimeStamp(System.currentTimeMillis());
+    }
+
+    public static String getSimpleTimeStamp(long epochMillis) {
+        return SIMPLE.format(epochMillis);
+    }
+
+    public static StringBuilder appendSimpleTimeStamp(StringBuilder sb, long epochMillis) {
+        return SIMPLE.append(sb, epochMillis);
     }
 
     /**
@@ -45,8 +92,67 @@ public class TimeUtils {
      * 格式：2025年04月05日 15:22:33
      */
     public static String getCurrentTime() {
-        SimpleDateFormat sdf = new SimpleDateFormat(
-                "yyyy年MM月dd日 HH:mm:ss", Locale.CHINA);
-        return sdf.format(new Date());
+        return getCurrentTime(System.currentTimeMillis());
+    }
+
+    public static String getCurrentTime(long epochMillis) {
+        return CHINESE.format(epochMillis);
+    }
+
+    public static StringBuilder appendCurrentTime(StringBuilder sb, long epochMillis) {
+        return CHINESE.append(sb, epochMillis);
+    }
+
+    /**
+     * 秒级前缀缓存的格式：前缀用 DateTimeFormatter（线程安全）渲染，每秒最多一次；
+     * 缓存为不可变对象，通过 volatile 发布，并发时最多重复渲染一次
+     * 时区在渲染新的一秒时读取，系统改时区后从下一秒起生效
+     */
+    private static final class CachedFormat {
+        static final char NO_SEPARATOR = 0;
+        static final char NO_MILLIS = 1;
+
+        private final DateTimeFormatter formatter;
+        private final char millisSeparator;
+        private volatile Prefix cache = new Prefix(Long.MIN_VALUE, "");
+
+        CachedFormat(String secondPattern, char millisSeparator) {
+            this.formatter = DateTimeFormatter.ofPattern(secondPattern);
+            this.millisSeparator = millisSeparator;
+        }
+
+        String format(long epochMillis) {
+            String prefix = prefix(Math.floorDiv(epochMillis, 1000L));
+            if (millisSeparator == NO_MILLIS) return prefix;
+            return append(new StringBuilder(prefix.length() + 4), epochMillis).toString();
+        }
+
+        StringBuilder append(StringBuilder sb, long epochMillis) {
+            sb.append(prefix(Math.floorDiv(epochMillis, 1000L)));
+            if (millisSeparator == NO_MILLIS) return sb;
+            if (millisSeparator != NO_SEPARATOR) sb.append(millisSeparator);
+            int ms = (int) Math.floorMod(epochMillis, 1000L);
+            return sb.append((char) ('0' + ms / 100))
+                    .append((char) ('0' + ms / 10 % 10))
+                    .append((char) ('0' + ms % 10));
+        }
+
+        private String prefix(long epochSecond) {
+            Prefix p = cache;
+            if (p.epochSecond == epochSecond) return p.text;
+            String text = formatter.format(Instant.ofEpochSecond(epochSecond).atZone(ZoneId.systemDefault()));
+            cache = new Prefix(epochSecond, text);
+            return text;
+        }
+    }
+
+    private static final class Prefix {
+        final long epochSecond;
+        final String text;
+
+        Prefix(long epochSecond, String text) {
+            this.epochSecond = epochSecond;
+            this.text = text;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,252 @@
+package com.example.myapplication.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * 蓝牙跟踪记录器：固定大小的二进制环形缓冲区，按时间顺序记录原始通知和事件，写满后覆盖最旧的记录
+ * 记录时只做字节拷贝，不格式化、不分配对象；需要排查现场问题时再整体导出到文件，离线用 decode() 转成文本
+ *
+ * 记录格式（16 字节头 + 负载）：类型(低 4 位)|级别(高 4 位) 1B、来源 1B、负载长度 2B、事件码 4B、时间戳 8B
+ * 原始通知的负载为通知字节，事件的负载为两个 long 参数
+ *
+ * 所有方法线程安全（短临界区内只有数组拷贝）
+ */
+public final class TraceRecorder {
+
+    // 级别与 android.util.Log 一致
+    public static final int VERBOSE = 2;
+    public static final int DEBUG = 3;
+    public static final int INFO = 4;
+    public static final int WARN = 5;
+    public static final int ERROR = 6;
+
+    public static final int TYPE_RAW = 1;
+    public static final int TYPE_EVENT = 2;
+
+    // 事件码
+    public static final int EV_CONNECTED = 1;
+    public static final int EV_CONNECT_FAILED = 2;
+    public static final int EV_LINK_LOST = 3;
+    public static final int EV_RECONNECTED = 4;
+    public static final int EV_DISCONNECTED = 5;
+    public static final int EV_AWAKE = 6;
+    public static final int EV_RESUMED = 7;
+    public static final int EV_HANDSHAKE_FAILED = 8;
+    public static final int EV_CHECKSUM_ERROR = 9;
+    public static final int EV_PARSE_ERROR = 10;
+    public static final int EV_NOTIFY_FAILED = 11;
+
+    private static final String[] EVENT_NAMES = {
+            "?", "CONNECTED", "CONNECT_FAILED", "LINK_LOST", "RECONNECTED", "DISCONNECTED",
+            "AWAKE", "RESUMED", "HANDSHAKE_FAILED", "CHECKSUM_ERROR", "PARSE_ERROR", "NOTIFY_FAILED"
+    };
+
+    private static final int HEADER_SIZE = 16;
+    private static final int MAX_PAYLOAD = 0xFFFF;
+    private static final int FILE_MAGIC = 0x4F585452;   // "OXTR"
+    private static final int FILE_VERSION = 1;
+
+    private final byte[] ring;
+    private final int mask;
+    private final byte[] scratch = new byte[HEADER_SIZE];
+    private volatile int level = DEBUG;
+
+    // 绝对偏移：head 为下一条写入位置，tail 为最旧一条完整记录的起点
+    private long head = 0;
+    private long tail = 0;
+    private long recordCount = 0;
+    private long overwrittenCount = 0;
+
+    /**
+     * @param capacityBytes 缓冲区大小，向上取整为 2 的幂
+     */
+    public TraceRecorder(int capacityBytes) {
+        int capacity = Integer.highestOneBit(Math.max(HEADER_SIZE * 4, capacityBytes - 1)) << 1;
+        this.ring = new byte[capacity];
+        this.mask = capacity - 1;
+    }
+
+    /** 低于该级别的记录直接丢弃（默认 DEBUG：原始通知和所有事件都记） */
+    public void setLevel(int level) { this.level = level; }
+
+    public int getLevel() { return level; }
+
+    public boolean isLoggable(int level) { return level >= this.level; }
+
+    /** 记一个原始通知（DEBUG 级别），超过 64KB 的部分截断 */
+    public void raw(int source, byte[] buf, int off, int len, long timestampNanos) {
+        if (DEBUG < level) return;
+        len = Math.min(len, MAX_PAYLOAD);
+        synchronized (this) {
+            if (!reserve(HEADER_SIZE + len)) return;
+            putHeader(TYPE_RAW, DEBUG, source, len, 0, timestampNanos);
+            put(buf, off, len);
+        }
+    }
+
+    /** 记一个事件，a、b 为事件相关的参数（含义见各事件码的调用处） */
+    public void event(int source, int level, int code, long a, long b, long timestampNanos) {
+        if (level < this.level) return;
+        synchronized (this) {
+            if (!reserve(HEADER_SIZE + 16)) return;
+            putHeader(TYPE_EVENT, level, source, 16, code, timestampNanos);
+            putLong(a);
+            putLong(b);
+        }
+    }
+
+    /** 累计写入的记录数（含已被覆盖的） */
+    public synchronized long getRecordCount() { return recordCount; }
+
+    /** 因缓冲区写满被覆盖的记录数 */
+    public synchronized long getOverwrittenCount() { return overwrittenCount; }
+
+    /** 当前保留的字节数 */
+    public synchronized int getRetainedBytes() { return (int) (head - tail); }
+
+    public synchronized void clear() {
+        head = tail = 0;
+        recordCount = overwrittenCount = 0;
+    }
+
+    /**
+     * 导出当前保留的全部记录（从旧到新）：文件头为魔数、版本、导出时的墙上时间和单调时钟（用于换算记录时间）、
+     * 被覆盖的记录数和保留字节数，之后是原样的记录
+     */
+    public void dump(OutputStream out, long wallClockMillis, long monotonicNanos) throws IOException {
+        byte[] copy;
+        long overwritten;
+        synchronized (this) {
+            int n = (int) (head - tail);
+            copy = new byte[n];
+            int start = (int) (tail & mask);
+            int first = Math.min(n, ring.length - start);
+            System.arraycopy(ring, start, copy, 0, first);
+            System.arraycopy(ring, 0, copy, first, n - first);
+            overwritten = overwrittenCount;
+        }
+        DataOutputStream data = new DataOutputStream(out);
+        data.writeInt(FILE_MAGIC);
+        data.writeInt(FILE_VERSION);
+        data.writeLong(wallClockMillis);
+        data.writeLong(monotonicNanos);
+        data.writeLong(overwritten);
+        data.writeInt(copy.length);
+        data.write(copy);
+        data.flush();
+    }
+
+    /** 导出到文件，返回写入的字节数 */
+    public long dump(File file, long wallClockMillis, long monotonicNanos) throws IOException {
+        File dir = file.getParentFile();
+        if (dir != null && !dir.exists() && !dir.mkdirs()) {
+            throw new IOException("无法创建目录: " + dir);
+        }
+        try (OutputStream out = new BufferedOutputStream(new FileOutputStream(file))) {
+            dump(out, wallClockMillis, monotonicNanos);
+        }
+        return file.length();
+    }
+
+    /**
+     * 把导出的文件转成文本，每条记录一行：
+     * 相对导出时刻的秒数、来源、类型（原始通知为十六进制字节，事件为名称和两个参数）
+     */
+    public static void decode(InputStream in, Appendable out) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        if (data.readInt() != FILE_MAGIC) throw new IOException("不是跟踪文件");
+        int version = data.readInt();
+        if (version != FILE_VERSION) throw new IOException("不支持的跟踪文件版本: " + version);
+        long wallClockMillis = data.readLong();
+        long dumpNanos = data.readLong();
+        long overwritten = data.readLong();
+        int remaining = data.readInt();
+        out.append("# dump_wall_clock_ms=").append(Long.toString(wallClockMillis))
+                .append(" overwritten=").append(Long.toString(overwritten)).append('\n');
+
+        StringBuilder sb = new StringBuilder(256);
+        byte[] payload = new byte[MAX_PAYLOAD];
+        try {
+            while (remaining >= HEADER_SIZE) {
+                int typeLevel = data.readUnsignedByte();
+                int source = data.readUnsignedByte();
+                int len = data.readUnsignedShort();
+                int code = data.readInt();
+                long ts = data.readLong();
+                data.readFully(payload, 0, len);
+                remaining -= HEADER_SIZE + len;
+
+                sb.setLength(0);
+                sb.append(String.format(java.util.Locale.US, "%+.6f", (ts - dumpNanos) / 1e9));
+                sb.append(" [").append(source).append("] ");
+                sb.append("VDIWE".charAt(Math.max(0, Math.min(4, (typeLevel >>> 4) - VERBOSE)))).append(' ');
+                if ((typeLevel & 0x0F) == TYPE_RAW) {
+                    sb.append("RAW ").append(len).append(' ');
+                    HexUtils.appendHex(sb, payload, 0, len, true);
+                } else {
+                    sb.append(code > 0 && code < EVENT_NAMES.length ? EVENT_NAMES[code] : "EVENT_" + code);
+                    sb.append(' ').append(getLong(payload, 0)).append(' ').append(getLong(payload, 8));
+                }
+                out.append(sb).append('\n');
+            }
+        } catch (EOFException e) {
+            out.append("# truncated\n");
+        }
+    }
+
+    // ====================== 环形缓冲区 ======================
+
+    // 持锁调用：腾出 n 字节，必要时丢弃最旧的记录
+    private boolean reserve(int n) {
+        if (n > ring.length) return false;
+        while (head + n - tail > ring.length) {
+            int len = ((ring[(int) ((tail + 2) & mask)] & 0xFF) << 8) | (ring[(int) ((tail + 3) & mask)] & 0xFF);
+            tail += HEADER_SIZE + len;
+            overwrittenCount++;
+        }
+        recordCount++;
+        return true;
+    }
+
+    private void putHeader(int type, int level, int source, int len, int code, long ts) {
+        byte[] h = scratch;
+        h[0] = (byte) (type | (level << 4));
+        h[1] = (byte) source;
+        h[2] = (byte) (len >>> 8);
+        h[3] = (byte) len;
+        h[4] = (byte) (code >>> 24);
+        h[5] = (byte) (code >>> 16);
+        h[6] = (byte) (code >>> 8);
+        h[7] = (byte) code;
+        for (int i = 0; i < 8; i++) h[8 + i] = (byte) (ts >>> (56 - 8 * i));
+        put(h, 0, HEADER_SIZE);
+    }
+
+    private void putLong(long v) {
+        byte[] h = scratch;
+        for (int i = 0; i < 8; i++) h[i] = (byte) (v >>> (56 - 8 * i));
+        put(h, 0, 8);
+    }
+
+    private void put(byte[] src, int off, int len) {
+        int start = (int) (head & mask);
+        int first = Math.min(len, ring.length - start);
+        System.arraycopy(src, off, ring, start, first);
+        System.arraycopy(src, off + first, ring, 0, len - first);
+        head += len;
+    }
+
+    private static long getLong(byte[] b, int off) {
+        long v = 0;
+        for (int i = 0; i < 8; i++) v = (v << 8) | (b[off + i] & 0xFF);
+        return v;
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.myapplication.ble;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class DiscoveredDevicesTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    public void repeatedResultsUpdateOneEntry() {
+        DiscoveredDevices devices = new DiscoveredDevices(5000);
+        assertTrue(devices.update("AA:00:00:00:00:01", "PC-60F", -70, 0));
+        assertFalse(devices.update("AA:00:00:00:00:01", null, -60, 10 * MS));
+
+        DiscoveredDevices.Device d = devices.get("AA:00:00:00:00:01");
+        assertEquals(1, devices.size());
+        assertEquals(2, d.getSeenCount());
+        assertEquals(-60, d.getRssi());
+        // 没有名称的广播不覆盖已知名称
+        assertEquals("PC-60F", d.getName());
+        assertEquals(0, devices.getLastNewDeviceNanos());
+    }
+
+    @Test
+    public void snapshotSortsBySignalAndSinksStaleDevices() {
+        DiscoveredDevices devices = new DiscoveredDevices(5000);
+        devices.setKnownAddresses(Collections.singleton("AA:00:00:00:00:03"));
+        devices.update("AA:00:00:00:00:01", null, -80, 0);
+        devices.update("AA:00:00:00:00:02", null, -50, 0);
+        devices.update("AA:00:00:00:00:03", null, -65, 0);
+        devices.update("AA:00:00:00:00:01", null, -80, 6000 * MS);
+        devices.update("AA:00:00:00:00:03", null, -65, 6000 * MS);
+
+        assertTrue(devices.isDirty());
+        List<DiscoveredDevices.Device> list = devices.snapshot(6000 * MS);
+        assertFalse(devices.isDirty());
+        // 02 信号最强但已 6 秒未出现，排到最后
+        assertEquals("AA:00:00:00:00:03", list.get(0).getAddress());
+        assertEquals("AA:00:00:00:00:01", list.get(1).getAddress());
+        assertEquals("AA:00:00:00:00:02", list.get(2).getAddress());
+        assertTrue(list.get(0).isKnown());
+        assertFalse(list.get(1).isKnown());
+    }
+
+    @Test
+    public void singleOutlierReadingDoesNotReorder() {
+        DiscoveredDevices devices = new DiscoveredDevices(5000);
+        devices.update("AA:00:00:00:00:01", null, -60, 0);
+        devices.update("AA:00:00:00:00:02", null, -66, 0);
+        // 一次偶然的强读数只按比例拉近平滑值
+        devices.update("AA:00:00:00:00:02", null, -50, MS);
+
+        List<DiscoveredDevices.Device> list = devices.snapshot(MS);
+        assertEquals("AA:00:00:00:00:01", list.get(0).getAddress());
+        assertEquals(-50, list.get(1).getRssi());
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.myapplication.ble;
+
+import com.example.myapplication.model.LinkParameters;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用假链路和手动定时器驱动队列：合并、超时、拒绝、清空，以及每个结局只计数一次
+ */
+public class GattOperationQueueTest {
+
+    /** 记录发起的写入；链路调用时不应持有队列锁 */
+    private static final class FakeTransport implements OximeterTransport {
+        final List<String> ops = new ArrayList<>();
+        GattOperationQueue queue;
+        boolean accept = true;
+
+        @Override
+        public void connect(String deviceAddress, Callback callback) {}
+
+        @Override
+        public boolean enableNotifications(boolean enable) {
+            assertFalse(Thread.holdsLock(queue));
+            ops.add("cccd " + enable);
+            return accept;
+        }
+
+        @Override
+        public boolean write(byte[] data, boolean withResponse) {
+            assertFalse(Thread.holdsLock(queue));
+            StringBuilder sb = new StringBuilder(withResponse ? "w" : "nr");
+            for (byte b : data) sb.append(' ').append(b);
+            ops.add(sb.toString());
+            return accept;
+        }
+
+        @Override
+        public boolean requestConnectionPriority(boolean high) { return true; }
+
+        @Override
+        public LinkParameters getLinkParameters() { return null; }
+
+        @Override
+        public void disconnect() {}
+    }
+
+    private final ManualScheduler timer = new ManualScheduler();
+    private final FakeTransport link = new FakeTransport();
+    private final GattOperationQueue queue = new GattOperationQueue(link, timer, timer::now).setOpTimeoutMs(1000);
+    private final List<String> results = new ArrayList<>();
+
+    {
+        link.queue = queue;
+    }
+
+    private GattOperationQueue.Completion record(String name) {
+        return ok -> results.add(name + (ok ? " ok" : " fail"));
+    }
+
+    private void assertOutcomes(long completed, long failed, long timeout, long rejected, long cancelled) {
+        assertEquals(completed, queue.getCompletedOps());
+        assertEquals(failed, queue.getFailedOps());
+        assertEquals(timeout, queue.getTimeoutOps());
+        assertEquals(rejected, queue.getRejectedOps());
+        assertEquals(cancelled, queue.getCancelledOps());
+    }
+
+    @Test
+    public void mergesAdjacentNoResponseWritesUpToMaxLength() {
+        queue.setMaxWriteLength(3);
+        queue.write(new byte[]{9}, record("cmd"));
+        queue.writeNoResponse(new byte[]{1}, 5, record("wake"));
+        queue.write(new byte[]{8}, record("cmd2"));
+        assertEquals(7, queue.getDepth());
+        assertEquals(1, link.ops.size());
+
+        timer.advance(10);
+        queue.onWriteComplete(true);
+        assertEquals("nr 1 1 1", link.ops.get(1));
+        queue.onWriteComplete(true);
+        assertEquals("nr 1 1", link.ops.get(2));
+        queue.onWriteComplete(true);
+        assertEquals("w 8", link.ops.get(3));
+        queue.onWriteComplete(true);
+
+        assertEquals(4, queue.getLinkOps());
+        assertEquals(3, queue.getMergedWrites());
+        assertEquals(7, results.size());
+        assertEquals("cmd ok", results.get(0));
+        assertEquals("cmd2 ok", results.get(6));
+        assertOutcomes(7, 0, 0, 0, 0);
+        assertEquals(0, queue.getDepth());
+        assertEquals(7, queue.getMaxDepth());
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    public void timeoutFailsCurrentAndStartsNext() {
+        queue.write(new byte[]{1}, record("a"));
+        queue.enableNotifications(true, record("b"));
+        timer.advance(999);
+        assertTrue(results.isEmpty());
+        timer.advance(1);
+        assertEquals("a fail", results.get(0));
+        assertEquals("cccd true", link.ops.get(1));
+
+        // 超时后才到的完成回调类型不符，忽略；描述符完成正常结束
+        queue.onWriteComplete(true);
+        assertEquals(1, results.size());
+        queue.onDescriptorWriteComplete(false);
+        assertEquals("b fail", results.get(1));
+        assertOutcomes(0, 1, 1, 0, 0);
+        assertEquals(-1, queue.getMeanLatencyNanos());
+    }
+
+    @Test
+    public void rejectedOpsFailImmediatelyAndQueueContinues() {
+        queue.write(new byte[]{1}, record("a"));
+        queue.write(new byte[]{2}, record("b"));
+        queue.write(new byte[]{3}, record("c"));
+        link.accept = false;
+        // a 完成后 b、c 依次被链路拒绝，同一次调用内结束
+        queue.onWriteComplete(true);
+        assertEquals(3, link.ops.size());
+        assertEquals("b fail", results.get(1));
+        assertEquals("c fail", results.get(2));
+        assertEquals(0, queue.getDepth());
+        assertEquals(0, timer.pendingCount());
+
+        link.accept = true;
+        queue.write(new byte[]{4}, record("d"));
+        assertEquals("w 4", link.ops.get(3));
+        queue.onWriteComplete(true);
+        assertEquals("d ok", results.get(3));
+        assertOutcomes(2, 0, 0, 2, 0);
+    }
+
+    @Test
+    public void clearCancelsInFlightAndPendingOnce() {
+        queue.write(new byte[]{1}, record("a"));
+        queue.writeNoResponse(new byte[]{2}, record("b"));
+        queue.write(new byte[]{3}, record("c"));
+        queue.clear();
+
+        assertEquals(3, results.size());
+        for (String r : results) assertTrue(r, r.endsWith("fail"));
+        assertOutcomes(0, 0, 0, 0, 3);
+        assertEquals(0, queue.getDepth());
+        assertEquals(0, timer.pendingCount());
+
+        // 清空后迟到的完成回调和超时都不再计数
+        queue.onWriteComplete(true);
+        timer.advance(5000);
+        assertOutcomes(0, 0, 0, 0, 3);
+        assertEquals(3, results.size());
+    }
+
+    @Test
+    public void completionMaySubmitNextOp() {
+        queue.write(new byte[]{1}, ok -> queue.write(new byte[]{2}, record("second")));
+        queue.onWriteComplete(true);
+        assertEquals("w 2", link.ops.get(1));
+        queue.onWriteComplete(true);
+        assertEquals("second ok", results.get(0));
+        assertOutcomes(2, 0, 0, 0, 0);
+    }
+}
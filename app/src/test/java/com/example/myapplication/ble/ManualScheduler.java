@@ -0,0 +1,133 @@
+package com.example.myapplication.ble;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 测试用的手动时钟定时器：任务只在 advance() 推进时间时于调用线程上执行
+ * now() 可作为被测对象的单调时钟
+ */
+final class ManualScheduler extends AbstractExecutorService implements ScheduledExecutorService {
+
+    private final class Task implements ScheduledFuture<Object> {
+        final long dueNanos;
+        final long seq;
+        final Runnable runnable;
+        boolean cancelled;
+        boolean done;
+
+        Task(long dueNanos, long seq, Runnable runnable) {
+            this.dueNanos = dueNanos;
+            this.seq = seq;
+            this.runnable = runnable;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - nowNanos, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed o) {
+            Task t = (Task) o;
+            return dueNanos != t.dueNanos ? Long.compare(dueNanos, t.dueNanos) : Long.compare(seq, t.seq);
+        }
+
+        @Override
+        public boolean cancel(boolean mayInterruptIfRunning) {
+            if (done) return false;
+            cancelled = true;
+            tasks.remove(this);
+            return true;
+        }
+
+        @Override
+        public boolean isCancelled() { return cancelled; }
+
+        @Override
+        public boolean isDone() { return done || cancelled; }
+
+        @Override
+        public Object get() { return null; }
+
+        @Override
+        public Object get(long timeout, TimeUnit unit) { return null; }
+    }
+
+    private final List<Task> tasks = new ArrayList<>();
+    private long nowNanos = 0;
+    private long seq = 0;
+
+    long now() { return nowNanos; }
+
+    /** 尚未执行且未取消的任务数 */
+    int pendingCount() { return tasks.size(); }
+
+    /** 推进时间，按到期顺序执行期间到期的任务（包括执行中新安排的） */
+    void advance(long ms) {
+        long target = nowNanos + TimeUnit.MILLISECONDS.toNanos(ms);
+        while (!tasks.isEmpty()) {
+            Task next = Collections.min(tasks);
+            if (next.dueNanos > target) break;
+            tasks.remove(next);
+            nowNanos = next.dueNanos;
+            next.done = true;
+            next.runnable.run();
+        }
+        nowNanos = target;
+    }
+
+    @Override
+    public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+        Task t = new Task(nowNanos + unit.toNanos(delay), seq++, command);
+        tasks.add(t);
+        return t;
+    }
+
+    @Override
+    public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        command.run();
+    }
+
+    @Override
+    public void shutdown() {
+        tasks.clear();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        tasks.clear();
+        return new ArrayList<>();
+    }
+
+    @Override
+    public boolean isShutdown() { return false; }
+
+    @Override
+    public boolean isTerminated() { return false; }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) { return true; }
+}
@@ -0,0 +1,82 @@
+package com.example.myapplication.ble;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * 环形缓冲区的回绕、满载丢弃和跨线程顺序
+ */
+public class NotificationRingBufferTest {
+
+    private static byte[] packet(int seq, int len) {
+        byte[] p = new byte[len];
+        for (int i = 0; i < len; i++) p[i] = (byte) (seq + i);
+        return p;
+    }
+
+    @Test
+    public void recordsStayContiguousAcrossWrap() {
+        NotificationRingBuffer ring = new NotificationRingBuffer(128);
+        int[] next = {0};
+        for (int seq = 0; seq < 200; seq++) {
+            int len = 1 + seq % 29;
+            assertTrue(ring.offer(packet(seq, len), 0, len, seq));
+            int drained = ring.drain((buf, off, l, ts) -> {
+                int s = (int) ts;
+                assertEquals(next[0], s);
+                assertArrayEquals(packet(s, 1 + s % 29), Arrays.copyOfRange(buf, off, off + l));
+                next[0]++;
+            }, 8);
+            assertEquals(1, drained);
+        }
+        assertTrue(ring.isEmpty());
+        assertEquals(0, ring.getDroppedCount());
+    }
+
+    @Test
+    public void dropsWhenFull() {
+        NotificationRingBuffer ring = new NotificationRingBuffer(64);
+        byte[] p = packet(0, 20);
+        assertTrue(ring.offer(p, 0, p.length, 0));
+        assertTrue(ring.offer(p, 0, p.length, 1));
+        assertFalse(ring.offer(p, 0, p.length, 2));
+        assertEquals(1, ring.getDroppedCount());
+
+        assertEquals(2, ring.drain((buf, off, len, ts) -> { }, 10));
+        assertTrue(ring.offer(p, 0, p.length, 3));
+    }
+
+    @Test
+    public void producerAndConsumerThreadsKeepOrder() throws Exception {
+        NotificationRingBuffer ring = new NotificationRingBuffer(1024);
+        int total = 50_000;
+        Thread producer = new Thread(() -> {
+            byte[] p = new byte[13];
+            for (int seq = 0; seq < total; ) {
+                p[0] = (byte) seq;
+                if (ring.offer(p, 0, 1 + seq % 13, seq)) {
+                    seq++;
+                } else {
+                    Thread.yield();
+                }
+            }
+        });
+        producer.start();
+
+        long[] expected = {0};
+        boolean[] ok = {true};
+        while (expected[0] < total) {
+            int n = ring.drain((buf, off, len, ts) -> {
+                if (ts != expected[0] || buf[off] != (byte) ts || len != 1 + ts % 13) ok[0] = false;
+                expected[0]++;
+            }, 64);
+            if (n == 0) Thread.yield();
+        }
+        producer.join();
+        assertTrue(ok[0]);
+        assertTrue(ring.isEmpty());
+    }
+}
@@ -0,0 +1,213 @@
+package com.example.myapplication.ble;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用假队列和手动定时器驱动握手状态机：唤醒轮次、写失败重试、总超时和重连恢复
+ */
+public class WakeHandshakeTest {
+
+    /** 只记录提交的命令，由测试决定何时、以什么结果完成 */
+    private static final class FakeQueue extends GattOperationQueue {
+        final List<byte[]> commands = new ArrayList<>();
+        // 每轮在命令之前发出的唤醒字节数，及每个唤醒字节的发送时间（毫秒）
+        final List<Integer> bursts = new ArrayList<>();
+        final List<Long> wakeTimesMs = new ArrayList<>();
+        final List<Completion> waiting = new ArrayList<>();
+        private final ManualScheduler timer;
+        private int burst;
+
+        FakeQueue(ManualScheduler timer) {
+            super(null, timer, timer::now);
+            this.timer = timer;
+        }
+
+        @Override
+        public void write(byte[] data, Completion completion) {
+            if (burst > 0) {
+                bursts.add(burst);
+                burst = 0;
+            }
+            commands.add(data.clone());
+            waiting.add(completion);
+        }
+
+        @Override
+        public void writeNoResponse(byte[] data, Completion completion) {
+            burst++;
+            wakeTimesMs.add(timer.now() / 1_000_000);
+            waiting.add(completion);
+        }
+
+        /** 按提交顺序完成所有未完成的写入 */
+        void completeAll(boolean ok) {
+            List<Completion> c = new ArrayList<>(waiting);
+            waiting.clear();
+            for (Completion completion : c) completion.onComplete(ok);
+        }
+
+        /** 按提交顺序逐个完成，results 依次为每个写入的结果 */
+        void complete(boolean... results) {
+            List<Completion> c = new ArrayList<>(waiting);
+            waiting.clear();
+            for (int i = 0; i < c.size(); i++) c.get(i).onComplete(results[i]);
+        }
+    }
+
+    private final ManualScheduler timer = new ManualScheduler();
+    private final FakeQueue queue = new FakeQueue(timer);
+    private final List<String> events = new ArrayList<>();
+    private final WakeHandshake handshake = new WakeHandshake(queue, timer, new WakeHandshake.Listener() {
+        @Override
+        public void onAwake(long elapsedNanos, int wakeBytesSent) {
+            events.add("awake " + elapsedNanos / 1_000_000 + "ms " + wakeBytesSent);
+        }
+
+        @Override
+        public void onFailed(String reason) {
+            events.add("failed " + reason);
+        }
+    }, timer::now).setResponseTimeoutMs(100).setTotalTimeoutMs(60_000);
+
+    /** 设备一直不响应：写入立即成功，每 10ms 推进一次，直到 untilMs */
+    private void runSilentUntil(long untilMs) {
+        while (timer.now() / 1_000_000 < untilMs) {
+            queue.completeAll(true);
+            timer.advance(10);
+        }
+        queue.completeAll(true);
+    }
+
+    @Test
+    public void wakeBytesAreSpacedWithinRound() {
+        handshake.start();
+        runSilentUntil(1500);
+        // 第一轮 1 个，等响应 100ms 后第二轮 4 个，轮内间隔 300ms
+        assertEquals(Arrays.asList(0L, 100L, 400L, 700L, 1000L, 1100L, 1400L), queue.wakeTimesMs);
+        assertEquals(Arrays.asList(1, 4), queue.bursts);
+        assertTrue(handshake.isRunning());
+    }
+
+    @Test
+    public void burstsGrowByFourUpToMaxWakeBytesAndKeepGoing() {
+        handshake.setMaxWakeBytes(30).start();
+        runSilentUntil(30_000);
+        // 单轮封顶 30 个，字节数超过 maxWakeBytes 后仍继续唤醒
+        assertEquals(Arrays.asList(1, 4, 16, 30, 30), queue.bursts);
+        assertTrue(handshake.isRunning());
+        assertTrue(events.isEmpty());
+    }
+
+    @Test
+    public void onlyTotalTimeoutEndsSilentHandshake() {
+        handshake.setTotalTimeoutMs(35_000).start();
+        runSilentUntil(34_990);
+        assertTrue(events.isEmpty());
+        assertTrue(queue.wakeTimesMs.size() > 100);
+        runSilentUntil(35_000);
+        assertEquals(Arrays.asList("failed 唤醒设备超时"), events);
+        assertFalse(handshake.isRunning());
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    public void deviceAnsweringAfterTwentySecondsIsWoken() {
+        handshake.setTotalTimeoutMs(35_000).start();
+        // 前三轮 1、4、16 个，第四轮 64 个从 5700ms 起每 300ms 一个
+        runSilentUntil(20_000);
+        assertEquals(Arrays.asList(1, 4, 16), queue.bursts);
+        handshake.onFrameReceived();
+        // 本轮剩余的唤醒字节不再发送，直接发 READY/START
+        assertEquals(Arrays.asList(1, 4, 16, 48), queue.bursts);
+        queue.completeAll(true);
+
+        assertEquals(Arrays.asList("awake 20000ms 69"), events);
+        assertTrue(handshake.isDone());
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    public void responseFinishesWithWakeBytesSent() {
+        handshake.start();
+        runSilentUntil(1000);
+        timer.advance(40);
+        handshake.onFrameReceived();
+
+        assertEquals(Arrays.asList("awake 1040ms 5"), events);
+        assertTrue(handshake.isDone());
+        // 波形默认关闭：DEVICE_READY、START_MEASURE 各两次，没有 START_WAVEFORM
+        assertEquals(4, queue.commands.size());
+        assertArrayEquals(OximeterCommands.startMeasure(), queue.commands.get(3));
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    public void waveformIsSentOnlyWhenEnabled() {
+        handshake.setWaveformEnabled(true).start();
+        queue.completeAll(true);
+        handshake.onFrameReceived();
+        assertTrue(events.isEmpty());
+        assertArrayEquals(OximeterCommands.startWaveform(), queue.commands.get(2));
+        queue.completeAll(true);
+        assertEquals(Arrays.asList("awake 0ms 1"), events);
+    }
+
+    @Test
+    public void failedWriteRetriesSameBurstThenGivesUp() {
+        handshake.setMaxRetries(1).start();
+        // 唤醒字节成功、DEVICE_READY 失败、START_MEASURE 成功：重发同样大小的一轮
+        queue.complete(true, false, true);
+        assertEquals(Arrays.asList(1, 1), queue.bursts);
+        assertTrue(handshake.isRunning());
+
+        queue.complete(false, true, true);
+        assertEquals(Arrays.asList("failed 命令写入失败"), events);
+        assertEquals(Arrays.asList(1, 1), queue.bursts);
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    public void totalTimeoutFailsWhileWaiting() {
+        handshake.setTotalTimeoutMs(250).setResponseTimeoutMs(1000).start();
+        queue.completeAll(true);
+        timer.advance(249);
+        assertTrue(events.isEmpty());
+        timer.advance(1);
+        assertEquals(Arrays.asList("failed 唤醒设备超时"), events);
+
+        // 失败后迟到的回调和帧都被忽略
+        handshake.onFrameReceived();
+        timer.advance(5000);
+        assertEquals(1, events.size());
+        assertEquals(Arrays.asList(1), queue.bursts);
+    }
+
+    @Test
+    public void resumeFinishesWithoutCommandsWhenDeviceStillPushing() {
+        handshake.resume(300);
+        timer.advance(120);
+        handshake.onFrameReceived();
+
+        assertEquals(Arrays.asList("awake 120ms 0"), events);
+        assertTrue(queue.commands.isEmpty());
+        assertTrue(queue.bursts.isEmpty());
+        assertEquals(0, timer.pendingCount());
+    }
+
+    @Test
+    public void resumeFallsBackToFullHandshakeAfterProbe() {
+        handshake.resume(300);
+        timer.advance(300);
+        assertEquals(Arrays.asList(1), queue.bursts);
+        queue.completeAll(true);
+        handshake.onFrameReceived();
+        // 耗时从 resume() 起算
+        assertEquals(Arrays.asList("awake 300ms 1"), events);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.myapplication.model;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ClockDriftEstimatorTest {
+
+    private static final double NOMINAL = 8_000_000;   // 125Hz
+    private static final int BATCH = 5;
+
+    // 设备快 100ppm，每 5 个样本一包；到达时间 = 真实时间 + 15ms 固定延迟 + 0~30ms 连接间隔抖动，偶尔卡顿 150ms
+    private static double devicePeriod() { return NOMINAL / (1 + 100e-6); }
+
+    @Test
+    public void estimatesDriftAndRemovesJitter() {
+        Random random = new Random(7);
+        ClockDriftEstimator c = new ClockDriftEstimator(NOMINAL);
+        double period = devicePeriod();
+        double rawErr = 0, fitErr = 0;
+        int n = 0;
+        for (long batch = 0; batch < 25 * 300; batch++) {
+            long index = batch * BATCH + BATCH - 1;
+            long truth = 1_000_000_000L + (long) (index * period);
+            long delay = 15_000_000L + (long) (random.nextDouble() * 30_000_000L)
+                    + (random.nextInt(200) == 0 ? 150_000_000L : 0);
+            long est = c.update(index, truth + delay);
+            if (batch >= 25 * 60) {
+                // 去抖后的时间相对“真实时间 + 平均延迟”的误差
+                rawErr += square(truth + delay - truth - 30_000_000L);
+                fitErr += square(est - truth - 30_000_000L);
+                n++;
+            }
+        }
+        assertEquals(100, c.getDriftPpm(), 20);
+        assertEquals(125 * (1 + 100e-6), c.getRateHz(), 0.01);
+        assertTrue(c.getOutlierCount() > 0);
+        assertEquals(0, c.getResyncCount());
+        assertTrue(c.getJitterMs() > 5 && c.getJitterMs() < 15);
+        double rawRms = Math.sqrt(rawErr / n), fitRms = Math.sqrt(fitErr / n);
+        assertTrue("raw " + rawRms + " fit " + fitRms, fitRms < 3_000_000 && fitRms * 5 < rawRms);
+    }
+
+    @Test
+    public void reanchorsAfterLostSamples() {
+        Random random = new Random(11);
+        ClockDriftEstimator c = new ClockDriftEstimator(NOMINAL);
+        double period = devicePeriod();
+        long received = 0;
+        long maxErr = 0;
+        for (long batch = 0; batch < 25 * 120; batch++) {
+            // 第 60 秒断链 2 秒：这期间的样本丢失，收到的序号不再连续
+            if (batch >= 25 * 60 && batch < 25 * 62) continue;
+            if (batch == 25 * 62) c.breakSequence();
+            long deviceIndex = batch * BATCH + BATCH - 1;
+            long truth = (long) (deviceIndex * period);
+            long est = c.update(received * BATCH + BATCH - 1,
+                    truth + 15_000_000L + (long) (random.nextDouble() * 30_000_000L));
+            received++;
+            if (batch >= 25 * 70) maxErr = Math.max(maxErr, Math.abs(est - truth - 30_000_000L));
+        }
+        assertTrue("max err " + maxErr, maxErr < 8_000_000);
+        assertEquals(100, c.getDriftPpm(), 40);
+    }
+
+    private static double square(double v) { return v * v; }
+}
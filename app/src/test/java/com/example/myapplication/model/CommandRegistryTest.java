@@ -0,0 +1,82 @@
+package com.example.myapplication.model;
+
+import com.example.myapplication.ble.OximeterCommands;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class CommandRegistryTest {
+
+    private final CommandRegistry registry = new CommandRegistry();
+    private final List<String> calls = new ArrayList<>();
+
+    private CommandRegistry.CommandHandler record(String name) {
+        return (buf, off, len, ts) -> {
+            StringBuilder sb = new StringBuilder(name).append(' ').append(ts);
+            for (int i = off; i < off + len; i++) sb.append(' ').append(buf[i] & 0xFF);
+            calls.add(sb.toString());
+        };
+    }
+
+    @Test
+    public void dispatchesDataRangeToRegisteredHandler() {
+        registry.register(0x96, 1, record("wave"));
+        byte[] buf = {0, 0, 0x40, 0x52, (byte) 0xE5, 0};
+        // 命令字节常以 byte 传入（0x96 为负数），按无符号索引
+        assertTrue(registry.dispatch((byte) 0x96, buf, 2, 3, 7));
+        assertEquals("wave 7 64 82 229", calls.get(0));
+        assertTrue(registry.isRegistered(0x96));
+        assertEquals(1, registry.getFrameCount(0x96));
+        assertEquals(0, registry.getUnknownCount());
+    }
+
+    @Test
+    public void countsUnknownAndShortPayloadWithoutCallingHandler() {
+        registry.register(0x95, 7, record("params"));
+        assertFalse(registry.dispatch(0x42, new byte[4], 0, 4, 0));
+        assertFalse(registry.dispatch(0x42, new byte[4], 0, 4, 0));
+        assertFalse(registry.dispatch(0x95, new byte[6], 0, 6, 0));
+
+        assertTrue(calls.isEmpty());
+        assertEquals(2, registry.getUnknownCount());
+        assertEquals(1, registry.getShortPayloadCount());
+        // 未注册的命令也按命令统计帧数
+        assertEquals(2, registry.getFrameCount(0x42));
+        assertEquals(1, registry.getFrameCount(0x95));
+
+        registry.resetCounters();
+        assertEquals(0, registry.getUnknownCount());
+        assertEquals(0, registry.getShortPayloadCount());
+        assertEquals(0, registry.getFrameCount(0x42));
+    }
+
+    @Test
+    public void reRegistrationReplacesHandlerAndMinLength() {
+        registry.register(0x99, 2, record("old"));
+        registry.register(0x99, 1, record("new"));
+        assertTrue(registry.dispatch(0x99, new byte[]{3}, 0, 1, 0));
+        assertEquals(1, calls.size());
+        assertEquals("new 0 3", calls.get(0));
+
+        // 注册 null 即注销，之后按未知命令计数
+        registry.register(0x99, 0, null);
+        assertFalse(registry.isRegistered(0x99));
+        assertFalse(registry.dispatch(0x99, new byte[]{3}, 0, 1, 0));
+        assertEquals(1, registry.getUnknownCount());
+        assertEquals(2, registry.getFrameCount(0x99));
+    }
+
+    @Test
+    public void oximeterDataHandlersCanBeOverridden() {
+        OximeterData data = new OximeterData();
+        data.getCommands().register(0x99, 1, record("battery"));
+        byte[] frame = OximeterCommands.frame(0x99, 4);
+        assertTrue(data.addPacket(frame, 0, frame.length, 5));
+        assertEquals("battery 5 4", calls.get(0));
+        assertNotEquals(4, data.getBatteryLevel());
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.myapplication.model;
+
+import com.example.myapplication.utils.HexUtils;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class FrameAssemblerTest {
+
+    private static final byte[] WAVEFORM = HexUtils.hexToBytes("FF FE 09 79 23 96 40 52 E5 30 10");
+    private static final byte[] BATTERY = HexUtils.hexToBytes("FF FE 05 C4 23 99 03");
+
+    private final List<byte[]> frames = new ArrayList<>();
+    private final FrameAssembler assembler = new FrameAssembler(
+            (buf, off, len, ts) -> frames.add(Arrays.copyOfRange(buf, off, off + len)));
+
+    private void feed(byte[]... chunks) {
+        for (byte[] c : chunks) assembler.feed(c, 0, c.length, 0);
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        int n = 0;
+        for (byte[] p : parts) n += p.length;
+        byte[] out = new byte[n];
+        n = 0;
+        for (byte[] p : parts) {
+            System.arraycopy(p, 0, out, n, p.length);
+            n += p.length;
+        }
+        return out;
+    }
+
+    @Test
+    public void joinsFrameSplitAcrossNotifications() {
+        feed(Arrays.copyOfRange(WAVEFORM, 0, 3));
+        assertTrue(frames.isEmpty());
+        feed(Arrays.copyOfRange(WAVEFORM, 3, 7), Arrays.copyOfRange(WAVEFORM, 7, WAVEFORM.length));
+        assertEquals(1, frames.size());
+        assertArrayEquals(WAVEFORM, frames.get(0));
+        assertEquals(0, assembler.getPendingBytes());
+    }
+
+    @Test
+    public void splitsCoalescedFrames() {
+        feed(concat(WAVEFORM, BATTERY, Arrays.copyOfRange(WAVEFORM, 0, 4)));
+        assertEquals(2, frames.size());
+        assertArrayEquals(WAVEFORM, frames.get(0));
+        assertArrayEquals(BATTERY, frames.get(1));
+        assertEquals(4, assembler.getPendingBytes());
+        assertEquals(0, assembler.getResyncCount());
+    }
+
+    @Test
+    public void skipsGarbageAndCountsResync() {
+        feed(concat(new byte[]{0x12, (byte) 0xFF, 0x34}, BATTERY));
+        assertEquals(1, frames.size());
+        assertArrayEquals(BATTERY, frames.get(0));
+        assertEquals(3, assembler.getDiscardedBytes());
+        assertEquals(1, assembler.getResyncCount());
+    }
+
+    @Test
+    public void dropsFrameWithBadChecksum() {
+        byte[] bad = WAVEFORM.clone();
+        bad[8]++;
+        feed(concat(bad, BATTERY));
+        assertEquals(1, frames.size());
+        assertArrayEquals(BATTERY, frames.get(0));
+        assertEquals(1, assembler.getChecksumErrorCount());
+    }
+
+    @Test
+    public void corruptedLengthDoesNotHoldBackFollowingFrame() {
+        // LL 被改成 0xF0：不能等凑够 242 字节，后面的正常帧应在同一个通知里解析出来
+        byte[] bad = WAVEFORM.clone();
+        bad[2] = (byte) 0xF0;
+        feed(concat(bad, BATTERY));
+        assertEquals(1, frames.size());
+        assertArrayEquals(BATTERY, frames.get(0));
+        assertEquals(1, assembler.getChecksumErrorCount());
+        assertEquals(0, assembler.getPendingBytes());
+    }
+}
@@ -0,0 +1,42 @@
+package com.example.myapplication.model;
+
+import com.example.myapplication.utils.HexUtils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class OximeterDataTest {
+
+    // 0x96 波形帧：FF FE | LL=09 | CS | 23 | 96 | 5 个样本（bit7 搏动标志 + 7 位幅值）
+    // 仓库里还没有真机抓包，这一帧按协议说明逐字节拼出；固件确认 START_WAVEFORM 后换成抓到的帧
+    private static final String WAVEFORM_FRAME = "FF FE 09 79 23 96 40 52 E5 30 10";
+
+    @Test
+    public void decodesWaveformFrame() {
+        OximeterData data = new OximeterData();
+        byte[] frame = HexUtils.hexToBytes(WAVEFORM_FRAME);
+        assertTrue(data.addPacket(frame, 0, frame.length, 1_000_000_000L));
+
+        WaveformBuffer w = data.getWaveform();
+        assertEquals(5, w.getTotalSamples());
+        assertEquals(1, w.getTotalBatches());
+        assertEquals(1_000_000_000L, w.getBatchTimestampNanos(0));
+        int[] amplitudes = {0x40, 0x52, 0x65, 0x30, 0x10};
+        for (int i = 0; i < amplitudes.length; i++) {
+            assertEquals(amplitudes[i], w.getAmplitude(i));
+            assertEquals(i == 2, w.isBeat(i));
+        }
+        assertEquals(1, data.getCommands().getFrameCount(0x96));
+    }
+
+    @Test
+    public void rejectsWaveformFrameWithBadChecksum() {
+        OximeterData data = new OximeterData();
+        byte[] frame = HexUtils.hexToBytes(WAVEFORM_FRAME);
+        frame[8]++;
+        assertFalse(data.addPacket(frame, 0, frame.length, 0));
+        assertEquals(0, data.getWaveform().getTotalSamples());
+        assertEquals(1, data.getChecksumErrorCount());
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.myapplication.model;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class QuantileSketchTest {
+
+    private static final double[] QS = {0.01, 0.05, 0.25, 0.5, 0.75, 0.95, 0.99};
+
+    // 估计值在真实排序中的秩与目标秩之差（占总数的比例）
+    private static double rankError(float[] sorted, double q, float estimate) {
+        int lo = Arrays.binarySearch(sorted, estimate);
+        if (lo < 0) lo = -lo - 1;
+        while (lo > 0 && sorted[lo - 1] == estimate) lo--;
+        int hi = lo;
+        while (hi < sorted.length && sorted[hi] == estimate) hi++;
+        double target = q * sorted.length;
+        double err = target < lo ? lo - target : target > hi ? target - hi : 0;
+        return err / sorted.length;
+    }
+
+    @Test
+    public void millionSamplesStayWithinOnePercentRankError() {
+        Random random = new Random(42);
+        int n = 1_000_000;
+        float[] values = new float[n];
+        QuantileSketch sketch = new QuantileSketch();
+        for (int i = 0; i < n; i++) {
+            // 偏态分布，接近血氧值集中在高端的情况
+            values[i] = (float) (100 - Math.abs(random.nextGaussian() * 3));
+            sketch.add(values[i]);
+        }
+        Arrays.sort(values);
+        float[] q = sketch.getQuantiles(QS);
+        for (int j = 0; j < QS.length; j++) {
+            assertTrue("q=" + QS[j], rankError(values, QS[j], q[j]) < 0.01);
+        }
+        assertEquals(n, sketch.getCount());
+        assertEquals(values[0], sketch.getMin(), 0);
+        assertEquals(values[n - 1], sketch.getMax(), 0);
+    }
+
+    @Test
+    public void mergedSketchesMatchCombinedData() {
+        Random random = new Random(1);
+        QuantileSketch a = new QuantileSketch();
+        QuantileSketch b = new QuantileSketch();
+        float[] values = new float[200_000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i < values.length / 2 ? random.nextFloat() * 50 : 50 + random.nextFloat() * 100;
+            (i < values.length / 2 ? a : b).add(values[i]);
+        }
+        QuantileSketch restored = QuantileSketch.fromByteArray(b.toByteArray(), QuantileSketch.DEFAULT_K);
+        a.merge(restored);
+        Arrays.sort(values);
+        float[] q = a.getQuantiles(QS);
+        for (int j = 0; j < QS.length; j++) {
+            assertTrue("q=" + QS[j], rankError(values, QS[j], q[j]) < 0.01);
+        }
+        assertEquals(values.length, a.getCount());
+    }
+
+    @Test
+    public void mergeWithItselfDoublesCount() {
+        QuantileSketch s = new QuantileSketch();
+        for (int i = 0; i < 10_000; i++) s.add(i);
+        float median = s.getQuantile(0.5);
+        s.merge(s);
+        assertEquals(20_000, s.getCount());
+        assertEquals(median, s.getQuantile(0.5), 200);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsMergeWithDifferentK() {
+        QuantileSketch other = new QuantileSketch(100);
+        other.add(1);
+        new QuantileSketch(200).merge(other);
+    }
+
+    @Test
+    public void rejectsSerializedSketchWithDifferentOrInconsistentK() {
+        QuantileSketch s = new QuantileSketch(100);
+        for (int i = 0; i < 1000; i++) s.add(i);
+        byte[] bytes = s.toByteArray();
+        try {
+            QuantileSketch.fromByteArray(bytes, 200);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // k 不同
+        }
+        bytes[15]++;   // 改动计数的最低字节
+        try {
+            QuantileSketch.fromByteArray(bytes);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            // 权重之和与计数不符
+        }
+    }
+}
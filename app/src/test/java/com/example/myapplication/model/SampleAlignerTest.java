@@ -0,0 +1,114 @@
+package com.example.myapplication.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SampleAlignerTest {
+
+    private static final long MS = 1_000_000L;
+
+    // 每秒一个参数样本：SpO2 从 90 起每秒加 1，PR 固定 60；波形每 40ms 一批 5 个样本，幅值为全局序号 % 100
+    private static void feed(SampleStore samples, WaveformBuffer waveform, long untilNanos) {
+        byte[] batch = new byte[5];
+        for (long t = samples.size() * 1000 * MS; t <= untilNanos; t += 1000 * MS) {
+            samples.append(t, 90 + samples.size(), 60, 150, -1, 0);
+        }
+        for (long t = (waveform.getTotalBatches() + 1) * 40 * MS; t <= untilNanos; t += 40 * MS) {
+            for (int i = 0; i < batch.length; i++) {
+                long index = waveform.getTotalSamples() + i;
+                batch[i] = (byte) (index % 100 | (index % 50 == 0 ? 0x80 : 0));
+            }
+            waveform.appendBatch(batch, 0, batch.length, t);
+        }
+    }
+
+    @Test
+    public void linearInterpolatesAndHoldKeepsLeftSample() {
+        SampleStore samples = new SampleStore();
+        WaveformBuffer waveform = new WaveformBuffer();
+        feed(samples, waveform, 10_000 * MS);
+
+        SampleAligner linear = new SampleAligner();
+        SampleAligner hold = new SampleAligner().setMode(SampleAligner.ZERO_ORDER_HOLD);
+        for (SampleAligner a : new SampleAligner[]{linear, hold}) {
+            a.addFrame(500 * MS);
+            a.addFrame(2250 * MS);
+            a.finish(samples.view(), waveform);
+        }
+        assertEquals(90.5f, linear.getSpo2(0), 1e-4);
+        assertEquals(92.25f, linear.getSpo2(1), 1e-4);
+        assertEquals(60f, linear.getPr(1), 1e-4);
+        assertEquals(1.5f, linear.getPi(1), 1e-4);
+        assertEquals(90f, hold.getSpo2(0), 1e-4);
+        assertEquals(92f, hold.getSpo2(1), 1e-4);
+
+        // 2250ms：2240ms 一批的最后一个样本为 279，下一批（2280ms）的样本 280、281 推算在 2248ms、2256ms
+        assertEquals(80.25f, linear.getWaveform(1), 1e-3);
+        assertEquals(80f, hold.getWaveform(1), 1e-3);
+    }
+
+    @Test
+    public void truncateDropsFramesAfterRecordingEnd() {
+        SampleStore samples = new SampleStore();
+        WaveformBuffer waveform = new WaveformBuffer();
+        feed(samples, waveform, 5_000 * MS);
+
+        SampleAligner a = new SampleAligner();
+        for (long t = 1000; t <= 4000; t += 500) a.addFrame(t * MS);
+        a.update(samples.view(), waveform);
+        // 4000ms 处右侧还有样本已对齐，3500ms 之后的帧不在视频中
+        assertEquals(7, a.getAlignedCount());
+        assertEquals(1, a.truncateAfter(3500 * MS));
+        a.finish(samples.view(), waveform);
+        assertEquals(6, a.getFrameCount());
+        assertEquals(6, a.getAlignedCount());
+        assertEquals(93.5f, a.getSpo2(5), 1e-4);
+    }
+
+    @Test
+    public void latencyShiftsLookupAndMissingDataIsInvalid() {
+        SampleStore samples = new SampleStore();
+        WaveformBuffer waveform = new WaveformBuffer();
+        feed(samples, waveform, 5_000 * MS);
+
+        SampleAligner a = new SampleAligner().setLatencyMs(2000, 0).setMaxHoldMs(1000);
+        a.addFrame(1000 * MS);
+        a.addFrame(4500 * MS);
+        a.finish(samples.view(), waveform);
+        assertEquals(93f, a.getSpo2(0), 1e-4);
+        // 6500ms 时最后一个样本（5000ms）已超过最大保持时长
+        assertEquals(-1f, a.getSpo2(1), 0);
+    }
+
+    @Test
+    public void streamingMatchesOneShot() {
+        long[] frames = new long[300];
+        for (int i = 0; i < frames.length; i++) frames[i] = 100 * MS + i * 33_333_333L;
+
+        SampleStore samples = new SampleStore();
+        WaveformBuffer waveform = new WaveformBuffer();
+        SampleAligner streaming = new SampleAligner().setLatencyMs(500, 80);
+        int next = 0;
+        for (long now = 0; now <= 11_000 * MS; now += 200 * MS) {
+            feed(samples, waveform, now);
+            while (next < frames.length && frames[next] <= now) streaming.addFrame(frames[next++]);
+            streaming.update(samples.view(), waveform);
+        }
+        streaming.finish(samples.view(), waveform);
+
+        SampleAligner oneShot = new SampleAligner().setLatencyMs(500, 80);
+        for (long f : frames) oneShot.addFrame(f);
+        oneShot.finish(samples.view(), waveform);
+
+        assertEquals(frames.length, streaming.getAlignedCount());
+        int beats = 0;
+        for (int i = 0; i < frames.length; i++) {
+            assertEquals(oneShot.getSpo2(i), streaming.getSpo2(i), 0);
+            assertEquals(oneShot.getWaveform(i), streaming.getWaveform(i), 0);
+            assertEquals(oneShot.isBeat(i), streaming.isBeat(i));
+            if (streaming.isBeat(i)) beats++;
+        }
+        assertTrue(beats > 0);
+    }
+}
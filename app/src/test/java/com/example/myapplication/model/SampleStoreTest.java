@@ -0,0 +1,93 @@
+package com.example.myapplication.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class SampleStoreTest {
+
+    private static void fill(SampleStore store, int from, int to) {
+        for (int i = from; i < to; i++) {
+            store.append(i * 1_000_000L, i % 101, i % 301, i % 2000, -1, i & 0x7F);
+        }
+    }
+
+    @Test
+    public void readsAcrossChunkBoundaries() {
+        SampleStore store = new SampleStore();
+        // 每块 1024 个样本，超过 8 块时块数组扩容
+        fill(store, 0, 10_000);
+        SampleStore.View v = store.view();
+        assertEquals(10_000, v.size());
+        for (int i : new int[]{0, 1023, 1024, 1025, 8191, 8192, 9999}) {
+            assertEquals(i * 1_000_000L, v.getTimestampNanos(i));
+            assertEquals(i % 101, v.getSpo2(i));
+            assertEquals(i % 301, v.getPr(i));
+            assertEquals(i % 2000, v.getPi100(i));
+            assertEquals(-1, v.getTemp10(i));
+            assertEquals(i & 0x7F, v.getProbeCode(i));
+        }
+    }
+
+    @Test
+    public void viewKeepsItsSizeWhileStoreGrows() {
+        SampleStore store = new SampleStore();
+        fill(store, 0, 1000);
+        SampleStore.View v = store.view();
+        fill(store, 1000, 3000);
+        assertEquals(1000, v.size());
+        assertEquals(3000, store.size());
+        assertEquals(999 * 1_000_000L, v.getTimestampNanos(999));
+        try {
+            v.getSpo2(1000);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // 视图之后追加的样本不可见
+        }
+    }
+
+    @Test
+    public void viewSurvivesClear() {
+        SampleStore store = new SampleStore();
+        fill(store, 0, 2000);
+        store.markGap(5, 6);
+        SampleStore.View old = store.view();
+
+        store.clear();
+        assertEquals(0, store.size());
+        assertEquals(0, store.getGapCount());
+        for (int i = 0; i < 1500; i++) store.append(-1, 0, 0, 0, 0, 0);
+        store.markGap(7, 8);
+
+        // 新会话写入不影响旧视图
+        assertEquals(2000, old.size());
+        assertEquals(1500 * 1_000_000L, old.getTimestampNanos(1500));
+        assertEquals(1500 % 101, old.getSpo2(1500));
+        assertEquals(1, old.getGapCount());
+        assertEquals(5, old.getGapStartNanos(0));
+        assertEquals(7, store.view().getGapStartNanos(0));
+    }
+
+    @Test
+    public void recordsGapsWithFollowingSampleIndex() {
+        SampleStore store = new SampleStore();
+        fill(store, 0, 10);
+        store.markGap(9_000_000L, 50_000_000L);
+        fill(store, 50, 60);
+        for (int g = 0; g < 5; g++) store.markGap(100 + g * 10, 105 + g * 10);   // 超过初始容量 4
+        SampleStore.View v = store.view();
+
+        assertEquals(6, v.getGapCount());
+        assertEquals(10, v.getGapSampleIndex(0));
+        assertEquals(9_000_000L, v.getGapStartNanos(0));
+        assertEquals(50_000_000L, v.getGapEndNanos(0));
+        assertEquals(20, v.getGapSampleIndex(5));
+        assertEquals(41_000_000L + 5 * 5, v.getTotalGapNanos());
+        try {
+            v.getGapStartNanos(6);
+            fail();
+        } catch (IndexOutOfBoundsException expected) {
+            // 超出缺口数
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.myapplication.model;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class WaveformBufferTest {
+
+    // 幅值为绝对序号 % 128，每 10 个样本一个搏动
+    private static byte[] batch(long firstIndex, int len) {
+        byte[] b = new byte[len];
+        for (int i = 0; i < len; i++) {
+            long index = firstIndex + i;
+            b[i] = (byte) (index % 128 | (index % 10 == 0 ? 0x80 : 0));
+        }
+        return b;
+    }
+
+    private static void assertRetainedSamples(WaveformBuffer w) {
+        for (long i = w.getFirstRetainedIndex(); i < w.getTotalSamples(); i++) {
+            assertEquals("index " + i, i % 128, w.getAmplitude(i));
+            assertEquals("index " + i, i % 10 == 0, w.isBeat(i));
+        }
+    }
+
+    @Test
+    public void wrapsAroundAndCountsOverwrittenSamples() {
+        WaveformBuffer w = new WaveformBuffer(16, 4);
+        for (int k = 0; k < 5; k++) {
+            w.appendBatch(batch(w.getTotalSamples(), 5), 0, 5, k * 40L);
+        }
+        assertEquals(25, w.getTotalSamples());
+        assertEquals(5, w.getTotalBatches());
+        assertEquals(9, w.getOverwrittenSamples());
+        assertEquals(9, w.getFirstRetainedIndex());
+        assertRetainedSamples(w);
+
+        // 批 1（样本 5~9）的起点 5 已被覆盖，但还有样本保留；批 0 的记录已被批 4 覆盖
+        assertEquals(1, w.getFirstRetainedBatch());
+        assertEquals(20, w.getBatchStartIndex(4));
+        assertEquals(160L, w.getBatchTimestampNanos(4));
+    }
+
+    @Test
+    public void oversizedBatchKeepsLastLapAtItsOwnIndices() {
+        WaveformBuffer w = new WaveformBuffer(16, 4);
+        w.appendBatch(batch(0, 5), 0, 5, 0);
+        // 超过两圈的一包：样本 5~44，只保留最后一圈 29~44，且写在它们自己的位置上
+        byte[] big = batch(5, 40);
+        w.appendBatch(big, 0, big.length, 1, 2);
+
+        assertEquals(45, w.getTotalSamples());
+        assertEquals(29, w.getOverwrittenSamples());
+        assertRetainedSamples(w);
+        assertEquals(1, w.getFirstRetainedBatch());
+        assertEquals(2L, w.getBatchSampleNanos(1));
+    }
+
+    @Test
+    public void batchFillingExactlyToEndDoesNotTouchStart() {
+        WaveformBuffer w = new WaveformBuffer(16, 4);
+        w.appendBatch(batch(0, 10), 0, 10, 0);
+        w.appendBatch(batch(10, 6), 0, 6, 1);
+        assertEquals(0, w.getOverwrittenSamples());
+        assertRetainedSamples(w);
+
+        w.clear();
+        assertEquals(0, w.getTotalSamples());
+        assertEquals(0, w.getTotalBatches());
+    }
+}
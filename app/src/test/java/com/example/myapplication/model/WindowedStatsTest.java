@@ -0,0 +1,86 @@
+package com.example.myapplication.model;
+
+import com.example.myapplication.utils.DataSaver;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class WindowedStatsTest {
+
+    private static final long S = 1_000_000_000L;
+
+    @Test
+    public void evictsSamplesOlderThanWindow() {
+        WindowedStats s = new WindowedStats(5 * S, 100, 1);
+        for (int i = 0; i < 10; i++) s.add(i * S, 90 + i);
+        // 9 秒时窗口为 (4s, 9s]：95..99
+        assertEquals(5, s.getCount());
+        assertEquals(97, s.getMean(), 1e-9);
+
+        s.advanceTo(13 * S);
+        assertEquals(1, s.getCount());
+        assertEquals(99, s.getMin(), 0);
+        s.advanceTo(20 * S);
+        assertEquals(0, s.getCount());
+        assertEquals(-1, s.getMean(), 0);
+        assertEquals(-1, s.getMax(), 0);
+    }
+
+    @Test
+    public void varianceAfterRemovalMatchesDirectComputation() {
+        Random random = new Random(7);
+        WindowedStats s = new WindowedStats(30 * S, 300, 1);
+        int[] values = new int[1000];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = 50 + random.nextInt(100);
+            s.add(i * S / 4, values[i]);   // 每秒 4 个样本，超出容量 64 时会扩容
+        }
+        // 窗口内为最后 120 个样本
+        int from = values.length - 120;
+        double mean = 0;
+        for (int i = from; i < values.length; i++) mean += values[i];
+        mean /= 120;
+        double var = 0;
+        for (int i = from; i < values.length; i++) var += (values[i] - mean) * (values[i] - mean);
+        var /= 119;
+
+        assertEquals(120, s.getCount());
+        assertEquals(mean, s.getMean(), 1e-9);
+        assertEquals(var, s.getVariance(), 1e-6);
+        assertEquals(Math.sqrt(var), s.getStdDev(), 1e-6);
+    }
+
+    @Test
+    public void minMaxFollowWindowAndPercentileUsesHistogram() {
+        WindowedStats s = new WindowedStats(3 * S, 100, 1);
+        int[] values = {98, 91, 95, 93, 97, 92};
+        for (int i = 0; i < values.length; i++) s.add(i * S, values[i]);
+        // 5 秒时窗口为 93、97、92：98 与 91 都已移出
+        assertEquals(92, s.getMin(), 0);
+        assertEquals(97, s.getMax(), 0);
+        assertEquals(93, s.getPercentile(0.5), 0);
+        assertEquals(97, s.getPercentile(1), 0);
+        assertEquals(92, s.getPercentile(0), 0);
+
+        WindowedStats pi = new WindowedStats(0, 2555, 100);
+        for (int v = 1; v <= 100; v++) pi.add(v * S, v);
+        assertEquals(0.5, pi.getPercentile(0.5), 1e-9);
+        assertEquals(0.95, pi.getPercentile(0.95), 1e-9);
+        assertEquals(0.01, pi.getMin(), 1e-9);
+        assertEquals(1.0, pi.getMax(), 1e-9);
+    }
+
+    @Test
+    public void statisticsJsonListsConfiguredWindows() {
+        VitalStatistics stats = new VitalStatistics(10 * S, 120 * S, VitalStatistics.WINDOW_SESSION);
+        stats.add(0, 97, 60, 150);
+        String json = DataSaver.statisticsJson(stats);
+        assertTrue(json, json.contains("\"10s\": {\"count\": 1"));
+        assertTrue(json, json.contains("\"2m\": {\"count\": 1"));
+        assertTrue(json, json.contains("\"session\": {\"count\": 1"));
+        assertFalse(json, json.contains("\"5s\""));
+    }
+}
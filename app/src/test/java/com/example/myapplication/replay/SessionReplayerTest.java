@@ -0,0 +1,91 @@
+package com.example.myapplication.replay;
+
+import com.example.myapplication.ble.OximeterCommands;
+import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.utils.HexUtils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用构造的原始数据文件回放，验证解析与统计结果
+ */
+public class SessionReplayerTest {
+
+    @Rule
+    public TemporaryFolder tmp = new TemporaryFolder();
+
+    private File writeSession(String name, String raw) throws Exception {
+        File dir = tmp.newFolder(name);
+        File rawFile = new File(dir, SessionReplayer.RAW_FILE_NAME);
+        Files.write(rawFile.toPath(), raw.getBytes(StandardCharsets.UTF_8));
+        return rawFile;
+    }
+
+    @Test
+    public void replaysSavedFramesIntoStatistics() throws Exception {
+        StringBuilder raw = new StringBuilder();
+        for (int i = 0; i < 20; i++) {
+            if (i > 0) raw.append(',');
+            raw.append(HexUtils.bytesToHex(OximeterCommands.frame(0x95, 0x00, 70 + (i % 2) * 10, 97, 36, 5, 1, 20)));
+        }
+        raw.append(',').append(HexUtils.bytesToHex(OximeterCommands.frame(0x99, 2)));
+
+        SessionReplayer.Result r = new SessionReplayer(SessionReplayer.SPEED_MAX)
+                .replay(writeSession("s1", raw.toString()));
+
+        OximeterData d = r.data;
+        assertEquals(21, r.notifications);
+        assertEquals(21, d.getFrameCount());
+        assertEquals(20, d.getValidCount());
+        assertEquals(97, d.getAvgSpo2());
+        assertEquals(75, d.getAvgPr());
+        assertEquals(70, d.getMinPr());
+        assertEquals(80, d.getMaxPr());
+        assertEquals(2, d.getBatteryLevel());
+        assertEquals(20, d.getSamples().size());
+    }
+
+    @Test
+    public void reassemblesFramesSplitAcrossSavedNotifications() throws Exception {
+        String hex = HexUtils.bytesToHex(OximeterCommands.frame(0x95, 0x00, 72, 98, 36, 5, 1, 20));
+        // 一帧被拆成两个通知保存
+        String raw = hex.substring(0, 14) + "," + hex.substring(15);
+
+        SessionReplayer.Result r = new SessionReplayer(SessionReplayer.SPEED_MAX)
+                .replay(writeSession("split", raw));
+
+        assertEquals(2, r.notifications);
+        assertEquals(1, r.data.getFrameCount());
+        assertEquals(72, r.data.getPr());
+        assertEquals(0, r.data.getDiscardedBytes());
+    }
+
+    @Test
+    public void skipsMalformedEntries() throws Exception {
+        String good = HexUtils.bytesToHex(OximeterCommands.frame(0x99, 3));
+        String raw = good + ",FF FE 0X ZZ," + good;
+
+        SessionReplayer.Result r = new SessionReplayer(SessionReplayer.SPEED_MAX)
+                .replay(writeSession("bad", raw));
+
+        assertEquals(2, r.notifications);
+        assertEquals(1, r.malformedEntries);
+        assertEquals(2, r.data.getFrameCount());
+        assertEquals(3, r.data.getBatteryLevel());
+    }
+
+    @Test
+    public void findsSessionsRecursively() throws Exception {
+        writeSession("a", "");
+        writeSession("b", "");
+        assertEquals(2, SessionReplayer.findSessions(tmp.getRoot()).size());
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.myapplication.replay;
+
+import com.example.myapplication.ble.SimulatedOximeterTransport;
+import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.model.SampleStore;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * 用模拟血氧仪走完唤醒握手并高速推送，验证整条解析链路不丢帧
+ */
+public class SimulatorSoakTest {
+
+    private static SimulatedOximeterTransport fastSimulator() {
+        return new SimulatedOximeterTransport()
+                .setSpeed(50)
+                .setWakeBytesRequired(5)
+                .setWriteLatencyMs(1)
+                .setConnectDelayMs(1);
+    }
+
+    @Test
+    public void cleanLinkParsesEverySentFrame() throws Exception {
+        SimulatedOximeterTransport sim = fastSimulator().setFramesPerNotification(3).setJitterMs(1);
+        SimulatorSoak.Result r = SimulatorSoak.run(sim, 100, 1_000_000_000L);
+        OximeterData d = r.data;
+
+        assertTrue(r.sentFrames > 100);
+        // 停止时最多还有不足一个通知的帧留在模拟器里未发出
+        assertTrue(r.sentFrames - d.getFrameCount() < 3);
+        assertEquals(0, d.getChecksumErrorCount());
+        assertTrue(d.getSampleCount() > 0);
+        assertTrue(d.getWaveform().getTotalSamples() > 0);
+        assertTrue(d.getAvgSpo2() >= 90 && d.getAvgSpo2() <= 100);
+        // 连接时记下链路参数，写入长度跟随 MTU
+        assertEquals(r.queue.getMaxWriteLength(), d.getLinkParameters().getMaxPayload());
+        assertEquals(r.channel.getProcessedCount() - 1, d.getInterArrival().getCount());
+        assertTrue(d.getInterArrival().getMeanMs() > 0);
+    }
+
+    @Test
+    public void corruptedFramesAreRejected() throws Exception {
+        SimulatedOximeterTransport sim = fastSimulator().setCorruptionRate(0.05).setSeed(7);
+        SimulatorSoak.Result r = SimulatorSoak.run(sim, 100, 1_000_000_000L);
+
+        assertTrue(r.corruptedFrames > 0);
+        assertTrue(r.data.getChecksumErrorCount() > 0);
+        assertTrue(r.data.getFrameCount() <= r.sentFrames - r.corruptedFrames);
+    }
+
+    @Test
+    public void reconnectsAfterLinkDrop() throws Exception {
+        SimulatedOximeterTransport sim = fastSimulator().setLinkDropIntervalMs(300);
+        SimulatorSoak.Result r = SimulatorSoak.run(sim, 100, 1_000_000_000L);
+
+        assertTrue(r.linkDrops >= 2);
+        assertEquals(r.linkDrops + 1, r.connects);
+        assertEquals(0, r.data.getChecksumErrorCount());
+        // 断链前后两包之间的间隔不计入
+        assertTrue(r.data.getInterArrival().getCount() >= r.channel.getProcessedCount() - r.connects);
+        assertTrue(r.data.getInterArrival().getMaxMs() < 300);
+        // 数据继续写入同一个会话，每次恢复都记一段缺口
+        assertTrue(r.resumes >= r.linkDrops - 1);
+        // 结束时可能已收到重连后的第一包、但恢复握手还没完成
+        assertTrue(r.data.getGapCount() - r.resumes <= 1 && r.data.getGapCount() >= r.resumes);
+        assertTrue(r.resumeWakeBytes > 0);
+    }
+
+    @Test
+    public void awakeDeviceResumesWithoutWakeSequence() throws Exception {
+        SimulatedOximeterTransport sim = fastSimulator().setLinkDropIntervalMs(300).setSleepOnDisconnect(false);
+        SimulatorSoak.Result r = SimulatorSoak.run(sim, 100, 1_000_000_000L);
+
+        assertTrue(r.resumes >= 2);
+        assertEquals(0, r.resumeWakeBytes);
+        SampleStore.View samples = r.data.getSamples();
+        assertTrue(samples.getGapCount() - r.resumes <= 1 && samples.getGapCount() >= r.resumes);
+        for (int g = 0; g < samples.getGapCount(); g++) {
+            long gap = samples.getGapEndNanos(g) - samples.getGapStartNanos(g);
+            assertTrue(gap > 0 && gap < 100_000_000L);
+            // 缺口前后的样本时间戳落在缺口两侧
+            int i = samples.getGapSampleIndex(g);
+            if (i > 0) assertTrue(samples.getTimestampNanos(i - 1) <= samples.getGapStartNanos(g));
+            if (i < samples.size()) assertTrue(samples.getTimestampNanos(i) >= samples.getGapEndNanos(g));
+        }
+    }
+
+    @Test
+    public void awakeDeviceNeedsSingleWakeByte() throws Exception {
+        SimulatedOximeterTransport sim = fastSimulator().setWakeBytesRequired(0);
+        SimulatorSoak.Result r = SimulatorSoak.run(sim, 100, 300_000_000L);
+
+        assertEquals(1, r.wakeBytesSent);
+        assertTrue(r.timeToAwakeNanos > 0 && r.timeToAwakeNanos < 100_000_000L);
+        assertTrue(r.data.getFrameCount() > 0);
+    }
+
+    @Test
+    public void handshakeEscalatesWakeBursts() throws Exception {
+        // 需要 20 个唤醒字节：1、4、16 三轮后响应
+        SimulatedOximeterTransport sim = fastSimulator().setWakeBytesRequired(20);
+        SimulatorSoak.Result r = SimulatorSoak.run(sim, 50, 1_000_000_000L);
+
+        assertEquals(21, r.wakeBytesSent);
+        assertTrue(r.data.getFrameCount() > 0);
+        // 唤醒字节逐个间隔发送，不合并
+        assertEquals(0, r.queue.getMergedWrites());
+        assertEquals(0, r.queue.getFailedOps());
+        assertEquals(0, r.queue.getDepth());
+    }
+
+    @Test
+    public void devicesShareOneProcessingThreadWithSeparateData() throws Exception {
+        List<SimulatedOximeterTransport> sims = Arrays.asList(
+                fastSimulator().setSeed(1), fastSimulator().setSeed(2).setCorruptionRate(0.05));
+        List<SimulatorSoak.Result> results = SimulatorSoak.runAll(sims, 100, 1_000_000_000L);
+
+        SimulatorSoak.Result clean = results.get(0);
+        SimulatorSoak.Result noisy = results.get(1);
+        assertNotEquals(clean.address, noisy.address);
+        assertSame(clean.processor, noisy.processor);
+        assertNotSame(clean.data, noisy.data);
+        // 误码只出现在第二台设备的数据里
+        assertEquals(0, clean.data.getChecksumErrorCount());
+        assertTrue(noisy.data.getChecksumErrorCount() > 0);
+        assertTrue(clean.sentFrames - clean.data.getFrameCount() < 3);
+        assertEquals(clean.channel.getProcessedCount() + noisy.channel.getProcessedCount(),
+                clean.processor.getProcessedCount());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void handshakeFailsWhenDeviceNeverResponds() throws Exception {
+        SimulatedOximeterTransport sim = fastSimulator().setWakeBytesRequired(1000);
+        SimulatorSoak.run(sim, 20, 3_000_000_000L);
+    }
+}
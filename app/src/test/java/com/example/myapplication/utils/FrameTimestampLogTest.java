@@ -0,0 +1,88 @@
+package com.example.myapplication.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class FrameTimestampLogTest {
+
+    private static final long FRAME = 33_333_333L;
+
+    @Test
+    public void detectsDroppedFramesAndConvertsToElapsedClock() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        // 传感器时钟比 elapsedRealtime 慢 5 秒（设备休眠过）
+        FrameTimestampLog log = new FrameTimestampLog(out, Runnable::run,
+                FrameTimestampLog.SOURCE_UNKNOWN, 0, 10_000_000_000L, 5_000_000_000L);
+        long ts = 6_000_000_000L;
+        long frameNumber = 0;
+        for (int i = 0; i < 600; i++) {
+            // 第 300 帧之后丢了两帧
+            if (i == 300) {
+                ts += 2 * FRAME;
+                frameNumber += 2;
+            }
+            log.onFrame(frameNumber++, ts, FRAME, 10_000_000L);
+            ts += FRAME;
+        }
+        log.onFrameFailed(frameNumber);
+        log.close();
+
+        assertEquals(600, log.getFrameCount());
+        assertEquals(2, log.getDroppedFrames());
+        assertEquals(1, log.getFailedFrames());
+        assertEquals(3 * FRAME, log.getMaxIntervalNanos());
+        assertEquals(11_000_000_000L, log.getFirstFrameNanos());
+        assertEquals(29.9, log.getFps(), 0.1);
+        // 文件头 40 字节 + 每帧 24 字节，超过一块的部分也已写出
+        assertEquals(40 + 601 * 24, out.size());
+
+        StringBuilder csv = new StringBuilder();
+        FrameTimestampLog.decode(new ByteArrayInputStream(out.toByteArray()), csv);
+        String[] lines = csv.toString().split("\n");
+        assertEquals(602, lines.length);
+        assertEquals("0,11000000000,,33.333,10.000", lines[1]);
+        assertTrue(lines[301].contains(",100.000,"));
+        assertTrue(lines[601].startsWith("602,,"));
+    }
+
+    @Test
+    public void keepsOnlyFramesInsideRecordingWindow() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        FrameTimestampLog log = new FrameTimestampLog(out, Runnable::run,
+                FrameTimestampLog.SOURCE_UNKNOWN, 0, 10_000_000_000L, 5_000_000_000L);
+        long elapsed0 = 11_000_000_000L;
+        // 预览先出 10 帧，第 10 帧起开始录制
+        log.setRecordingStart(elapsed0 + 10 * FRAME);
+        for (int i = 0; i < 550; i++) {
+            assertEquals(i >= 10, log.onFrame(i, 6_000_000_000L + i * FRAME, FRAME, 0));
+        }
+        // stop() 之后预览继续出帧，不再记录
+        log.setRecordingEnd(elapsed0 + 549 * FRAME + 1);
+        assertFalse(log.onFrame(550, 6_000_000_000L + 550 * FRAME, FRAME, 0));
+        log.onFrameFailed(551);
+        assertEquals(540, log.getFrameCount());
+        // 封装完成后按实际录制时长收窄到第 520 帧，删去已记录的 29 帧（跨两块）
+        log.setRecordingEnd(elapsed0 + 520 * FRAME);
+        log.close();
+
+        assertEquals(511, log.getFrameCount());
+        assertEquals(0, log.getFailedFrames());
+        assertEquals(elapsed0 + 10 * FRAME, log.getFirstFrameNanos());
+        assertEquals(elapsed0 + 520 * FRAME, log.getLastFrameNanos());
+        assertEquals(40 + 511 * 24, out.size());
+        long[] frames = FrameTimestampLog.readFrameNanos(new ByteArrayInputStream(out.toByteArray()));
+        assertEquals(511, frames.length);
+        assertEquals(elapsed0 + 10 * FRAME, frames[0]);
+        assertEquals(elapsed0 + 520 * FRAME, frames[510]);
+    }
+
+    @Test
+    public void sidecarSitsNextToVideo() {
+        assertEquals("/a/b/Oximeter_1.frames",
+                FrameTimestampLog.sidecarFor("/a/b/Oximeter_1.mp4").getPath());
+    }
+}
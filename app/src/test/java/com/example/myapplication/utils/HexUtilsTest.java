@@ -0,0 +1,57 @@
+package com.example.myapplication.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class HexUtilsTest {
+
+    @Test
+    public void roundTripsAllByteValues() {
+        byte[] bytes = new byte[256];
+        for (int i = 0; i < bytes.length; i++) bytes[i] = (byte) i;
+        String hex = HexUtils.bytesToHex(bytes);
+        assertTrue(hex.startsWith("00 01 02"));
+        assertTrue(hex.endsWith("FE FF"));
+        assertArrayEquals(bytes, HexUtils.hexToBytes(hex));
+
+        char[] packed = new char[HexUtils.encodedLength(bytes.length, false)];
+        HexUtils.encode(bytes, 0, bytes.length, packed, 0, false);
+        assertArrayEquals(bytes, HexUtils.hexToBytes(new String(packed)));
+    }
+
+    @Test
+    public void acceptsMixedCaseAndWhitespace() {
+        byte[] expected = {(byte) 0xFF, (byte) 0xFE, 0x0B, (byte) 0xAB, (byte) 0xCD};
+        assertArrayEquals(expected, HexUtils.hexToBytes("ff Fe\t0b\r\naBcD"));
+        assertArrayEquals(expected, HexUtils.hexToBytes("FFFE0BABCD"));
+        assertEquals(0, HexUtils.hexToBytes("").length);
+        assertEquals(0, HexUtils.hexToBytes(null).length);
+    }
+
+    @Test
+    public void ignoresTrailingOddNibble() {
+        assertEquals(1, HexUtils.decodedLength("AB C", 0, 4));
+        assertArrayEquals(new byte[]{(byte) 0xAB, 0x0C}, HexUtils.hexToBytes("AB 0C D"));
+        assertEquals(0, HexUtils.hexToBytes("F").length);
+    }
+
+    @Test
+    public void decodesRangeIntoCallerBuffers() {
+        String text = "xx,01 02 03,yy";
+        byte[] dst = new byte[5];
+        assertEquals(3, HexUtils.decode(text, 3, 8, dst, 1));
+        assertArrayEquals(new byte[]{0, 1, 2, 3, 0}, dst);
+
+        ByteBuffer buf = ByteBuffer.allocate(4);
+        assertEquals(3, HexUtils.decode(text, 3, 8, buf));
+        assertEquals(3, buf.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsInvalidCharacters() {
+        HexUtils.hexToBytes("FF FE 0G");
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.myapplication.utils;
+
+import org.junit.Test;
+
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.Locale;
+
+import static org.junit.Assert.*;
+
+public class TimeUtilsTest {
+
+    @Test
+    public void matchesSimpleDateFormatAcrossSecondBoundaries() {
+        SimpleDateFormat precise = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss.SSS", Locale.US);
+        SimpleDateFormat fileName = new SimpleDateFormat("yyyyMMddHHmmssSSS", Locale.US);
+        SimpleDateFormat simple = new SimpleDateFormat("yyyyMMdd_HHmmss", Locale.US);
+        SimpleDateFormat chinese = new SimpleDateFormat("yyyy年MM月dd日 HH:mm:ss", Locale.CHINA);
+        long base = 1743837753456L;
+        long[] offsets = {0, 1, 543, 544, 1000, 999_999, -1, 86_400_000L};
+        for (long offset : offsets) {
+            long t = base + offset;
+            Date date = new Date(t);
+            assertEquals(precise.format(date), TimeUtils.getPreciseTimeStamp(t));
+            assertEquals(fileName.format(date), TimeUtils.getFileNameTimeStamp(t));
+            assertEquals(simple.format(date), TimeUtils.getSimpleTimeStamp(t));
+            assertEquals(chinese.format(date), TimeUtils.getCurrentTime(t));
+        }
+    }
+
+    @Test
+    public void appendsIntoCallerBuilder() {
+        long t = 1743837753007L;
+        StringBuilder sb = new StringBuilder("t=");
+        TimeUtils.appendPreciseTimeStampNanos(sb, t * 1_000_000L + 999_999L);
+        assertEquals("t=" + TimeUtils.getPreciseTimeStamp(t), sb.toString());
+        assertTrue(sb.toString().endsWith(".007"));
+    }
+}
@@ -0,0 +1,51 @@
+package com.example.myapplication.utils;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+
+import static org.junit.Assert.*;
+
+public class TraceRecorderTest {
+
+    private static final byte[] PACKET = {(byte) 0xFF, (byte) 0xFE, 0x06, 0x00, 0x23, (byte) 0x95, 0x62, 0x48};
+
+    @Test
+    public void wrapsAroundAndKeepsNewestRecords() throws Exception {
+        TraceRecorder trace = new TraceRecorder(256);
+        for (int i = 0; i < 20; i++) trace.raw(1, PACKET, 0, PACKET.length, i);
+        trace.event(1, TraceRecorder.ERROR, TraceRecorder.EV_DISCONNECTED, 3, 0, 20);
+
+        assertEquals(21, trace.getRecordCount());
+        assertTrue(trace.getOverwrittenCount() > 0);
+        assertTrue(trace.getRetainedBytes() <= 256);
+
+        String text = decode(trace, 20);
+        String[] lines = text.split("\n");
+        // 文件头一行 + 保留的记录
+        assertEquals(21 - trace.getOverwrittenCount(), lines.length - 1);
+        assertTrue(lines[1].contains("RAW 8 FF FE 06 00 23 95 62 48"));
+        assertTrue(lines[lines.length - 1].endsWith("DISCONNECTED 3 0"));
+    }
+
+    @Test
+    public void levelFiltersRawNotifications() throws Exception {
+        TraceRecorder trace = new TraceRecorder(1024);
+        trace.setLevel(TraceRecorder.INFO);
+        trace.raw(0, PACKET, 0, PACKET.length, 0);
+        trace.event(0, TraceRecorder.INFO, TraceRecorder.EV_CONNECTED, 247, 1, 1_000_000_000L);
+
+        assertEquals(1, trace.getRecordCount());
+        String text = decode(trace, 2_000_000_000L);
+        assertTrue(text.contains("-1.000000 [0] I CONNECTED 247 1"));
+    }
+
+    private static String decode(TraceRecorder trace, long dumpNanos) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        trace.dump(out, 0, dumpNanos);
+        StringBuilder sb = new StringBuilder();
+        TraceRecorder.decode(new ByteArrayInputStream(out.toByteArray()), sb);
+        return sb.toString();
+    }
+}
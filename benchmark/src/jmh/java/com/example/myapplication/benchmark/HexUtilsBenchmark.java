@@ -0,0 +1,66 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.ble.OximeterCommands;
+import com.example.myapplication.utils.HexUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个 13 字节参数帧的十六进制编解码
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class HexUtilsBenchmark {
+
+    private byte[] frame;
+    private String hex;
+    private final char[] charBuf = new char[64];
+    private final byte[] byteBuf = new byte[32];
+    private final StringBuilder sb = new StringBuilder(64);
+
+    @Setup
+    public void setUp() {
+        frame = OximeterCommands.frame(0x95, 0x00, 72, 98, 36, 5, 1, 20);
+        hex = HexUtils.bytesToHex(frame);
+    }
+
+    @Benchmark
+    public String bytesToHex() {
+        return HexUtils.bytesToHex(frame);
+    }
+
+    @Benchmark
+    public byte[] hexToBytes() {
+        return HexUtils.hexToBytes(hex);
+    }
+
+    /** 写入复用的 char[]，无分配 */
+    @Benchmark
+    public char[] encodeIntoCharArray() {
+        HexUtils.encode(frame, 0, frame.length, charBuf, 0, true);
+        return charBuf;
+    }
+
+    /** 追加到复用的 StringBuilder，无分配 */
+    @Benchmark
+    public StringBuilder appendToStringBuilder() {
+        sb.setLength(0);
+        return HexUtils.appendHex(sb, frame, 0, frame.length, true);
+    }
+
+    /** 解码到复用的 byte[]，无分配 */
+    @Benchmark
+    public byte[] decodeIntoByteArray() {
+        HexUtils.decode(hex, 0, hex.length(), byteBuf, 0);
+        return byteBuf;
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.model.OximeterData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数据包解析热路径：每次调用灌入一次完整的 90 秒会话，结果按单个数据包折算
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class OximeterDataBenchmark {
+
+    private byte[][] packets;
+    private String[] hexPackets;
+    private byte[] coalesced;
+    private OximeterData session;
+
+    @Setup
+    public void setUp() {
+        packets = SessionFixtures.sessionPackets();
+        hexPackets = SessionFixtures.sessionHexPackets();
+        int total = 0;
+        for (byte[] p : packets) total += p.length;
+        coalesced = new byte[total];
+        int pos = 0;
+        for (byte[] p : packets) {
+            System.arraycopy(p, 0, coalesced, pos, p.length);
+            pos += p.length;
+        }
+        session = SessionFixtures.populatedSession();
+    }
+
+    /** 旧路径：十六进制字符串 -> addData */
+    @Benchmark
+    @OperationsPerInvocation(SessionFixtures.SESSION_PACKETS)
+    public OximeterData addDataHex() {
+        OximeterData data = new OximeterData();
+        for (String hex : hexPackets) {
+            data.addData(hex);
+        }
+        return data;
+    }
+
+    /** 字节路径：一个通知一帧 */
+    @Benchmark
+    @OperationsPerInvocation(SessionFixtures.SESSION_PACKETS)
+    public OximeterData addPacket() {
+        OximeterData data = new OximeterData();
+        for (int i = 0; i < packets.length; i++) {
+            data.addPacket(packets[i], 0, packets[i].length, i * SessionFixtures.PACKET_INTERVAL_NANOS);
+        }
+        return data;
+    }
+
+    /** 字节路径：经过帧重组器，通知按 20 字节（默认 MTU）切分 */
+    @Benchmark
+    @OperationsPerInvocation(SessionFixtures.SESSION_PACKETS)
+    public OximeterData addNotificationSplit() {
+        OximeterData data = new OximeterData();
+        for (int off = 0; off < coalesced.length; off += 20) {
+            int len = Math.min(20, coalesced.length - off);
+            data.addNotification(coalesced, off, len, off);
+        }
+        return data;
+    }
+
+    @Benchmark
+    public String generateReport() {
+        return session.generateReport();
+    }
+}
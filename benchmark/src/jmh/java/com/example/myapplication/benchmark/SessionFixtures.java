@@ -0,0 +1,55 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.ble.OximeterCommands;
+import com.example.myapplication.model.OximeterData;
+import com.example.myapplication.utils.HexUtils;
+
+/**
+ * 基准测试共用的模拟会话数据：按血氧仪协议构造带正确校验和的 0x95 / 0x99 帧
+ */
+public final class SessionFixtures {
+
+    /** 90 秒检测、每秒 10 个通知，对应一次完整录制的数据量 */
+    public static final int SESSION_PACKETS = 900;
+    /** 每 50 个参数包夹一个电量包 */
+    private static final int BATTERY_EVERY = 50;
+    /** 相邻通知的到达间隔（100ms） */
+    public static final long PACKET_INTERVAL_NANOS = 100_000_000L;
+
+    private SessionFixtures() {}
+
+    /** 一次会话的全部通知（每个通知恰好一帧） */
+    public static byte[][] sessionPackets() {
+        byte[][] packets = new byte[SESSION_PACKETS][];
+        for (int i = 0; i < SESSION_PACKETS; i++) {
+            if (i % BATTERY_EVERY == BATTERY_EVERY - 1) {
+                packets[i] = OximeterCommands.frame(0x99, 3);
+            } else {
+                int pr = 60 + (i % 40);
+                int spo2 = 94 + (i % 6);
+                packets[i] = OximeterCommands.frame(0x95, 0x00, pr, spo2, 36, i % 10, 1, i % 100);
+            }
+        }
+        return packets;
+    }
+
+    /** 与 BluetoothService 日志/界面使用的格式一致的空格分隔十六进制 */
+    public static String[] sessionHexPackets() {
+        byte[][] packets = sessionPackets();
+        String[] hex = new String[packets.length];
+        for (int i = 0; i < packets.length; i++) {
+            hex[i] = HexUtils.bytesToHex(packets[i]);
+        }
+        return hex;
+    }
+
+    /** 已灌入一次完整会话数据的 OximeterData */
+    public static OximeterData populatedSession() {
+        OximeterData data = new OximeterData();
+        byte[][] packets = sessionPackets();
+        for (int i = 0; i < packets.length; i++) {
+            data.addNotification(packets[i], 0, packets[i].length, i * PACKET_INTERVAL_NANOS);
+        }
+        return data;
+    }
+}
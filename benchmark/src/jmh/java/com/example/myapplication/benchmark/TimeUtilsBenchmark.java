@@ -0,0 +1,50 @@
+package com.example.myapplication.benchmark;
+
+import com.example.myapplication.utils.TimeUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 录制期间被蓝牙回调、数据解析和上传频繁调用的时间格式化
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+public class TimeUtilsBenchmark {
+
+    private final StringBuilder sb = new StringBuilder(64);
+
+    @Benchmark
+    public String preciseTimeStamp() {
+        return TimeUtils.getPreciseTimeStamp();
+    }
+
+    @Benchmark
+    public String fileNameTimeStamp() {
+        return TimeUtils.getFileNameTimeStamp();
+    }
+
+    @Benchmark
+    public String simpleTimeStamp() {
+        return TimeUtils.getSimpleTimeStamp();
+    }
+
+    @Benchmark
+    public String currentTime() {
+        return TimeUtils.getCurrentTime();
+    }
+
+    /** 追加到复用的 StringBuilder，同一秒内不分配对象 */
+    @Benchmark
+    public int appendPreciseTimeStamp() {
+        sb.setLength(0);
+        return TimeUtils.appendPreciseTimeStamp(sb, System.currentTimeMillis()).length();
+    }
+}
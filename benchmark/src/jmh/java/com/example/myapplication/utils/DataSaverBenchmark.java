@@ -0,0 +1,53 @@
+package com.example.myapplication.utils;
+
+import com.example.myapplication.benchmark.SessionFixtures;
+import com.example.myapplication.model.DetectionTimeStamp;
+import com.example.myapplication.model.OximeterData;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 保存/上传时的序列化；放在 utils 包内以便直接调用包级可见的 generateJson
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class DataSaverBenchmark {
+
+    private OximeterData session;
+    private DetectionTimeStamp timeStamp;
+
+    @Setup
+    public void setUp() {
+        session = SessionFixtures.populatedSession();
+        timeStamp = new DetectionTimeStamp();
+        // 2025-04-05 15:22:30.000 (UTC+8) 连接，3.456 s 后开始录制，4.012 s 后开始推送数据
+        timeStamp.setAnchor(1743837750000L, 1_000_000_000L);
+        timeStamp.setBluetoothConnectNanos(1_000_000_000L);
+        timeStamp.setVideoStartNanos(4_456_000_000L);
+        timeStamp.setBluetoothDataStartNanos(5_012_000_000L);
+    }
+
+    @Benchmark
+    public String generateJson() {
+        return DataSaver.generateJson(session, timeStamp);
+    }
+
+    @Benchmark
+    public String generateSamplesCsv() {
+        return DataSaver.generateSamplesCsv(session.getSamples());
+    }
+
+    @Benchmark
+    public String rawHexString() {
+        return session.toHexString();
+    }
+}
@@ -0,0 +1,12 @@
+package android.content;
+
+import java.io.File;
+
+/**
+ * JVM 基准测试用的最小桩：DataSaver 的签名需要它，基准测试不会真正调用
+ */
+public abstract class Context {
+    public File getExternalFilesDir(String type) {
+        throw new UnsupportedOperationException("JVM stub");
+    }
+}
@@ -0,0 +1,10 @@
+package android.os;
+
+/**
+ * JVM 基准测试用的最小桩
+ */
+public final class Build {
+    private Build() {}
+
+    public static final String MODEL = "jvm-benchmark";
+}
@@ -0,0 +1,14 @@
+package android.util;
+
+/**
+ * JVM 基准测试用的最小桩：只保留 app 代码实际调用到的方法，不输出任何内容
+ */
+public final class Log {
+    private Log() {}
+
+    public static int d(String tag, String msg) { return 0; }
+    public static int i(String tag, String msg) { return 0; }
+    public static int w(String tag, String msg) { return 0; }
+    public static int e(String tag, String msg) { return 0; }
+    public static int e(String tag, String msg, Throwable tr) { return 0; }
+}